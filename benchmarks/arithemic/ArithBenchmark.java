@@ -0,0 +1,265 @@
+package arithemic;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// -------------------------------------------------------------------------
+/**
+ *  JMH benchmark for the public Arith operations.
+ *
+ *  Every operation runs on seeded ExpressionGenerator input for each
+ *  combination of size and tree shape, run it with "-prof gc" to also get
+ *  the bytes allocated per call.
+ *
+ *  JMH can not generate code for classes of the default package, so this
+ *  class lives in its own package and reaches Arith and ExpressionGenerator
+ *  through method handles, which the JIT inlines like direct calls.
+ *
+ *  Usage: mvn -P jmh package -DskipTests
+ *         java -jar target/benchmarks.jar -prof gc [-p size=101] [regexp]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class ArithBenchmark
+{
+	@Param({"3", "101", "10001", "1000001", "10000001"})
+	public int size;
+
+	@Param({"LEFT_DEEP", "RIGHT_DEEP", "BALANCED", "RANDOM"})
+	public String shape;
+
+	@Param({"42"})
+	public long seed;
+
+	private String[] prefix;
+	private String[] postfix;
+	private String[] infix;
+
+
+	//~ Handles .....................................................................
+
+	private static final MethodHandle GENERATOR;
+	private static final MethodHandle GENERATE_POSTFIX;
+	private static final Class<? extends Enum> SHAPE;
+
+	private static final MethodHandle VALIDATE_PREFIX_ORDER;
+	private static final MethodHandle VALIDATE_POSTFIX_ORDER;
+	private static final MethodHandle EVALUATE_PREFIX_ORDER;
+	private static final MethodHandle EVALUATE_POSTFIX_ORDER;
+	private static final MethodHandle EVALUATE_INFIX;
+	private static final MethodHandle EVALUATE_PREFIX_PARALLEL;
+	private static final MethodHandle EVALUATE_POSTFIX_PARALLEL;
+	private static final MethodHandle TRY_EVALUATE_PREFIX;
+	private static final MethodHandle TRY_EVALUATE_POSTFIX;
+	private static final MethodHandle COMPILE_PREFIX;
+	private static final MethodHandle COMPILE_POSTFIX;
+	private static final MethodHandle CONVERT_PREFIX_TO_POSTFIX;
+	private static final MethodHandle CONVERT_POSTFIX_TO_PREFIX;
+	private static final MethodHandle CONVERT_PREFIX_TO_INFIX;
+	private static final MethodHandle CONVERT_POSTFIX_TO_INFIX;
+	private static final MethodHandle CONVERT_INFIX_TO_PREFIX;
+	private static final MethodHandle CONVERT_INFIX_TO_POSTFIX;
+
+	static
+	{
+		try
+		{
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> arith = Class.forName("Arith");
+			Class<?> generator = Class.forName("ExpressionGenerator");
+			SHAPE = Class.forName("ExpressionGenerator$Shape").asSubclass(Enum.class);
+
+			//default-package types are erased to Object so that invokeExact can be called from here
+			GENERATOR = lookup.findConstructor(generator, MethodType.methodType(void.class, long.class))
+					.asType(MethodType.methodType(Object.class, long.class));
+			GENERATE_POSTFIX = lookup.findVirtual(generator, "postfix", MethodType.methodType(String[].class, int.class, SHAPE))
+					.asType(MethodType.methodType(String[].class, Object.class, int.class, Enum.class));
+
+			MethodType test = MethodType.methodType(boolean.class, String[].class);
+			MethodType evaluate = MethodType.methodType(int.class, String[].class);
+			MethodType convert = MethodType.methodType(String[].class, String[].class);
+			MethodType erased = MethodType.methodType(Object.class, String[].class);
+
+			VALIDATE_PREFIX_ORDER = lookup.findStatic(arith, "validatePrefixOrder", test);
+			VALIDATE_POSTFIX_ORDER = lookup.findStatic(arith, "validatePostfixOrder", test);
+			EVALUATE_PREFIX_ORDER = lookup.findStatic(arith, "evaluatePrefixOrder", evaluate);
+			EVALUATE_POSTFIX_ORDER = lookup.findStatic(arith, "evaluatePostfixOrder", evaluate);
+			EVALUATE_INFIX = lookup.findStatic(arith, "evaluateInfix", evaluate);
+			EVALUATE_PREFIX_PARALLEL = lookup.findStatic(arith, "evaluatePrefixParallel", evaluate);
+			EVALUATE_POSTFIX_PARALLEL = lookup.findStatic(arith, "evaluatePostfixParallel", evaluate);
+			TRY_EVALUATE_PREFIX = lookup.findStatic(arith, "tryEvaluatePrefix", MethodType.methodType(Class.forName("EvaluationResult"), String[].class)).asType(erased);
+			TRY_EVALUATE_POSTFIX = lookup.findStatic(arith, "tryEvaluatePostfix", MethodType.methodType(Class.forName("EvaluationResult"), String[].class)).asType(erased);
+			COMPILE_PREFIX = lookup.findStatic(arith, "compilePrefix", MethodType.methodType(Class.forName("CompiledExpression"), String[].class)).asType(erased);
+			COMPILE_POSTFIX = lookup.findStatic(arith, "compilePostfix", MethodType.methodType(Class.forName("CompiledExpression"), String[].class)).asType(erased);
+			CONVERT_PREFIX_TO_POSTFIX = lookup.findStatic(arith, "convertPrefixToPostfix", convert);
+			CONVERT_POSTFIX_TO_PREFIX = lookup.findStatic(arith, "convertPostfixToPrefix", convert);
+			CONVERT_PREFIX_TO_INFIX = lookup.findStatic(arith, "convertPrefixToInfix", convert);
+			CONVERT_POSTFIX_TO_INFIX = lookup.findStatic(arith, "convertPostfixToInfix", convert);
+			CONVERT_INFIX_TO_PREFIX = lookup.findStatic(arith, "convertInfixToPrefix", convert);
+			CONVERT_INFIX_TO_POSTFIX = lookup.findStatic(arith, "convertInfixToPostfix", convert);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+
+	//~ Input .......................................................................
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void generate() throws Throwable
+	{
+		Object generator = (Object) GENERATOR.invokeExact(seed);
+		postfix = (String[]) GENERATE_POSTFIX.invokeExact(generator, size, (Enum) Enum.valueOf(SHAPE, shape));
+		prefix = (String[]) CONVERT_POSTFIX_TO_PREFIX.invokeExact(postfix);
+		infix = (String[]) CONVERT_POSTFIX_TO_INFIX.invokeExact(postfix);
+	}
+
+
+	//~ Validation ..................................................................
+
+	@Benchmark
+	public boolean validatePrefixOrder() throws Throwable
+	{
+		return (boolean) VALIDATE_PREFIX_ORDER.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public boolean validatePostfixOrder() throws Throwable
+	{
+		return (boolean) VALIDATE_POSTFIX_ORDER.invokeExact(postfix);
+	}
+
+
+	//~ Evaluation ..................................................................
+
+	@Benchmark
+	public int evaluatePrefixOrder() throws Throwable
+	{
+		return (int) EVALUATE_PREFIX_ORDER.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public int evaluatePostfixOrder() throws Throwable
+	{
+		return (int) EVALUATE_POSTFIX_ORDER.invokeExact(postfix);
+	}
+
+
+	@Benchmark
+	public int evaluateInfix() throws Throwable
+	{
+		return (int) EVALUATE_INFIX.invokeExact(infix);
+	}
+
+
+	@Benchmark
+	public int evaluatePrefixParallel() throws Throwable
+	{
+		return (int) EVALUATE_PREFIX_PARALLEL.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public int evaluatePostfixParallel() throws Throwable
+	{
+		return (int) EVALUATE_POSTFIX_PARALLEL.invokeExact(postfix);
+	}
+
+
+	@Benchmark
+	public Object tryEvaluatePrefix() throws Throwable
+	{
+		return (Object) TRY_EVALUATE_PREFIX.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public Object tryEvaluatePostfix() throws Throwable
+	{
+		return (Object) TRY_EVALUATE_POSTFIX.invokeExact(postfix);
+	}
+
+
+	//~ Compilation .................................................................
+
+	@Benchmark
+	public Object compilePrefix() throws Throwable
+	{
+		return (Object) COMPILE_PREFIX.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public Object compilePostfix() throws Throwable
+	{
+		return (Object) COMPILE_POSTFIX.invokeExact(postfix);
+	}
+
+
+	//~ Conversion ..................................................................
+
+	@Benchmark
+	public String[] convertPrefixToPostfix() throws Throwable
+	{
+		return (String[]) CONVERT_PREFIX_TO_POSTFIX.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public String[] convertPostfixToPrefix() throws Throwable
+	{
+		return (String[]) CONVERT_POSTFIX_TO_PREFIX.invokeExact(postfix);
+	}
+
+
+	@Benchmark
+	public String[] convertPrefixToInfix() throws Throwable
+	{
+		return (String[]) CONVERT_PREFIX_TO_INFIX.invokeExact(prefix);
+	}
+
+
+	@Benchmark
+	public String[] convertPostfixToInfix() throws Throwable
+	{
+		return (String[]) CONVERT_POSTFIX_TO_INFIX.invokeExact(postfix);
+	}
+
+
+	@Benchmark
+	public String[] convertInfixToPrefix() throws Throwable
+	{
+		return (String[]) CONVERT_INFIX_TO_PREFIX.invokeExact(infix);
+	}
+
+
+	@Benchmark
+	public String[] convertInfixToPostfix() throws Throwable
+	{
+		return (String[]) CONVERT_INFIX_TO_POSTFIX.invokeExact(infix);
+	}
+}
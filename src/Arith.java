@@ -1,4 +1,15 @@
-import java.util.Stack;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 // -------------------------------------------------------------------------
 /**
@@ -12,7 +23,19 @@ import java.util.Stack;
 public class Arith 
 {
 
-	public static String MARKER = "";
+	/**
+	 * Separator the conversion methods used to join tokens into a single String.
+	 * They now write tokens straight into the output array, so it is no longer used.
+	 */
+	@Deprecated
+	public static final String MARKER = "\u00a3";
+
+	/** Index the infix index conversions write for "(", which has no position in the input. */
+	public static final int OPEN_PARENTHESIS = -1;
+
+	/** Index the infix index conversions write for ")", which has no position in the input. */
+	public static final int CLOSE_PARENTHESIS = -2;
+
 	//~ Validation methods ..........................................................
 
 
@@ -22,7 +45,8 @@ public class Arith
 	 * @param prefixLiterals : an array containing the string literals hopefully in prefix order.
 	 * The method assumes that each of these literals can be one of:
 	 * - "+", "-", "*", or "/"
-	 * - or a valid string representation of an integer.
+	 * - a valid string representation of an integer
+	 * - or a variable name, a letter or underscore followed by letters, digits or underscores.
 	 *
 	 * @return true if the parameter is indeed in prefix notation, and false otherwise.
 	 * 
@@ -31,20 +55,33 @@ public class Arith
 	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
 	 **/
 	public static boolean validatePrefixOrder(String prefixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordValidation(ArithMetrics.Operation.VALIDATE_PREFIX, prefixLiterals, Arith::prefixFailure);
+		return prefixFailure(prefixLiterals) == null;
+	}
+
+
+	/**
+	 * The validation of validatePrefixOrder, which also tells why it rejects.
+	 *
+	 * @return null if the parameter is in prefix notation, otherwise the reason it is not.
+	 **/
+	static EvaluationResult.Failure prefixFailure(String prefixLiterals[])
 	{
 		int operators = 0;
 		int operands = 0;
 		int divide = 0;
 
-		if(prefixLiterals.length==0) return true;
-		if(prefixLiterals.length==1 && prefixLiterals[0].matches("[0-9]+")) return true;
+		if(prefixLiterals.length==0) return null;
+		if(prefixLiterals.length==1 && Tokens.isOperand(Tokens.scan(prefixLiterals[0]))) return null;
 		
 		for(int i = 0 ; i < prefixLiterals.length ; i++) {
 			String str = prefixLiterals[i];
+			long token = Tokens.scan(str);
 			//check if only matches digit
-			if(prefixLiterals[i].matches("[0-9]+")) {
-				if(operators<1) return false;
-				if(divide == 1 && Integer.parseInt(prefixLiterals[i])==0) return false; 
+			if(Tokens.isOperand(token)) {
+				if(operators<1) return EvaluationResult.Failure.EXTRA_OPERAND;
+				if(divide == 1 && !Tokens.isIdentifier(token) && Tokens.intValue(token, str)==0) return EvaluationResult.Failure.DIVISION_BY_ZERO;
 				//division by 0
 				else if(divide != 0) divide--;
 
@@ -58,9 +95,9 @@ public class Arith
 			}
 
 			//test if it is operator
-			else if(prefixLiterals[i].matches("[*+-/]")) {
+			else if(Tokens.isOperator(token)) {
 				//operators can never be the last two elements
-				if(i == prefixLiterals.length-2) return false;
+				if(i == prefixLiterals.length-2) return EvaluationResult.Failure.MISSING_OPERAND;
 				operators++;
 
 				//set flag for division
@@ -72,10 +109,11 @@ public class Arith
 				
 			}
 			//invalid input
-			else return false;
+			else return EvaluationResult.Failure.INVALID_TOKEN;
 		}
 
-		return (operators == 0 && operands == 1);
+		if(operators == 0 && operands == 1) return null;
+		return operators > 0 ? EvaluationResult.Failure.MISSING_OPERAND : EvaluationResult.Failure.EXTRA_OPERAND;
 	}
 
 
@@ -85,7 +123,8 @@ public class Arith
 	 * @param postfixLiterals : an array containing the string literals hopefully in postfix order.
 	 * The method assumes that each of these literals can be one of:
 	 * - "+", "-", "*", or "/"
-	 * - or a valid string representation of an integer.
+	 * - a valid string representation of an integer
+	 * - or a variable name, a letter or underscore followed by letters, digits or underscores.
 	 *
 	 * @return true if the parameter is indeed in postfix notation, and false otherwise.
 	 * 
@@ -94,21 +133,34 @@ public class Arith
 	 * 	Space Complexity: 0(1) worst-case: Only uses constants. 
 	 **/
 	public static boolean validatePostfixOrder(String postfixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordValidation(ArithMetrics.Operation.VALIDATE_POSTFIX, postfixLiterals, Arith::postfixFailure);
+		return postfixFailure(postfixLiterals) == null;
+	}
+
+
+	/**
+	 * The validation of validatePostfixOrder, which also tells why it rejects.
+	 *
+	 * @return null if the parameter is in postfix notation, otherwise the reason it is not.
+	 **/
+	static EvaluationResult.Failure postfixFailure(String postfixLiterals[])
 	{
 		int operators = 0;
 		int operands = 0;
 		int zero = 0;
-		if(postfixLiterals.length==0) return true;
-		if(postfixLiterals.length==1 && postfixLiterals[0].matches("[0-9]+")) return true;
+		if(postfixLiterals.length==0) return null;
+		if(postfixLiterals.length==1 && Tokens.isOperand(Tokens.scan(postfixLiterals[0]))) return null;
 		
 		for(int i = 0 ; i < postfixLiterals.length ; i++) {
+			long token = Tokens.scan(postfixLiterals[i]);
 			//test if it is operator
-			if(postfixLiterals[i].matches("[*+-/]")) {
-				if(operands<2) return false;
+			if(Tokens.isOperator(token)) {
+				if(operands<2) return EvaluationResult.Failure.MISSING_OPERAND;
 				operators++;
 
 				if(postfixLiterals[i].charAt(0)== '/' && zero == 1) {
-					return false;
+					return EvaluationResult.Failure.DIVISION_BY_ZERO;
 				}
 				else if(zero!=0) zero++;
 
@@ -121,16 +173,17 @@ public class Arith
 			}
 
 			//check if only matches digit
-			else if(postfixLiterals[i].matches("[0-9]+")) {
+			else if(Tokens.isOperand(token)) {
 				operands++;
-				if(Integer.parseInt(postfixLiterals[i]) == 0)	zero = 2;
+				if(!Tokens.isIdentifier(token) && Tokens.intValue(token, postfixLiterals[i]) == 0)	zero = 2;
 				else zero--;
 			}
 
-			else return false;
+			else return EvaluationResult.Failure.INVALID_TOKEN;
 		}
 
-		return (operators == 0 && operands == 1);
+		if(operators == 0 && operands == 1) return null;
+		return operands > 1 ? EvaluationResult.Failure.EXTRA_OPERAND : EvaluationResult.Failure.MISSING_OPERAND;
 	}
 
 
@@ -149,67 +202,63 @@ public class Arith
 	 * 
 	 * Argument: 
 	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
-	 * 	Space Complexity: 0(n) worst-case: Seems possible to reduce the memory used using stack of references, but it is still O(n).
+	 * 	Space Complexity: 0(n) worst-case: One int per operand for the operand stack.
 	 **/
 	public static int evaluatePrefixOrder(String prefixLiterals[])
 	{
-		Stack<Character> operators = new Stack();
-		Stack<String> operands = new Stack();
+		return evaluatePrefixOrder(prefixLiterals, new int[Math.max(prefixLiterals.length, 1)]);
+	}
 
-		for(int i = 0 ; i < prefixLiterals.length ; i++) {
-			String literal = prefixLiterals[i];
 
-			//test if it is operator
-			if(literal.matches("[*+-/]")) {
-				operators.push(literal.charAt(0));
-				operands.push("(");
-			}
+	/**
+	 * Evaluation method for prefix notation using a caller-supplied operand stack.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the integer result of evaluating the expression
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: A single right-to-left pass, each operator combines the two topmost values.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static int evaluatePrefixOrder(String prefixLiterals[], int stack[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordEvaluation(ArithMetrics.Operation.EVALUATE_PREFIX, prefixLiterals, stack, Arith::evaluatePrefixLiterals);
+		return evaluatePrefixLiterals(prefixLiterals, stack);
+	}
 
-			//check if only matches digit
-			else if(literal.matches("[0-9]+")) {
-				operands.push(literal);
-			}
-		}
 
-		Stack<String> temp = new Stack();
-		int n1 = 0;
-		int n2 = 0;
-		int result = 0;
+	private static int evaluatePrefixLiterals(String prefixLiterals[], int stack[])
+	{
+		int top = 0;
 
-		while(operators.size()>0) {
-			char operator = operators.pop();
-			String operand = operands.pop();
+		for(int i = prefixLiterals.length-1 ; i >= 0 ; i--) {
+			String literal = prefixLiterals[i];
 
-			//find the correct pair
-			while(!operand.equals("(")) {
-				temp.push(operand);
-				operand = operands.pop();
-			}
+			long token = Tokens.scan(literal);
 
-			n1 = Integer.parseInt(temp.pop());
-			n2 = Integer.parseInt(temp.pop());
-
-			//calculation
-			switch(operator) {
-			case '*':	result = n1*n2;
-			break;
-			case '/': 	result = n1/n2;
-			break;
-			case '+':	result = n1+n2;
-			break;
-			case '-':	result = n1-n2;
-			break;
-			default:	result = Integer.MAX_VALUE;
+			//test if it is operator
+			if(Tokens.isOperator(token)) {
+				if(top < 2) throw new EmptyStackException();
+				//the first operand is the one closest to the operator
+				int n1 = stack[--top];
+				int n2 = stack[--top];
+				stack[top++] = calculate(Tokens.operator(token), n1, n2);
 			}
 
-			// push result back into the stack
-			operands.push(result+"");
-			// empty the temp
-			while(temp.size()!=0) operands.push(temp.pop());
+			//check if only matches digit
+			else if(Tokens.isOperand(token)) {
+				stack[top++] = Tokens.intValue(token, literal);
+			}
 		}
 
-		return Integer.parseInt(operands.pop());
-
+		if(top == 0) throw new EmptyStackException();
+		return stack[top-1];
 	}
 
 
@@ -225,275 +274,1513 @@ public class Arith
 	 * 
 	 * Argument: 
 	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
-	 * 	Space Complexity: 0(n) worst-case: Seems possible to reduce the memory used using stack of references, but it is still O(n).
+	 * 	Space Complexity: 0(n) worst-case: One int per operand for the operand stack.
 	 **/
 	public static int evaluatePostfixOrder(String postfixLiterals[])
 	{
-		Stack<Character> operators = new Stack();
-		Stack<String> operands = new Stack();
+		return evaluatePostfixOrder(postfixLiterals, new int[Math.max(postfixLiterals.length, 1)]);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using a caller-supplied operand stack.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the integer result of evaluating the expression
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static int evaluatePostfixOrder(String postfixLiterals[], int stack[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordEvaluation(ArithMetrics.Operation.EVALUATE_POSTFIX, postfixLiterals, stack, Arith::evaluatePostfixLiterals);
+		return evaluatePostfixLiterals(postfixLiterals, stack);
+	}
+
+
+	private static int evaluatePostfixLiterals(String postfixLiterals[], int stack[])
+	{
+		int top = 0;
 
 		for(int i = 0 ; i < postfixLiterals.length ; i++) {
 			String literal = postfixLiterals[i];
+			long token = Tokens.scan(literal);
 			//operands
-			if(literal.matches("[0-9]+")) {
-				operands.push(literal);
+			if(Tokens.isOperand(token)) {
+				stack[top++] = Tokens.intValue(token, literal);
 			}
 
 			//operators
 			else{
-				//extract the operator
-				char operator = postfixLiterals[i].charAt(0);
+				if(top < 2) throw new EmptyStackException();
 				//extract two operands
-				int n2 = Integer.parseInt(operands.pop());
-				int n1 = Integer.parseInt(operands.pop());
-				int result = 0;
-
-				//calculation
-				switch(operator) {
-				case '*':	result = n1*n2;
-				break;
-				case '/': 	result = n1/n2;
-				break;
-				case '+':	result = n1+n2;
-				break;
-				case '-':	result = n1-n2;
-				break;
-				default:	result = Integer.MAX_VALUE;
-				}
+				int n2 = stack[--top];
+				int n1 = stack[--top];
 				//push result back into the stack
-				operands.push(result+"");
+				stack[top++] = calculate(literal.charAt(0), n1, n2);
 			}
 		}
-		return Integer.parseInt(operands.pop());
+
+		if(top == 0) throw new EmptyStackException();
+		return stack[top-1];
 	}
 
 
-	//~ Conversion  methods ..........................................................
+	/**
+	 * Evaluation method for infix notation.
+	 *
+	 * @param infixLiterals : an array containing the string literals in infix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/", where "*" and "/" bind tighter and all of them are left-associative
+	 * - "(" or ")"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder
+	 * gives for the postfix form.
+	 * @throws IllegalArgumentException if the literals are not an infix expression.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Goes through all elements once, every operator is pushed and applied once.
+	 * 	Space Complexity: 0(n) worst-case: An int operand stack and a char operator stack.
+	 **/
+	public static int evaluateInfix(String infixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordEvaluation(ArithMetrics.Operation.EVALUATE_INFIX, infixLiterals, null, (literals, stack) -> InfixParser.evaluate(literals));
+		return InfixParser.evaluate(infixLiterals);
+	}
 
 
 	/**
-	 * Converts prefix to postfix.
+	 * Applies a single operator to two operands.
+	 *
+	 * @return n1 operator n2, or Integer.MAX_VALUE for an unknown operator.
+	 **/
+	static int calculate(char operator, int n1, int n2)
+	{
+		switch(operator) {
+		case '*':	return n1*n2;
+		case '/': 	return n1/n2;
+		case '+':	return n1+n2;
+		case '-':	return n1-n2;
+		default:	return Integer.MAX_VALUE;
+		}
+	}
+
+
+	/**
+	 * Evaluation method for very large expressions in prefix notation, using all cores of the common fork-join pool.
 	 *
 	 * @param prefixLiterals : an array containing the string literals in prefix order.
 	 * The method assumes that each of these literals can be one of:
 	 * - "+", "-", "*", or "/"
 	 * - or a valid string representation of an integer.
 	 *
-	 * @return the expression in postfix order.
+	 * @return the integer result of evaluating the expression, the same as evaluatePrefixOrder.
+	 * @throws IllegalArgumentException if the literals are not an expression in prefix order.
 	 * 
 	 * Argument: 
-	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
-	 * 	Space Complexity: 0(n) worst-case: Seems possible to reduce the memory used using stack of references, but it is still O(n).
+	 * 	Runtime: 0(n/p + log n) for balanced expressions: independent subtrees are evaluated on p threads.
+	 * 	Space Complexity: 0(n) worst-case: An instruction and a stack depth per element.
 	 **/
-	public static String[] convertPrefixToPostfix(String prefixLiterals[])
+	public static int evaluatePrefixParallel(String prefixLiterals[])
 	{
-		Stack<Character> operators = new Stack();
-		Stack<String> operands = new Stack();
+		return ParallelEvaluator.evaluate(prefixLiterals, true);
+	}
 
-		for(int i = 0 ; i < prefixLiterals.length ; i++) {
-			String literal = prefixLiterals[i];
 
-			//test if it is operator
-			if(literal.matches("[*+-/]")) {
-				operators.push(literal.charAt(0));
-				operands.push("(");
-			}
+	/**
+	 * Evaluation method for very large expressions in postfix notation, using all cores of the common fork-join pool.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n/p + log n) for balanced expressions: independent subtrees are evaluated on p threads.
+	 * 	Space Complexity: 0(n) worst-case: An instruction and a stack depth per element.
+	 **/
+	public static int evaluatePostfixParallel(String postfixLiterals[])
+	{
+		return ParallelEvaluator.evaluate(postfixLiterals, false);
+	}
 
-			//check if only matches digit
-			else if(literal.matches("[0-9]+")) {
-				operands.push(literal);
-			}
-		}
 
-		Stack<String> temp = new Stack();
-		String n1,n2,result;
+	//~ Streaming methods ..........................................................
 
-		while(operators.size()>0) {
-			char operator = operators.pop();
-			String operand = operands.pop();
 
-			//find the correct pair
-			while(!operand.equals("(")) {
-				temp.push(operand);
-				operand = operands.pop();
-			}
+	/**
+	 * Validation method for prefix notation held in a single CharSequence, without splitting it.
+	 *
+	 * @param prefixText : the tokens hopefully in prefix order, separated by whitespace.
+	 *
+	 * @return the same as validatePrefixOrder gives for the tokens.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants, no token is kept.
+	 **/
+	public static boolean validatePrefix(CharSequence prefixText)
+	{
+		try {
+			return StreamingEvaluator.validatePrefix(new TokenStream(prefixText));
+		}
+		catch(IOException e) {
+			//a CharSequence is never read through a Reader
+			throw new UncheckedIOException(e);
+		}
+	}
 
-			n1 = temp.pop();
-			n2 = temp.pop();
 
-			//calculation
-			result = n1 + MARKER + n2 + MARKER +operator ;
+	/**
+	 * Validation method for prefix notation read from a character stream, tokenizing on the fly.
+	 *
+	 * @param prefixText : the tokens hopefully in prefix order, separated by whitespace. The reader is not closed.
+	 *
+	 * @return the same as validatePrefixOrder gives for the tokens.
+	 * @throws IOException if the reader fails.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants, no token is kept.
+	 **/
+	public static boolean validatePrefix(Reader prefixText) throws IOException
+	{
+		return StreamingEvaluator.validatePrefix(new TokenStream(prefixText));
+	}
+
 
-			// push result back into the stack
-			operands.push(result+"");
-			// empty the temp
-			while(temp.size()!=0) operands.push(temp.pop());
+	/**
+	 * Validation method for postfix notation held in a single CharSequence, without splitting it.
+	 *
+	 * @param postfixText : the tokens hopefully in postfix order, separated by whitespace.
+	 *
+	 * @return the same as validatePostfixOrder gives for the tokens.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants, no token is kept.
+	 **/
+	public static boolean validatePostfix(CharSequence postfixText)
+	{
+		try {
+			return StreamingEvaluator.validatePostfix(new TokenStream(postfixText));
+		}
+		catch(IOException e) {
+			//a CharSequence is never read through a Reader
+			throw new UncheckedIOException(e);
 		}
-
-		return operands.pop().split(MARKER);
 	}
 
 
 	/**
-	 * Converts postfix to prefix.
+	 * Validation method for postfix notation read from a character stream, tokenizing on the fly.
 	 *
-	 * @param prefixLiterals : an array containing the string literals in postfix order.
-	 * The method assumes that each of these literals can be one of:
-	 * - "+", "-", "*", or "/"
-	 * - or a valid string representation of an integer.
+	 * @param postfixText : the tokens hopefully in postfix order, separated by whitespace. The reader is not closed.
 	 *
-	 * @return the expression in prefix order.
+	 * @return the same as validatePostfixOrder gives for the tokens.
+	 * @throws IOException if the reader fails.
 	 * 
 	 * Argument: 
-	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
-	 * 	Space Complexity: 0(n) worst-case: Seems possible to reduce the memory used using stack of references, but it is still O(n).
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants, no token is kept.
 	 **/
-	public static String[] convertPostfixToPrefix(String postfixLiterals[])
+	public static boolean validatePostfix(Reader postfixText) throws IOException
 	{
-		Stack<String> operands = new Stack();
-		String result="";
-		
-		String n1,n2;
-		for(int i = 0 ; i < postfixLiterals.length ; i++) {
-			
-			String literal = postfixLiterals[i];
-			//if operand
-			if(literal.matches("[0-9]+")) {
-				operands.push(literal);
-			}
+		return StreamingEvaluator.validatePostfix(new TokenStream(postfixText));
+	}
 
-			//operators
-			else{
-				n2 = operands.pop();
-				n1 = operands.pop();
-				result = literal + MARKER + n1 + MARKER + n2;
-				operands.push(result);
-			}
+
+	/**
+	 * Evaluation method for prefix notation held in a single CharSequence, without splitting it.
+	 *
+	 * @param prefixText : the tokens in prefix order, separated by whitespace, as evaluatePrefix(Reader) takes them.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePrefixOrder gives for the tokens.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single prefix expression.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(d) worst-case: A frame per pending operator as deep as the expression, no token is kept.
+	 **/
+	public static int evaluatePrefix(CharSequence prefixText)
+	{
+		try {
+			return StreamingEvaluator.evaluatePrefix(new TokenStream(prefixText));
+		}
+		catch(IOException e) {
+			//a CharSequence is never read through a Reader
+			throw new UncheckedIOException(e);
 		}
-		return operands.pop().split(MARKER);
-				
 	}
 
+
 	/**
-	 * Converts prefix to infix.
+	 * Evaluation method for prefix notation read from a character stream, tokenizing on the fly.
 	 *
-	 * @param infixLiterals : an array containing the string literals in prefix order.
-	 * The method assumes that each of these literals can be one of:
+	 * @param prefixText : the tokens in prefix order, separated by whitespace. The reader is not closed.
+	 * Each token can be one of:
 	 * - "+", "-", "*", or "/"
 	 * - or a valid string representation of an integer.
 	 *
-	 * @return the expression in infix order.
+	 * @return the integer result of evaluating the expression, the same as evaluatePrefixOrder gives for the tokens.
+	 * @throws IOException if the reader fails.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single prefix expression.
 	 * 
 	 * Argument: 
-	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
-	 * 	Space Complexity: 0(n) worst-case: Seems possible to reduce the memory used using stack of references, but it is still O(n).
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(d) worst-case: A frame per pending operator as deep as the expression, no token is kept.
 	 **/
-	public static String[] convertPrefixToInfix(String prefixLiterals[])
+	public static int evaluatePrefix(Reader prefixText) throws IOException
 	{
-		Stack<Character> operators = new Stack();
-		Stack<String> operands = new Stack();
-
-		for(int i = 0 ; i < prefixLiterals.length ; i++) {
-			String literal = prefixLiterals[i];
+		return StreamingEvaluator.evaluatePrefix(new TokenStream(prefixText));
+	}
 
-			//test if it is operator
-			if(literal.matches("[*+-/]")) {
-				operators.push(literal.charAt(0));
-				operands.push("(");
-			}
 
-			//check if only matches digit
-			else if(literal.matches("[0-9]+")) {
-				operands.push(literal);
-			}
+	/**
+	 * Evaluation method for postfix notation held in a single CharSequence, without splitting it.
+	 *
+	 * @param postfixText : the tokens in postfix order, separated by whitespace, as evaluatePostfix(Reader) takes them.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder gives for the tokens.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single postfix expression.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(d) worst-case: An operand stack as deep as the expression, no token is kept.
+	 **/
+	public static int evaluatePostfix(CharSequence postfixText)
+	{
+		try {
+			return StreamingEvaluator.evaluatePostfix(new TokenStream(postfixText));
 		}
-
-		Stack<String> temp = new Stack();
-		String n1,n2,result = "";
-
-		while(operators.size()>0) {
-			char operator = operators.pop();
-			String operand = operands.pop();
-
-			//find the correct pair
-			while(!operand.equals("(")) {
-				temp.push(operand);
-				operand = operands.pop();
-			}
-			
-			n1 = temp.pop();
-			n2 = temp.pop();
-			result = "(" + MARKER + n1 + MARKER + operator + MARKER + n2  + MARKER + ")";
-			operands.push(result);
+		catch(IOException e) {
+			//a CharSequence is never read through a Reader
+			throw new UncheckedIOException(e);
 		}
-		return operands.pop().split(MARKER);
 	}
 
+
 	/**
-	 * Converts postfix to infix.
+	 * Evaluation method for postfix notation read from a character stream, tokenizing on the fly.
 	 *
-	 * @param infixLiterals : an array containing the string literals in postfix order.
-	 * The method assumes that each of these literals can be one of:
+	 * @param postfixText : the tokens in postfix order, separated by whitespace. The reader is not closed.
+	 * Each token can be one of:
 	 * - "+", "-", "*", or "/"
 	 * - or a valid string representation of an integer.
 	 *
-	 * @return the expression in infix order.
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder gives for the tokens.
+	 * @throws IOException if the reader fails.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single postfix expression.
 	 * 
 	 * Argument: 
-	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
-	 * 	Space Complexity: 0(n) worst-case: Seems possible to reduce the memory used using stack of references, but it is still O(n).
+	 * 	Runtime: 0(n) worst-case: Each character is read once.
+	 * 	Space Complexity: 0(d) worst-case: An operand stack as deep as the expression, no token is kept.
 	 **/
-	public static String[] convertPostfixToInfix(String postfixLiterals[])
+	public static int evaluatePostfix(Reader postfixText) throws IOException
 	{
-		Stack<Character> operators = new Stack();
-		Stack<String> operands = new Stack();
+		return StreamingEvaluator.evaluatePostfix(new TokenStream(postfixText));
+	}
 
-		for(int i = 0 ; i < postfixLiterals.length ; i++) {
-			String literal = postfixLiterals[i];
-			//operands
-			if(literal.matches("[0-9]+")) {
-				operands.push(literal);
-			}
 
-			//operators
-			else{
-				//extract the operator
-				char operator = postfixLiterals[i].charAt(0);
-				
-				String n1,n2;
-				//extract two operands
-				 n2 = operands.pop();
-				 n1 = operands.pop();
-		
-				//push result back into the stack
-				operands.push("(" + MARKER + n1 + MARKER + operator + MARKER + n2 + MARKER + ")");
-			}
-		}
-		return operands.pop().split(MARKER);
+	//~ Transcoding methods ..........................................................
+
+
+	/**
+	 * Conversion method from prefix to postfix notation between channels, converting tokens as they are read.
+	 *
+	 * @param prefixText : the tokens in prefix order, separated by whitespace. The channel is read to its end, and not closed.
+	 * @param postfixOut : receives the tokens in postfix order, separated by single spaces. The channel is not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single prefix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels spills to a temporary file.
+	 **/
+	public static void transcodePrefixToPostfix(ReadableByteChannel prefixText, WritableByteChannel postfixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPrefix(prefixText, false, postfixOut, null, ExpressionTranscoder.STACK_BYTES);
 	}
 
-/**
- *  Research
-	Data Structure Used: Primitive Types, Strings and Stack.
 
+	/**
+	 * Conversion method from prefix to postfix notation from a channel to a writer, converting tokens as they are read.
+	 *
+	 * @param prefixText : the tokens in prefix order, separated by whitespace. The channel is read to its end, and not closed.
+	 * @param postfixOut : receives the tokens in postfix order, separated by single spaces. The writer is flushed, not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single prefix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels spills to a temporary file.
+	 **/
+	public static void transcodePrefixToPostfix(ReadableByteChannel prefixText, Writer postfixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPrefix(prefixText, false, null, postfixOut, ExpressionTranscoder.STACK_BYTES);
+	}
 
-Estimate the running time of the above methods:
 
-Worst-case Asymptotic Runtime:
+	/**
+	 * Conversion method from prefix to infix notation between channels, converting tokens as they are read.
+	 *
+	 * @param prefixText : the tokens in prefix order, separated by whitespace. The channel is read to its end, and not closed.
+	 * @param infixOut : receives the tokens in infix order, separated by single spaces. The channel is not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single prefix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels spills to a temporary file.
+	 **/
+	public static void transcodePrefixToInfix(ReadableByteChannel prefixText, WritableByteChannel infixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPrefix(prefixText, true, infixOut, null, ExpressionTranscoder.STACK_BYTES);
+	}
 
-validatePrefixOrder(String prefixLiterals[]): O(n)
-	Goes through all elements twice.
-	
-validatePostfixOrder(String prefixLiterals[]): O(n)
-	Goes through all elements twice.
-	
-evaluatePrefixOrder(String prefixLiterals[]): O(n)
-	Goes through all elements twice.
-	
-evaluatePostfixOrder(String postfixLiterals[]): O(n)
-	Goes through all elements twice.
-	
-convertPrefixToPostfix(String prefixLiterals[]): O(n)
+
+	/**
+	 * Conversion method from prefix to infix notation from a channel to a writer, converting tokens as they are read.
+	 *
+	 * @param prefixText : the tokens in prefix order, separated by whitespace. The channel is read to its end, and not closed.
+	 * @param infixOut : receives the tokens in infix order, separated by single spaces. The writer is flushed, not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single prefix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels spills to a temporary file.
+	 **/
+	public static void transcodePrefixToInfix(ReadableByteChannel prefixText, Writer infixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPrefix(prefixText, true, null, infixOut, ExpressionTranscoder.STACK_BYTES);
+	}
+
+
+	/**
+	 * Conversion method from postfix to prefix notation between channels, converting tokens as they are read.
+	 *
+	 * @param postfixText : the tokens in postfix order, separated by whitespace. The channel is read from its end, and not closed.
+	 * @param prefixOut : receives the tokens in prefix order, separated by single spaces. The channel is not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single postfix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once, and each output byte written twice.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels and reversed output past 1MB spill to temporary files.
+	 **/
+	public static void transcodePostfixToPrefix(SeekableByteChannel postfixText, WritableByteChannel prefixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPostfix(postfixText, false, prefixOut, null, ExpressionTranscoder.STACK_BYTES);
+	}
+
+
+	/**
+	 * Conversion method from postfix to prefix notation from a channel to a writer, converting tokens as they are read.
+	 *
+	 * @param postfixText : the tokens in postfix order, separated by whitespace. The channel is read from its end, and not closed.
+	 * @param prefixOut : receives the tokens in prefix order, separated by single spaces. The writer is flushed, not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single postfix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once, and each output byte written twice.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels and reversed output past 1MB spill to temporary files.
+	 **/
+	public static void transcodePostfixToPrefix(SeekableByteChannel postfixText, Writer prefixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPostfix(postfixText, false, null, prefixOut, ExpressionTranscoder.STACK_BYTES);
+	}
+
+
+	/**
+	 * Conversion method from postfix to infix notation between channels, converting tokens as they are read.
+	 *
+	 * @param postfixText : the tokens in postfix order, separated by whitespace. The channel is read from its end, and not closed.
+	 * @param infixOut : receives the tokens in infix order, separated by single spaces. The channel is not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single postfix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once, and each output byte written twice.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels and reversed output past 1MB spill to temporary files.
+	 **/
+	public static void transcodePostfixToInfix(SeekableByteChannel postfixText, WritableByteChannel infixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPostfix(postfixText, true, infixOut, null, ExpressionTranscoder.STACK_BYTES);
+	}
+
+
+	/**
+	 * Conversion method from postfix to infix notation from a channel to a writer, converting tokens as they are read.
+	 *
+	 * @param postfixText : the tokens in postfix order, separated by whitespace. The channel is read from its end, and not closed.
+	 * @param infixOut : receives the tokens in infix order, separated by single spaces. The writer is flushed, not closed.
+	 *
+	 * @throws IOException if reading or writing fails, or a temporary file cannot be created.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a token is invalid or the tokens are not a single postfix expression.
+	 * Output written before the error was found is left in place.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each byte is read once, and each output byte written twice.
+	 * 	Space Complexity: 0(1) worst-case: Fixed buffers, a stack deeper than 1M levels and reversed output past 1MB spill to temporary files.
+	 **/
+	public static void transcodePostfixToInfix(SeekableByteChannel postfixText, Writer infixOut) throws IOException
+	{
+		ExpressionTranscoder.fromPostfix(postfixText, true, null, infixOut, ExpressionTranscoder.STACK_BYTES);
+	}
+
+
+	//~ Numeric mode evaluation methods ..........................................................
+
+
+	/**
+	 * Evaluation method for prefix notation using checked int arithmetic.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException if an intermediate result overflows an int, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static int evaluatePrefixOrderExact(String prefixLiterals[])
+	{
+		return NumericEvaluator.evaluateIntExact(prefixLiterals, true);
+	}
+
+
+	/**
+	 * Evaluation method for prefix notation using checked int arithmetic and a caller-supplied operand stack.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException if an intermediate result overflows an int, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static int evaluatePrefixOrderExact(String prefixLiterals[], int stack[])
+	{
+		return NumericEvaluator.evaluateIntExact(prefixLiterals, true, stack);
+	}
+
+
+	/**
+	 * Evaluation method for prefix notation using long arithmetic.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the long result of evaluating the expression, wrapping around on overflow like evaluatePrefixOrder does for int.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static long evaluatePrefixOrderAsLong(String prefixLiterals[])
+	{
+		return NumericEvaluator.evaluateLong(prefixLiterals, true, false);
+	}
+
+
+	/**
+	 * Evaluation method for prefix notation using long arithmetic and a caller-supplied operand stack.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the long result of evaluating the expression, wrapping around on overflow.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static long evaluatePrefixOrderAsLong(String prefixLiterals[], long stack[])
+	{
+		return NumericEvaluator.evaluateLong(prefixLiterals, true, false, stack);
+	}
+
+
+	/**
+	 * Evaluation method for prefix notation using checked long arithmetic.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the long result of evaluating the expression.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * @throws ArithmeticException if an intermediate result overflows a long, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static long evaluatePrefixOrderAsLongExact(String prefixLiterals[])
+	{
+		return NumericEvaluator.evaluateLong(prefixLiterals, true, true);
+	}
+
+
+	/**
+	 * Evaluation method for prefix notation using checked long arithmetic and a caller-supplied operand stack.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the long result of evaluating the expression.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * @throws ArithmeticException if an intermediate result overflows a long, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static long evaluatePrefixOrderAsLongExact(String prefixLiterals[], long stack[])
+	{
+		return NumericEvaluator.evaluateLong(prefixLiterals, true, true, stack);
+	}
+
+
+	/**
+	 * Evaluation method for prefix notation using arbitrary precision.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the exact result of evaluating the expression, operands may have any number of digits.
+	 * @throws ArithmeticException on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static BigInteger evaluatePrefixOrderAsBigInteger(String prefixLiterals[])
+	{
+		return NumericEvaluator.evaluateBig(prefixLiterals, true);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using checked int arithmetic.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException if an intermediate result overflows an int, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static int evaluatePostfixOrderExact(String postfixLiterals[])
+	{
+		return NumericEvaluator.evaluateIntExact(postfixLiterals, false);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using checked int arithmetic and a caller-supplied operand stack.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException if an intermediate result overflows an int, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static int evaluatePostfixOrderExact(String postfixLiterals[], int stack[])
+	{
+		return NumericEvaluator.evaluateIntExact(postfixLiterals, false, stack);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using long arithmetic.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the long result of evaluating the expression, wrapping around on overflow like evaluatePostfixOrder does for int.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static long evaluatePostfixOrderAsLong(String postfixLiterals[])
+	{
+		return NumericEvaluator.evaluateLong(postfixLiterals, false, false);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using long arithmetic and a caller-supplied operand stack.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the long result of evaluating the expression, wrapping around on overflow.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static long evaluatePostfixOrderAsLong(String postfixLiterals[], long stack[])
+	{
+		return NumericEvaluator.evaluateLong(postfixLiterals, false, false, stack);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using checked long arithmetic.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the long result of evaluating the expression.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * @throws ArithmeticException if an intermediate result overflows a long, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static long evaluatePostfixOrderAsLongExact(String postfixLiterals[])
+	{
+		return NumericEvaluator.evaluateLong(postfixLiterals, false, true);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using checked long arithmetic and a caller-supplied operand stack.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the long result of evaluating the expression.
+	 * Operands may be as large as Long.MAX_VALUE.
+	 * @throws ArithmeticException if an intermediate result overflows a long, or on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static long evaluatePostfixOrderAsLongExact(String postfixLiterals[], long stack[])
+	{
+		return NumericEvaluator.evaluateLong(postfixLiterals, false, true, stack);
+	}
+
+
+	/**
+	 * Evaluation method for postfix notation using arbitrary precision.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the exact result of evaluating the expression, operands may have any number of digits.
+	 * @throws ArithmeticException on division by zero.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: To evaluate the expression, we have to go through all elements.
+	 * 	Space Complexity: 0(n) worst-case: One value per operand for the operand stack.
+	 **/
+	public static BigInteger evaluatePostfixOrderAsBigInteger(String postfixLiterals[])
+	{
+		return NumericEvaluator.evaluateBig(postfixLiterals, false);
+	}
+
+
+	//~ Fused validation and evaluation methods ..........................................................
+
+
+	/**
+	 * Validates and evaluates an expression in prefix notation in a single pass, without throwing.
+	 *
+	 * @param prefixLiterals : an array containing the string literals hopefully in prefix order.
+	 *
+	 * @return the value of the expression, or the kind and index of the first failure found.
+	 * Unlike validatePrefixOrder, division by a computed zero is caught as well.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: A single right-to-left pass.
+	 * 	Space Complexity: 0(n) worst-case: One int per operand for the operand stack.
+	 **/
+	public static EvaluationResult tryEvaluatePrefix(String prefixLiterals[])
+	{
+		return tryEvaluatePrefix(prefixLiterals, new int[Math.max(prefixLiterals.length, 1)]);
+	}
+
+
+	/**
+	 * Validates and evaluates an expression in prefix notation in a single pass, using a caller-supplied operand stack.
+	 *
+	 * @param prefixLiterals : an array containing the string literals hopefully in prefix order.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 *
+	 * @return the value of the expression, or the kind and index of the first failure found.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: A single right-to-left pass.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static EvaluationResult tryEvaluatePrefix(String prefixLiterals[], int stack[])
+	{
+		int n = prefixLiterals.length;
+		if(n == 0) return EvaluationResult.failure(EvaluationResult.Failure.EMPTY, 0);
+		int top = 0;
+
+		for(int i = n-1 ; i >= 0 ; i--) {
+			long token = Tokens.scan(prefixLiterals[i]);
+
+			if(Tokens.isOperator(token)) {
+				if(top < 2) return EvaluationResult.failure(EvaluationResult.Failure.MISSING_OPERAND, i);
+				int n1 = stack[--top];
+				int n2 = stack[--top];
+				char operator = Tokens.operator(token);
+				if(operator == '/' && n2 == 0) return EvaluationResult.failure(EvaluationResult.Failure.DIVISION_BY_ZERO, i);
+				stack[top++] = calculate(operator, n1, n2);
+			}
+			else if(token >= 0 && token <= Integer.MAX_VALUE) {
+				stack[top++] = (int) token;
+			}
+			else if(Tokens.isIdentifier(token)) {
+				return EvaluationResult.failure(EvaluationResult.Failure.UNBOUND_VARIABLE, i);
+			}
+			else if(Tokens.isOperand(token)) {
+				return EvaluationResult.failure(EvaluationResult.Failure.NUMBER_TOO_LARGE, i);
+			}
+			else return EvaluationResult.failure(EvaluationResult.Failure.INVALID_TOKEN, i);
+		}
+
+		if(top > 1) return EvaluationResult.failure(EvaluationResult.Failure.EXTRA_OPERAND, n);
+		return EvaluationResult.success(stack[0]);
+	}
+
+
+	/**
+	 * Validates and evaluates an expression in postfix notation in a single pass, without throwing.
+	 *
+	 * @param postfixLiterals : an array containing the string literals hopefully in postfix order.
+	 *
+	 * @return the value of the expression, or the kind and index of the first failure found.
+	 * Unlike validatePostfixOrder, division by a computed zero is caught as well.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: A single left-to-right pass.
+	 * 	Space Complexity: 0(n) worst-case: One int per operand for the operand stack.
+	 **/
+	public static EvaluationResult tryEvaluatePostfix(String postfixLiterals[])
+	{
+		return tryEvaluatePostfix(postfixLiterals, new int[Math.max(postfixLiterals.length, 1)]);
+	}
+
+
+	/**
+	 * Validates and evaluates an expression in postfix notation in a single pass, using a caller-supplied operand stack.
+	 *
+	 * @param postfixLiterals : an array containing the string literals hopefully in postfix order.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 *
+	 * @return the value of the expression, or the kind and index of the first failure found.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: A single left-to-right pass.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static EvaluationResult tryEvaluatePostfix(String postfixLiterals[], int stack[])
+	{
+		int n = postfixLiterals.length;
+		if(n == 0) return EvaluationResult.failure(EvaluationResult.Failure.EMPTY, 0);
+		int top = 0;
+
+		for(int i = 0 ; i < n ; i++) {
+			long token = Tokens.scan(postfixLiterals[i]);
+
+			if(Tokens.isOperator(token)) {
+				if(top < 2) return EvaluationResult.failure(EvaluationResult.Failure.MISSING_OPERAND, i);
+				int n2 = stack[--top];
+				int n1 = stack[--top];
+				char operator = Tokens.operator(token);
+				if(operator == '/' && n2 == 0) return EvaluationResult.failure(EvaluationResult.Failure.DIVISION_BY_ZERO, i);
+				stack[top++] = calculate(operator, n1, n2);
+			}
+			else if(token >= 0 && token <= Integer.MAX_VALUE) {
+				stack[top++] = (int) token;
+			}
+			else if(Tokens.isIdentifier(token)) {
+				return EvaluationResult.failure(EvaluationResult.Failure.UNBOUND_VARIABLE, i);
+			}
+			else if(Tokens.isOperand(token)) {
+				return EvaluationResult.failure(EvaluationResult.Failure.NUMBER_TOO_LARGE, i);
+			}
+			else return EvaluationResult.failure(EvaluationResult.Failure.INVALID_TOKEN, i);
+		}
+
+		if(top > 1) return EvaluationResult.failure(EvaluationResult.Failure.EXTRA_OPERAND, n);
+		return EvaluationResult.success(stack[0]);
+	}
+
+
+	//~ Batch evaluation methods ..........................................................
+
+
+	/**
+	 * Evaluates many independent expressions in prefix notation on the common fork-join pool.
+	 *
+	 * @param expressions : the expressions, each an array containing the string literals in prefix order.
+	 *
+	 * @return the result of each expression, plus a bitmap of the ones that failed to evaluate.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the total number of literals, split across p worker threads.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack per chunk.
+	 **/
+	public static BatchResult evaluatePrefixBatch(List<String[]> expressions)
+	{
+		return evaluatePrefixBatch(expressions, ForkJoinPool.getCommonPoolParallelism());
+	}
+
+
+	/**
+	 * Evaluates many independent expressions in prefix notation.
+	 *
+	 * @param expressions : the expressions, each an array containing the string literals in prefix order.
+	 * @param parallelism : the number of worker threads, 1 evaluates on the calling thread.
+	 *
+	 * @return the result of each expression, plus a bitmap of the ones that failed to evaluate.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the total number of literals, split across p worker threads.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack per chunk.
+	 **/
+	public static BatchResult evaluatePrefixBatch(List<String[]> expressions, int parallelism)
+	{
+		return BatchEvaluator.evaluate(expressions, true, parallelism);
+	}
+
+
+	/**
+	 * Evaluates many independent expressions in postfix notation on the common fork-join pool.
+	 *
+	 * @param expressions : the expressions, each an array containing the string literals in postfix order.
+	 *
+	 * @return the result of each expression, plus a bitmap of the ones that failed to evaluate.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the total number of literals, split across p worker threads.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack per chunk.
+	 **/
+	public static BatchResult evaluatePostfixBatch(List<String[]> expressions)
+	{
+		return evaluatePostfixBatch(expressions, ForkJoinPool.getCommonPoolParallelism());
+	}
+
+
+	/**
+	 * Evaluates many independent expressions in postfix notation.
+	 *
+	 * @param expressions : the expressions, each an array containing the string literals in postfix order.
+	 * @param parallelism : the number of worker threads, 1 evaluates on the calling thread.
+	 *
+	 * @return the result of each expression, plus a bitmap of the ones that failed to evaluate.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the total number of literals, split across p worker threads.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack per chunk.
+	 **/
+	public static BatchResult evaluatePostfixBatch(List<String[]> expressions, int parallelism)
+	{
+		return BatchEvaluator.evaluate(expressions, false, parallelism);
+	}
+
+
+	/**
+	 * Evaluates a file of expressions in prefix notation, one per line, on all cores.
+	 *
+	 * @param input : the expressions, one per line, tokens separated by spaces or tabs.
+	 * @param output : the file to write line i's result to, or "error " and the name of its EvaluationResult.Failure.
+	 *
+	 * @return the line and failure counts and the throughput in lines per second.
+	 * @throws IOException if a file cannot be read or written.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the size of the file, split in line-aligned chunks across p worker threads.
+	 * 	Space Complexity: 0(p) worst-case: A few mapped chunks and their formatted output per worker.
+	 **/
+	public static BatchFileReport evaluatePrefixFile(Path input, Path output) throws IOException
+	{
+		return evaluatePrefixFile(input, output, ForkJoinPool.getCommonPoolParallelism());
+	}
+
+
+	/**
+	 * Evaluates a file of expressions in prefix notation, one per line, memory-mapping the input
+	 * and creating no String per line. Each line gives the same result or failure as tryEvaluatePrefix.
+	 *
+	 * @param input : the expressions, one per line, tokens separated by spaces or tabs.
+	 * @param output : the file to write line i's result to, or "error " and the name of its EvaluationResult.Failure.
+	 * @param parallelism : the number of worker threads.
+	 *
+	 * @return the line and failure counts and the throughput in lines per second.
+	 * @throws IOException if a file cannot be read or written.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the size of the file, split in line-aligned chunks across p worker threads.
+	 * 	Space Complexity: 0(p) worst-case: A few mapped chunks and their formatted output per worker.
+	 **/
+	public static BatchFileReport evaluatePrefixFile(Path input, Path output, int parallelism) throws IOException
+	{
+		return BatchFileEvaluator.evaluate(input, output, true, parallelism);
+	}
+
+
+	/**
+	 * Evaluates a file of expressions in postfix notation, one per line, on all cores.
+	 *
+	 * @param input : the expressions, one per line, tokens separated by spaces or tabs.
+	 * @param output : the file to write line i's result to, or "error " and the name of its EvaluationResult.Failure.
+	 *
+	 * @return the line and failure counts and the throughput in lines per second.
+	 * @throws IOException if a file cannot be read or written.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the size of the file, split in line-aligned chunks across p worker threads.
+	 * 	Space Complexity: 0(p) worst-case: A few mapped chunks and their formatted output per worker.
+	 **/
+	public static BatchFileReport evaluatePostfixFile(Path input, Path output) throws IOException
+	{
+		return evaluatePostfixFile(input, output, ForkJoinPool.getCommonPoolParallelism());
+	}
+
+
+	/**
+	 * Evaluates a file of expressions in postfix notation, one per line, memory-mapping the input
+	 * and creating no String per line. Each line gives the same result or failure as tryEvaluatePostfix.
+	 *
+	 * @param input : the expressions, one per line, tokens separated by spaces or tabs.
+	 * @param output : the file to write line i's result to, or "error " and the name of its EvaluationResult.Failure.
+	 * @param parallelism : the number of worker threads.
+	 *
+	 * @return the line and failure counts and the throughput in lines per second.
+	 * @throws IOException if a file cannot be read or written.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(N/p) worst-case: N is the size of the file, split in line-aligned chunks across p worker threads.
+	 * 	Space Complexity: 0(p) worst-case: A few mapped chunks and their formatted output per worker.
+	 **/
+	public static BatchFileReport evaluatePostfixFile(Path input, Path output, int parallelism) throws IOException
+	{
+		return BatchFileEvaluator.evaluate(input, output, false, parallelism);
+	}
+
+
+	//~ Compilation methods ..........................................................
+
+
+	/**
+	 * Compiles an expression in prefix notation for repeated evaluation.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - a valid string representation of an integer
+	 * - or a variable name, which is given a slot to bind a value to when evaluating.
+	 *
+	 * @return an immutable, thread-safe expression whose evaluate() gives the same result as evaluatePrefixOrder.
+	 * @throws IllegalArgumentException if the literals are not an expression in prefix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned once.
+	 * 	Space Complexity: 0(n) worst-case: One instruction per literal.
+	 **/
+	public static CompiledExpression compilePrefix(String prefixLiterals[])
+	{
+		return CompiledExpression.prefix(prefixLiterals);
+	}
+
+
+	/**
+	 * Compiles an expression in postfix notation for repeated evaluation.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - a valid string representation of an integer
+	 * - or a variable name, which is given a slot to bind a value to when evaluating.
+	 *
+	 * @return an immutable, thread-safe expression whose evaluate() gives the same result as evaluatePostfixOrder.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned once.
+	 * 	Space Complexity: 0(n) worst-case: One instruction per literal.
+	 **/
+	public static CompiledExpression compilePostfix(String postfixLiterals[])
+	{
+		return CompiledExpression.postfix(postfixLiterals);
+	}
+
+
+	/**
+	 * Evaluates one postfix expression over whole columns of variable values, one row at a time.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order, with variables.
+	 * @param columns : the values of each variable, in order of first appearance in the expression.
+	 * @param out : receives the value of each row, 0 for the rows that divided by zero.
+	 *
+	 * @return a bitmap of the rows that divided by zero, bit (i % 64) of word (i / 64) is set if row i did.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n*m) worst-case: Each of the n literals is applied to all m rows.
+	 * 	Space Complexity: 0(n) worst-case: The compiled expression and a block of rows per stack entry.
+	 **/
+	public static long[] evaluatePostfixColumns(String postfixLiterals[], int columns[][], int out[])
+	{
+		return CompiledExpression.postfix(postfixLiterals).evaluateColumns(columns, out);
+	}
+
+
+	/**
+	 * Evaluates one postfix expression with long arithmetic over whole columns of variable values, one row at a time.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order, with variables.
+	 * @param columns : the values of each variable, in order of first appearance in the expression.
+	 * @param out : receives the value of each row, 0 for the rows that divided by zero.
+	 *
+	 * @return a bitmap of the rows that divided by zero, bit (i % 64) of word (i / 64) is set if row i did.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n*m) worst-case: Each of the n literals is applied to all m rows.
+	 * 	Space Complexity: 0(n) worst-case: The compiled expression and a block of rows per stack entry.
+	 **/
+	public static long[] evaluatePostfixColumns(String postfixLiterals[], long columns[][], long out[])
+	{
+		return CompiledExpression.postfix(postfixLiterals).evaluateColumns(columns, out);
+	}
+
+
+	//~ Optimization methods ..........................................................
+
+
+	/**
+	 * Optimizes an expression in prefix notation: folds constants, drops identities such as "* 1" and "+ 0",
+	 * and shares identical subtrees, without changing the result, overflow or division by zero behaviour.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - a valid string representation of an integer
+	 * - or a variable name.
+	 *
+	 * @return the optimized expression, to evaluate or to convert back into smaller prefix, postfix or infix.
+	 * @throws IllegalArgumentException if the literals are not an expression in prefix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) expected: Each literal is scanned once and takes a hash lookup.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per node.
+	 **/
+	public static OptimizedExpression optimizePrefix(String prefixLiterals[])
+	{
+		return ExpressionOptimizer.optimize(prefixLiterals, true);
+	}
+
+
+	/**
+	 * Optimizes an expression in postfix notation: folds constants, drops identities such as "* 1" and "+ 0",
+	 * and shares identical subtrees, without changing the result, overflow or division by zero behaviour.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - a valid string representation of an integer
+	 * - or a variable name.
+	 *
+	 * @return the optimized expression, to evaluate or to convert back into smaller prefix, postfix or infix.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) expected: Each literal is scanned once and takes a hash lookup.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per node.
+	 **/
+	public static OptimizedExpression optimizePostfix(String postfixLiterals[])
+	{
+		return ExpressionOptimizer.optimize(postfixLiterals, false);
+	}
+
+
+	//~ Incremental evaluation methods ..........................................................
+
+
+	/**
+	 * Evaluates an expression in prefix notation and keeps the value of every subtree,
+	 * so that replacing one literal later only recomputes the operators above it.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the live expression, whose evaluate() is the same as evaluatePrefixOrder gives for its literals.
+	 * @throws IllegalArgumentException if the literals are not an expression in prefix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned and computed once, each update then costs 0(depth).
+	 * 	Space Complexity: 0(n) worst-case: A few ints per literal.
+	 **/
+	public static LiveExpression livePrefix(String prefixLiterals[])
+	{
+		return LiveExpression.prefix(prefixLiterals);
+	}
+
+
+	/**
+	 * Evaluates an expression in postfix notation and keeps the value of every subtree,
+	 * so that replacing one literal later only recomputes the operators above it.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the live expression, whose evaluate() is the same as evaluatePostfixOrder gives for its literals.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned and computed once, each update then costs 0(depth).
+	 * 	Space Complexity: 0(n) worst-case: A few ints per literal.
+	 **/
+	public static LiveExpression livePostfix(String postfixLiterals[])
+	{
+		return LiveExpression.postfix(postfixLiterals);
+	}
+
+
+	//~ Conversion  methods ..........................................................
+
+
+	/**
+	 * Converts prefix to postfix.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the expression in postfix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static String[] convertPrefixToPostfix(String prefixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordConversion(ArithMetrics.Operation.CONVERT_PREFIX_TO_POSTFIX, prefixLiterals, literals -> ExpressionTree.fromPrefix(literals).toPostfix());
+		return ExpressionTree.fromPrefix(prefixLiterals).toPostfix();
+	}
+
+
+	/**
+	 * Converts postfix to prefix.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the expression in prefix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static String[] convertPostfixToPrefix(String postfixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordConversion(ArithMetrics.Operation.CONVERT_POSTFIX_TO_PREFIX, postfixLiterals, literals -> ExpressionTree.fromPostfix(literals).toPrefix());
+		return ExpressionTree.fromPostfix(postfixLiterals).toPrefix();
+	}
+
+	/**
+	 * Converts prefix to infix.
+	 *
+	 * @param infixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the expression in infix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static String[] convertPrefixToInfix(String prefixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordConversion(ArithMetrics.Operation.CONVERT_PREFIX_TO_INFIX, prefixLiterals, literals -> ExpressionTree.fromPrefix(literals).toInfix());
+		return ExpressionTree.fromPrefix(prefixLiterals).toInfix();
+	}
+
+	/**
+	 * Converts postfix to infix.
+	 *
+	 * @param infixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the expression in infix order.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static String[] convertPostfixToInfix(String postfixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordConversion(ArithMetrics.Operation.CONVERT_POSTFIX_TO_INFIX, postfixLiterals, literals -> ExpressionTree.fromPostfix(literals).toInfix());
+		return ExpressionTree.fromPostfix(postfixLiterals).toInfix();
+	}
+
+	/**
+	 * Converts infix to postfix.
+	 *
+	 * @param infixLiterals : an array containing the string literals in infix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/", where "*" and "/" bind tighter and all of them are left-associative
+	 * - "(" or ")"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the expression in postfix order.
+	 * @throws IllegalArgumentException if the literals are not an infix expression.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: Goes through all elements once, every operator is pushed and popped once.
+	 * 	Space Complexity: 0(n) worst-case: An int operator stack plus the output array.
+	 **/
+	public static String[] convertInfixToPostfix(String infixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordConversion(ArithMetrics.Operation.CONVERT_INFIX_TO_POSTFIX, infixLiterals, literals -> InfixParser.toPostfix(literals));
+		return InfixParser.toPostfix(infixLiterals);
+	}
+
+	/**
+	 * Converts infix to prefix.
+	 *
+	 * @param infixLiterals : an array containing the string literals in infix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/", where "*" and "/" bind tighter and all of them are left-associative
+	 * - "(" or ")"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return the expression in prefix order.
+	 * @throws IllegalArgumentException if the literals are not an infix expression.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to parse into postfix, one to build an index-based tree, one to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output arrays.
+	 **/
+	public static String[] convertInfixToPrefix(String infixLiterals[])
+	{
+		if(ArithMetrics.enabled) return ArithMetrics.recordConversion(ArithMetrics.Operation.CONVERT_INFIX_TO_PREFIX, infixLiterals, literals -> ExpressionTree.fromPostfix(InfixParser.toPostfix(literals)).toPrefix());
+		return ExpressionTree.fromPostfix(InfixParser.toPostfix(infixLiterals)).toPrefix();
+	}
+
+
+	//~ Index conversion methods ..........................................................
+
+
+	/**
+	 * Converts prefix to postfix, as positions into the input instead of tokens.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return for each token of the expression in postfix order, its index in prefixLiterals.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static int[] convertPrefixToPostfixIndices(String prefixLiterals[])
+	{
+		return ExpressionTree.fromPrefix(prefixLiterals).toPostfixIndices();
+	}
+
+
+	/**
+	 * Converts postfix to prefix, as positions into the input instead of tokens.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return for each token of the expression in prefix order, its index in postfixLiterals.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static int[] convertPostfixToPrefixIndices(String postfixLiterals[])
+	{
+		return ExpressionTree.fromPostfix(postfixLiterals).toPrefixIndices();
+	}
+
+
+	/**
+	 * Converts prefix to infix, as positions into the input instead of tokens.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return for each token of the expression in infix order, its index in prefixLiterals, or OPEN_PARENTHESIS and CLOSE_PARENTHESIS for the parentheses.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static int[] convertPrefixToInfixIndices(String prefixLiterals[])
+	{
+		return ExpressionTree.fromPrefix(prefixLiterals).toInfixIndices();
+	}
+
+
+	/**
+	 * Converts postfix to infix, as positions into the input instead of tokens.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 * The method assumes that each of these literals can be one of:
+	 * - "+", "-", "*", or "/"
+	 * - or a valid string representation of an integer.
+	 *
+	 * @return for each token of the expression in infix order, its index in postfixLiterals, or OPEN_PARENTHESIS and CLOSE_PARENTHESIS for the parentheses.
+	 * 
+	 * Argument: 
+	 * 	Runtime: 0(n) worst-case: One pass to build an index-based tree, one pass to write the output.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per element plus the output array.
+	 **/
+	public static int[] convertPostfixToInfixIndices(String postfixLiterals[])
+	{
+		return ExpressionTree.fromPostfix(postfixLiterals).toInfixIndices();
+	}
+
+/**
+ *  Research
+	Data Structure Used: Primitive Types, Strings and int arrays (operand stacks, index-based trees).
+
+
+Estimate the running time of the above methods:
+
+Worst-case Asymptotic Runtime:
+
+validatePrefixOrder(String prefixLiterals[]): O(n)
+	Goes through all elements twice.
+	
+validatePostfixOrder(String prefixLiterals[]): O(n)
+	Goes through all elements twice.
+	
+evaluatePrefixOrder(String prefixLiterals[]): O(n)
+	Goes through all elements once, using a primitive int stack.
+	
+evaluatePostfixOrder(String postfixLiterals[]): O(n)
+	Goes through all elements once, using a primitive int stack.
+	
+convertPrefixToPostfix(String prefixLiterals[]): O(n)
 	Goes through all elements twice.
 	
 convertPostfixToPrefix(String postfixLiterals[]): O(n)
@@ -504,6 +1791,36 @@ convertPrefixToInfix(String prefixLiterals[]): O(n)
 	
 convertPostfixToInfix(String postfixLiterals[]): O(n)
 	Goes through all elements twice.
+
+evaluateInfix(String infixLiterals[]): O(n)
+	Goes through all elements once, using an int operand stack and a char operator stack.
+
+convertInfixToPostfix(String infixLiterals[]): O(n)
+	Goes through all elements once.
+
+convertInfixToPrefix(String infixLiterals[]): O(n)
+	Goes through all elements three times.
+
+optimizePrefix(String prefixLiterals[]), optimizePostfix(String postfixLiterals[]): O(n) expected
+	Goes through all elements once, with one hash lookup per node to share identical subtrees.
+
+evaluatePrefixFile(Path input, Path output), evaluatePostfixFile(Path input, Path output): O(N/p)
+	Reads each byte of the mapped file about twice, with chunks of lines spread across p threads.
+
+validatePrefix/validatePostfix/evaluatePrefix/evaluatePostfix(Reader or CharSequence): O(n)
+	Reads each character once, keeping O(1) state for validation and O(depth) for evaluation.
+
+convert...Indices(String literals[]): O(n)
+	Goes through all elements twice, like the conversion it mirrors, and writes ints instead of Strings.
+
+transcodePrefixToPostfix/transcodePrefixToInfix(ReadableByteChannel, ...): O(n)
+	Reads each byte once, keeping one byte per pending operator, spilled to disk for deep trees.
+
+transcodePostfixToPrefix/transcodePostfixToInfix(SeekableByteChannel, ...): O(n)
+	Reads each byte once from the end, and writes the output reversed, then the right way round.
+
+livePrefix(String prefixLiterals[]), livePostfix(String postfixLiterals[]): O(n)
+	Goes through all elements once; each later LiveExpression.set is O(depth) and evaluate is O(1).
  */
 
 }
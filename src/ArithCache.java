@@ -0,0 +1,294 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// -------------------------------------------------------------------------
+/**
+ *  Optional, thread-safe result cache in front of the Arith evaluation and
+ *  conversion methods, for traffic that sends the same expressions again
+ *  and again.
+ *
+ *  Entries are keyed by the operation and the content of the token array,
+ *  whose hash combines the hash codes the Strings already cache. The cache
+ *  is bounded both by a number of entries and by an approximate number of
+ *  bytes, and evicts the least recently used entry first. Failed calls,
+ *  such as a division by zero, are never cached.
+ *
+ *  The key keeps a copy of the token array and converted arrays are copied
+ *  on the way out, so callers are free to modify the arrays they pass in
+ *  or get back.
+ */
+public final class ArithCache
+{
+	//~ Operations ..................................................................
+
+	private static final byte EVALUATE_PREFIX = 0;
+	private static final byte EVALUATE_POSTFIX = 1;
+	private static final byte PREFIX_TO_POSTFIX = 2;
+	private static final byte POSTFIX_TO_PREFIX = 3;
+	private static final byte PREFIX_TO_INFIX = 4;
+	private static final byte POSTFIX_TO_INFIX = 5;
+
+	/** Rough size of an entry of the LinkedHashMap plus the key and value objects, without the arrays. */
+	private static final long ENTRY_OVERHEAD = 96;
+
+	/** Rough size of a String object and its byte array, without the characters. */
+	private static final long STRING_OVERHEAD = 40;
+
+	//~ Fields ......................................................................
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final LinkedHashMap<Key, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	//~ Constructors ................................................................
+
+	/**
+	 * @param maxEntries : the maximum number of cached results.
+	 * @param maxBytes : the maximum approximate size of the cached keys and results, in bytes.
+	 **/
+	public ArithCache(int maxEntries, long maxBytes)
+	{
+		if(maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		if(maxBytes < 1) throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+
+	/**
+	 * @param maxEntries : the maximum number of cached results, with no bound on their size.
+	 **/
+	public ArithCache(int maxEntries)
+	{
+		this(maxEntries, Long.MAX_VALUE);
+	}
+
+
+	//~ Cached operations ...........................................................
+
+	/**
+	 * Cached Arith.evaluatePrefixOrder.
+	 **/
+	public int evaluatePrefixOrder(String prefixLiterals[])
+	{
+		return (Integer) get(EVALUATE_PREFIX, prefixLiterals, Arith::evaluatePrefixOrder);
+	}
+
+
+	/**
+	 * Cached Arith.evaluatePostfixOrder.
+	 **/
+	public int evaluatePostfixOrder(String postfixLiterals[])
+	{
+		return (Integer) get(EVALUATE_POSTFIX, postfixLiterals, Arith::evaluatePostfixOrder);
+	}
+
+
+	/**
+	 * Cached Arith.convertPrefixToPostfix.
+	 **/
+	public String[] convertPrefixToPostfix(String prefixLiterals[])
+	{
+		return ((String[]) get(PREFIX_TO_POSTFIX, prefixLiterals, Arith::convertPrefixToPostfix)).clone();
+	}
+
+
+	/**
+	 * Cached Arith.convertPostfixToPrefix.
+	 **/
+	public String[] convertPostfixToPrefix(String postfixLiterals[])
+	{
+		return ((String[]) get(POSTFIX_TO_PREFIX, postfixLiterals, Arith::convertPostfixToPrefix)).clone();
+	}
+
+
+	/**
+	 * Cached Arith.convertPrefixToInfix.
+	 **/
+	public String[] convertPrefixToInfix(String prefixLiterals[])
+	{
+		return ((String[]) get(PREFIX_TO_INFIX, prefixLiterals, Arith::convertPrefixToInfix)).clone();
+	}
+
+
+	/**
+	 * Cached Arith.convertPostfixToInfix.
+	 **/
+	public String[] convertPostfixToInfix(String postfixLiterals[])
+	{
+		return ((String[]) get(POSTFIX_TO_INFIX, postfixLiterals, Arith::convertPostfixToInfix)).clone();
+	}
+
+
+	//~ Statistics ..................................................................
+
+	/**
+	 * @return the number of calls answered from the cache.
+	 **/
+	public synchronized long hits()
+	{
+		return hits;
+	}
+
+
+	/**
+	 * @return the number of calls that had to be computed.
+	 **/
+	public synchronized long misses()
+	{
+		return misses;
+	}
+
+
+	/**
+	 * @return the number of entries evicted to stay within the bounds.
+	 **/
+	public synchronized long evictions()
+	{
+		return evictions;
+	}
+
+
+	/**
+	 * @return the number of cached results.
+	 **/
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+
+	/**
+	 * @return the approximate size of the cached keys and results, in bytes.
+	 **/
+	public synchronized long bytes()
+	{
+		return bytes;
+	}
+
+
+	/**
+	 * Removes every cached result, the counters are kept.
+	 **/
+	public synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+
+	@Override
+	public synchronized String toString()
+	{
+		return "ArithCache[size=" + entries.size() + ", bytes=" + bytes + ", hits=" + hits
+				+ ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+
+	//~ Private Methods .............................................................
+
+	private Object get(byte operation, String literals[], Function<String[], Object> compute)
+	{
+		Key key = new Key(operation, literals);
+		synchronized(this) {
+			Object cached = entries.get(key);
+			if(cached != null) {
+				hits++;
+				return cached;
+			}
+			misses++;
+		}
+
+		//computed outside the lock, two threads missing on the same key at once simply both compute it
+		Object result = compute.apply(literals);
+		Key stored = new Key(operation, literals.clone(), key.hash);
+		long size = stored.size() + size(result);
+
+		synchronized(this) {
+			Object previous = entries.put(stored, result);
+			if(previous != null) bytes -= stored.size() + size(previous);
+			bytes += size;
+
+			Iterator<Map.Entry<Key, Object>> eldest = entries.entrySet().iterator();
+			while(entries.size() > maxEntries || (bytes > maxBytes && eldest.hasNext())) {
+				Map.Entry<Key, Object> entry = eldest.next();
+				bytes -= entry.getKey().size() + size(entry.getValue());
+				eldest.remove();
+				evictions++;
+			}
+		}
+		return result;
+	}
+
+
+	private static long size(Object result)
+	{
+		return result instanceof String[] ? size((String[]) result) : 16;
+	}
+
+
+	//counts every literal on its own, even when the key and the result share it, to stay on the safe side
+	private static long size(String literals[])
+	{
+		long size = 16 + 8L*literals.length;
+		for(String literal : literals) {
+			if(literal != null) size += STRING_OVERHEAD + literal.length();
+		}
+		return size;
+	}
+
+
+	/** The operation and the content of its token array. */
+	private static final class Key
+	{
+		final byte operation;
+		final String[] literals;
+		final int hash;
+		//computed on first use, only keys stored in the cache need it
+		long size;
+
+		Key(byte operation, String[] literals)
+		{
+			this(operation, literals, 31*Arrays.hashCode(literals) + operation);
+		}
+
+
+		Key(byte operation, String[] literals, int hash)
+		{
+			this.operation = operation;
+			this.literals = literals;
+			this.hash = hash;
+		}
+
+
+		long size()
+		{
+			if(size == 0) size = ENTRY_OVERHEAD + ArithCache.size(literals);
+			return size;
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if(!(other instanceof Key)) return false;
+			Key key = (Key) other;
+			return hash == key.hash && operation == key.operation && Arrays.equals(literals, key.literals);
+		}
+	}
+}
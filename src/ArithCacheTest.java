@@ -0,0 +1,122 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ArithCache.java
+ */
+@RunWith(JUnit4.class)
+public class ArithCacheTest {
+
+	    @Test
+	    public void hitsAndMissesTest() {
+	        ArithCache cache = new ArithCache(100);
+	        String[] postfix = {"1", "2", "/", "3", "*", "4", "-"};
+
+	        assertEquals(-4, cache.evaluatePostfixOrder(postfix));
+	        //an equal array is a hit as well
+	        assertEquals(-4, cache.evaluatePostfixOrder(postfix.clone()));
+	        assertArrayEquals(Arith.convertPostfixToInfix(postfix), cache.convertPostfixToInfix(postfix));
+	        assertArrayEquals(Arith.convertPostfixToInfix(postfix), cache.convertPostfixToInfix(postfix));
+
+	        assertEquals(2, cache.hits());
+	        assertEquals(2, cache.misses());
+	        assertEquals(2, cache.size());
+	    }
+
+	    @Test
+	    public void operationIsPartOfKeyTest() {
+	        ArithCache cache = new ArithCache(100);
+	        String[] literals = {"3"};
+
+	        assertEquals(3, cache.evaluatePrefixOrder(literals));
+	        assertEquals(3, cache.evaluatePostfixOrder(literals));
+	        assertArrayEquals(literals, cache.convertPrefixToPostfix(literals));
+	        assertArrayEquals(literals, cache.convertPostfixToPrefix(literals));
+	        assertArrayEquals(literals, cache.convertPrefixToInfix(literals));
+
+	        assertEquals(0, cache.hits());
+	        assertEquals(5, cache.misses());
+	    }
+
+	    @Test
+	    public void evictsLeastRecentlyUsedTest() {
+	        ArithCache cache = new ArithCache(2);
+	        String[] a = {"1", "1", "+"};
+	        String[] b = {"2", "2", "+"};
+	        String[] c = {"3", "3", "+"};
+
+	        cache.evaluatePostfixOrder(a);
+	        cache.evaluatePostfixOrder(b);
+	        cache.evaluatePostfixOrder(a);
+	        //b is the least recently used
+	        cache.evaluatePostfixOrder(c);
+	        assertEquals(1, cache.evictions());
+
+	        cache.evaluatePostfixOrder(a);
+	        cache.evaluatePostfixOrder(c);
+	        assertEquals(3, cache.hits());
+	        cache.evaluatePostfixOrder(b);
+	        assertEquals(4, cache.misses());
+	    }
+
+	    @Test
+	    public void boundedByBytesTest() {
+	        ArithCache cache = new ArithCache(1000, 4096);
+	        ExpressionGenerator generator = new ExpressionGenerator(1);
+	        for(int i = 0 ; i < 100 ; i++) {
+	            cache.convertPostfixToPrefix(generator.postfix(51, ExpressionGenerator.Shape.RANDOM));
+	            assertTrue(cache.bytes() <= 4096);
+	        }
+	        assertTrue(cache.evictions() > 0);
+	    }
+
+	    @Test
+	    public void bytesCountLiteralsTest() {
+	        ArithCache cache = new ArithCache(10, 1 << 20);
+	        char[] digits = new char[1000];
+	        Arrays.fill(digits, '1');
+	        String literal = new String(digits);
+
+	        cache.convertPrefixToPostfix(new String[] {"+", literal, literal});
+	        //the literal is counted once in the key and once in the result
+	        assertTrue(cache.bytes() > 4*literal.length());
+	    }
+
+	    @Test
+	    public void cacheIsNotAffectedByCallerMutationTest() {
+	        ArithCache cache = new ArithCache(10);
+	        String[] prefix = {"+", "1", "2"};
+
+	        String[] postfix = cache.convertPrefixToPostfix(prefix);
+	        postfix[0] = "9";
+	        prefix[1] = "5";
+
+	        assertArrayEquals(new String[] {"1", "2", "+"}, cache.convertPrefixToPostfix(new String[] {"+", "1", "2"}));
+	        assertEquals(1, cache.hits());
+	    }
+
+	    @Test
+	    public void failuresAreNotCachedTest() {
+	        ArithCache cache = new ArithCache(10);
+	        for(int i = 0 ; i < 2 ; i++) {
+	            try {
+	                cache.evaluatePostfixOrder(new String[] {"1", "0", "/"});
+	                fail();
+	            }
+	            catch(ArithmeticException e) {
+	                //expected
+	            }
+	        }
+	        assertEquals(0, cache.size());
+	        assertEquals(2, cache.misses());
+	    }
+}
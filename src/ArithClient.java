@@ -0,0 +1,198 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+// -------------------------------------------------------------------------
+/**
+ *  A blocking client of one ArithServer connection.
+ *
+ *  call() sends a request and waits for its response. To pipeline, send()
+ *  any number of requests, flush() them in one write, then receive() the
+ *  responses, which come back in the order the requests were sent.
+ *  The server stops reading a connection whose responses are not read, so
+ *  receive() between flushes when pipelining more than a few MB of requests.
+ *
+ *  A client is not thread-safe, use one per thread.
+ */
+public final class ArithClient implements Closeable
+{
+	private final SocketChannel channel;
+	private ByteBuffer out = ByteBuffer.allocate(16 << 10);
+	private ByteBuffer in = ByteBuffer.allocate(16 << 10);
+
+	private ArithClient(SocketChannel channel)
+	{
+		this.channel = channel;
+	}
+
+
+	/**
+	 * @param port : the port of a server on the loopback interface.
+	 *
+	 * @return a client connected to the server.
+	 * @throws IOException if the server cannot be reached.
+	 **/
+	public static ArithClient connect(int port) throws IOException
+	{
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		return new ArithClient(channel);
+	}
+
+
+	/**
+	 * Sends a request and waits for its response.
+	 *
+	 * @param operation : the Arith method to run.
+	 * @param literals : its argument.
+	 *
+	 * @return the response.
+	 * @throws IOException if the connection fails.
+	 **/
+	public Response call(ArithMetrics.Operation operation, String literals[]) throws IOException
+	{
+		send(operation, literals);
+		flush();
+		return receive();
+	}
+
+
+	/**
+	 * Buffers a request, which is written by the next flush().
+	 *
+	 * @param operation : the Arith method to run.
+	 * @param literals : its argument, each literal ISO-8859-1 text without spaces.
+	 **/
+	public void send(ArithMetrics.Operation operation, String literals[])
+	{
+		int length = 1;
+		for(String literal : literals) length += literal.length() + 1;
+		if(literals.length > 0) length--;
+		if(length > ArithServer.MAX_FRAME) throw new IllegalArgumentException("Request of " + length + " bytes is larger than " + ArithServer.MAX_FRAME);
+
+		if(out.remaining() < 4 + length) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(out.position() + 4 + length, 2*out.capacity()));
+			out.flip();
+			out = larger.put(out);
+		}
+		out.putInt(length);
+		out.put((byte) operation.ordinal());
+		for(int i = 0 ; i < literals.length ; i++) {
+			if(i > 0) out.put((byte) ' ');
+			String literal = literals[i];
+			for(int c = 0 ; c < literal.length() ; c++) out.put((byte) literal.charAt(c));
+		}
+	}
+
+
+	/**
+	 * Writes every buffered request.
+	 *
+	 * @throws IOException if the connection fails.
+	 **/
+	public void flush() throws IOException
+	{
+		out.flip();
+		while(out.hasRemaining()) channel.write(out);
+		out.clear();
+	}
+
+
+	/**
+	 * Waits for the response to the oldest request not yet received.
+	 *
+	 * @return the response.
+	 * @throws IOException if the connection fails or the server closed it.
+	 **/
+	public Response receive() throws IOException
+	{
+		fill(4);
+		int length = in.getInt(0);
+		if(length < 1 || length > ArithServer.MAX_FRAME) throw new IOException("Invalid response length " + length);
+		if(in.capacity() < 4 + length) {
+			ByteBuffer larger = ByteBuffer.allocate(4 + length);
+			in.flip();
+			in = larger.put(in);
+		}
+		fill(4 + length);
+
+		Response response = new Response(in.get(4) == ArithServer.OK, new String(in.array(), 5, length - 1, StandardCharsets.ISO_8859_1));
+		//keep the bytes of the following responses
+		int end = in.position();
+		in.limit(end);
+		in.position(4 + length);
+		in.compact();
+		return response;
+	}
+
+
+	private void fill(int bytes) throws IOException
+	{
+		while(in.position() < bytes) {
+			if(channel.read(in) < 0) throw new EOFException("Connection closed by the server");
+		}
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+
+	//~ Response ....................................................................
+
+	/** The answer of the server to one request. */
+	public static final class Response
+	{
+		private final boolean ok;
+		private final String text;
+
+		Response(boolean ok, String text)
+		{
+			this.ok = ok;
+			this.text = text;
+		}
+
+
+		/**
+		 * @return true if the Arith method returned, false if it threw.
+		 **/
+		public boolean isOk()
+		{
+			return ok;
+		}
+
+
+		/**
+		 * @return the result as text, or the exception class and message if it threw.
+		 **/
+		public String text()
+		{
+			return text;
+		}
+
+
+		/**
+		 * @return the literals of a conversion result.
+		 **/
+		public String[] literals()
+		{
+			return text.isEmpty() ? new String[0] : text.split(" ");
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return (ok ? "" : "error ") + text;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// -------------------------------------------------------------------------
+/**
+ *  Load generator for ArithServer, reporting latency percentiles and throughput.
+ *
+ *  Each connection runs on its own thread and keeps up to pipeline requests
+ *  in flight: it sends requests until that many are waiting, then receives
+ *  one response for every request it sends. The latency of a request is the
+ *  time from its flush to the arrival of its response, so it includes the
+ *  time spent queued behind the other requests of the pipeline.
+ *
+ *  Usage: java ArithLoadGenerator [port] [connections] [pipeline] [requests] [tokens]
+ *  - port        : the port of the server, 7070 by default.
+ *  - connections : the number of client connections, 4 by default.
+ *  - pipeline    : the requests in flight per connection, 16 by default.
+ *  - requests    : the requests sent per connection, 100000 by default.
+ *  - tokens      : the size of the evaluated postfix expression, 101 by default.
+ */
+public final class ArithLoadGenerator
+{
+	private ArithLoadGenerator()
+	{
+	}
+
+
+	/**
+	 * Sends the same postfix evaluation over several connections and waits for every response.
+	 *
+	 * @param port : the port of the server on the loopback interface.
+	 * @param connections : the number of connections, each with its own thread.
+	 * @param pipeline : the requests in flight per connection, 1 for request-response.
+	 * @param requests : the requests sent per connection.
+	 * @param postfixLiterals : the expression every request evaluates.
+	 *
+	 * @return the latency and throughput of the requests.
+	 * @throws IOException if a connection fails or a request gets an error response.
+	 **/
+	public static Report run(int port, int connections, int pipeline, int requests, String postfixLiterals[]) throws IOException
+	{
+		if(connections < 1 || pipeline < 1 || requests < 1) throw new IllegalArgumentException("Connections, pipeline and requests must be positive");
+
+		long[][] latencies = new long[connections][];
+		IOException[] failures = new IOException[connections];
+		List<Thread> threads = new ArrayList<>();
+		long start = System.nanoTime();
+		for(int c = 0 ; c < connections ; c++) {
+			int connection = c;
+			Thread thread = new Thread(() -> {
+				try {
+					latencies[connection] = load(port, pipeline, requests, postfixLiterals);
+				}
+				catch(IOException e) {
+					failures[connection] = e;
+				}
+			}, "arith-load-" + c);
+			thread.start();
+			threads.add(thread);
+		}
+		for(Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the connections", e);
+			}
+		}
+		long nanos = System.nanoTime() - start;
+
+		for(IOException failure : failures) if(failure != null) throw failure;
+		long[] all = new long[connections * requests];
+		for(int c = 0 ; c < connections ; c++) System.arraycopy(latencies[c], 0, all, c*requests, requests);
+		Arrays.sort(all);
+		return new Report(all, nanos);
+	}
+
+
+	/**
+	 * @return the latency of each request of one connection, in nanoseconds.
+	 **/
+	private static long[] load(int port, int pipeline, int requests, String postfixLiterals[]) throws IOException
+	{
+		long[] latencies = new long[requests];
+		//send times of the requests in flight, in order
+		long[] sent = new long[pipeline];
+		int sending = 0;
+		int receiving = 0;
+
+		try(ArithClient client = ArithClient.connect(port)) {
+			while(receiving < requests) {
+				//top the pipeline up, then wait for the oldest response
+				int first = sending;
+				while(sending < requests && sending - receiving < pipeline) {
+					client.send(ArithMetrics.Operation.EVALUATE_POSTFIX, postfixLiterals);
+					sending++;
+				}
+				if(sending > first) {
+					client.flush();
+					long now = System.nanoTime();
+					for(int i = first ; i < sending ; i++) sent[i % pipeline] = now;
+				}
+
+				ArithClient.Response response = client.receive();
+				latencies[receiving] = System.nanoTime() - sent[receiving % pipeline];
+				if(!response.isOk()) throw new IOException("Request " + receiving + " failed: " + response.text());
+				receiving++;
+			}
+		}
+		return latencies;
+	}
+
+
+	/**
+	 * Runs a load against a server already listening.
+	 **/
+	public static void main(String args[]) throws IOException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int pipeline = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int requests = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+		int tokens = args.length > 4 ? Integer.parseInt(args[4]) : 101;
+
+		String[] postfix = new ExpressionGenerator(42).postfix(tokens, ExpressionGenerator.Shape.RANDOM);
+		//a first short run lets both JVMs compile the hot paths
+		run(port, connections, pipeline, Math.min(requests, 10_000), postfix);
+		System.out.println(run(port, connections, pipeline, requests, postfix));
+	}
+
+
+	//~ Report ......................................................................
+
+	/** The latencies and throughput of one run. */
+	public static final class Report
+	{
+		private final long[] latencies;
+		private final long nanos;
+
+		Report(long sortedLatencies[], long nanos)
+		{
+			this.latencies = sortedLatencies;
+			this.nanos = nanos;
+		}
+
+
+		/**
+		 * @return the number of requests answered.
+		 **/
+		public int requests()
+		{
+			return latencies.length;
+		}
+
+
+		/**
+		 * @param percentile : from 0 to 100.
+		 *
+		 * @return the latency in nanoseconds that this percentage of the requests did not exceed.
+		 **/
+		public long percentile(double percentile)
+		{
+			int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+			return latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))];
+		}
+
+
+		/**
+		 * @return the median latency in nanoseconds.
+		 **/
+		public long p50()
+		{
+			return percentile(50);
+		}
+
+
+		/**
+		 * @return the 99th percentile latency in nanoseconds.
+		 **/
+		public long p99()
+		{
+			return percentile(99);
+		}
+
+
+		/**
+		 * @return the wall-clock time of the run, in nanoseconds.
+		 **/
+		public long elapsedNanos()
+		{
+			return nanos;
+		}
+
+
+		/**
+		 * @return the number of requests answered per second of wall-clock time.
+		 **/
+		public double requestsPerSecond()
+		{
+			return nanos == 0 ? 0 : latencies.length * 1e9 / nanos;
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT, "%d requests in %.1f ms: %.0f requests/s, p50 %.1f us, p99 %.1f us, max %.1f us",
+					latencies.length, nanos / 1e6, requestsPerSecond(), p50() / 1e3, p99() / 1e3, latencies[latencies.length - 1] / 1e3);
+		}
+	}
+}
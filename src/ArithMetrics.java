@@ -0,0 +1,421 @@
+import java.util.EmptyStackException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.function.UnaryOperator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// -------------------------------------------------------------------------
+/**
+ *  Opt-in instrumentation of the Arith validation, evaluation and
+ *  conversion methods.
+ *
+ *  While disabled, which is the default, an instrumented method costs a
+ *  single read of a volatile boolean. While enabled, every call records:
+ *  - its count and failure count per operation,
+ *  - a histogram of its number of tokens and one of its latency, both in
+ *    power-of-two buckets, bucket i counting values in [2^(i-1), 2^i),
+ *  - the reason of every failure: the one the exception thrown carries,
+ *    or for a validation that returned false, the one it rejected for,
+ *  - a "arith.SlowCall" Flight Recorder event for calls slower than the
+ *    event threshold, 10 ms unless the recording configures another one.
+ *
+ *  Counters are LongAdders, so threads recording at the same time do not
+ *  contend. snapshot() copies them for exporters to scrape.
+ */
+public final class ArithMetrics
+{
+	/** The instrumented operations. */
+	public enum Operation
+	{
+		VALIDATE_PREFIX,
+		VALIDATE_POSTFIX,
+		EVALUATE_PREFIX,
+		EVALUATE_POSTFIX,
+		EVALUATE_INFIX,
+		CONVERT_PREFIX_TO_POSTFIX,
+		CONVERT_POSTFIX_TO_PREFIX,
+		CONVERT_PREFIX_TO_INFIX,
+		CONVERT_POSTFIX_TO_INFIX,
+		CONVERT_INFIX_TO_POSTFIX,
+		CONVERT_INFIX_TO_PREFIX
+	}
+
+	/** Number of histogram buckets, enough for any int token count or long latency. */
+	public static final int BUCKETS = 64;
+
+	/** Read by every instrumented method, the only cost while disabled. */
+	static volatile boolean enabled;
+
+	private static final Counters[] COUNTERS = new Counters[Operation.values().length];
+	private static final LongAdder[] REASONS = new LongAdder[EvaluationResult.Failure.values().length];
+
+	static {
+		for(int i = 0 ; i < COUNTERS.length ; i++) COUNTERS[i] = new Counters();
+		for(int i = 0 ; i < REASONS.length ; i++) REASONS[i] = new LongAdder();
+	}
+
+	private ArithMetrics()
+	{
+	}
+
+
+	//~ Control .....................................................................
+
+	/**
+	 * Starts recording, the counters keep what they held before.
+	 **/
+	public static void enable()
+	{
+		enabled = true;
+	}
+
+
+	/**
+	 * Stops recording, the counters keep their values until reset().
+	 **/
+	public static void disable()
+	{
+		enabled = false;
+	}
+
+
+	/**
+	 * @return true while calls are recorded.
+	 **/
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+
+	/**
+	 * Sets every counter back to zero.
+	 * Calls recording at the same time may or may not be kept.
+	 **/
+	public static void reset()
+	{
+		for(Counters counters : COUNTERS) counters.reset();
+		for(LongAdder reason : REASONS) reason.reset();
+	}
+
+
+	/**
+	 * @return a copy of the counters as they are now.
+	 **/
+	public static Snapshot snapshot()
+	{
+		Map<Operation, OperationSnapshot> operations = new EnumMap<>(Operation.class);
+		for(Operation operation : Operation.values()) operations.put(operation, COUNTERS[operation.ordinal()].snapshot());
+
+		Map<EvaluationResult.Failure, Long> reasons = new EnumMap<>(EvaluationResult.Failure.class);
+		for(EvaluationResult.Failure reason : EvaluationResult.Failure.values()) reasons.put(reason, REASONS[reason.ordinal()].sum());
+		return new Snapshot(operations, reasons);
+	}
+
+
+	//~ Recording ...................................................................
+
+	/**
+	 * Runs and records an evaluation, only called while enabled.
+	 **/
+	static int recordEvaluation(Operation operation, String literals[], int stack[], ToIntBiFunction<String[], int[]> body)
+	{
+		SlowCall event = new SlowCall();
+		event.begin();
+		long start = System.nanoTime();
+		try {
+			int result = body.applyAsInt(literals, stack);
+			done(operation, literals.length, elapsed(start, event), event, false, null);
+			return result;
+		}
+		catch(RuntimeException e) {
+			done(operation, literals.length, elapsed(start, event), event, true, reason(e));
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Runs and records a conversion, only called while enabled.
+	 **/
+	static String[] recordConversion(Operation operation, String literals[], UnaryOperator<String[]> body)
+	{
+		SlowCall event = new SlowCall();
+		event.begin();
+		long start = System.nanoTime();
+		try {
+			String[] result = body.apply(literals);
+			done(operation, literals.length, elapsed(start, event), event, false, null);
+			return result;
+		}
+		catch(RuntimeException e) {
+			done(operation, literals.length, elapsed(start, event), event, true, reason(e));
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Runs and records a validation, only called while enabled.
+	 *
+	 * @param body : the validation, giving null for a valid expression and the reason it rejects one otherwise.
+	 *
+	 * @return true if the expression is valid.
+	 **/
+	static boolean recordValidation(Operation operation, String literals[], Function<String[], EvaluationResult.Failure> body)
+	{
+		SlowCall event = new SlowCall();
+		event.begin();
+		long start = System.nanoTime();
+		EvaluationResult.Failure failure = body.apply(literals);
+		done(operation, literals.length, elapsed(start, event), event, failure != null, failure);
+		return failure == null;
+	}
+
+
+	/**
+	 * Ends the event of a call.
+	 *
+	 * @return the nanoseconds since the call started.
+	 **/
+	private static long elapsed(long start, SlowCall event)
+	{
+		long nanos = System.nanoTime() - start;
+		event.end();
+		return nanos;
+	}
+
+
+	/**
+	 * @param reason : why the call failed, null if it did not or if no reason fits.
+	 **/
+	private static void done(Operation operation, int tokens, long nanos, SlowCall event, boolean failed, EvaluationResult.Failure reason)
+	{
+		Counters counters = COUNTERS[operation.ordinal()];
+		counters.calls.increment();
+		counters.nanos.add(nanos);
+		counters.tokens[bucket(tokens)].increment();
+		counters.latency[bucket(nanos)].increment();
+		if(failed) counters.failures.increment();
+		if(reason != null) REASONS[reason.ordinal()].increment();
+
+		if(event.shouldCommit()) {
+			event.operation = operation.name();
+			event.tokens = tokens;
+			event.failed = failed;
+			event.commit();
+		}
+	}
+
+
+	/**
+	 * @return the power-of-two bucket of a non-negative value, 0 for 0.
+	 **/
+	static int bucket(long value)
+	{
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+
+	/**
+	 * @return the failure reason of an exception thrown by an Arith method, or null if none fits.
+	 **/
+	private static EvaluationResult.Failure reason(RuntimeException e)
+	{
+		if(e instanceof ArithmeticException) return EvaluationResult.Failure.DIVISION_BY_ZERO;
+		if(e instanceof EmptyStackException) return EvaluationResult.Failure.MISSING_OPERAND;
+		if(e instanceof NumberFormatException) return EvaluationResult.Failure.NUMBER_TOO_LARGE;
+		if(e instanceof EvaluationResult.FailureException) return ((EvaluationResult.FailureException) e).failure();
+		return null;
+	}
+
+
+	/** The live counters of one operation. */
+	private static final class Counters
+	{
+		final LongAdder calls = new LongAdder();
+		final LongAdder failures = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder[] tokens = new LongAdder[BUCKETS];
+		final LongAdder[] latency = new LongAdder[BUCKETS];
+
+		Counters()
+		{
+			for(int i = 0 ; i < BUCKETS ; i++) {
+				tokens[i] = new LongAdder();
+				latency[i] = new LongAdder();
+			}
+		}
+
+
+		void reset()
+		{
+			calls.reset();
+			failures.reset();
+			nanos.reset();
+			for(int i = 0 ; i < BUCKETS ; i++) {
+				tokens[i].reset();
+				latency[i].reset();
+			}
+		}
+
+
+		OperationSnapshot snapshot()
+		{
+			long[] tokenCounts = new long[BUCKETS];
+			long[] latencyCounts = new long[BUCKETS];
+			for(int i = 0 ; i < BUCKETS ; i++) {
+				tokenCounts[i] = tokens[i].sum();
+				latencyCounts[i] = latency[i].sum();
+			}
+			return new OperationSnapshot(calls.sum(), failures.sum(), nanos.sum(), tokenCounts, latencyCounts);
+		}
+	}
+
+
+	//~ Snapshots ...................................................................
+
+	/** The counters of every operation at one point in time. */
+	public static final class Snapshot
+	{
+		private final Map<Operation, OperationSnapshot> operations;
+		private final Map<EvaluationResult.Failure, Long> reasons;
+
+		Snapshot(Map<Operation, OperationSnapshot> operations, Map<EvaluationResult.Failure, Long> reasons)
+		{
+			this.operations = operations;
+			this.reasons = reasons;
+		}
+
+
+		/**
+		 * @return the counters of one operation.
+		 **/
+		public OperationSnapshot operation(Operation operation)
+		{
+			return operations.get(operation);
+		}
+
+
+		/**
+		 * @return the number of failed calls of any operation with this reason.
+		 **/
+		public long failures(EvaluationResult.Failure reason)
+		{
+			return reasons.get(reason);
+		}
+
+
+		@Override
+		public String toString()
+		{
+			StringBuilder text = new StringBuilder("ArithMetrics[");
+			for(Map.Entry<Operation, OperationSnapshot> entry : operations.entrySet()) {
+				if(entry.getValue().calls() > 0) text.append(entry.getKey()).append('=').append(entry.getValue()).append(", ");
+			}
+			return text.append("failures=").append(reasons).append(']').toString();
+		}
+	}
+
+
+	/** The counters of one operation at one point in time. */
+	public static final class OperationSnapshot
+	{
+		private final long calls;
+		private final long failures;
+		private final long nanos;
+		private final long[] tokens;
+		private final long[] latency;
+
+		OperationSnapshot(long calls, long failures, long nanos, long[] tokens, long[] latency)
+		{
+			this.calls = calls;
+			this.failures = failures;
+			this.nanos = nanos;
+			this.tokens = tokens;
+			this.latency = latency;
+		}
+
+
+		/**
+		 * @return the number of calls.
+		 **/
+		public long calls()
+		{
+			return calls;
+		}
+
+
+		/**
+		 * @return the number of calls that threw or, for validations, returned false.
+		 **/
+		public long failures()
+		{
+			return failures;
+		}
+
+
+		/**
+		 * @return the total time spent in the calls, in nanoseconds.
+		 **/
+		public long totalNanos()
+		{
+			return nanos;
+		}
+
+
+		/**
+		 * @return the number of calls by token count, bucket i counting calls with [2^(i-1), 2^i) tokens.
+		 **/
+		public long[] tokenHistogram()
+		{
+			return tokens.clone();
+		}
+
+
+		/**
+		 * @return the number of calls by latency, bucket i counting calls that took [2^(i-1), 2^i) nanoseconds.
+		 **/
+		public long[] latencyHistogram()
+		{
+			return latency.clone();
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return "[calls=" + calls + ", failures=" + failures + ", totalNanos=" + nanos + "]";
+		}
+	}
+
+
+	//~ Flight Recorder .............................................................
+
+	/** Flight Recorder event for an instrumented call slower than the event threshold. */
+	@Name("arith.SlowCall")
+	@Label("Slow Arith Call")
+	@Category("Arith")
+	@Description("An Arith validation, evaluation or conversion that took longer than the threshold")
+	@Threshold("10 ms")
+	static final class SlowCall extends Event
+	{
+		@Label("Operation")
+		String operation;
+
+		@Label("Tokens")
+		int tokens;
+
+		@Label("Failed")
+		boolean failed;
+	}
+}
@@ -0,0 +1,202 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ArithMetrics.java
+ */
+@RunWith(JUnit4.class)
+public class ArithMetricsTest {
+
+	    @Before
+	    public void setUp() {
+	        ArithMetrics.reset();
+	        ArithMetrics.enable();
+	    }
+
+	    @After
+	    public void tearDown() {
+	        ArithMetrics.disable();
+	        ArithMetrics.reset();
+	    }
+
+	    @Test
+	    public void disabledTest() {
+	        ArithMetrics.disable();
+	        assertFalse(ArithMetrics.isEnabled());
+
+	        assertEquals(3, Arith.evaluatePostfixOrder(new String[] {"1", "2", "+"}));
+	        assertTrue(Arith.validatePrefixOrder(new String[] {"+", "1", "2"}));
+	        for(ArithMetrics.Operation operation : ArithMetrics.Operation.values()) {
+	            assertEquals(0, ArithMetrics.snapshot().operation(operation).calls());
+	        }
+	    }
+
+	    @Test
+	    public void countCallsTest() {
+	        assertTrue(ArithMetrics.isEnabled());
+	        assertEquals(3, Arith.evaluatePostfixOrder(new String[] {"1", "2", "+"}));
+	        assertEquals(-1, Arith.evaluatePrefixOrder(new String[] {"-", "1", "2"}));
+	        assertEquals(7, Arith.evaluateInfix(new String[] {"1", "+", "2", "*", "3"}));
+	        assertArrayEquals(new String[] {"1", "2", "+"}, Arith.convertPrefixToPostfix(new String[] {"+", "1", "2"}));
+	        assertArrayEquals(new String[] {"+", "1", "2"}, Arith.convertInfixToPrefix(new String[] {"1", "+", "2"}));
+	        assertTrue(Arith.validatePostfixOrder(new String[] {"1", "2", "+"}));
+
+	        ArithMetrics.Snapshot snapshot = ArithMetrics.snapshot();
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.EVALUATE_POSTFIX).calls());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.EVALUATE_PREFIX).calls());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.EVALUATE_INFIX).calls());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.CONVERT_PREFIX_TO_POSTFIX).calls());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.CONVERT_INFIX_TO_PREFIX).calls());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.VALIDATE_POSTFIX).calls());
+	        assertEquals(0, snapshot.operation(ArithMetrics.Operation.VALIDATE_PREFIX).calls());
+	        assertEquals(0, snapshot.operation(ArithMetrics.Operation.EVALUATE_POSTFIX).failures());
+	        assertTrue(snapshot.operation(ArithMetrics.Operation.EVALUATE_POSTFIX).totalNanos() > 0);
+	    }
+
+	    @Test
+	    public void histogramTest() {
+	        Arith.evaluatePostfixOrder(new String[] {"1"});
+	        Arith.evaluatePostfixOrder(new String[] {"1", "2", "+"});
+	        Arith.evaluatePostfixOrder(new String[] {"1", "2", "+", "3", "*"});
+
+	        ArithMetrics.OperationSnapshot postfix = ArithMetrics.snapshot().operation(ArithMetrics.Operation.EVALUATE_POSTFIX);
+	        long[] tokens = postfix.tokenHistogram();
+	        assertEquals(ArithMetrics.BUCKETS, tokens.length);
+	        //1 token in [1, 2), 3 tokens in [2, 4), 5 tokens in [4, 8)
+	        assertEquals(1, tokens[1]);
+	        assertEquals(1, tokens[2]);
+	        assertEquals(1, tokens[3]);
+
+	        long latencies = 0;
+	        for(long count : postfix.latencyHistogram()) latencies += count;
+	        assertEquals(3, latencies);
+
+	        assertEquals(0, ArithMetrics.bucket(0));
+	        assertEquals(1, ArithMetrics.bucket(1));
+	        assertEquals(11, ArithMetrics.bucket(1024));
+	        assertEquals(ArithMetrics.BUCKETS - 1, ArithMetrics.bucket(Long.MAX_VALUE));
+	    }
+
+	    @Test
+	    public void failureReasonsTest() {
+	        try {
+	            Arith.evaluatePostfixOrder(new String[] {"1", "0", "/"});
+	            fail();
+	        }
+	        catch(ArithmeticException expected) {
+	        }
+	        try {
+	            Arith.evaluatePrefixOrder(new String[] {"+", "1", "x"});
+	            fail();
+	        }
+	        catch(IllegalArgumentException expected) {
+	        }
+	        assertFalse(Arith.validatePostfixOrder(new String[] {"1", "+"}));
+	        assertFalse(Arith.validatePrefixOrder(new String[] {"+", "1"}));
+	        try {
+	            Arith.evaluatePostfixOrder(new String[] {"99999999999"});
+	            fail();
+	        }
+	        catch(NumberFormatException expected) {
+	        }
+
+	        ArithMetrics.Snapshot snapshot = ArithMetrics.snapshot();
+	        assertEquals(2, snapshot.operation(ArithMetrics.Operation.EVALUATE_POSTFIX).failures());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.EVALUATE_PREFIX).failures());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.VALIDATE_POSTFIX).failures());
+	        assertEquals(1, snapshot.operation(ArithMetrics.Operation.VALIDATE_PREFIX).failures());
+	        assertEquals(1, snapshot.failures(EvaluationResult.Failure.DIVISION_BY_ZERO));
+	        assertEquals(1, snapshot.failures(EvaluationResult.Failure.UNBOUND_VARIABLE));
+	        assertEquals(0, snapshot.failures(EvaluationResult.Failure.INVALID_TOKEN));
+	        assertEquals(2, snapshot.failures(EvaluationResult.Failure.MISSING_OPERAND));
+	        assertEquals(1, snapshot.failures(EvaluationResult.Failure.NUMBER_TOO_LARGE));
+
+	        ArithMetrics.reset();
+	        assertEquals(0, ArithMetrics.snapshot().operation(ArithMetrics.Operation.EVALUATE_POSTFIX).calls());
+	        assertEquals(0, ArithMetrics.snapshot().failures(EvaluationResult.Failure.DIVISION_BY_ZERO));
+	    }
+
+	    @Test
+	    public void validationReasonsTest() {
+	        //each validation reports the reason it rejected for, not what an evaluation would find
+	        String[][] postfix = {{"x", "+"}, {"1", "2"}, {"1", "y", "2", "*"}, {"1", "!", "+"}, {"x", "1", "+"}};
+	        EvaluationResult.Failure[] postfixReasons = {EvaluationResult.Failure.MISSING_OPERAND, EvaluationResult.Failure.EXTRA_OPERAND,
+	                EvaluationResult.Failure.EXTRA_OPERAND, EvaluationResult.Failure.INVALID_TOKEN, null};
+	        String[][] prefix = {{"+", "x"}, {"1", "2"}, {"/", "4", "0"}, {"+", "1", "!"}, {"+", "+", "1", "2"}};
+	        EvaluationResult.Failure[] prefixReasons = {EvaluationResult.Failure.MISSING_OPERAND, EvaluationResult.Failure.EXTRA_OPERAND,
+	                EvaluationResult.Failure.DIVISION_BY_ZERO, EvaluationResult.Failure.INVALID_TOKEN, EvaluationResult.Failure.MISSING_OPERAND};
+
+	        for(int i = 0 ; i < postfix.length ; i++) {
+	            assertEquals(postfixReasons[i], Arith.postfixFailure(postfix[i]));
+	            assertEquals(prefixReasons[i], Arith.prefixFailure(prefix[i]));
+
+	            ArithMetrics.reset();
+	            assertEquals(postfixReasons[i] == null, Arith.validatePostfixOrder(postfix[i]));
+	            assertFalse(Arith.validatePrefixOrder(prefix[i]));
+	            ArithMetrics.Snapshot snapshot = ArithMetrics.snapshot();
+	            for(EvaluationResult.Failure reason : EvaluationResult.Failure.values()) {
+	                int expected = (reason == postfixReasons[i] ? 1 : 0) + (reason == prefixReasons[i] ? 1 : 0);
+	                assertEquals(reason.toString(), expected, snapshot.failures(reason));
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void exceptionReasonsTest() {
+	        String[][] infix = {{"1", "+"}, {"1", "2"}, {"(", "1"}, {"1", "+", "y"}};
+	        EvaluationResult.Failure[] reasons = {EvaluationResult.Failure.MISSING_OPERAND, EvaluationResult.Failure.EXTRA_OPERAND,
+	                EvaluationResult.Failure.INVALID_TOKEN, EvaluationResult.Failure.UNBOUND_VARIABLE};
+	        for(int i = 0 ; i < infix.length ; i++) {
+	            ArithMetrics.reset();
+	            try {
+	                Arith.evaluateInfix(infix[i]);
+	                fail();
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	            assertEquals(1, ArithMetrics.snapshot().failures(reasons[i]));
+	        }
+	    }
+
+	    @Test
+	    public void slowCallEventTest() throws Exception {
+	        Path file = Files.createTempFile("arith", ".jfr");
+	        try {
+	            try(Recording recording = new Recording()) {
+	                recording.enable("arith.SlowCall").withThreshold(Duration.ZERO);
+	                recording.start();
+	                Arith.evaluatePostfixOrder(new String[] {"1", "2", "+"});
+	                recording.stop();
+	                recording.dump(file);
+	            }
+
+	            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+	            assertEquals(1, events.size());
+	            assertEquals("EVALUATE_POSTFIX", events.get(0).getString("operation"));
+	            assertEquals(3, events.get(0).getInt("tokens"));
+	            assertFalse(events.get(0).getBoolean("failed"));
+	        }
+	        finally {
+	            Files.delete(file);
+	        }
+	    }
+}
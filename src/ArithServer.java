@@ -0,0 +1,534 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// -------------------------------------------------------------------------
+/**
+ *  A loopback server that runs the Arith validation, evaluation and
+ *  conversion methods for other processes, so they share one warmed-up JVM.
+ *
+ *  Framing, all integers big-endian and all text ISO-8859-1:
+ *  - a request is an int length, then that many bytes: the ordinal of an
+ *    ArithMetrics.Operation, then the literals separated by single spaces,
+ *  - a response is an int length, then that many bytes: OK or ERROR, then
+ *    the result, "true" or "false" for validations, the decimal value for
+ *    evaluations, the literals separated by single spaces for conversions,
+ *    or for ERROR the public exception class and message.
+ *    A result longer than MAX_FRAME is answered with an ERROR instead.
+ *  Responses come back in the order of the requests on each connection, so
+ *  clients can pipeline: send many requests before reading any response.
+ *  A frame longer than MAX_FRAME closes the connection.
+ *
+ *  Each of the event loop threads owns a Selector and the connections
+ *  handed to it round-robin. A loop reads every ready connection, then
+ *  runs all the complete requests it found as one batch, then writes every
+ *  connection once, so a burst of pipelined requests costs a read and a
+ *  write system call per connection rather than per request. A connection
+ *  whose client does not read its responses stops being read.
+ */
+public final class ArithServer implements Closeable
+{
+	/** Largest request or response payload. */
+	public static final int MAX_FRAME = 16 << 20;
+
+	/** First byte of the payload of a successful response. */
+	public static final byte OK = 0;
+
+	/** First byte of the payload of a failed response. */
+	public static final byte ERROR = 1;
+
+	/** Pending output above which a connection stops being read. */
+	private static final int OUTPUT_LIMIT = 1 << 20;
+
+	private static final ArithMetrics.Operation[] OPERATIONS = ArithMetrics.Operation.values();
+
+	private final ServerSocketChannel server;
+	private final EventLoop[] loops;
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private volatile boolean closed;
+	private int next;
+
+	private ArithServer(ServerSocketChannel server, int threads) throws IOException
+	{
+		this.server = server;
+		this.loops = new EventLoop[threads];
+		for(int i = 0 ; i < threads ; i++) loops[i] = new EventLoop();
+		server.configureBlocking(false);
+		server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+		for(int i = 0 ; i < threads ; i++) {
+			Thread thread = new Thread(loops[i], "arith-server-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+
+	/**
+	 * Starts a server on the loopback interface.
+	 *
+	 * @param port : the port to listen on, 0 for any free one.
+	 * @param threads : the number of event loop threads.
+	 *
+	 * @return the running server.
+	 * @throws IOException if the port cannot be bound.
+	 **/
+	public static ArithServer start(int port, int threads) throws IOException
+	{
+		if(threads < 1) throw new IllegalArgumentException("Threads must be positive: " + threads);
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			return new ArithServer(server, threads);
+		}
+		catch(IOException | RuntimeException e) {
+			server.close();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * @return the port the server listens on.
+	 **/
+	public int port()
+	{
+		return server.socket().getLocalPort();
+	}
+
+
+	/**
+	 * @return the number of requests answered.
+	 **/
+	public long requests()
+	{
+		return requests.sum();
+	}
+
+
+	/**
+	 * @return the number of batches the requests were run in, requests() / batches() being the mean batch size.
+	 **/
+	public long batches()
+	{
+		return batches.sum();
+	}
+
+
+	/**
+	 * Stops listening and closes every connection.
+	 **/
+	@Override
+	public void close() throws IOException
+	{
+		closed = true;
+		server.close();
+		for(EventLoop loop : loops) loop.selector.wakeup();
+	}
+
+
+	/**
+	 * Runs a server until the process is killed.
+	 *
+	 * @param args : the port, then optionally the number of threads, one per core by default.
+	 **/
+	public static void main(String args[]) throws IOException, InterruptedException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		ArithServer server = start(port, threads);
+		System.out.println("Arith server listening on port " + server.port() + " with " + threads + " threads");
+		Thread.currentThread().join();
+	}
+
+
+	//~ Requests ....................................................................
+
+	/**
+	 * @return the literals of in[from, to), separated by single spaces, pooled where TokenPool has them.
+	 **/
+	static String[] split(byte in[], int from, int to)
+	{
+		if(from == to) return new String[0];
+		int count = 1;
+		for(int i = from ; i < to ; i++) if(in[i] == ' ') count++;
+
+		String[] literals = new String[count];
+		int k = 0;
+		int start = from;
+		for(int i = from ; i <= to ; i++) {
+			if(i == to || in[i] == ' ') {
+				String pooled = TokenPool.pooled(in, start, i);
+				literals[k++] = pooled != null ? pooled : new String(in, start, i - start, StandardCharsets.ISO_8859_1);
+				start = i+1;
+			}
+		}
+		return literals;
+	}
+
+
+	private static void write(ByteBuffer out, String text)
+	{
+		for(int i = 0 ; i < text.length() ; i++) out.put((byte) text.charAt(i));
+	}
+
+
+	/**
+	 * @return the number of bytes write(out, literals) puts.
+	 **/
+	private static int length(String literals[])
+	{
+		int length = Math.max(0, literals.length - 1);
+		for(String literal : literals) length += literal.length();
+		return length;
+	}
+
+
+	private static void write(ByteBuffer out, String literals[])
+	{
+		for(int i = 0 ; i < literals.length ; i++) {
+			if(i > 0) out.put((byte) ' ');
+			write(out, literals[i]);
+		}
+	}
+
+
+	//~ Event loop ..................................................................
+
+	/** A selector thread and the connections it owns. */
+	private final class EventLoop implements Runnable
+	{
+		final Selector selector;
+		private final Queue<SocketChannel> adopted = new ConcurrentLinkedQueue<>();
+		private Connection[] ready = new Connection[16];
+		private int readyCount;
+		private int[] stack = new int[64];
+
+		EventLoop() throws IOException
+		{
+			this.selector = Selector.open();
+		}
+
+
+		/**
+		 * Hands a new connection to this loop, from any thread.
+		 **/
+		void adopt(SocketChannel channel)
+		{
+			adopted.add(channel);
+			selector.wakeup();
+		}
+
+
+		@Override
+		public void run()
+		{
+			try {
+				while(!closed) {
+					selector.select();
+					for(SocketChannel channel = adopted.poll() ; channel != null ; channel = adopted.poll()) register(channel);
+
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while(keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						if(!key.isValid()) continue;
+						if(key.isAcceptable()) accept();
+						else {
+							Connection connection = (Connection) key.attachment();
+							if(key.isReadable()) connection.read();
+							if(key.isValid() && key.isWritable()) connection.flush();
+						}
+					}
+					runBatch();
+				}
+			}
+			catch(IOException | ClosedSelectorException e) {
+				//the server is shutting down
+			}
+			finally {
+				for(SelectionKey key : selector.keys()) close(key);
+				try {
+					selector.close();
+				}
+				catch(IOException e) {
+					//nothing left to release
+				}
+			}
+		}
+
+
+		private void accept() throws IOException
+		{
+			for(SocketChannel channel = server.accept() ; channel != null ; channel = server.accept()) {
+				EventLoop loop = loops[next++ % loops.length];
+				if(loop == this) register(channel);
+				else loop.adopt(channel);
+			}
+		}
+
+
+		private void register(SocketChannel channel)
+		{
+			try {
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+				key.attach(new Connection(this, key, channel));
+			}
+			catch(IOException e) {
+				try {
+					channel.close();
+				}
+				catch(IOException ignored) {
+					//already broken
+				}
+			}
+		}
+
+
+		/**
+		 * Notes a connection that has complete requests waiting.
+		 **/
+		void ready(Connection connection)
+		{
+			if(readyCount == ready.length) ready = Arrays.copyOf(ready, 2*readyCount);
+			ready[readyCount++] = connection;
+		}
+
+
+		/**
+		 * Answers every complete request read in this round, then writes each connection once.
+		 **/
+		private void runBatch()
+		{
+			if(readyCount == 0) return;
+			int answered = 0;
+			for(int c = 0 ; c < readyCount ; c++) {
+				try {
+					answered += ready[c].answer();
+				}
+				catch(RuntimeException e) {
+					//respond turns failed requests into ERROR responses, anything else only costs this connection
+					close(ready[c].key);
+				}
+			}
+			//count before writing, so a client that has its responses sees them counted
+			requests.add(answered);
+			batches.increment();
+			for(int c = 0 ; c < readyCount ; c++) {
+				ready[c].flush();
+				ready[c] = null;
+			}
+			readyCount = 0;
+		}
+
+
+		/**
+		 * @return a scratch operand stack with room for n operands.
+		 **/
+		int[] stack(int n)
+		{
+			if(stack.length < n) stack = new int[Math.max(n, 2*stack.length)];
+			return stack;
+		}
+	}
+
+
+	private static void close(SelectionKey key)
+	{
+		key.cancel();
+		try {
+			key.channel().close();
+		}
+		catch(IOException e) {
+			//already broken
+		}
+	}
+
+
+	/** The buffers of one client connection. */
+	private static final class Connection
+	{
+		private final EventLoop loop;
+		private final SelectionKey key;
+		private final SocketChannel channel;
+		private ByteBuffer in = ByteBuffer.allocate(16 << 10);
+		private ByteBuffer out = ByteBuffer.allocate(16 << 10);
+		private boolean queued;
+
+		Connection(EventLoop loop, SelectionKey key, SocketChannel channel)
+		{
+			this.loop = loop;
+			this.key = key;
+			this.channel = channel;
+		}
+
+
+		/**
+		 * Reads what is available, queueing the connection for the batch if a request is complete.
+		 **/
+		void read()
+		{
+			try {
+				if(!in.hasRemaining()) in = grow(in, in.capacity());
+				int read = channel.read(in);
+				if(read < 0) {
+					close(key);
+					return;
+				}
+			}
+			catch(IOException e) {
+				close(key);
+				return;
+			}
+
+			if(in.position() < 4) return;
+			int length = in.getInt(0);
+			if(length < 1 || length > MAX_FRAME) {
+				close(key);
+				return;
+			}
+			//make room for a request larger than the buffer
+			if(4 + length > in.capacity()) in = grow(in, 4 + length);
+			if(in.position() >= 4 + length && !queued) {
+				queued = true;
+				loop.ready(this);
+			}
+		}
+
+
+		/**
+		 * Answers every complete request in the input buffer.
+		 *
+		 * @return the number of requests answered.
+		 **/
+		int answer()
+		{
+			queued = false;
+			byte[] bytes = in.array();
+			int end = in.position();
+			int position = 0;
+			int answered = 0;
+
+			while(end - position >= 4) {
+				int length = in.getInt(position);
+				if(length < 1 || length > MAX_FRAME) {
+					close(key);
+					return answered;
+				}
+				if(end - position - 4 < length) break;
+
+				respond(bytes, position + 4, position + 4 + length);
+				position += 4 + length;
+				answered++;
+			}
+
+			in.limit(end);
+			in.position(position);
+			in.compact();
+			return answered;
+		}
+
+
+		/**
+		 * Runs one request and appends its response, growing the output buffer to the size of the result.
+		 *
+		 * @param bytes : the request payload is bytes[from, to).
+		 **/
+		private void respond(byte bytes[], int from, int to)
+		{
+			int start = out.position();
+			try {
+				//the result is either text or, for conversions, literals
+				String text = null;
+				String[] literals = null;
+				int ordinal = bytes[from];
+				if(ordinal < 0 || ordinal >= OPERATIONS.length) throw new IllegalArgumentException("Unknown operation " + ordinal);
+				String[] request = split(bytes, from+1, to);
+				int[] stack = loop.stack(request.length);
+
+				switch(OPERATIONS[ordinal]) {
+				case VALIDATE_PREFIX:			text = Boolean.toString(Arith.validatePrefixOrder(request)); break;
+				case VALIDATE_POSTFIX:			text = Boolean.toString(Arith.validatePostfixOrder(request)); break;
+				case EVALUATE_PREFIX:			text = Integer.toString(Arith.evaluatePrefixOrder(request, stack)); break;
+				case EVALUATE_POSTFIX:			text = Integer.toString(Arith.evaluatePostfixOrder(request, stack)); break;
+				case EVALUATE_INFIX:			text = Integer.toString(Arith.evaluateInfix(request)); break;
+				case CONVERT_PREFIX_TO_POSTFIX:	literals = Arith.convertPrefixToPostfix(request); break;
+				case CONVERT_POSTFIX_TO_PREFIX:	literals = Arith.convertPostfixToPrefix(request); break;
+				case CONVERT_PREFIX_TO_INFIX:	literals = Arith.convertPrefixToInfix(request); break;
+				case CONVERT_POSTFIX_TO_INFIX:	literals = Arith.convertPostfixToInfix(request); break;
+				case CONVERT_INFIX_TO_POSTFIX:	literals = Arith.convertInfixToPostfix(request); break;
+				default:						literals = Arith.convertInfixToPrefix(request);
+				}
+
+				//a conversion can be about twice as long as its request, the client would take a longer frame for a broken stream
+				int size = text != null ? text.length() : length(literals);
+				if(size >= MAX_FRAME) throw new IllegalArgumentException("The response of " + (1 + size) + " bytes is longer than " + MAX_FRAME);
+				if(out.remaining() < 5 + size) out = grow(out, 5 + size);
+				out.putInt(1 + size);
+				out.put(OK);
+				if(text != null) write(out, text);
+				else write(out, literals);
+			}
+			catch(RuntimeException e) {
+				//drop whatever part of the frame was written, the request fails as a whole
+				out.position(start);
+				//internal subclasses are reported as the public exception they extend
+				Class<?> type = e.getClass();
+				while(!Modifier.isPublic(type.getModifiers())) type = type.getSuperclass();
+				String text = type.getSimpleName() + ": " + e.getMessage();
+				if(text.length() >= MAX_FRAME) text = text.substring(0, MAX_FRAME-1);
+				if(out.remaining() < 5 + text.length()) out = grow(out, 5 + text.length());
+				out.putInt(1 + text.length());
+				out.put(ERROR);
+				write(out, text);
+			}
+		}
+
+
+		/**
+		 * Writes as much pending output as the socket takes, and reads again once it is drained.
+		 **/
+		void flush()
+		{
+			if(!key.isValid()) return;
+			try {
+				out.flip();
+				channel.write(out);
+				out.compact();
+			}
+			catch(IOException e) {
+				close(key);
+				return;
+			}
+			int interest = out.position() > 0 ? SelectionKey.OP_WRITE : 0;
+			if(out.position() < OUTPUT_LIMIT) interest |= SelectionKey.OP_READ;
+			key.interestOps(interest);
+		}
+
+
+		private static ByteBuffer grow(ByteBuffer buffer, int room)
+		{
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.position() + room, 2*buffer.capacity()));
+			buffer.flip();
+			larger.put(buffer);
+			return larger;
+		}
+	}
+}
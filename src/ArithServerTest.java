@@ -0,0 +1,193 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ArithServer.java
+ */
+@RunWith(JUnit4.class)
+public class ArithServerTest {
+
+	    private ArithServer server;
+
+	    @Before
+	    public void setUp() throws IOException {
+	        server = ArithServer.start(0, 2);
+	    }
+
+	    @After
+	    public void tearDown() throws IOException {
+	        server.close();
+	    }
+
+	    @Test
+	    public void operationsTest() throws IOException {
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            String[] prefix = {"-", "*", "2", "3", "4"};
+	            String[] postfix = {"2", "3", "*", "4", "-"};
+	            String[] infix = {"(", "(", "2", "*", "3", ")", "-", "4", ")"};
+
+	            assertEquals("true", client.call(ArithMetrics.Operation.VALIDATE_PREFIX, prefix).text());
+	            assertEquals("false", client.call(ArithMetrics.Operation.VALIDATE_POSTFIX, prefix).text());
+	            assertEquals("2", client.call(ArithMetrics.Operation.EVALUATE_PREFIX, prefix).text());
+	            assertEquals("2", client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, postfix).text());
+	            assertEquals("2", client.call(ArithMetrics.Operation.EVALUATE_INFIX, infix).text());
+	            assertArrayEquals(postfix, client.call(ArithMetrics.Operation.CONVERT_PREFIX_TO_POSTFIX, prefix).literals());
+	            assertArrayEquals(prefix, client.call(ArithMetrics.Operation.CONVERT_POSTFIX_TO_PREFIX, postfix).literals());
+	            assertArrayEquals(Arith.convertPrefixToInfix(prefix), client.call(ArithMetrics.Operation.CONVERT_PREFIX_TO_INFIX, prefix).literals());
+	            assertArrayEquals(Arith.convertPostfixToInfix(postfix), client.call(ArithMetrics.Operation.CONVERT_POSTFIX_TO_INFIX, postfix).literals());
+	            assertArrayEquals(postfix, client.call(ArithMetrics.Operation.CONVERT_INFIX_TO_POSTFIX, infix).literals());
+	            assertArrayEquals(prefix, client.call(ArithMetrics.Operation.CONVERT_INFIX_TO_PREFIX, infix).literals());
+	            assertEquals(11, server.requests());
+	        }
+	    }
+
+	    @Test
+	    public void errorTest() throws IOException {
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            ArithClient.Response response = client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, new String[] {"1", "0", "/"});
+	            assertFalse(response.isOk());
+	            assertTrue(response.text(), response.text().startsWith("ArithmeticException"));
+
+	            response = client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, new String[] {"1", "x", "+"});
+	            assertFalse(response.isOk());
+	            assertTrue(response.text(), response.text().startsWith("IllegalArgumentException"));
+
+	            //the connection is still usable after an error
+	            assertEquals("3", client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, new String[] {"1", "2", "+"}).text());
+	            assertEquals("true", client.call(ArithMetrics.Operation.VALIDATE_PREFIX, new String[0]).text());
+	        }
+	    }
+
+	    @Test
+	    public void pipelineTest() throws IOException {
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            for(int i = 0 ; i < 1000 ; i++) {
+	                client.send(ArithMetrics.Operation.EVALUATE_POSTFIX, new String[] {Integer.toString(i), "1000", "+"});
+	            }
+	            client.flush();
+	            for(int i = 0 ; i < 1000 ; i++) {
+	                ArithClient.Response response = client.receive();
+	                assertTrue(response.isOk());
+	                assertEquals(Integer.toString(i + 1000), response.text());
+	            }
+	            assertEquals(1000, server.requests());
+	            //pipelined requests are answered in fewer batches than requests
+	            assertTrue(server.batches() < 1000);
+	        }
+	    }
+
+	    @Test
+	    public void largeRequestTest() throws IOException {
+	        String[] postfix = new ExpressionGenerator(7).postfix(200_001, ExpressionGenerator.Shape.RANDOM);
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            assertEquals(Integer.toString(Arith.evaluatePostfixOrder(postfix)), client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, postfix).text());
+	            assertArrayEquals(Arith.convertPostfixToInfix(postfix), client.call(ArithMetrics.Operation.CONVERT_POSTFIX_TO_INFIX, postfix).literals());
+	        }
+	    }
+
+	    @Test
+	    public void invalidFrameTest() throws IOException {
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            ArithClient.Response response = client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, new String[0]);
+	            assertFalse(response.isOk());
+	        }
+
+	        //an unknown operation is an error response, a bad length closes the connection
+	        try(SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()))) {
+	            channel.write(ByteBuffer.allocate(5).putInt(1).put((byte) 99).flip());
+	            ByteBuffer in = ByteBuffer.allocate(64);
+	            while(in.position() < 5) channel.read(in);
+	            assertEquals(ArithServer.ERROR, in.get(4));
+
+	            channel.write(ByteBuffer.allocate(4).putInt(-1).flip());
+	            in.clear();
+	            try {
+	                while(true) {
+	                    if(channel.read(in) < 0) throw new EOFException();
+	                }
+	            }
+	            catch(IOException e) {
+	                //closed, as expected
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void loadGeneratorTest() throws IOException {
+	        String[] postfix = new ExpressionGenerator(3).postfix(21, ExpressionGenerator.Shape.BALANCED);
+	        ArithLoadGenerator.Report report = ArithLoadGenerator.run(server.port(), 3, 8, 500, postfix);
+	        assertEquals(1500, report.requests());
+	        assertTrue(report.p50() > 0);
+	        assertTrue(report.p50() <= report.p99());
+	        assertTrue(report.requestsPerSecond() > 0);
+	        assertEquals(1500, server.requests());
+	    }
+
+	    @Test
+	    public void largeResponseTest() throws IOException {
+	        //single digit prefix converted to infix: every operator adds its parentheses, about twice the request
+	        String[] prefix = new ExpressionGenerator(8).prefix(100_001, ExpressionGenerator.Shape.RIGHT_DEEP);
+	        String[] infix = Arith.convertPrefixToInfix(prefix);
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            for(int i = 0 ; i < 4 ; i++) client.send(ArithMetrics.Operation.CONVERT_PREFIX_TO_INFIX, prefix);
+	            client.flush();
+	            for(int i = 0 ; i < 4 ; i++) assertArrayEquals(infix, client.receive().literals());
+	        }
+	    }
+
+	    @Test
+	    public void malformedConversionTest() throws IOException {
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            assertFalse(client.call(ArithMetrics.Operation.CONVERT_PREFIX_TO_POSTFIX, new String[] {"+", "1", "2", "3"}).isOk());
+	            assertFalse(client.call(ArithMetrics.Operation.CONVERT_POSTFIX_TO_PREFIX, new String[] {"1", "2"}).isOk());
+	        }
+
+	        //the event loop survived, a new connection is still served
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            assertArrayEquals(new String[] {"1", "2", "+"}, client.call(ArithMetrics.Operation.CONVERT_PREFIX_TO_POSTFIX, new String[] {"+", "1", "2"}).literals());
+	        }
+	    }
+
+	    @Test
+	    public void oversizedResponseTest() throws IOException {
+	        //a 10 MB request whose infix form is about 20 MB, more than MAX_FRAME
+	        String[] prefix = new ExpressionGenerator(9).prefix(5_000_001, ExpressionGenerator.Shape.RIGHT_DEEP);
+	        try(ArithClient client = ArithClient.connect(server.port())) {
+	            ArithClient.Response response = client.call(ArithMetrics.Operation.CONVERT_PREFIX_TO_INFIX, prefix);
+	            assertFalse(response.isOk());
+	            assertTrue(response.text(), response.text().startsWith("IllegalArgumentException"));
+
+	            //the connection is still in step with its responses
+	            assertEquals("3", client.call(ArithMetrics.Operation.EVALUATE_POSTFIX, new String[] {"1", "2", "+"}).text());
+	        }
+	    }
+
+	    @Test
+	    public void splitTest() {
+	        byte[] bytes = "x 12 + 1000 007".getBytes();
+	        String[] literals = ArithServer.split(bytes, 0, bytes.length);
+	        assertArrayEquals(new String[] {"x", "12", "+", "1000", "007"}, literals);
+	        assertTrue(literals[1] == TokenPool.number(12));
+	        assertTrue(literals[2] == TokenPool.operator('+'));
+	        assertEquals(0, ArithServer.split(bytes, 3, 3).length);
+
+	        byte[] latin = {'a', ' ', (byte) 0xE9, 'b'};
+	        assertArrayEquals(new String[] {"a", "\u00E9b"}, ArithServer.split(latin, 0, latin.length));
+	    }
+}
@@ -3,6 +3,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -149,6 +150,184 @@ public class ArithTest {
 	        assertArrayEquals(expression2, Arith.convertPrefixToPostfix(testExpression2));
 	        assertArrayEquals(expression3, Arith.convertPrefixToPostfix(testExpression3));
 	    }
+
+	    @Test
+	    public void variablesAreOperandsTest() {
+	        String[] prefix = {"*", "+", "x", "y", "rate_2"};
+	        String[] postfix = {"x", "y", "+", "rate_2", "*"};
+
+	        assertTrue(Arith.validatePrefixOrder(prefix));
+	        assertTrue(Arith.validatePostfixOrder(postfix));
+	        assertTrue(Arith.validatePrefixOrder(new String[] {"/", "1", "x"}));
+	        assertTrue(Arith.validatePostfixOrder(new String[] {"1", "x", "/"}));
+	        assertFalse(Arith.validatePostfixOrder(new String[] {"x", "y"}));
+	        assertFalse(Arith.validatePrefixOrder(new String[] {"+", "x", "1y"}));
+
+	        assertArrayEquals(postfix, Arith.convertPrefixToPostfix(prefix));
+	        assertArrayEquals(prefix, Arith.convertPostfixToPrefix(postfix));
+	        assertArrayEquals(new String[] {"(", "(", "x", "+", "y", ")", "*", "rate_2", ")"}, Arith.convertPostfixToInfix(postfix));
+	        assertFailure(EvaluationResult.Failure.UNBOUND_VARIABLE, 0, Arith.tryEvaluatePostfix(postfix));
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void evaluateUnboundVariableTest() {
+	        Arith.evaluatePostfixOrder(new String[] {"x", "1", "+"});
+	    }
+
+	    @Test
+	    public void tryEvaluatePrefixTest() {
+	        EvaluationResult result = Arith.tryEvaluatePrefix(new String[] {"-", "*", "/", "2", "2", "3", "4"});
+	        assertTrue(result.isSuccess());
+	        assertEquals(-1, result.value());
+	        assertEquals(-1, result.index());
+
+	        assertFailure(EvaluationResult.Failure.EMPTY, 0, Arith.tryEvaluatePrefix(new String[] {}));
+	        assertFailure(EvaluationResult.Failure.INVALID_TOKEN, 2, Arith.tryEvaluatePrefix(new String[] {"+", "1", "1x"}));
+	        assertFailure(EvaluationResult.Failure.NUMBER_TOO_LARGE, 1, Arith.tryEvaluatePrefix(new String[] {"+", "2147483648", "1"}));
+	        assertFailure(EvaluationResult.Failure.MISSING_OPERAND, 0, Arith.tryEvaluatePrefix(new String[] {"+", "+", "1", "2"}));
+	        assertFailure(EvaluationResult.Failure.EXTRA_OPERAND, 4, Arith.tryEvaluatePrefix(new String[] {"+", "1", "2", "3"}));
+	        assertFailure(EvaluationResult.Failure.DIVISION_BY_ZERO, 0, Arith.tryEvaluatePrefix(new String[] {"/", "10", "0"}));
+	        //a zero computed at runtime, which validatePrefixOrder lets through
+	        String[] computedZero = {"/", "10", "-", "2", "2"};
+	        assertTrue(Arith.validatePrefixOrder(computedZero));
+	        assertFailure(EvaluationResult.Failure.DIVISION_BY_ZERO, 0, Arith.tryEvaluatePrefix(computedZero));
+	    }
+
+	    @Test
+	    public void tryEvaluatePostfixTest() {
+	        EvaluationResult result = Arith.tryEvaluatePostfix(new String[] {"1", "2", "/", "3", "*", "4", "-"});
+	        assertTrue(result.isSuccess());
+	        assertEquals(-4, result.value());
+
+	        assertFailure(EvaluationResult.Failure.EMPTY, 0, Arith.tryEvaluatePostfix(new String[] {}));
+	        assertFailure(EvaluationResult.Failure.INVALID_TOKEN, 1, Arith.tryEvaluatePostfix(new String[] {"1", "1x", "+"}));
+	        assertFailure(EvaluationResult.Failure.NUMBER_TOO_LARGE, 0, Arith.tryEvaluatePostfix(new String[] {"99999999999", "1", "+"}));
+	        assertFailure(EvaluationResult.Failure.MISSING_OPERAND, 1, Arith.tryEvaluatePostfix(new String[] {"1", "+"}));
+	        assertFailure(EvaluationResult.Failure.EXTRA_OPERAND, 3, Arith.tryEvaluatePostfix(new String[] {"1", "2", "3"}));
+	        String[] computedZero = {"10", "2", "2", "-", "/"};
+	        assertTrue(Arith.validatePostfixOrder(computedZero));
+	        assertFailure(EvaluationResult.Failure.DIVISION_BY_ZERO, 4, Arith.tryEvaluatePostfix(computedZero));
+	    }
+
+	    @Test
+	    public void tryEvaluateMatchesEvaluateTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(9);
+	        int[] stack = new int[64];
+	        for(int i = 0 ; i < 1000 ; i++) {
+	            String[] postfix = generator.postfix(1 + 2*(i % 30), ExpressionGenerator.Shape.RANDOM);
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+
+	            assertEquals(Arith.evaluatePostfixOrder(postfix), Arith.tryEvaluatePostfix(postfix, stack).value());
+	            assertEquals(Arith.evaluatePrefixOrder(prefix), Arith.tryEvaluatePrefix(prefix, stack).value());
+	        }
+	    }
+
+	    private static void assertFailure(EvaluationResult.Failure failure, int index, EvaluationResult result) {
+	        assertFalse(result.isSuccess());
+	        assertEquals(failure, result.failure());
+	        assertEquals(index, result.index());
+	    }
+
+	    @Test
+	    public void convertExtraOperandTest() {
+	        //a leftover operand must fail, not leave a null in the output
+	        String[][] prefix = {{"+", "1", "2", "3"}, {"1", "2"}};
+	        String[][] postfix = {{"9", "1", "2", "+"}, {"1", "2"}};
+	        for(String[] literals : prefix) {
+	            try {
+	                Arith.convertPrefixToPostfix(literals);
+	                fail();
+	            }
+	            catch(IllegalArgumentException e) {
+	            }
+	            try {
+	                Arith.convertPrefixToInfix(literals);
+	                fail();
+	            }
+	            catch(IllegalArgumentException e) {
+	            }
+	        }
+	        for(String[] literals : postfix) {
+	            try {
+	                Arith.convertPostfixToPrefix(literals);
+	                fail();
+	            }
+	            catch(IllegalArgumentException e) {
+	            }
+	            try {
+	                Arith.convertPostfixToInfix(literals);
+	                fail();
+	            }
+	            catch(IllegalArgumentException e) {
+	            }
+	        }
+	    }
+
+	    @Test(timeout = 10000)
+	    public void convertMillionTokensTest() {
+	        //one million tokens, as deep as they get on both sides
+	        int operands = 500000;
+	        String[] prefix = new String[2*operands-1];
+	        String[] postfix = new String[2*operands-1];
+	        for(int i = 0 ; i < operands-1 ; i++) {
+	            prefix[i] = "+";
+	            postfix[operands+i] = "-";
+	        }
+	        for(int i = 0 ; i < operands ; i++) {
+	            prefix[operands-1+i] = Integer.toString(i);
+	            postfix[i] = Integer.toString(i);
+	        }
+
+	        String[] prefixToPostfix = Arith.convertPrefixToPostfix(prefix);
+	        String[] postfixToPrefix = Arith.convertPostfixToPrefix(postfix);
+	        String[] prefixToInfix = Arith.convertPrefixToInfix(prefix);
+	        String[] postfixToInfix = Arith.convertPostfixToInfix(postfix);
+
+	        assertEquals(prefix.length, prefixToPostfix.length);
+	        assertEquals(postfix.length, postfixToPrefix.length);
+	        assertEquals(prefix.length + 2*(operands-1), prefixToInfix.length);
+	        assertEquals(postfix.length + 2*(operands-1), postfixToInfix.length);
+
+	        //converting back gives the original expression
+	        assertArrayEquals(prefix, Arith.convertPostfixToPrefix(prefixToPostfix));
+	        assertArrayEquals(postfix, Arith.convertPrefixToPostfix(postfixToPrefix));
+	        assertEquals("(", prefixToInfix[0]);
+	        assertEquals(")", postfixToInfix[postfixToInfix.length-1]);
+	    }
+
+	    @Test
+	    public void evaluateWithReusedStackTest() {
+	        int[] stack = new int[8];
+	        String[] prefix = {"-", "*", "/", "2", "2", "3", "4"};
+	        String[] postfix = {"1", "2", "/", "3", "*", "4", "-"};
+
+	        //the same scratch stack can be used again and again
+	        for(int i = 0 ; i < 3 ; i++) {
+	            assertEquals(-1, Arith.evaluatePrefixOrder(prefix, stack));
+	            assertEquals(-4, Arith.evaluatePostfixOrder(postfix, stack));
+	        }
+	    }
+
+	    @Test
+	    public void evaluateDeepExpressionTest() {
+	        //right-leaning prefix: + 1 + 1 + ... 1, and its left-leaning postfix twin
+	        int operands = 100000;
+	        String[] prefix = new String[2*operands-1];
+	        String[] postfix = new String[2*operands-1];
+	        for(int i = 0 ; i < operands-1 ; i++) {
+	            prefix[2*i] = "+";
+	            prefix[2*i+1] = "1";
+	        }
+	        prefix[prefix.length-1] = "1";
+	        postfix[0] = "1";
+	        for(int i = 1 ; i < operands ; i++) {
+	            postfix[2*i-1] = "1";
+	            postfix[2*i] = "-";
+	        }
+
+	        assertEquals(operands, Arith.evaluatePrefixOrder(prefix));
+	        assertEquals(2-operands, Arith.evaluatePostfixOrder(postfix));
+	    }
 	
 
 
@@ -0,0 +1,109 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// -------------------------------------------------------------------------
+/**
+ *  Fork-join evaluation of many independent expressions.
+ *
+ *  The batch is split into chunks whose boundaries are multiples of 64, so
+ *  every word of the failure bitmap is written by exactly one task and no
+ *  synchronisation is needed. Each chunk evaluates its expressions one
+ *  after the other on a single scratch stack that only grows when a longer
+ *  expression comes along.
+ */
+final class BatchEvaluator
+{
+	/** Expressions per chunk, a multiple of 64. */
+	static final int CHUNK = 1024;
+
+	private BatchEvaluator()
+	{
+	}
+
+
+	/**
+	 * Evaluates every expression of the batch.
+	 *
+	 * @param expressions : the expressions, each an array of string literals.
+	 * @param prefix : true for prefix order, false for postfix order.
+	 * @param parallelism : the number of worker threads.
+	 *
+	 * @return the results and failure bitmap.
+	 **/
+	static BatchResult evaluate(List<String[]> expressions, boolean prefix, int parallelism)
+	{
+		if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+		String[][] batch = expressions.toArray(new String[0][]);
+		int[] results = new int[batch.length];
+		long[] failures = new long[(batch.length + 63) >>> 6];
+		Chunk task = new Chunk(batch, prefix, results, failures, 0, batch.length);
+
+		if(parallelism == 1 || batch.length <= CHUNK) {
+			task.compute();
+		}
+		else if(parallelism == ForkJoinPool.commonPool().getParallelism()) {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+		else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(task);
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		return new BatchResult(results, failures);
+	}
+
+
+	/** Evaluates the expressions in [from, to), splitting in halves until a chunk is left. */
+	private static final class Chunk extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String[][] batch;
+		private final boolean prefix;
+		private final int[] results;
+		private final long[] failures;
+		private final int from;
+		private final int to;
+
+		Chunk(String[][] batch, boolean prefix, int[] results, long[] failures, int from, int to)
+		{
+			this.batch = batch;
+			this.prefix = prefix;
+			this.results = results;
+			this.failures = failures;
+			this.from = from;
+			this.to = to;
+		}
+
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > CHUNK) {
+				//split on a chunk boundary so the halves never share a bitmap word
+				int middle = from + Math.max(1, (to - from) / CHUNK / 2) * CHUNK;
+				invokeAll(new Chunk(batch, prefix, results, failures, from, middle),
+						new Chunk(batch, prefix, results, failures, middle, to));
+				return;
+			}
+
+			int[] stack = new int[16];
+			for(int i = from ; i < to ; i++) {
+				String[] literals = batch[i];
+				if(stack.length < literals.length) stack = new int[Math.max(literals.length, 2*stack.length)];
+				try {
+					results[i] = prefix ? Arith.evaluatePrefixOrder(literals, stack) : Arith.evaluatePostfixOrder(literals, stack);
+				}
+				catch(RuntimeException e) {
+					failures[i >>> 6] |= 1L << i;
+				}
+			}
+		}
+	}
+}
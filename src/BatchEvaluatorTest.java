@@ -0,0 +1,80 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for BatchEvaluator.java
+ */
+@RunWith(JUnit4.class)
+public class BatchEvaluatorTest {
+
+	    @Test
+	    public void batchMatchesSingleEvaluationTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(3);
+	        List<String[]> postfix = new ArrayList<>();
+	        List<String[]> prefix = new ArrayList<>();
+	        for(int i = 0 ; i < 5000 ; i++) {
+	            int tokens = 1 + 2*(i % 40);
+	            postfix.add(generator.postfix(tokens, ExpressionGenerator.Shape.RANDOM));
+	            prefix.add(generator.prefix(tokens, ExpressionGenerator.Shape.RANDOM));
+	        }
+
+	        for(int parallelism : new int[] {1, 3, 8}) {
+	            BatchResult postfixResult = Arith.evaluatePostfixBatch(postfix, parallelism);
+	            BatchResult prefixResult = Arith.evaluatePrefixBatch(prefix, parallelism);
+
+	            assertEquals(0, postfixResult.failureCount());
+	            assertEquals(0, prefixResult.failureCount());
+	            for(int i = 0 ; i < postfix.size() ; i++) {
+	                assertEquals(Arith.evaluatePostfixOrder(postfix.get(i)), postfixResult.results()[i]);
+	                assertEquals(Arith.evaluatePrefixOrder(prefix.get(i)), prefixResult.results()[i]);
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void failuresAreReportedInBitmapTest() {
+	        List<String[]> batch = new ArrayList<>();
+	        for(int i = 0 ; i < 3000 ; i++) {
+	            if(i % 7 == 0) batch.add(new String[] {"1", "0", "/"});
+	            else if(i % 11 == 0) batch.add(new String[] {"1", "+"});
+	            else batch.add(new String[] {Integer.toString(i), "1", "+"});
+	        }
+
+	        BatchResult result = Arith.evaluatePostfixBatch(batch);
+
+	        assertEquals(3000, result.size());
+	        int failures = 0;
+	        for(int i = 0 ; i < 3000 ; i++) {
+	            if(i % 7 == 0 || i % 11 == 0) {
+	                assertTrue(result.failed(i));
+	                assertEquals(0, result.results()[i]);
+	                failures++;
+	            }
+	            else {
+	                assertFalse(result.failed(i));
+	                assertEquals(i+1, result.results()[i]);
+	            }
+	        }
+	        assertEquals(failures, result.failureCount());
+	    }
+
+	    @Test
+	    public void emptyBatchTest() {
+	        assertEquals(0, Arith.evaluatePrefixBatch(Arrays.<String[]>asList()).size());
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void rejectsNonPositiveParallelismTest() {
+	        Arith.evaluatePostfixBatch(new ArrayList<String[]>(), 0);
+	    }
+}
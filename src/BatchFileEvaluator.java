@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// -------------------------------------------------------------------------
+/**
+ *  Evaluation of files holding one expression per line, straight from the
+ *  mapped bytes of the file.
+ *
+ *  The input is cut into chunks of about CHUNK_BYTES that end on a line
+ *  break, found by reading a few bytes past each nominal boundary. Each
+ *  chunk is mapped with FileChannel.map and evaluated by a worker, which
+ *  classifies tokens byte by byte like Tokens.scan does for a String, so
+ *  no String is created per line or per token. Prefix lines are read
+ *  right to left, like tryEvaluatePrefix reads its array.
+ *
+ *  Every line gets one output line, in input order: the decimal result,
+ *  or "error " followed by the name of its EvaluationResult.Failure. The
+ *  workers format their chunk into a byte array and the calling thread
+ *  writes the arrays to the output channel as they complete in order,
+ *  with at most two chunks per worker in flight, so memory stays bounded
+ *  however large the file is.
+ */
+final class BatchFileEvaluator
+{
+	/** Nominal bytes of input per chunk. */
+	static final int CHUNK_BYTES = 8 << 20;
+
+	/** Prefix of the output line of a failed expression. */
+	static final String ERROR = "error ";
+
+	private static final EvaluationResult.Failure[] FAILURES = EvaluationResult.Failure.values();
+
+	private static final byte[][] FAILURE_LINES = new byte[FAILURES.length][];
+
+	static {
+		for(EvaluationResult.Failure failure : FAILURES) {
+			FAILURE_LINES[failure.ordinal()] = (ERROR + failure.name() + "\n").getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+
+	private BatchFileEvaluator()
+	{
+	}
+
+
+	/**
+	 * Evaluates every line of a file.
+	 *
+	 * @param input : the file of expressions, one per line, tokens separated by spaces or tabs.
+	 * @param output : the file of results, created or truncated.
+	 * @param prefix : true for prefix order, false for postfix order.
+	 * @param parallelism : the number of worker threads.
+	 *
+	 * @return the line counts and throughput.
+	 * @throws IOException if a file cannot be read or written.
+	 **/
+	static BatchFileReport evaluate(Path input, Path output, boolean prefix, int parallelism) throws IOException
+	{
+		return evaluate(input, output, prefix, parallelism, CHUNK_BYTES);
+	}
+
+
+	/**
+	 * Evaluates every line of a file in chunks of about chunkBytes.
+	 **/
+	static BatchFileReport evaluate(Path input, Path output, boolean prefix, int parallelism, int chunkBytes) throws IOException
+	{
+		if(chunkBytes < 1) throw new IllegalArgumentException("Chunk size must be positive: " + chunkBytes);
+		if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		long start = System.nanoTime();
+
+		boolean shared = parallelism == ForkJoinPool.commonPool().getParallelism();
+		ForkJoinPool pool = shared ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+		long[] failures = new long[FAILURES.length];
+		long lines = 0;
+		long size;
+
+		try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			size = in.size();
+			ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+			long from = 0;
+
+			while(from < size || !inFlight.isEmpty()) {
+				//keep every worker busy, without letting finished chunks pile up behind a slow one
+				while(from < size && inFlight.size() < 2*parallelism) {
+					long to = lineEnd(in, Math.min(from + chunkBytes, size), size);
+					if(to - from > Integer.MAX_VALUE) throw new IOException("Line of more than 2GB at byte " + from);
+					inFlight.add(pool.submit(task(in.map(FileChannel.MapMode.READ_ONLY, from, to - from), prefix)));
+					from = to;
+				}
+
+				Chunk chunk = join(inFlight.poll());
+				ByteBuffer bytes = ByteBuffer.wrap(chunk.out, 0, chunk.length);
+				while(bytes.hasRemaining()) out.write(bytes);
+				lines += chunk.lines;
+				for(int i = 0 ; i < failures.length ; i++) failures[i] += chunk.failures[i];
+			}
+		}
+		finally {
+			if(!shared) pool.shutdown();
+		}
+		return new BatchFileReport(lines, size, failures, System.nanoTime() - start);
+	}
+
+
+	/**
+	 * @return the position just past the first line break at or after position, or size.
+	 **/
+	private static long lineEnd(FileChannel in, long position, long size) throws IOException
+	{
+		ByteBuffer window = ByteBuffer.allocate(4096);
+		while(position < size) {
+			window.clear();
+			int read = in.read(window, position);
+			if(read <= 0) break;
+			for(int i = 0 ; i < read ; i++) {
+				if(window.get(i) == '\n') return position + i + 1;
+			}
+			position += read;
+		}
+		return size;
+	}
+
+
+	private static Callable<Chunk> task(MappedByteBuffer bytes, boolean prefix)
+	{
+		return () -> new Chunk().evaluate(bytes, prefix);
+	}
+
+
+	private static Chunk join(Future<Chunk> future) throws IOException
+	{
+		try {
+			return future.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while evaluating", e);
+		}
+		catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if(cause instanceof Error) throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+
+	/** The formatted output and counts of one chunk. */
+	private static final class Chunk
+	{
+		byte[] out = new byte[4096];
+		int length;
+		long lines;
+		final long[] failures = new long[FAILURES.length];
+		private int[] stack = new int[16];
+
+
+		/**
+		 * Evaluates every line of the chunk.
+		 *
+		 * Argument:
+		 * 	Runtime: 0(n) worst-case: Each byte is read once to find the line and once to scan its token.
+		 * 	Space Complexity: 0(n) worst-case: The output, and a stack as large as the longest line.
+		 **/
+		Chunk evaluate(ByteBuffer bytes, boolean prefix)
+		{
+			int end = bytes.limit();
+			int from = 0;
+			while(from < end) {
+				int next = from;
+				while(next < end && bytes.get(next) != '\n') next++;
+				int to = next > from && bytes.get(next-1) == '\r' ? next-1 : next;
+
+				if(stack.length < (to - from)/2 + 1) stack = new int[Math.max((to - from)/2 + 1, 2*stack.length)];
+				long result = prefix ? evaluatePrefix(bytes, from, to, stack) : evaluatePostfix(bytes, from, to, stack);
+				if(result < 0) {
+					int failure = (int) ~result;
+					failures[failure]++;
+					write(FAILURE_LINES[failure]);
+				}
+				else {
+					writeInt((int) result);
+				}
+				lines++;
+				from = next + 1;
+			}
+			return this;
+		}
+
+
+		private void write(byte line[])
+		{
+			ensure(line.length);
+			System.arraycopy(line, 0, out, length, line.length);
+			length += line.length;
+		}
+
+
+		private void writeInt(int value)
+		{
+			ensure(12);
+			long v = value;
+			if(v < 0) {
+				out[length++] = '-';
+				v = -v;
+			}
+			int digits = 1;
+			for(long p = 10 ; p <= v ; p *= 10) digits++;
+			for(int i = length + digits - 1 ; i >= length ; i--) {
+				out[i] = (byte) ('0' + v % 10);
+				v /= 10;
+			}
+			length += digits;
+			out[length++] = '\n';
+		}
+
+
+		private void ensure(int room)
+		{
+			if(length + room > out.length) out = Arrays.copyOf(out, Math.max(length + room, 2*out.length));
+		}
+	}
+
+
+	//~ Line evaluation .............................................................
+	//a line evaluates to a packed long: the complement of the Failure ordinal when it fails, or the value as an unsigned int
+
+	private static long success(int value)
+	{
+		return value & 0xFFFFFFFFL;
+	}
+
+
+	private static long failed(EvaluationResult.Failure failure)
+	{
+		return ~failure.ordinal();
+	}
+
+
+	private static long evaluatePostfix(ByteBuffer bytes, int from, int to, int stack[])
+	{
+		int top = 0;
+		boolean empty = true;
+		int i = from;
+
+		while(true) {
+			while(i < to && isBlank(bytes.get(i))) i++;
+			if(i == to) break;
+			int start = i;
+			while(i < to && !isBlank(bytes.get(i))) i++;
+			empty = false;
+
+			long token = scan(bytes, start, i);
+			if(Tokens.isOperator(token)) {
+				if(top < 2) return failed(EvaluationResult.Failure.MISSING_OPERAND);
+				int n2 = stack[--top];
+				int n1 = stack[--top];
+				char operator = Tokens.operator(token);
+				if(operator == '/' && n2 == 0) return failed(EvaluationResult.Failure.DIVISION_BY_ZERO);
+				stack[top++] = Arith.calculate(operator, n1, n2);
+			}
+			else if(token >= 0 && token <= Integer.MAX_VALUE) stack[top++] = (int) token;
+			else return failure(token);
+		}
+
+		if(empty) return failed(EvaluationResult.Failure.EMPTY);
+		if(top > 1) return failed(EvaluationResult.Failure.EXTRA_OPERAND);
+		return success(stack[0]);
+	}
+
+
+	private static long evaluatePrefix(ByteBuffer bytes, int from, int to, int stack[])
+	{
+		int top = 0;
+		boolean empty = true;
+		int i = to;
+
+		while(true) {
+			while(i > from && isBlank(bytes.get(i-1))) i--;
+			if(i == from) break;
+			int end = i;
+			while(i > from && !isBlank(bytes.get(i-1))) i--;
+			empty = false;
+
+			long token = scan(bytes, i, end);
+			if(Tokens.isOperator(token)) {
+				if(top < 2) return failed(EvaluationResult.Failure.MISSING_OPERAND);
+				int n1 = stack[--top];
+				int n2 = stack[--top];
+				char operator = Tokens.operator(token);
+				if(operator == '/' && n2 == 0) return failed(EvaluationResult.Failure.DIVISION_BY_ZERO);
+				stack[top++] = Arith.calculate(operator, n1, n2);
+			}
+			else if(token >= 0 && token <= Integer.MAX_VALUE) stack[top++] = (int) token;
+			else return failure(token);
+		}
+
+		if(empty) return failed(EvaluationResult.Failure.EMPTY);
+		if(top > 1) return failed(EvaluationResult.Failure.EXTRA_OPERAND);
+		return success(stack[0]);
+	}
+
+
+	/**
+	 * @return the packed failure of a token that is neither an operator nor an int operand.
+	 **/
+	private static long failure(long token)
+	{
+		if(Tokens.isIdentifier(token)) return failed(EvaluationResult.Failure.UNBOUND_VARIABLE);
+		if(Tokens.isOperand(token)) return failed(EvaluationResult.Failure.NUMBER_TOO_LARGE);
+		return failed(EvaluationResult.Failure.INVALID_TOKEN);
+	}
+
+
+	/**
+	 * Classifies the bytes [from, to) with the rules of Tokens.scan, any byte outside ASCII being invalid.
+	 **/
+	private static long scan(ByteBuffer bytes, int from, int to)
+	{
+		char c = (char) (bytes.get(from) & 0xFF);
+		if(to - from == 1) {
+			if(c >= '0' && c <= '9') return c - '0';
+			if(c == '*' || (c >= '+' && c <= '/')) return -c;
+			return Tokens.isIdentifierStart(c) ? Tokens.IDENTIFIER : Tokens.INVALID;
+		}
+		if(Tokens.isIdentifierStart(c)) {
+			for(int i = from+1 ; i < to ; i++) {
+				c = (char) (bytes.get(i) & 0xFF);
+				if(!Tokens.isIdentifierStart(c) && (c < '0' || c > '9')) return Tokens.INVALID;
+			}
+			return Tokens.IDENTIFIER;
+		}
+
+		long value = 0;
+		boolean overflow = false;
+		for(int i = from ; i < to ; i++) {
+			c = (char) (bytes.get(i) & 0xFF);
+			if(c < '0' || c > '9') return Tokens.INVALID;
+			//keep scanning after an overflow, a later non-digit still makes it invalid
+			if(!overflow) {
+				int digit = c - '0';
+				if(value > (Long.MAX_VALUE - digit) / 10) overflow = true;
+				else value = value*10 + digit;
+			}
+		}
+		return overflow ? Tokens.TOO_LARGE : value;
+	}
+
+
+	private static boolean isBlank(byte b)
+	{
+		return b == ' ' || b == '\t';
+	}
+}
@@ -0,0 +1,112 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for BatchFileEvaluator.java
+ */
+@RunWith(JUnit4.class)
+public class BatchFileEvaluatorTest {
+
+	    @Test
+	    public void evaluateFileTest() throws IOException {
+	        Path input = Files.createTempFile("arith", ".txt");
+	        Path output = Files.createTempFile("arith", ".out");
+	        try {
+	            Files.write(input, "1 2 +\n3\t4 *\r\n\n1 0 /\n1 x +\n2147483648\n-5\n1 2\n7 3 -".getBytes(StandardCharsets.US_ASCII));
+	            BatchFileReport report = Arith.evaluatePostfixFile(input, output);
+
+	            List<String> results = Files.readAllLines(output, StandardCharsets.US_ASCII);
+	            List<String> expected = List.of("3", "12", "error EMPTY", "error DIVISION_BY_ZERO", "error UNBOUND_VARIABLE",
+	                    "error NUMBER_TOO_LARGE", "error INVALID_TOKEN", "error EXTRA_OPERAND", "4");
+	            assertEquals(expected, results);
+
+	            assertEquals(9, report.lines());
+	            assertEquals(6, report.failures());
+	            assertEquals(1, report.failures(EvaluationResult.Failure.DIVISION_BY_ZERO));
+	            assertEquals(Files.size(input), report.bytes());
+	            assertTrue(report.linesPerSecond() > 0);
+	            assertTrue(report.toString().contains("lines/s"));
+	        }
+	        finally {
+	            Files.delete(input);
+	            Files.delete(output);
+	        }
+	    }
+
+	    @Test
+	    public void emptyFileTest() throws IOException {
+	        Path input = Files.createTempFile("arith", ".txt");
+	        Path output = Files.createTempFile("arith", ".out");
+	        try {
+	            BatchFileReport report = Arith.evaluatePrefixFile(input, output, 2);
+	            assertEquals(0, report.lines());
+	            assertEquals(0, Files.size(output));
+	        }
+	        finally {
+	            Files.delete(input);
+	            Files.delete(output);
+	        }
+	    }
+
+	    @Test
+	    public void matchesTryEvaluateTest() throws IOException {
+	        ExpressionGenerator generator = new ExpressionGenerator(21);
+	        Random random = new Random(21);
+	        String[] noise = {"0", "x", "1x", "99999999999", "+", "/"};
+
+	        for(boolean prefix : new boolean[] {false, true}) {
+	            List<String[]> expressions = new ArrayList<>();
+	            StringBuilder text = new StringBuilder();
+	            for(int e = 0 ; e < 3000 ; e++) {
+	                String[] postfix = generator.postfix(1 + 2*random.nextInt(30), ExpressionGenerator.Shape.values()[e % 4]);
+	                String[] literals = prefix ? Arith.convertPostfixToPrefix(postfix) : postfix;
+	                //a few broken lines
+	                if(random.nextInt(5) == 0) literals[random.nextInt(literals.length)] = noise[random.nextInt(noise.length)];
+	                expressions.add(literals);
+	                text.append(String.join(random.nextBoolean() ? " " : "  ", literals)).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+	            }
+
+	            Path input = Files.createTempFile("arith", ".txt");
+	            Path output = Files.createTempFile("arith", ".out");
+	            try {
+	                Files.write(input, text.toString().getBytes(StandardCharsets.US_ASCII));
+	                //small chunks, so lines are spread over many chunks and workers
+	                BatchFileReport report = BatchFileEvaluator.evaluate(input, output, prefix, 4, 1000);
+	                List<String> results = Files.readAllLines(output, StandardCharsets.US_ASCII);
+
+	                assertEquals(expressions.size(), report.lines());
+	                assertEquals(expressions.size(), results.size());
+	                long failures = 0;
+	                for(int i = 0 ; i < results.size() ; i++) {
+	                    String[] literals = expressions.get(i);
+	                    EvaluationResult expected = prefix ? Arith.tryEvaluatePrefix(literals) : Arith.tryEvaluatePostfix(literals);
+	                    if(expected.isSuccess()) {
+	                        assertEquals(String.valueOf(expected.value()), results.get(i));
+	                    }
+	                    else {
+	                        assertEquals(BatchFileEvaluator.ERROR + expected.failure(), results.get(i));
+	                        failures++;
+	                    }
+	                }
+	                assertEquals(failures, report.failures());
+	            }
+	            finally {
+	                Files.delete(input);
+	                Files.delete(output);
+	            }
+	        }
+	    }
+}
@@ -0,0 +1,103 @@
+import java.util.EnumMap;
+import java.util.Map;
+
+// -------------------------------------------------------------------------
+/**
+ *  Counts and throughput of evaluating a file of expressions, one per line.
+ *
+ *  Line i of the output file holds the result of line i of the input, or
+ *  "error " followed by the name of the EvaluationResult.Failure of that
+ *  line. This report sums the lines up, for logs and dashboards.
+ */
+public final class BatchFileReport
+{
+	private final long lines;
+	private final long bytes;
+	private final long[] failures;
+	private final long nanos;
+
+	BatchFileReport(long lines, long bytes, long[] failures, long nanos)
+	{
+		this.lines = lines;
+		this.bytes = bytes;
+		this.failures = failures;
+		this.nanos = nanos;
+	}
+
+
+	/**
+	 * @return the number of lines evaluated.
+	 **/
+	public long lines()
+	{
+		return lines;
+	}
+
+
+	/**
+	 * @return the size of the input file in bytes.
+	 **/
+	public long bytes()
+	{
+		return bytes;
+	}
+
+
+	/**
+	 * @return the number of lines that failed to evaluate.
+	 **/
+	public long failures()
+	{
+		long count = 0;
+		for(long failure : failures) count += failure;
+		return count;
+	}
+
+
+	/**
+	 * @return the number of lines that failed for this reason.
+	 **/
+	public long failures(EvaluationResult.Failure reason)
+	{
+		return failures[reason.ordinal()];
+	}
+
+
+	/**
+	 * @return the number of lines per failure reason, leaving out the reasons no line failed for.
+	 **/
+	public Map<EvaluationResult.Failure, Long> failuresByReason()
+	{
+		Map<EvaluationResult.Failure, Long> reasons = new EnumMap<>(EvaluationResult.Failure.class);
+		for(EvaluationResult.Failure reason : EvaluationResult.Failure.values()) {
+			if(failures[reason.ordinal()] > 0) reasons.put(reason, failures[reason.ordinal()]);
+		}
+		return reasons;
+	}
+
+
+	/**
+	 * @return the wall-clock time from opening the input to closing the output, in nanoseconds.
+	 **/
+	public long elapsedNanos()
+	{
+		return nanos;
+	}
+
+
+	/**
+	 * @return the number of lines evaluated per second of wall-clock time.
+	 **/
+	public double linesPerSecond()
+	{
+		return nanos == 0 ? 0 : lines * 1e9 / nanos;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d lines (%d failed %s) in %.1f ms: %.0f lines/s, %.1f MB/s",
+				lines, failures(), failuresByReason(), nanos / 1e6, linesPerSecond(), nanos == 0 ? 0 : bytes * 1e3 / nanos);
+	}
+}
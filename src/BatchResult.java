@@ -0,0 +1,68 @@
+// -------------------------------------------------------------------------
+/**
+ *  Results of evaluating a batch of independent expressions.
+ *
+ *  Expression i either evaluated to results()[i], or failed (division by
+ *  zero, a malformed expression or an operand that does not fit in an int),
+ *  in which case failed(i) is true and results()[i] is 0. Failures are kept
+ *  in a bitmap of 64 expressions per word.
+ */
+public final class BatchResult
+{
+	private final int[] results;
+	private final long[] failures;
+
+	BatchResult(int[] results, long[] failures)
+	{
+		this.results = results;
+		this.failures = failures;
+	}
+
+
+	/**
+	 * @return the number of expressions in the batch.
+	 **/
+	public int size()
+	{
+		return results.length;
+	}
+
+
+	/**
+	 * @return the result of each expression, 0 for the ones that failed.
+	 **/
+	public int[] results()
+	{
+		return results;
+	}
+
+
+	/**
+	 * @return the failure bitmap, bit (i % 64) of word (i / 64) is set if expression i failed.
+	 **/
+	public long[] failures()
+	{
+		return failures;
+	}
+
+
+	/**
+	 * @return true if expression i failed to evaluate.
+	 **/
+	public boolean failed(int i)
+	{
+		if(i < 0 || i >= results.length) throw new IndexOutOfBoundsException("Index " + i + " out of " + results.length);
+		return (failures[i >>> 6] & (1L << i)) != 0;
+	}
+
+
+	/**
+	 * @return the number of expressions that failed to evaluate.
+	 **/
+	public int failureCount()
+	{
+		int count = 0;
+		for(long word : failures) count += Long.bitCount(word);
+		return count;
+	}
+}
@@ -0,0 +1,297 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------------------
+/**
+ *  Columnar evaluation of one compiled expression over whole arrays of
+ *  variable values, one row per set of bindings.
+ *
+ *  Rows are processed in blocks of BLOCK. Every instruction is applied to
+ *  the whole block before moving on to the next one, so each stack entry
+ *  becomes a register array of BLOCK lanes and the inner loops are plain
+ *  element-wise loops over int or long arrays, with no dispatch inside,
+ *  and the register arrays of a block stay in the cache.
+ *
+ *  The element-wise loops are a Lanes implementation. When the
+ *  jdk.incubator.vector module is in the boot layer, that is the separately
+ *  compiled VectorLanes, written with IntVector and LongVector, so division
+ *  gets SIMD instructions too: C2 does not auto-vectorize int division.
+ *  Otherwise, or if VectorLanes was not compiled, the scalar loops of
+ *  ScalarLanes are used.
+ *
+ *  A division by zero does not abort the batch: the row is recorded in a
+ *  bitmap of 64 rows per word, its divisor is taken as 1 so that the other
+ *  lanes carry on, and its output is set to 0 at the end of the block.
+ */
+final class ColumnEvaluator
+{
+	/** Rows per block, a multiple of 64. */
+	static final int BLOCK = 1024;
+
+	/** Plain loops, the fallback. */
+	static final Lanes SCALAR = new ScalarLanes();
+
+	/** The lane-wise operators in use, chosen once. */
+	static final Lanes LANES = loadLanes();
+
+	private ColumnEvaluator()
+	{
+	}
+
+
+	/**
+	 * Evaluates the instructions once per row with int arithmetic.
+	 *
+	 * @param columns : the value of each variable slot, one column per slot.
+	 * @param out : receives the value of each row.
+	 *
+	 * @return the bitmap of the rows that divided by zero.
+	 **/
+	static long[] evaluate(byte code[], int values[], int stackSize, int columns[][], int out[])
+	{
+		return evaluate(code, values, stackSize, columns, out, LANES);
+	}
+
+
+	/**
+	 * Evaluates the instructions once per row with int arithmetic and the given lane-wise operators.
+	 **/
+	static long[] evaluate(byte code[], int values[], int stackSize, int columns[][], int out[], Lanes lanes)
+	{
+		int rows = out.length;
+		long[] divisionByZero = new long[(rows + 63) >>> 6];
+		int[][] registers = new int[stackSize][Math.min(BLOCK, rows)];
+
+		for(int from = 0 ; from < rows ; from += BLOCK) {
+			int count = Math.min(BLOCK, rows - from);
+			int top = 0;
+
+			for(int pc = 0 ; pc < code.length ; pc++) {
+				byte op = code[pc];
+				if(op == CompiledExpression.PUSH) {
+					int[] r = registers[top++];
+					int value = values[pc];
+					Arrays.fill(r, 0, count, value);
+				}
+				else if(op == CompiledExpression.LOAD) {
+					System.arraycopy(columns[values[pc]], from, registers[top++], 0, count);
+				}
+				else {
+					int[] b = registers[--top];
+					int[] a = registers[top-1];
+					apply(lanes, op, a, b, count, from, divisionByZero);
+				}
+			}
+
+			System.arraycopy(registers[0], 0, out, from, count);
+			clearFailedRows(divisionByZero, from, count, out, null);
+		}
+		return divisionByZero;
+	}
+
+
+	/**
+	 * Evaluates the instructions once per row with long arithmetic.
+	 *
+	 * @param columns : the value of each variable slot, one column per slot.
+	 * @param out : receives the value of each row.
+	 *
+	 * @return the bitmap of the rows that divided by zero.
+	 **/
+	static long[] evaluate(byte code[], int values[], int stackSize, long columns[][], long out[])
+	{
+		return evaluate(code, values, stackSize, columns, out, LANES);
+	}
+
+
+	/**
+	 * Evaluates the instructions once per row with long arithmetic and the given lane-wise operators.
+	 **/
+	static long[] evaluate(byte code[], int values[], int stackSize, long columns[][], long out[], Lanes lanes)
+	{
+		int rows = out.length;
+		long[] divisionByZero = new long[(rows + 63) >>> 6];
+		long[][] registers = new long[stackSize][Math.min(BLOCK, rows)];
+
+		for(int from = 0 ; from < rows ; from += BLOCK) {
+			int count = Math.min(BLOCK, rows - from);
+			int top = 0;
+
+			for(int pc = 0 ; pc < code.length ; pc++) {
+				byte op = code[pc];
+				if(op == CompiledExpression.PUSH) {
+					long[] r = registers[top++];
+					long value = values[pc];
+					Arrays.fill(r, 0, count, value);
+				}
+				else if(op == CompiledExpression.LOAD) {
+					System.arraycopy(columns[values[pc]], from, registers[top++], 0, count);
+				}
+				else {
+					long[] b = registers[--top];
+					long[] a = registers[top-1];
+					apply(lanes, op, a, b, count, from, divisionByZero);
+				}
+			}
+
+			System.arraycopy(registers[0], 0, out, from, count);
+			clearFailedRows(divisionByZero, from, count, null, out);
+		}
+		return divisionByZero;
+	}
+
+
+	//~ Lane-wise operators .........................................................
+
+	/**
+	 * a[i] = a[i] op b[i] for the first lanes entries, a and b are the two topmost registers.
+	 * Divisors are never zero, the caller has masked them.
+	 */
+	interface Lanes
+	{
+		void apply(byte op, int a[], int b[], int lanes);
+
+		void apply(byte op, long a[], long b[], int lanes);
+	}
+
+
+	/**
+	 * @return VectorLanes if the vector module is present and the class was compiled, ScalarLanes otherwise.
+	 **/
+	private static Lanes loadLanes()
+	{
+		if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return SCALAR;
+		try {
+			return (Lanes) Class.forName("VectorLanes").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError e) {
+			return SCALAR;
+		}
+	}
+
+
+	/** Masks the zero divisors of a division, then applies it with the given operators. */
+	private static void apply(Lanes lanes, byte op, int a[], int b[], int count, int from, long divisionByZero[])
+	{
+		if(op == CompiledExpression.DIVIDE) maskZeros(b, count, from, divisionByZero);
+		else if(op == CompiledExpression.REVERSE_DIVIDE) maskZeros(a, count, from, divisionByZero);
+		lanes.apply(op, a, b, count);
+	}
+
+
+	private static void apply(Lanes lanes, byte op, long a[], long b[], int count, int from, long divisionByZero[])
+	{
+		if(op == CompiledExpression.DIVIDE) maskZeros(b, count, from, divisionByZero);
+		else if(op == CompiledExpression.REVERSE_DIVIDE) maskZeros(a, count, from, divisionByZero);
+		lanes.apply(op, a, b, count);
+	}
+
+
+	/** One plain loop per operator. */
+	private static final class ScalarLanes implements Lanes
+	{
+		@Override
+		public void apply(byte op, int a[], int b[], int lanes)
+		{
+			switch(op) {
+			case CompiledExpression.ADD:
+				for(int i = 0 ; i < lanes ; i++) a[i] += b[i];
+				break;
+			case CompiledExpression.SUBTRACT:
+				for(int i = 0 ; i < lanes ; i++) a[i] -= b[i];
+				break;
+			case CompiledExpression.MULTIPLY:
+				for(int i = 0 ; i < lanes ; i++) a[i] *= b[i];
+				break;
+			case CompiledExpression.REVERSE_SUBTRACT:
+				for(int i = 0 ; i < lanes ; i++) a[i] = b[i] - a[i];
+				break;
+			case CompiledExpression.DIVIDE:
+				for(int i = 0 ; i < lanes ; i++) a[i] /= b[i];
+				break;
+			case CompiledExpression.REVERSE_DIVIDE:
+				for(int i = 0 ; i < lanes ; i++) a[i] = b[i] / a[i];
+				break;
+			default:
+				Arrays.fill(a, 0, lanes, Integer.MAX_VALUE);
+			}
+		}
+
+
+		@Override
+		public void apply(byte op, long a[], long b[], int lanes)
+		{
+			switch(op) {
+			case CompiledExpression.ADD:
+				for(int i = 0 ; i < lanes ; i++) a[i] += b[i];
+				break;
+			case CompiledExpression.SUBTRACT:
+				for(int i = 0 ; i < lanes ; i++) a[i] -= b[i];
+				break;
+			case CompiledExpression.MULTIPLY:
+				for(int i = 0 ; i < lanes ; i++) a[i] *= b[i];
+				break;
+			case CompiledExpression.REVERSE_SUBTRACT:
+				for(int i = 0 ; i < lanes ; i++) a[i] = b[i] - a[i];
+				break;
+			case CompiledExpression.DIVIDE:
+				for(int i = 0 ; i < lanes ; i++) a[i] /= b[i];
+				break;
+			case CompiledExpression.REVERSE_DIVIDE:
+				for(int i = 0 ; i < lanes ; i++) a[i] = b[i] / a[i];
+				break;
+			default:
+				Arrays.fill(a, 0, lanes, Long.MAX_VALUE);
+			}
+		}
+	}
+
+
+	/**
+	 * Records the lanes whose divisor is zero and replaces it by 1.
+	 * The common case of no zero at all costs a single branch-free pass.
+	 **/
+	private static void maskZeros(int divisor[], int lanes, int from, long divisionByZero[])
+	{
+		int zeros = 0;
+		for(int i = 0 ; i < lanes ; i++) zeros |= divisor[i] == 0 ? 1 : 0;
+		if(zeros == 0) return;
+
+		for(int i = 0 ; i < lanes ; i++) {
+			if(divisor[i] == 0) {
+				divisor[i] = 1;
+				divisionByZero[(from + i) >>> 6] |= 1L << (from + i);
+			}
+		}
+	}
+
+
+	private static void maskZeros(long divisor[], int lanes, int from, long divisionByZero[])
+	{
+		int zeros = 0;
+		for(int i = 0 ; i < lanes ; i++) zeros |= divisor[i] == 0 ? 1 : 0;
+		if(zeros == 0) return;
+
+		for(int i = 0 ; i < lanes ; i++) {
+			if(divisor[i] == 0) {
+				divisor[i] = 1;
+				divisionByZero[(from + i) >>> 6] |= 1L << (from + i);
+			}
+		}
+	}
+
+
+	/** Sets the output of the failed rows of a block to 0, only one of intOut and longOut is given. */
+	private static void clearFailedRows(long divisionByZero[], int from, int lanes, int intOut[], long longOut[])
+	{
+		//blocks start on a word boundary, so the block owns its words
+		for(int word = from >>> 6, last = (from + lanes - 1) >>> 6 ; word <= last ; word++) {
+			long bits = divisionByZero[word];
+			while(bits != 0) {
+				int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+				if(intOut != null) intOut[row] = 0;
+				else longOut[row] = 0;
+				bits &= bits - 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,145 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ColumnEvaluator.java
+ */
+@RunWith(JUnit4.class)
+public class ColumnEvaluatorTest {
+
+	    @Test
+	    public void evaluateColumnsTest() {
+	        int[] x = {1, 2, 3, 4};
+	        int[] y = {10, 20, 30, 40};
+	        int[] out = new int[4];
+
+	        long[] divisionByZero = Arith.evaluatePostfixColumns(new String[] {"x", "y", "+", "3", "*", "x", "-"}, new int[][] {x, y}, out);
+
+	        assertArrayEquals(new int[] {32, 64, 96, 128}, out);
+	        assertArrayEquals(new long[] {0}, divisionByZero);
+	    }
+
+	    @Test
+	    public void divisionByZeroMaskTest() {
+	        int rows = 3000;
+	        int[] x = new int[rows];
+	        int[] y = new int[rows];
+	        for(int i = 0 ; i < rows ; i++) {
+	            x[i] = i;
+	            y[i] = i % 7 - 3;
+	        }
+	        int[] out = new int[rows];
+
+	        long[] divisionByZero = Arith.evaluatePostfixColumns(new String[] {"x", "y", "/", "1", "+"}, new int[][] {x, y}, out);
+
+	        assertEquals((rows + 63) / 64, divisionByZero.length);
+	        for(int i = 0 ; i < rows ; i++) {
+	            boolean failed = (divisionByZero[i / 64] & (1L << i)) != 0;
+	            assertEquals(y[i] == 0, failed);
+	            assertEquals(failed ? 0 : x[i] / y[i] + 1, out[i]);
+	        }
+	    }
+
+	    @Test
+	    public void matchesCompiledEvaluationTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(12);
+	        Random random = new Random(12);
+	        String[] names = {"a", "b", "c"};
+
+	        for(int e = 0 ; e < 50 ; e++) {
+	            String[] postfix = generator.postfix(31, ExpressionGenerator.Shape.RANDOM);
+	            for(int i = 0 ; i < postfix.length ; i++) {
+	                if(Character.isDigit(postfix[i].charAt(0)) && random.nextBoolean()) postfix[i] = names[random.nextInt(names.length)];
+	            }
+	            CompiledExpression expression = Arith.compilePostfix(postfix);
+
+	            int rows = 1 + random.nextInt(2500);
+	            int[][] columns = new int[expression.variables().length][rows];
+	            long[][] longColumns = new long[columns.length][rows];
+	            for(int c = 0 ; c < columns.length ; c++) {
+	                for(int i = 0 ; i < rows ; i++) longColumns[c][i] = columns[c][i] = random.nextInt(7) - 3;
+	            }
+	            int[] out = new int[rows];
+	            long[] longOut = new long[rows];
+	            long[] divisionByZero = expression.evaluateColumns(columns, out);
+	            assertArrayEquals(divisionByZero, expression.evaluateColumns(longColumns, longOut));
+
+	            int[] bindings = new int[columns.length];
+	            long[] longBindings = new long[columns.length];
+	            int[] stack = new int[expression.stackSize()];
+	            long[] longStack = new long[expression.stackSize()];
+	            for(int i = 0 ; i < rows ; i++) {
+	                for(int c = 0 ; c < columns.length ; c++) longBindings[c] = bindings[c] = columns[c][i];
+	                boolean failed = (divisionByZero[i >>> 6] & (1L << i)) != 0;
+	                try {
+	                    assertEquals(expression.evaluate(bindings, stack), out[i]);
+	                    assertEquals(expression.evaluate(longBindings, longStack), longOut[i]);
+	                    assertFalse(failed);
+	                }
+	                catch(ArithmeticException divideByZero) {
+	                    assertTrue(failed);
+	                    assertEquals(0, out[i]);
+	                }
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void lanesMatchScalarTest() {
+	        //the vector operators when the module is present, the scalar ones again otherwise
+	        Random random = new Random(13);
+	        int[] edges = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE};
+	        int rows = 2 * ColumnEvaluator.BLOCK + 13;
+
+	        for(byte op = CompiledExpression.ADD ; op <= CompiledExpression.UNKNOWN ; op++) {
+	            byte[] code = {CompiledExpression.LOAD, CompiledExpression.LOAD, op};
+	            int[] values = {0, 1, 0};
+	            int[][] columns = new int[2][rows];
+	            long[][] longColumns = new long[2][rows];
+	            for(int c = 0 ; c < 2 ; c++) {
+	                for(int i = 0 ; i < rows ; i++) {
+	                    columns[c][i] = random.nextInt(4) == 0 ? edges[random.nextInt(edges.length)] : random.nextInt();
+	                    longColumns[c][i] = random.nextInt(4) == 0 ? Long.MIN_VALUE : columns[c][i];
+	                }
+	            }
+
+	            int[] expected = new int[rows];
+	            int[] out = new int[rows];
+	            assertArrayEquals(ColumnEvaluator.evaluate(code, values, 2, copy(columns), expected, ColumnEvaluator.SCALAR),
+	                    ColumnEvaluator.evaluate(code, values, 2, copy(columns), out, ColumnEvaluator.LANES));
+	            assertArrayEquals(expected, out);
+
+	            long[] longExpected = new long[rows];
+	            long[] longOut = new long[rows];
+	            assertArrayEquals(ColumnEvaluator.evaluate(code, values, 2, copy(longColumns), longExpected, ColumnEvaluator.SCALAR),
+	                    ColumnEvaluator.evaluate(code, values, 2, copy(longColumns), longOut, ColumnEvaluator.LANES));
+	            assertArrayEquals(longExpected, longOut);
+	        }
+	    }
+
+	    private static int[][] copy(int columns[][]) {
+	        int[][] copy = new int[columns.length][];
+	        for(int c = 0 ; c < columns.length ; c++) copy[c] = columns[c].clone();
+	        return copy;
+	    }
+
+	    private static long[][] copy(long columns[][]) {
+	        long[][] copy = new long[columns.length][];
+	        for(int c = 0 ; c < columns.length ; c++) copy[c] = columns[c].clone();
+	        return copy;
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void shortColumnTest() {
+	        Arith.evaluatePostfixColumns(new String[] {"x", "1", "+"}, new int[][] {new int[2]}, new int[3]);
+	    }
+}
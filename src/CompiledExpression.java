@@ -0,0 +1,495 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+// -------------------------------------------------------------------------
+/**
+ *  An arithmetic expression that has been validated and lowered once into
+ *  a compact instruction array, so it can be evaluated many times without
+ *  scanning or parsing the original string literals again.
+ *
+ *  Prefix and postfix input are lowered into the same stack program: postfix
+ *  keeps its token order, prefix is read right-to-left and its non-commutative
+ *  operators are flipped so the operands still come out in the right order.
+ *
+ *  Variables are lowered to slot indices, numbered in order of their first
+ *  appearance from left to right, so "x y + 3 *" has x in slot 0 and y in
+ *  slot 1. An expression with variables is evaluated against an array of
+ *  bindings, one value per slot.
+ *
+ *  Instances are immutable and can be shared freely across threads.
+ *  Use Arith.compilePrefix or Arith.compilePostfix to create one.
+ */
+public final class CompiledExpression
+{
+	//~ Instructions ..........................................................
+
+	static final byte PUSH = 0;
+	static final byte ADD = 1;
+	static final byte SUBTRACT = 2;
+	static final byte MULTIPLY = 3;
+	static final byte DIVIDE = 4;
+	/** b - a, used for prefix input where the operands come off the stack the other way round. */
+	static final byte REVERSE_SUBTRACT = 5;
+	/** b / a, used for prefix input where the operands come off the stack the other way round. */
+	static final byte REVERSE_DIVIDE = 6;
+	/** The "," and "." operators accepted by the tokenizer, which evaluate to Integer.MAX_VALUE. */
+	static final byte UNKNOWN = 7;
+	/** Pushes the binding of the variable slot stored as the value. */
+	static final byte LOAD = 8;
+
+	private static final String[] NO_VARIABLES = {};
+
+	//~ Fields ................................................................
+
+	private final byte[] code;
+	private final int[] values;
+	private final String[] variables;
+	private final int stackSize;
+
+	//~ Constructors ..........................................................
+
+	private CompiledExpression(byte[] code, int[] values, String[] variables, int stackSize)
+	{
+		this.code = code;
+		this.values = values;
+		this.variables = variables;
+		this.stackSize = stackSize;
+	}
+
+
+	/**
+	 * Validates and lowers a postfix expression.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 *
+	 * @return the compiled expression.
+	 * @throws IllegalArgumentException if a literal is not a token or the expression is not in postfix order.
+	 **/
+	static CompiledExpression postfix(String postfixLiterals[])
+	{
+		return compile(postfixLiterals, false);
+	}
+
+
+	/**
+	 * Validates and lowers a prefix expression.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 *
+	 * @return the compiled expression.
+	 * @throws IllegalArgumentException if a literal is not a token or the expression is not in prefix order.
+	 **/
+	static CompiledExpression prefix(String prefixLiterals[])
+	{
+		return compile(prefixLiterals, true);
+	}
+
+
+	/**
+	 * Validates and lowers an expression, prefix input is read right-to-left.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned once, variables take a hash lookup.
+	 * 	Space Complexity: 0(n) worst-case: One instruction per literal.
+	 **/
+	private static CompiledExpression compile(String literals[], boolean prefix)
+	{
+		int n = literals.length;
+		byte[] code = new byte[n];
+		int[] values = new int[n];
+		Map<String, Integer> slots = null;
+		int depth = 0;
+		int maxDepth = 0;
+
+		for(int pc = 0 ; pc < n ; pc++) {
+			int i = prefix ? n-1-pc : pc;
+			String literal = literals[i];
+			long token = Tokens.scan(literal);
+
+			if(Tokens.isIdentifier(token)) {
+				if(slots == null) slots = new HashMap<>();
+				Integer slot = slots.get(literal);
+				if(slot == null) {
+					slot = slots.size();
+					slots.put(literal, slot);
+				}
+				code[pc] = LOAD;
+				values[pc] = slot;
+				if(++depth > maxDepth) maxDepth = depth;
+			}
+			else if(Tokens.isOperand(token)) {
+				code[pc] = PUSH;
+				values[pc] = Tokens.intValue(token, literal);
+				if(++depth > maxDepth) maxDepth = depth;
+			}
+			else if(Tokens.isOperator(token)) {
+				if(depth < 2) throw new IllegalArgumentException("Missing operand for \"" + literal + "\" at index " + i);
+				code[pc] = opcode(Tokens.operator(token), prefix);
+				depth--;
+			}
+			else throw new IllegalArgumentException("Invalid token \"" + literal + "\" at index " + i);
+		}
+
+		if(depth != 1) throw new IllegalArgumentException("Not a single " + (prefix ? "prefix" : "postfix") + " expression");
+		String[] variables = slots == null ? NO_VARIABLES : numberVariables(code, values, slots, prefix);
+		return new CompiledExpression(code, values, variables, maxDepth);
+	}
+
+
+	/**
+	 * Renumbers the variable slots in order of first appearance from left to right,
+	 * which for prefix input is the reverse of the order they were found in.
+	 *
+	 * @return the variable names by slot.
+	 **/
+	private static String[] numberVariables(byte code[], int values[], Map<String, Integer> slots, boolean prefix)
+	{
+		String[] found = new String[slots.size()];
+		for(Map.Entry<String, Integer> entry : slots.entrySet()) found[entry.getValue()] = entry.getKey();
+
+		int[] renumbered = new int[found.length];
+		Arrays.fill(renumbered, -1);
+		String[] variables = new String[found.length];
+		int next = 0;
+
+		for(int k = 0 ; k < code.length ; k++) {
+			int pc = prefix ? code.length-1-k : k;
+			if(code[pc] != LOAD) continue;
+			int slot = values[pc];
+			if(renumbered[slot] < 0) {
+				renumbered[slot] = next;
+				variables[next++] = found[slot];
+			}
+			values[pc] = renumbered[slot];
+		}
+		return variables;
+	}
+
+
+	/**
+	 * @param reversed : true when lowering prefix input, whose operands come off the stack the other way round.
+	 *
+	 * @return the instruction for an operator.
+	 **/
+	static byte opcode(char operator, boolean reversed)
+	{
+		switch(operator) {
+		case '*':	return MULTIPLY;
+		case '/': 	return reversed ? REVERSE_DIVIDE : DIVIDE;
+		case '+':	return ADD;
+		case '-':	return reversed ? REVERSE_SUBTRACT : SUBTRACT;
+		default:	return UNKNOWN;
+		}
+	}
+
+	//~ Public Methods ........................................................
+
+	/**
+	 * Evaluates an expression without variables.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 * @throws IllegalStateException if the expression has variables.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per instruction.
+	 * 	Space Complexity: 0(d) worst-case: A stack as deep as the expression.
+	 **/
+	public int evaluate()
+	{
+		return evaluate(new int[stackSize]);
+	}
+
+
+	/**
+	 * Evaluates an expression without variables using a caller-supplied operand stack.
+	 *
+	 * @param stack : scratch space for intermediate values, at least stackSize() long.
+	 * Each thread needs its own stack, the same one can be reused across calls.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 * @throws IllegalStateException if the expression has variables.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per instruction.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public int evaluate(int stack[])
+	{
+		if(variables.length > 0) throw new IllegalStateException("Expression has variables " + Arrays.toString(variables) + ", bind them");
+		return evaluate(null, stack);
+	}
+
+
+	/**
+	 * Evaluates the expression with a value for each variable, allocating nothing.
+	 *
+	 * @param bindings : the value of each variable, indexed by slot(name).
+	 * @param stack : scratch space for intermediate values, at least stackSize() long.
+	 * Each thread needs its own stack, the same one can be reused across calls.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per instruction.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public int evaluate(int bindings[], int stack[])
+	{
+		if(stack.length < stackSize) throw new IllegalArgumentException("Stack needs at least " + stackSize + " entries");
+		if(variables.length > 0 && bindings.length < variables.length) throw new IllegalArgumentException("Expected " + variables.length + " bindings");
+		return run(code, values, bindings, 0, code.length, stack);
+	}
+
+
+	/**
+	 * Evaluates the expression with long arithmetic and a value for each variable, allocating nothing.
+	 *
+	 * @param bindings : the value of each variable, indexed by slot(name).
+	 * @param stack : scratch space for intermediate values, at least stackSize() long.
+	 *
+	 * @return the long result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per instruction.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public long evaluate(long bindings[], long stack[])
+	{
+		if(stack.length < stackSize) throw new IllegalArgumentException("Stack needs at least " + stackSize + " entries");
+		if(bindings.length < variables.length) throw new IllegalArgumentException("Expected " + variables.length + " bindings");
+
+		byte[] code = this.code;
+		int[] values = this.values;
+		int top = 0;
+
+		for(int pc = 0 ; pc < code.length ; pc++) {
+			byte op = code[pc];
+			if(op == PUSH) {
+				stack[top++] = values[pc];
+			}
+			else if(op == LOAD) {
+				stack[top++] = bindings[values[pc]];
+			}
+			else {
+				long b = stack[--top];
+				long a = stack[top-1];
+				stack[top-1] = apply(op, a, b);
+			}
+		}
+		return stack[0];
+	}
+
+
+	/**
+	 * Evaluates the expression once per row of the variable columns, a block of rows at a time.
+	 *
+	 * @param columns : the values of each variable, indexed by slot(name), each at least out.length long.
+	 * @param out : receives the value of each row, 0 for the rows that divided by zero.
+	 *
+	 * @return a bitmap of the rows that divided by zero, bit (i % 64) of word (i / 64) is set if row i did.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n*m) worst-case: Each of the n instructions is applied to all m rows.
+	 * 	Space Complexity: 0(d) worst-case: One register array per stack entry, as long as a block of rows.
+	 **/
+	public long[] evaluateColumns(int columns[][], int out[])
+	{
+		checkColumns(columns.length);
+		for(int i = 0 ; i < variables.length ; i++) checkColumn(i, columns[i].length, out.length);
+		return ColumnEvaluator.evaluate(code, values, stackSize, columns, out);
+	}
+
+
+	/**
+	 * Evaluates the expression with long arithmetic once per row of the variable columns, a block of rows at a time.
+	 *
+	 * @param columns : the values of each variable, indexed by slot(name), each at least out.length long.
+	 * @param out : receives the value of each row, 0 for the rows that divided by zero.
+	 *
+	 * @return a bitmap of the rows that divided by zero, bit (i % 64) of word (i / 64) is set if row i did.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n*m) worst-case: Each of the n instructions is applied to all m rows.
+	 * 	Space Complexity: 0(d) worst-case: One register array per stack entry, as long as a block of rows.
+	 **/
+	public long[] evaluateColumns(long columns[][], long out[])
+	{
+		checkColumns(columns.length);
+		for(int i = 0 ; i < variables.length ; i++) checkColumn(i, columns[i].length, out.length);
+		return ColumnEvaluator.evaluate(code, values, stackSize, columns, out);
+	}
+
+
+	/**
+	 * Compiles the expression into a generated class of straight-line bytecode, whose evaluate method
+	 * takes the variables as parameters, so HotSpot can compile and inline it like hand-written code.
+	 *
+	 * @return a thread-safe function from the bindings, indexed by slot(name), to the value of the expression.
+	 * It throws ArithmeticException on division by zero.
+	 * @throws IllegalArgumentException if the expression has more than 254 variables, or its bytecode
+	 * would exceed the 65535 bytes of a method, about 20000 to 65000 tokens depending on the constants.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: A few bytes of class file per instruction, then class loading.
+	 * 	Space Complexity: 0(n) worst-case: The generated class.
+	 **/
+	public ToIntFunction<int[]> toFunction()
+	{
+		return ExpressionCompiler.compile(code, values, variables.length, stackSize);
+	}
+
+
+	/**
+	 * @return the expression, interpreted until it has been evaluated TieredExpression.DEFAULT_THRESHOLD times
+	 * and compiled with toFunction() from then on.
+	 **/
+	public TieredExpression tiered()
+	{
+		return new TieredExpression(this, TieredExpression.DEFAULT_THRESHOLD);
+	}
+
+
+	/**
+	 * @param promoteAfter : the number of interpreted evaluations before compiling, 0 compiles right away.
+	 *
+	 * @return the expression, interpreted until it has been evaluated promoteAfter times and compiled with toFunction() from then on.
+	 **/
+	public TieredExpression tiered(int promoteAfter)
+	{
+		return new TieredExpression(this, promoteAfter);
+	}
+
+
+	/**
+	 * @return the variable names, indexed by slot.
+	 **/
+	public String[] variables()
+	{
+		return variables.clone();
+	}
+
+
+	/**
+	 * @return the slot of a variable, or -1 if the expression does not use it.
+	 **/
+	public int slot(String name)
+	{
+		for(int i = 0 ; i < variables.length ; i++) {
+			if(variables[i].equals(name)) return i;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * @return the number of stack entries the evaluate methods need.
+	 **/
+	public int stackSize()
+	{
+		return stackSize;
+	}
+
+
+	/**
+	 * @return the number of tokens in the expression.
+	 **/
+	public int size()
+	{
+		return code.length;
+	}
+
+	//~ Private Methods .......................................................
+
+	private void checkColumns(int columns)
+	{
+		if(columns < variables.length) throw new IllegalArgumentException("Expected " + variables.length + " columns");
+	}
+
+
+	private void checkColumn(int slot, int length, int rows)
+	{
+		if(length < rows) throw new IllegalArgumentException("Column of \"" + variables[slot] + "\" has " + length + " rows, expected " + rows);
+	}
+
+	//~ Package Methods .......................................................
+
+	/**
+	 * @return the number of variable slots.
+	 **/
+	int variableCount()
+	{
+		return variables.length;
+	}
+
+
+	/**
+	 * @return true if toFunction() can compile the expression.
+	 **/
+	boolean compilable()
+	{
+		return ExpressionCompiler.fits(code, values, variables.length);
+	}
+
+
+	/**
+	 * Runs the instructions in [from, to), which must form a complete subexpression.
+	 *
+	 * @param bindings : the variable values, may be null if there are no LOAD instructions.
+	 *
+	 * @return the value of the subexpression.
+	 **/
+	static int run(byte code[], int values[], int bindings[], int from, int to, int stack[])
+	{
+		int top = 0;
+
+		for(int pc = from ; pc < to ; pc++) {
+			byte op = code[pc];
+			if(op == PUSH) {
+				stack[top++] = values[pc];
+			}
+			else if(op == LOAD) {
+				stack[top++] = bindings[values[pc]];
+			}
+			else {
+				int b = stack[--top];
+				int a = stack[top-1];
+				stack[top-1] = apply(op, a, b);
+			}
+		}
+		return stack[0];
+	}
+
+
+	static int apply(byte op, int a, int b)
+	{
+		switch(op) {
+		case ADD:				return a+b;
+		case SUBTRACT:			return a-b;
+		case MULTIPLY:			return a*b;
+		case DIVIDE:			return a/b;
+		case REVERSE_SUBTRACT:	return b-a;
+		case REVERSE_DIVIDE:	return b/a;
+		default:				return Integer.MAX_VALUE;
+		}
+	}
+
+
+	static long apply(byte op, long a, long b)
+	{
+		switch(op) {
+		case ADD:				return a+b;
+		case SUBTRACT:			return a-b;
+		case MULTIPLY:			return a*b;
+		case DIVIDE:			return a/b;
+		case REVERSE_SUBTRACT:	return b-a;
+		case REVERSE_DIVIDE:	return b/a;
+		default:				return Long.MAX_VALUE;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for CompiledExpression.java
+ */
+@RunWith(JUnit4.class)
+public class CompiledExpressionTest {
+
+	    @Test
+	    public void compilePrefixTest() {
+	        String[] oneOperand = {"1"};
+	        String[] expression1 = {"+", "1", "2"};
+	        String[] expression2 = {"-", "*", "/", "2", "2", "3", "4"};
+	        String[] expression3 = {"/", "-", "20", "5", "*", "1", "3"};
+
+	        assertEquals(1, Arith.compilePrefix(oneOperand).evaluate());
+	        assertEquals(3, Arith.compilePrefix(expression1).evaluate());
+	        assertEquals(-1, Arith.compilePrefix(expression2).evaluate());
+	        assertEquals(Arith.evaluatePrefixOrder(expression3), Arith.compilePrefix(expression3).evaluate());
+	    }
+
+	    @Test
+	    public void compilePostfixTest() {
+	        String[] oneOperand = {"1"};
+	        String[] expression1 = {"1", "2", "+"};
+	        String[] expression2 = {"1", "2", "/", "3", "*", "4", "-"};
+	        String[] expression3 = {"20", "5", "-", "1", "3", "*", "/"};
+
+	        assertEquals(1, Arith.compilePostfix(oneOperand).evaluate());
+	        assertEquals(3, Arith.compilePostfix(expression1).evaluate());
+	        assertEquals(-4, Arith.compilePostfix(expression2).evaluate());
+	        assertEquals(Arith.evaluatePostfixOrder(expression3), Arith.compilePostfix(expression3).evaluate());
+	    }
+
+	    @Test
+	    public void evaluateRepeatedlyWithSharedStackTest() {
+	        CompiledExpression expression = Arith.compilePostfix(new String[] {"1", "2", "3", "4", "+", "+", "+"});
+	        int[] stack = new int[expression.stackSize()];
+
+	        assertEquals(4, expression.stackSize());
+	        for(int i = 0 ; i < 100 ; i++) assertEquals(10, expression.evaluate(stack));
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void compileRejectsMissingOperandTest() {
+	        Arith.compilePostfix(new String[] {"1", "+"});
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void compileRejectsExtraOperandTest() {
+	        Arith.compilePrefix(new String[] {"+", "1", "2", "3"});
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void compileRejectsInvalidTokenTest() {
+	        Arith.compilePrefix(new String[] {"+", "1", "1x"});
+	    }
+
+	    @Test
+	    public void bindVariablesTest() {
+	        CompiledExpression postfix = Arith.compilePostfix(new String[] {"x", "y", "+", "3", "*", "x", "-"});
+	        CompiledExpression prefix = Arith.compilePrefix(new String[] {"-", "*", "+", "x", "y", "3", "x"});
+	        int[] bindings = new int[2];
+	        int[] stack = new int[Math.max(postfix.stackSize(), prefix.stackSize())];
+
+	        assertArrayEquals(new String[] {"x", "y"}, postfix.variables());
+	        assertArrayEquals(new String[] {"x", "y"}, prefix.variables());
+	        assertEquals(1, prefix.slot("y"));
+	        assertEquals(-1, prefix.slot("z"));
+
+	        for(int x = -5 ; x <= 5 ; x++) {
+	            for(int y = -5 ; y <= 5 ; y++) {
+	                bindings[0] = x;
+	                bindings[1] = y;
+	                assertEquals((x+y)*3-x, postfix.evaluate(bindings, stack));
+	                assertEquals((x+y)*3-x, prefix.evaluate(bindings, stack));
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void bindLongVariablesTest() {
+	        CompiledExpression expression = Arith.compilePrefix(new String[] {"/", "*", "big", "2", "factor"});
+	        long[] stack = new long[expression.stackSize()];
+
+	        assertEquals(6000000000L, expression.evaluate(new long[] {9000000000L, 3}, stack));
+	    }
+
+	    @Test(expected = IllegalStateException.class)
+	    public void evaluateWithoutBindingsTest() {
+	        Arith.compilePostfix(new String[] {"x", "1", "+"}).evaluate();
+	    }
+
+	    @Test(expected = ArithmeticException.class)
+	    public void evaluateDivisionByZeroTest() {
+	        Arith.compilePostfix(new String[] {"1", "2", "2", "-", "/"}).evaluate();
+	    }
+}
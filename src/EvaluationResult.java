@@ -0,0 +1,119 @@
+// -------------------------------------------------------------------------
+/**
+ *  Outcome of validating and evaluating an expression in a single pass:
+ *  either its integer value, or why and where it failed.
+ */
+public final class EvaluationResult
+{
+	/** The reasons an expression can fail to evaluate. */
+	public enum Failure
+	{
+		/** The expression has no literals. */
+		EMPTY,
+		/** A literal is neither an operand nor an operator. */
+		INVALID_TOKEN,
+		/** An operand does not fit in an int. */
+		NUMBER_TOO_LARGE,
+		/** A variable, which only has a value once the expression is compiled and bound. */
+		UNBOUND_VARIABLE,
+		/** An operator does not have two operands. */
+		MISSING_OPERAND,
+		/** More than one value is left once every operator has been applied. */
+		EXTRA_OPERAND,
+		/** A division whose divisor, literal or computed, is zero. */
+		DIVISION_BY_ZERO
+	}
+
+	private final int value;
+	private final Failure failure;
+	private final int index;
+
+	private EvaluationResult(int value, Failure failure, int index)
+	{
+		this.value = value;
+		this.failure = failure;
+		this.index = index;
+	}
+
+
+	static EvaluationResult success(int value)
+	{
+		return new EvaluationResult(value, null, -1);
+	}
+
+
+	static EvaluationResult failure(Failure failure, int index)
+	{
+		return new EvaluationResult(0, failure, index);
+	}
+
+
+	/**
+	 * @return true if the expression evaluated to a value.
+	 **/
+	public boolean isSuccess()
+	{
+		return failure == null;
+	}
+
+
+	/**
+	 * @return the value of the expression.
+	 * @throws IllegalStateException if the expression failed.
+	 **/
+	public int value()
+	{
+		if(failure != null) throw new IllegalStateException("Expression failed: " + this);
+		return value;
+	}
+
+
+	/**
+	 * @return why the expression failed, or null if it succeeded.
+	 **/
+	public Failure failure()
+	{
+		return failure;
+	}
+
+
+	/**
+	 * @return the index of the literal where the expression failed, the number of literals
+	 * if it failed as a whole (EMPTY, EXTRA_OPERAND), or -1 if it succeeded.
+	 **/
+	public int index()
+	{
+		return index;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return failure == null ? Integer.toString(value) : failure + " at index " + index;
+	}
+
+
+	/**
+	 * An IllegalArgumentException that knows which failure it reports,
+	 * so ArithMetrics can count it under the right reason.
+	 */
+	static final class FailureException extends IllegalArgumentException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Failure failure;
+
+		FailureException(Failure failure, String message)
+		{
+			super(message);
+			this.failure = failure;
+		}
+
+
+		Failure failure()
+		{
+			return failure;
+		}
+	}
+}
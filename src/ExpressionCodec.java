@@ -0,0 +1,376 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// -------------------------------------------------------------------------
+/**
+ *  Compact binary encoding of expressions, and an evaluator that runs
+ *  straight over the encoded bytes.
+ *
+ *  An encoded expression is its number of tokens as an unsigned varint,
+ *  followed by the tokens in postfix order, one of:
+ *  - an operator, as its character: '*', '+', ',', '-', '.' or '/'
+ *  - a single digit number, as its character '0' to '9'
+ *  - NUMBER followed by the value as an unsigned varint
+ *  - VARIABLE followed by the length of the name as an unsigned varint and its ASCII characters.
+ *
+ *  Varints are little-endian groups of 7 bits, the high bit of a byte set
+ *  when another byte follows. Typical tokens take a single byte, against
+ *  tens of bytes for a String and its array slot. Numbers are stored by
+ *  value, so "007" decodes as "7".
+ *
+ *  Prefix input is stored in postfix order too, so that every encoding is
+ *  read front to back. The evaluator only uses absolute reads on the
+ *  buffer and an int stack: it works on heap, direct and memory-mapped
+ *  buffers alike, leaves the buffer position alone and creates no object
+ *  per token.
+ */
+public final class ExpressionCodec
+{
+	/** Tag of a number that is not a single digit. */
+	static final byte NUMBER = 0;
+
+	/** Tag of a variable name. */
+	static final byte VARIABLE = 1;
+
+	private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+
+	private ExpressionCodec()
+	{
+	}
+
+
+	//~ Encoding ....................................................................
+
+	/**
+	 * Encodes an expression in postfix notation.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 *
+	 * @return the encoded expression.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned once.
+	 * 	Space Complexity: 0(n) worst-case: At most 6 bytes per number, usually 1 byte per token.
+	 **/
+	public static byte[] encodePostfix(String postfixLiterals[])
+	{
+		int n = postfixLiterals.length;
+		byte[] out = new byte[size(postfixLiterals)];
+		int pos = writeVarint(out, 0, n);
+		int depth = 0;
+
+		for(int i = 0 ; i < n ; i++) {
+			String literal = postfixLiterals[i];
+			long token = Tokens.scan(literal);
+
+			if(Tokens.isIdentifier(token)) {
+				out[pos++] = VARIABLE;
+				pos = writeVarint(out, pos, literal.length());
+				for(int c = 0 ; c < literal.length() ; c++) out[pos++] = (byte) literal.charAt(c);
+				depth++;
+			}
+			else if(Tokens.isOperand(token)) {
+				int value = Tokens.intValue(token, literal);
+				if(value < 10) {
+					out[pos++] = (byte) ('0' + value);
+				}
+				else {
+					out[pos++] = NUMBER;
+					pos = writeVarint(out, pos, value);
+				}
+				depth++;
+			}
+			else if(Tokens.isOperator(token)) {
+				if(depth < 2) throw new IllegalArgumentException("Missing operand for \"" + literal + "\" at index " + i);
+				out[pos++] = (byte) Tokens.operator(token);
+				depth--;
+			}
+			else throw new IllegalArgumentException("Invalid token \"" + literal + "\" at index " + i);
+		}
+
+		if(depth != 1) throw new IllegalArgumentException("Not a single postfix expression");
+		if(pos == out.length) return out;
+		byte[] trimmed = new byte[pos];
+		System.arraycopy(out, 0, trimmed, 0, pos);
+		return trimmed;
+	}
+
+
+	/**
+	 * Encodes an expression in prefix notation, which is stored in postfix order.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 *
+	 * @return the encoded expression.
+	 * @throws IllegalArgumentException if the literals are not an expression in prefix order.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One pass to reorder the literals, one to encode them.
+	 * 	Space Complexity: 0(n) worst-case: The reordered literals plus the encoding.
+	 **/
+	public static byte[] encodePrefix(String prefixLiterals[])
+	{
+		//the conversion skips invalid prefix literals, the encoding must not
+		for(int i = 0 ; i < prefixLiterals.length ; i++) {
+			long token = Tokens.scan(prefixLiterals[i]);
+			if(!Tokens.isOperand(token) && !Tokens.isOperator(token)) {
+				throw new IllegalArgumentException("Invalid token \"" + prefixLiterals[i] + "\" at index " + i);
+			}
+		}
+
+		String[] postfix;
+		try {
+			postfix = ExpressionTree.fromPrefix(prefixLiterals).toPostfix();
+		}
+		catch(RuntimeException malformed) {
+			throw new IllegalArgumentException("Not a single prefix expression", malformed);
+		}
+		return encodePostfix(postfix);
+	}
+
+
+	//~ Decoding ....................................................................
+
+	/**
+	 * Decodes an expression into postfix literals.
+	 *
+	 * @param buffer : the buffer holding the encoded expression.
+	 * @param offset : the absolute index of its first byte.
+	 *
+	 * @return the expression in postfix order.
+	 * @throws IllegalArgumentException if the bytes are not an encoded expression.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each token is read once.
+	 * 	Space Complexity: 0(n) worst-case: The output array, single digits share constant Strings.
+	 **/
+	public static String[] decodePostfix(ByteBuffer buffer, int offset)
+	{
+		long header = readVarint(buffer, offset);
+		int n = (int) (header >>> 32);
+		int pos = (int) header;
+		String[] literals = new String[n];
+
+		for(int i = 0 ; i < n ; i++) {
+			byte b = buffer.get(pos++);
+			if(b >= '0' && b <= '9') {
+				literals[i] = DIGITS[b - '0'];
+			}
+			else if(b == NUMBER) {
+				long number = readVarint(buffer, pos);
+				literals[i] = Integer.toString((int) (number >>> 32));
+				pos = (int) number;
+			}
+			else if(b == VARIABLE) {
+				long length = readVarint(buffer, pos);
+				byte[] name = new byte[(int) (length >>> 32)];
+				buffer.get((int) length, name);
+				literals[i] = new String(name, StandardCharsets.US_ASCII);
+				pos = (int) length + name.length;
+			}
+			else if(b == '*' || (b >= '+' && b <= '/')) {
+				literals[i] = String.valueOf((char) b);
+			}
+			else throw malformed(pos-1);
+		}
+		return literals;
+	}
+
+
+	/**
+	 * Decodes an expression into prefix literals.
+	 *
+	 * @param buffer : the buffer holding the encoded expression.
+	 * @param offset : the absolute index of its first byte.
+	 *
+	 * @return the expression in prefix order.
+	 * @throws IllegalArgumentException if the bytes are not an encoded expression.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One pass to decode, two to reorder.
+	 * 	Space Complexity: 0(n) worst-case: The decoded literals plus the output array.
+	 **/
+	public static String[] decodePrefix(ByteBuffer buffer, int offset)
+	{
+		return ExpressionTree.fromPostfix(decodePostfix(buffer, offset)).toPrefix();
+	}
+
+
+	/**
+	 * @param buffer : the buffer holding the encoded expression.
+	 * @param offset : the absolute index of its first byte.
+	 *
+	 * @return the number of bytes of the encoded expression, so the next one starts at offset + length.
+	 * @throws IllegalArgumentException if the bytes are not an encoded expression.
+	 **/
+	public static int length(ByteBuffer buffer, int offset)
+	{
+		long header = readVarint(buffer, offset);
+		int n = (int) (header >>> 32);
+		int pos = (int) header;
+
+		for(int i = 0 ; i < n ; i++) {
+			byte b = buffer.get(pos++);
+			if(b == NUMBER) {
+				pos = (int) readVarint(buffer, pos);
+			}
+			else if(b == VARIABLE) {
+				long length = readVarint(buffer, pos);
+				pos = (int) length + (int) (length >>> 32);
+			}
+			else if(b < '*' || b > '9') throw malformed(pos-1);
+		}
+		return pos - offset;
+	}
+
+
+	/**
+	 * @param buffer : the buffer holding the encoded expression.
+	 * @param offset : the absolute index of its first byte.
+	 *
+	 * @return the number of tokens of the encoded expression.
+	 * @throws IllegalArgumentException if the bytes do not start with a token count.
+	 **/
+	static int tokenCount(ByteBuffer buffer, int offset)
+	{
+		return (int) (readVarint(buffer, offset) >>> 32);
+	}
+
+
+	//~ Evaluation ..................................................................
+
+	/**
+	 * Evaluates an encoded expression in place.
+	 *
+	 * @param buffer : the buffer holding the encoded expression, heap, direct or memory-mapped.
+	 * @param offset : the absolute index of its first byte.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder gives.
+	 * @throws IllegalArgumentException if the bytes are not an encoded expression, or it has variables.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each token is read once.
+	 * 	Space Complexity: 0(n) worst-case: One int per operand for the operand stack.
+	 **/
+	public static int evaluate(ByteBuffer buffer, int offset)
+	{
+		int n = (int) (readVarint(buffer, offset) >>> 32);
+		return evaluate(buffer, offset, new int[n/2 + 1]);
+	}
+
+
+	/**
+	 * Evaluates an encoded expression in place using a caller-supplied operand stack.
+	 *
+	 * @param buffer : the buffer holding the encoded expression, heap, direct or memory-mapped.
+	 * @param offset : the absolute index of its first byte.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 * The same array can be reused across calls, so evaluating allocates nothing.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder gives.
+	 * @throws IllegalArgumentException if the bytes are not an encoded expression, or it has variables.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each token is read once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public static int evaluate(ByteBuffer buffer, int offset, int stack[])
+	{
+		long header = readVarint(buffer, offset);
+		int n = (int) (header >>> 32);
+		int pos = (int) header;
+		int top = 0;
+
+		for(int i = 0 ; i < n ; i++) {
+			byte b = buffer.get(pos++);
+			if(b >= '0' && b <= '9') {
+				stack[top++] = b - '0';
+			}
+			else if(b == NUMBER) {
+				long number = readVarint(buffer, pos);
+				stack[top++] = (int) (number >>> 32);
+				pos = (int) number;
+			}
+			else if(b == '*' || (b >= '+' && b <= '/')) {
+				if(top < 2) throw malformed(pos-1);
+				int n2 = stack[--top];
+				int n1 = stack[top-1];
+				stack[top-1] = Arith.calculate((char) b, n1, n2);
+			}
+			else if(b == VARIABLE) {
+				throw Tokens.unbound(decodePostfix(buffer, offset)[i]);
+			}
+			else throw malformed(pos-1);
+		}
+
+		if(top != 1) throw malformed(offset);
+		return stack[0];
+	}
+
+
+	//~ Varints .....................................................................
+
+	/**
+	 * @return the number of bytes needed to encode the literals, an upper bound when they are malformed.
+	 **/
+	private static int size(String literals[])
+	{
+		int size = 5;
+		for(String literal : literals) {
+			int length = literal.length();
+			char first = length == 0 ? 0 : literal.charAt(0);
+			//one byte for operators and digits, at most 6 for other numbers, tag, length and characters for variables, "x" included
+			if(length == 1 && first >= '*' && first <= '9') size += 1;
+			else if(first >= '0' && first <= '9') size += 6;
+			else size += 6 + length;
+		}
+		return size;
+	}
+
+
+	/**
+	 * Writes an unsigned varint.
+	 *
+	 * @return the index after the last byte written.
+	 **/
+	private static int writeVarint(byte out[], int pos, int value)
+	{
+		while((value & ~0x7F) != 0) {
+			out[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out[pos++] = (byte) value;
+		return pos;
+	}
+
+
+	/**
+	 * Reads an unsigned varint with absolute gets.
+	 *
+	 * @return the value in the high 32 bits and the index after its last byte in the low 32 bits.
+	 **/
+	private static long readVarint(ByteBuffer buffer, int pos)
+	{
+		int value = 0;
+		for(int shift = 0 ; shift < 35 ; shift += 7) {
+			byte b = buffer.get(pos++);
+			value |= (b & 0x7F) << shift;
+			if(b >= 0) {
+				if(value < 0) break;
+				return ((long) value << 32) | pos;
+			}
+		}
+		throw malformed(pos-1);
+	}
+
+
+	private static IllegalArgumentException malformed(int index)
+	{
+		return new IllegalArgumentException("Malformed expression encoding at byte " + index);
+	}
+}
@@ -0,0 +1,137 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionCodec.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionCodecTest {
+
+	    @Test
+	    public void encodeTest() {
+	        byte[] encoded = ExpressionCodec.encodePostfix(new String[] {"1", "200", "+", "x", "*"});
+
+	        assertArrayEquals(new byte[] {5, '1', ExpressionCodec.NUMBER, (byte) 0xC8, 0x01, '+', ExpressionCodec.VARIABLE, 1, 'x', '*'}, encoded);
+	        assertArrayEquals(encoded, ExpressionCodec.encodePrefix(new String[] {"*", "+", "1", "200", "x"}));
+	    }
+
+	    @Test
+	    public void roundTripTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(14);
+	        for(ExpressionGenerator.Shape shape : ExpressionGenerator.Shape.values()) {
+	            for(int size = 1 ; size < 300 ; size += 2) {
+	                String[] postfix = generator.postfix(size, shape);
+	                String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	                byte[] encoded = ExpressionCodec.encodePostfix(postfix);
+	                ByteBuffer buffer = ByteBuffer.wrap(encoded);
+
+	                //single digit operands and operators take one byte each
+	                assertTrue(encoded.length <= size + 2);
+	                assertArrayEquals(encoded, ExpressionCodec.encodePrefix(prefix));
+	                assertArrayEquals(postfix, ExpressionCodec.decodePostfix(buffer, 0));
+	                assertArrayEquals(prefix, ExpressionCodec.decodePrefix(buffer, 0));
+	                assertEquals(encoded.length, ExpressionCodec.length(buffer, 0));
+	                assertEquals(Arith.evaluatePostfixOrder(postfix), ExpressionCodec.evaluate(buffer, 0));
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void singleLetterVariablesTest() {
+	        //each one-letter variable takes three bytes: tag, length and name
+	        String[][] postfixes = {
+	            {"x", "y", "+", "z", "*", "w", "+"},
+	            {"a", "b", "c", "d", "e", "+", "+", "+", "+"},
+	            {"_", "x", "/", "9", "-"},
+	        };
+	        for(String[] postfix : postfixes) {
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	            byte[] encoded = ExpressionCodec.encodePostfix(postfix);
+	            ByteBuffer buffer = ByteBuffer.wrap(encoded);
+
+	            assertArrayEquals(encoded, ExpressionCodec.encodePrefix(prefix));
+	            assertArrayEquals(postfix, ExpressionCodec.decodePostfix(buffer, 0));
+	            assertArrayEquals(prefix, ExpressionCodec.decodePrefix(buffer, 0));
+	            assertEquals(encoded.length, ExpressionCodec.length(buffer, 0));
+	        }
+	        //one byte of count, three per variable, one per operator
+	        assertEquals(1 + 5*3 + 4, ExpressionCodec.encodePrefix(new String[] {"+", "a", "+", "b", "+", "c", "+", "d", "e"}).length);
+	    }
+
+	    @Test
+	    public void largeNumbersTest() {
+	        String[] postfix = {"2147483647", "127", "-", "128", "16384", "*", "/"};
+	        ByteBuffer buffer = ByteBuffer.wrap(ExpressionCodec.encodePostfix(postfix));
+
+	        assertArrayEquals(postfix, ExpressionCodec.decodePostfix(buffer, 0));
+	        assertEquals(Arith.evaluatePostfixOrder(postfix), ExpressionCodec.evaluate(buffer, 0));
+	        assertArrayEquals(new String[] {"7"}, ExpressionCodec.decodePostfix(ByteBuffer.wrap(ExpressionCodec.encodePostfix(new String[] {"007"})), 0));
+	    }
+
+	    @Test
+	    public void evaluateConsecutiveExpressionsTest() {
+	        String[][] expressions = {{"1", "2", "+"}, {"10", "3", "/"}, {"6", "7", "*", "2", "-"}};
+	        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+	        for(String[] postfix : expressions) buffer.put(ExpressionCodec.encodePostfix(postfix));
+
+	        int[] stack = new int[8];
+	        int offset = 0;
+	        for(String[] postfix : expressions) {
+	            assertEquals(Arith.evaluatePostfixOrder(postfix), ExpressionCodec.evaluate(buffer, offset, stack));
+	            offset += ExpressionCodec.length(buffer, offset);
+	        }
+	        assertEquals(buffer.position(), offset);
+	    }
+
+	    @Test
+	    public void evaluateMappedFileTest() throws IOException {
+	        String[] postfix = new ExpressionGenerator(15).postfix(10001, ExpressionGenerator.Shape.BALANCED);
+	        byte[] encoded = ExpressionCodec.encodePostfix(postfix);
+	        Path file = Files.createTempFile("expression", ".bin");
+	        try {
+	            Files.write(file, encoded);
+	            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, encoded.length);
+	                assertEquals(Arith.evaluatePostfixOrder(postfix), ExpressionCodec.evaluate(mapped, 0));
+	                assertEquals(0, mapped.position());
+	            }
+	        }
+	        finally {
+	            Files.delete(file);
+	        }
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void encodeMalformedTest() {
+	        ExpressionCodec.encodePostfix(new String[] {"1", "+"});
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void encodeInvalidPrefixTest() {
+	        ExpressionCodec.encodePrefix(new String[] {"+", "1", "%", "2"});
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void evaluateMalformedTest() {
+	        ExpressionCodec.evaluate(ByteBuffer.wrap(new byte[] {3, '1', '+', '2'}), 0);
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void evaluateVariableTest() {
+	        ExpressionCodec.evaluate(ByteBuffer.wrap(ExpressionCodec.encodePostfix(new String[] {"x", "1", "+"})), 0);
+	    }
+}
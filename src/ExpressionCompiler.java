@@ -0,0 +1,351 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+// -------------------------------------------------------------------------
+/**
+ *  Compiles the instructions of a CompiledExpression into a hidden class
+ *  of straight-line bytecode, which HotSpot then compiles like any other
+ *  Java method.
+ *
+ *  The generated class looks like this, for "x y + 3 *":
+ *
+ *  final class ArithGenerated implements ToIntFunction
+ *  {
+ *  	static int evaluate(int x, int y) { return (x + y) * 3; }
+ *  	public int applyAsInt(Object bindings) { int[] b = (int[]) bindings; return evaluate(b[0], b[1]); }
+ *  }
+ *
+ *  Variables are the parameters of evaluate, constants are pushed with the
+ *  shortest instruction that holds them, and each operator is a single
+ *  int instruction, preceded by a swap for the reversed prefix operators.
+ *  There are no branches, so the class file needs no stack map frames
+ *  and is written by hand. Division by zero throws from idiv itself.
+ *
+ *  The class is defined as a hidden class, so it is unloaded along with
+ *  the function once nothing refers to it any more.
+ */
+final class ExpressionCompiler
+{
+	/** Largest evaluate method compiled, in bytes of code, the limit of the class file format. */
+	static final int MAX_CODE_BYTES = 65535;
+
+	/** Largest number of variables, a method takes at most 255 int parameters. */
+	static final int MAX_VARIABLES = 254;
+
+	//~ Constant pool indices of the fixed entries, in the order header() writes them.
+
+	private static final int THIS_CLASS = 2;
+	private static final int OBJECT_CLASS = 4;
+	private static final int FUNCTION_CLASS = 6;
+	private static final int INIT_NAME = 7;
+	private static final int VOID_DESCRIPTOR = 8;
+	private static final int OBJECT_INIT = 10;
+	private static final int CODE = 11;
+	private static final int APPLY_NAME = 12;
+	private static final int APPLY_DESCRIPTOR = 13;
+	private static final int EVALUATE_NAME = 14;
+	private static final int EVALUATE_DESCRIPTOR = 15;
+	private static final int EVALUATE = 17;
+	private static final int INT_ARRAY_CLASS = 19;
+	private static final int FIRST_CONSTANT = 20;
+
+	//~ Opcodes
+
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC_W = 0x13;
+	private static final int ILOAD = 0x15;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int ALOAD_2 = 0x2c;
+	private static final int IALOAD = 0x2e;
+	private static final int ASTORE_2 = 0x4d;
+	private static final int POP2 = 0x58;
+	private static final int SWAP = 0x5f;
+	private static final int IADD = 0x60;
+	private static final int ISUB = 0x64;
+	private static final int IMUL = 0x68;
+	private static final int IDIV = 0x6c;
+	private static final int IRETURN = 0xac;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int CHECKCAST = 0xc0;
+
+	private ExpressionCompiler()
+	{
+	}
+
+
+	/**
+	 * @return true if an expression with these instructions can be compiled.
+	 **/
+	static boolean fits(byte code[], int values[], int variables)
+	{
+		return variables <= MAX_VARIABLES && codeSize(code, values) <= MAX_CODE_BYTES;
+	}
+
+
+	/**
+	 * Sizes the code of the evaluate method, instruction by instruction as classFile writes it.
+	 *
+	 * @return the number of bytes of code, or the first count past MAX_CODE_BYTES.
+	 **/
+	static int codeSize(byte code[], int values[])
+	{
+		//the final ireturn
+		int size = 1;
+		for(int pc = 0 ; pc < code.length && size <= MAX_CODE_BYTES ; pc++) {
+			switch(code[pc]) {
+			case CompiledExpression.PUSH:				size += pushSize(values[pc]); break;
+			case CompiledExpression.LOAD:				size += 2; break;
+			case CompiledExpression.ADD:
+			case CompiledExpression.SUBTRACT:
+			case CompiledExpression.MULTIPLY:
+			case CompiledExpression.DIVIDE:				size += 1; break;
+			case CompiledExpression.REVERSE_SUBTRACT:
+			case CompiledExpression.REVERSE_DIVIDE:		size += 2; break;
+			default:									size += 1 + pushSize(Integer.MAX_VALUE);
+			}
+		}
+		return size;
+	}
+
+
+	/**
+	 * Generates and loads the class of an expression.
+	 *
+	 * @param code : the instructions of the expression.
+	 * @param values : the constant or variable slot of each instruction.
+	 * @param variables : the number of variable slots.
+	 * @param stackSize : the deepest the operand stack gets.
+	 *
+	 * @return a function from the variable bindings to the value of the expression.
+	 * @throws IllegalArgumentException if the expression does not fit in a method of MAX_CODE_BYTES bytes.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: A few bytes of class file per instruction, then class loading.
+	 * 	Space Complexity: 0(n) worst-case: The class file.
+	 **/
+	@SuppressWarnings("unchecked")
+	static ToIntFunction<int[]> compile(byte code[], int values[], int variables, int stackSize)
+	{
+		if(!fits(code, values, variables)) {
+			throw new IllegalArgumentException("Expression of " + code.length + " instructions and " + variables + " variables is too large to compile");
+		}
+
+		try {
+			byte[] classFile = classFile(code, values, variables, stackSize);
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+			return (ToIntFunction<int[]>) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		}
+		catch(RuntimeException | Error e) {
+			throw e;
+		}
+		catch(Throwable e) {
+			throw new IllegalStateException("Could not load the compiled expression", e);
+		}
+	}
+
+
+	//~ Class file ..................................................................
+
+	private static byte[] classFile(byte code[], int values[], int variables, int stackSize) throws IOException
+	{
+		//large constants go in the constant pool, one entry per distinct value
+		Map<Integer, Integer> constants = new HashMap<>();
+		ByteArrayOutputStream evaluateCode = new ByteArrayOutputStream(code.length * 2 + 1);
+		for(int pc = 0 ; pc < code.length ; pc++) {
+			byte op = code[pc];
+			switch(op) {
+			case CompiledExpression.PUSH:				push(evaluateCode, values[pc], constants); break;
+			case CompiledExpression.LOAD:				evaluateCode.write(ILOAD); evaluateCode.write(values[pc]); break;
+			case CompiledExpression.ADD:				evaluateCode.write(IADD); break;
+			case CompiledExpression.SUBTRACT:			evaluateCode.write(ISUB); break;
+			case CompiledExpression.MULTIPLY:			evaluateCode.write(IMUL); break;
+			case CompiledExpression.DIVIDE:				evaluateCode.write(IDIV); break;
+			case CompiledExpression.REVERSE_SUBTRACT:	evaluateCode.write(SWAP); evaluateCode.write(ISUB); break;
+			case CompiledExpression.REVERSE_DIVIDE:		evaluateCode.write(SWAP); evaluateCode.write(IDIV); break;
+			default:									evaluateCode.write(POP2); push(evaluateCode, Integer.MAX_VALUE, constants);
+			}
+		}
+		evaluateCode.write(IRETURN);
+
+		ByteArrayOutputStream applyCode = new ByteArrayOutputStream(variables * 4 + 8);
+		if(variables > 0) {
+			applyCode.write(ALOAD_1);
+			applyCode.write(CHECKCAST);
+			writeShort(applyCode, INT_ARRAY_CLASS);
+			applyCode.write(ASTORE_2);
+			for(int slot = 0 ; slot < variables ; slot++) {
+				applyCode.write(ALOAD_2);
+				push(applyCode, slot, constants);
+				applyCode.write(IALOAD);
+			}
+		}
+		applyCode.write(INVOKESTATIC);
+		writeShort(applyCode, EVALUATE);
+		applyCode.write(IRETURN);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(evaluateCode.size() + applyCode.size() + 512);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		//Java 8 class files need no stack map frames when there are no branches
+		out.writeShort(52);
+
+		out.writeShort(FIRST_CONSTANT + constants.size());
+		utf8(out, "ArithGenerated");
+		classRef(out, 1);
+		utf8(out, "java/lang/Object");
+		classRef(out, 3);
+		utf8(out, "java/util/function/ToIntFunction");
+		classRef(out, 5);
+		utf8(out, "<init>");
+		utf8(out, "()V");
+		nameAndType(out, INIT_NAME, VOID_DESCRIPTOR);
+		methodRef(out, OBJECT_CLASS, 9);
+		utf8(out, "Code");
+		utf8(out, "applyAsInt");
+		utf8(out, "(Ljava/lang/Object;)I");
+		utf8(out, "evaluate");
+		utf8(out, "(" + "I".repeat(variables) + ")I");
+		nameAndType(out, EVALUATE_NAME, EVALUATE_DESCRIPTOR);
+		methodRef(out, THIS_CLASS, 16);
+		utf8(out, "[I");
+		classRef(out, 18);
+		int[] pool = new int[constants.size()];
+		for(Map.Entry<Integer, Integer> constant : constants.entrySet()) pool[constant.getValue() - FIRST_CONSTANT] = constant.getKey();
+		for(int constant : pool) {
+			out.writeByte(3);
+			out.writeInt(constant);
+		}
+
+		//final, super
+		out.writeShort(0x0030);
+		out.writeShort(THIS_CLASS);
+		out.writeShort(OBJECT_CLASS);
+		out.writeShort(1);
+		out.writeShort(FUNCTION_CLASS);
+		out.writeShort(0);
+
+		out.writeShort(3);
+		ByteArrayOutputStream initCode = new ByteArrayOutputStream(5);
+		initCode.write(ALOAD_0);
+		initCode.write(INVOKESPECIAL);
+		writeShort(initCode, OBJECT_INIT);
+		initCode.write(RETURN);
+		//public
+		method(out, 0x0001, INIT_NAME, VOID_DESCRIPTOR, 1, 1, initCode);
+		method(out, 0x0001, APPLY_NAME, APPLY_DESCRIPTOR, variables + 2, 3, applyCode);
+		//public static
+		method(out, 0x0009, EVALUATE_NAME, EVALUATE_DESCRIPTOR, Math.max(stackSize, 2), variables, evaluateCode);
+
+		out.writeShort(0);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+
+	/**
+	 * Writes the shortest instruction pushing an int constant.
+	 **/
+	private static void push(ByteArrayOutputStream code, int value, Map<Integer, Integer> constants)
+	{
+		if(value >= -1 && value <= 5) {
+			code.write(ICONST_0 + value);
+		}
+		else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			code.write(BIPUSH);
+			code.write(value);
+		}
+		else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			code.write(SIPUSH);
+			writeShort(code, value);
+		}
+		else {
+			Integer index = constants.get(value);
+			if(index == null) {
+				index = FIRST_CONSTANT + constants.size();
+				constants.put(value, index);
+			}
+			code.write(LDC_W);
+			writeShort(code, index);
+		}
+	}
+
+
+	/**
+	 * @return the number of bytes push writes for a constant.
+	 **/
+	private static int pushSize(int value)
+	{
+		if(value >= -1 && value <= 5) return 1;
+		if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) return 2;
+		//sipush and ldc_w both take a 2 byte operand
+		return 3;
+	}
+
+
+	private static void method(DataOutputStream out, int access, int name, int descriptor, int maxStack, int maxLocals,
+			ByteArrayOutputStream code) throws IOException
+	{
+		out.writeShort(access);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1);
+		out.writeShort(CODE);
+		//max_stack, max_locals, code_length, code, no exception table, no attributes
+		out.writeInt(2 + 2 + 4 + code.size() + 2 + 2);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+
+	private static void utf8(DataOutputStream out, String value) throws IOException
+	{
+		out.writeByte(1);
+		out.writeUTF(value);
+	}
+
+
+	private static void classRef(DataOutputStream out, int name) throws IOException
+	{
+		out.writeByte(7);
+		out.writeShort(name);
+	}
+
+
+	private static void nameAndType(DataOutputStream out, int name, int descriptor) throws IOException
+	{
+		out.writeByte(12);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+	}
+
+
+	private static void methodRef(DataOutputStream out, int owner, int nameAndType) throws IOException
+	{
+		out.writeByte(10);
+		out.writeShort(owner);
+		out.writeShort(nameAndType);
+	}
+
+
+	private static void writeShort(ByteArrayOutputStream code, int value)
+	{
+		code.write(value >>> 8);
+		code.write(value);
+	}
+}
@@ -0,0 +1,153 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionCompiler.java and TieredExpression.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionCompilerTest {
+
+	    @Test
+	    public void compileTest() {
+	        ToIntFunction<int[]> postfix = Arith.compilePostfix(new String[] {"x", "y", "+", "3", "*", "x", "-"}).toFunction();
+	        ToIntFunction<int[]> prefix = Arith.compilePrefix(new String[] {"-", "*", "+", "x", "y", "3", "x"}).toFunction();
+
+	        for(int x = -5 ; x <= 5 ; x++) {
+	            for(int y = -5 ; y <= 5 ; y++) {
+	                assertEquals((x+y)*3-x, postfix.applyAsInt(new int[] {x, y}));
+	                assertEquals((x+y)*3-x, prefix.applyAsInt(new int[] {x, y}));
+	            }
+	        }
+	        assertEquals(-1, Arith.compilePrefix(new String[] {"-", "*", "/", "2", "2", "3", "4"}).toFunction().applyAsInt(null));
+	    }
+
+	    @Test
+	    public void constantsTest() {
+	        //one constant for every push instruction: iconst, bipush, sipush and the constant pool
+	        String[] postfix = {"5", "127", "+", "32767", "+", "2147483647", "+", "100000", "-", "100000", "-", "7", ","};
+	        CompiledExpression expression = Arith.compilePostfix(new String[] {"5", "127", "+", "32767", "+", "2147483647", "+", "100000", "-", "100000", "-"});
+
+	        assertEquals(expression.evaluate(), expression.toFunction().applyAsInt(null));
+	        assertEquals(Integer.MAX_VALUE, Arith.compilePostfix(postfix).toFunction().applyAsInt(null));
+	    }
+
+	    @Test
+	    public void matchesInterpreterTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(16);
+	        Random random = new Random(16);
+	        String[] names = {"a", "b", "c", "d"};
+
+	        for(int e = 0 ; e < 200 ; e++) {
+	            String[] postfix = generator.postfix(1 + 2*random.nextInt(100), ExpressionGenerator.Shape.values()[e % 4]);
+	            for(int i = 0 ; i < postfix.length ; i++) {
+	                if(Character.isDigit(postfix[i].charAt(0)) && random.nextInt(3) == 0) postfix[i] = names[random.nextInt(names.length)];
+	            }
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+
+	            for(CompiledExpression expression : new CompiledExpression[] {Arith.compilePostfix(postfix), Arith.compilePrefix(prefix)}) {
+	                ToIntFunction<int[]> function = expression.toFunction();
+	                int[] bindings = new int[expression.variables().length];
+	                int[] stack = new int[expression.stackSize()];
+	                for(int run = 0 ; run < 10 ; run++) {
+	                    for(int i = 0 ; i < bindings.length ; i++) bindings[i] = random.nextInt(21) - 10;
+	                    try {
+	                        int expected = expression.evaluate(bindings, stack);
+	                        assertEquals(expected, function.applyAsInt(bindings));
+	                    }
+	                    catch(ArithmeticException divideByZero) {
+	                        try {
+	                            function.applyAsInt(bindings);
+	                            fail("Expected division by zero");
+	                        }
+	                        catch(ArithmeticException expected) {
+	                        }
+	                    }
+	                }
+	            }
+	        }
+	    }
+
+	    @Test(expected = ArithmeticException.class)
+	    public void divisionByZeroTest() {
+	        Arith.compilePostfix(new String[] {"1", "x", "/"}).toFunction().applyAsInt(new int[] {0});
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void tooLargeTest() {
+	        Arith.compilePostfix(new ExpressionGenerator(16).postfix(ExpressionCompiler.MAX_CODE_BYTES, ExpressionGenerator.Shape.BALANCED)).toFunction();
+	    }
+
+	    @Test
+	    public void codeSizeLimitTest() {
+	        //100000 takes a 3 byte ldc_w, "," a pop2 and another ldc_w, 4 bytes
+	        int pairs = 9361;
+	        String[] postfix = new String[1 + 2*pairs + 4];
+	        postfix[0] = "100000";
+	        for(int i = 0 ; i < pairs ; i++) {
+	            postfix[1 + 2*i] = "100000";
+	            postfix[2 + 2*i] = ",";
+	        }
+	        //two iconst_1, iadd pairs bring the code to the limit exactly, ireturn included
+	        postfix[postfix.length-4] = "1";
+	        postfix[postfix.length-3] = "+";
+	        postfix[postfix.length-2] = "1";
+	        postfix[postfix.length-1] = "+";
+
+	        CompiledExpression expression = Arith.compilePostfix(postfix);
+	        assertTrue(expression.compilable());
+	        assertEquals(Arith.evaluatePostfixOrder(postfix), expression.toFunction().applyAsInt(new int[0]));
+	        assertTrue(expression.tiered(0).isPromoted());
+
+	        //one more iconst_1, iadd is over
+	        String[] over = Arrays.copyOf(postfix, postfix.length + 2);
+	        over[postfix.length] = "1";
+	        over[postfix.length+1] = "+";
+	        TieredExpression tiered = Arith.compilePostfix(over).tiered(0);
+	        assertFalse(tiered.expression().compilable());
+	        assertFalse(tiered.isPromoted());
+	        assertEquals(Arith.evaluatePostfixOrder(over), tiered.evaluate());
+	        try {
+	            tiered.expression().toFunction();
+	            fail();
+	        }
+	        catch(IllegalArgumentException e) {
+	            //too large to compile
+	        }
+	    }
+
+	    @Test
+	    public void promoteAfterThresholdTest() {
+	        TieredExpression tiered = Arith.compilePostfix(new String[] {"x", "2", "*"}).tiered(100);
+
+	        for(int i = 0 ; i < 99 ; i++) {
+	            assertEquals(2*i, tiered.evaluate(new int[] {i}));
+	            assertFalse(tiered.isPromoted());
+	        }
+	        assertEquals(198, tiered.evaluate(new int[] {99}));
+	        assertTrue(tiered.isPromoted());
+	        assertEquals(200, tiered.evaluate(new int[] {100}));
+
+	        assertTrue(Arith.compilePrefix(new String[] {"+", "1", "2"}).tiered(0).isPromoted());
+	        assertEquals(3, Arith.compilePrefix(new String[] {"+", "1", "2"}).tiered(0).evaluate());
+	    }
+
+	    @Test
+	    public void tooLargeStaysInterpretedTest() {
+	        String[] postfix = new ExpressionGenerator(17).postfix(ExpressionCompiler.MAX_CODE_BYTES, ExpressionGenerator.Shape.RANDOM);
+	        TieredExpression tiered = Arith.compilePostfix(postfix).tiered(1);
+
+	        for(int i = 0 ; i < 3 ; i++) assertEquals(Arith.evaluatePostfixOrder(postfix), tiered.evaluate());
+	        assertFalse(tiered.isPromoted());
+	    }
+}
@@ -0,0 +1,144 @@
+import java.util.Random;
+
+// -------------------------------------------------------------------------
+/**
+ *  Seeded generator of random, valid arithmetic expressions, used by the
+ *  benchmarks and tests so that their inputs can be reproduced exactly.
+ *
+ *  Operands are the literals "1" to "9". A "/" is only ever generated with
+ *  a literal as its right operand, so evaluating a generated expression
+ *  can never divide by zero.
+ */
+public final class ExpressionGenerator
+{
+	/** The shape of the generated expression tree. */
+	public enum Shape
+	{
+		/** ((1 + 2) - 3) * 4 ..., the postfix operand stack never grows past two. */
+		LEFT_DEEP,
+		/** 1 + (2 - (3 * 4 ...)), every operand is pushed before the first operator. */
+		RIGHT_DEEP,
+		/** A complete binary tree, log2(n) deep. */
+		BALANCED,
+		/** Operators placed at random wherever they are valid. */
+		RANDOM
+	}
+
+	private static final String[] DIGITS = {"1", "2", "3", "4", "5", "6", "7", "8", "9"};
+	private static final String[] OPERATORS = {"+", "-", "*", "/"};
+
+	private final Random random;
+
+	/**
+	 * @param seed : the seed of the generator, the same seed always gives the same expressions.
+	 **/
+	public ExpressionGenerator(long seed)
+	{
+		random = new Random(seed);
+	}
+
+
+	/**
+	 * Generates an expression in postfix order.
+	 *
+	 * @param tokens : the number of tokens, rounded down to an odd number since binary expressions always have one.
+	 * @param shape : the shape of the expression tree.
+	 *
+	 * @return the expression in postfix order.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per token.
+	 * 	Space Complexity: 0(n) worst-case: The output array, the literals are shared constants.
+	 **/
+	public String[] postfix(int tokens, Shape shape)
+	{
+		if(tokens < 1) throw new IllegalArgumentException("An expression has at least one token");
+
+		int operands = (tokens+1)/2;
+		String[] out = new String[2*operands-1];
+		int k = 0;
+
+		switch(shape) {
+		case LEFT_DEEP:
+			out[k++] = operand();
+			for(int i = 1 ; i < operands ; i++) {
+				out[k++] = operand();
+				out[k++] = operator(true);
+			}
+			break;
+		case RIGHT_DEEP:
+			for(int i = 0 ; i < operands ; i++) out[k++] = operand();
+			for(int i = 1 ; i < operands ; i++) out[k++] = operator(i == 1);
+			break;
+		case BALANCED:
+			k = balanced(out, k, operands);
+			break;
+		default:
+			int depth = 0;
+			int remaining = operands;
+			while(k < out.length) {
+				//push an operand when it has to be, or on a coin flip when it may be
+				if(depth < 2 || (remaining > 0 && random.nextBoolean())) {
+					out[k++] = operand();
+					depth++;
+					remaining--;
+				}
+				else {
+					boolean divisible = isOperand(out[k-1]);
+					out[k++] = operator(divisible);
+					depth--;
+				}
+			}
+		}
+		return out;
+	}
+
+
+	/**
+	 * Generates an expression in prefix order.
+	 *
+	 * @param tokens : the number of tokens, rounded down to an odd number since binary expressions always have one.
+	 * @param shape : the shape of the expression tree.
+	 *
+	 * @return the expression in prefix order.
+	 **/
+	public String[] prefix(int tokens, Shape shape)
+	{
+		return Arith.convertPostfixToPrefix(postfix(tokens, shape));
+	}
+
+
+	//the recursion is log2(n) deep, as the halves are always balanced
+	private int balanced(String[] out, int k, int operands)
+	{
+		if(operands == 1) {
+			out[k++] = operand();
+			return k;
+		}
+		k = balanced(out, k, operands/2);
+		k = balanced(out, k, operands - operands/2);
+		out[k] = operator(operands - operands/2 == 1);
+		return k+1;
+	}
+
+
+	private String operand()
+	{
+		return DIGITS[random.nextInt(DIGITS.length)];
+	}
+
+
+	/**
+	 * @param divisible : true if the right operand is a literal, so "/" can not divide by zero.
+	 **/
+	private String operator(boolean divisible)
+	{
+		return OPERATORS[random.nextInt(divisible ? 4 : 3)];
+	}
+
+
+	private static boolean isOperand(String literal)
+	{
+		return Tokens.isOperand(Tokens.scan(literal));
+	}
+}
@@ -0,0 +1,47 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionGenerator.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionGeneratorTest {
+
+	    @Test
+	    public void generatesValidExpressionsTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(7);
+	        for(ExpressionGenerator.Shape shape : ExpressionGenerator.Shape.values()) {
+	            for(int tokens = 1 ; tokens < 200 ; tokens += 2) {
+	                String[] postfix = generator.postfix(tokens, shape);
+	                String[] prefix = generator.prefix(tokens, shape);
+
+	                assertEquals(tokens, postfix.length);
+	                assertEquals(tokens, prefix.length);
+	                assertTrue(Arith.validatePostfixOrder(postfix));
+	                assertTrue(Arith.validatePrefixOrder(prefix));
+	                //never divides by zero
+	                Arith.evaluatePostfixOrder(postfix);
+	                Arith.evaluatePrefixOrder(prefix);
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void sameSeedSameExpressionTest() {
+	        for(ExpressionGenerator.Shape shape : ExpressionGenerator.Shape.values()) {
+	            assertArrayEquals(new ExpressionGenerator(42).postfix(1001, shape),
+	                              new ExpressionGenerator(42).postfix(1001, shape));
+	        }
+	    }
+
+	    @Test
+	    public void evenSizeRoundsDownTest() {
+	        assertEquals(9, new ExpressionGenerator(1).postfix(10, ExpressionGenerator.Shape.RANDOM).length);
+	    }
+}
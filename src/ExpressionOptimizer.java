@@ -0,0 +1,287 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// -------------------------------------------------------------------------
+/**
+ *  Optimization pass that turns an expression into a DAG of shared nodes.
+ *
+ *  The expression is read once, like CompiledExpression reads it, and every
+ *  node goes through make() before it is created:
+ *  - identical subtrees are hash-consed into a single node, keyed by the
+ *    operator and the ids of the two operands, so nodes are numbered in
+ *    topological order and each id stands for exactly one subtree,
+ *  - operators over two constants are folded, except for a division by
+ *    zero, which is kept so that evaluating still throws,
+ *  - identities that hold for every int are dropped: x + 0, 0 + x, x - 0,
+ *    x * 1, 1 * x and x / 1,
+ *  - x * 0, 0 * x, x - x and the "," and "." operators become constants,
+ *    but only when the operands can not throw, that is when they contain
+ *    no division by anything but a non-zero constant.
+ *
+ *  Operands are never reordered, so the arithmetic and its overflow stay
+ *  exactly those of Arith.evaluatePostfixOrder. Tokens are Strings, which
+ *  can not be negative numbers, so a negative constant is kept as the
+ *  constant subtree "0 k -", and Integer.MIN_VALUE is not folded at all.
+ */
+final class ExpressionOptimizer
+{
+	/** Operator of a number leaf. */
+	static final char NUMBER = 0;
+	/** Operator of a variable leaf, whose value is its slot. */
+	static final char VARIABLE = 1;
+
+	private final String[] literals;
+	private final Map<Long, Integer> interned = new HashMap<>();
+	private final Map<String, Integer> slots = new HashMap<>();
+
+	private char[] op;
+	private int[] left;
+	private int[] right;
+	private int[] value;
+	private String[] text;
+	private boolean[] constant;
+	private boolean[] safe;
+	private int nodes;
+
+	private ExpressionOptimizer(String[] literals)
+	{
+		int capacity = Math.max(literals.length, 16);
+		this.literals = literals;
+		this.op = new char[capacity];
+		this.left = new int[capacity];
+		this.right = new int[capacity];
+		this.value = new int[capacity];
+		this.text = new String[capacity];
+		this.constant = new boolean[capacity];
+		this.safe = new boolean[capacity];
+	}
+
+
+	/**
+	 * Parses, simplifies and shares the nodes of an expression.
+	 *
+	 * @param prefix : true for prefix order, false for postfix order.
+	 *
+	 * @return the optimized expression.
+	 * @throws IllegalArgumentException if a literal is not a token or the expression is malformed.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) expected: Each literal is scanned once and takes a hash lookup.
+	 * 	Space Complexity: 0(n) worst-case: A few ints per node.
+	 **/
+	static OptimizedExpression optimize(String literals[], boolean prefix)
+	{
+		ExpressionOptimizer optimizer = new ExpressionOptimizer(literals);
+		int n = literals.length;
+		int[] stack = new int[Math.max(n, 1)];
+		int top = 0;
+
+		for(int k = 0 ; k < n ; k++) {
+			int i = prefix ? n-1-k : k;
+			String literal = literals[i];
+			long token = Tokens.scan(literal);
+
+			if(Tokens.isIdentifier(token)) {
+				Integer slot = optimizer.slots.get(literal);
+				if(slot == null) {
+					slot = optimizer.slots.size();
+					optimizer.slots.put(literal, slot);
+				}
+				stack[top++] = optimizer.leaf(VARIABLE, slot, literal);
+			}
+			else if(Tokens.isOperand(token)) {
+				stack[top++] = optimizer.leaf(NUMBER, Tokens.intValue(token, literal), literal);
+			}
+			else if(Tokens.isOperator(token)) {
+				if(top < 2) throw new IllegalArgumentException("Missing operand for \"" + literal + "\" at index " + i);
+				int first = stack[--top];
+				int second = stack[--top];
+				//prefix input is read right-to-left, so its operands come off the stack the other way round
+				stack[top++] = prefix ? optimizer.make(Tokens.operator(token), first, second, literal)
+						: optimizer.make(Tokens.operator(token), second, first, literal);
+			}
+			else throw new IllegalArgumentException("Invalid token \"" + literal + "\" at index " + i);
+		}
+
+		if(top != 1) throw new IllegalArgumentException("Not a single " + (prefix ? "prefix" : "postfix") + " expression");
+		return optimizer.compact(stack[0], prefix);
+	}
+
+
+	//~ Simplification ..............................................................
+
+	/**
+	 * @return the node of "a operator b", simplified and shared with an identical node if there is one.
+	 **/
+	private int make(char operator, int a, int b, String literal)
+	{
+		if(constant[a] && constant[b] && !(operator == '/' && value[b] == 0)) {
+			int folded = Arith.calculate(operator, value[a], value[b]);
+			//-Integer.MIN_VALUE is not an int, so it has no "0 k -" form
+			if(folded != Integer.MIN_VALUE) return constant(folded);
+		}
+
+		switch(operator) {
+		case '+':
+			if(isConstant(b, 0)) return a;
+			if(isConstant(a, 0)) return b;
+			break;
+		case '-':
+			if(isConstant(b, 0)) return a;
+			if(a == b && safe[a]) return constant(0);
+			break;
+		case '*':
+			if(isConstant(b, 1)) return a;
+			if(isConstant(a, 1)) return b;
+			if((isConstant(b, 0) && safe[a]) || (isConstant(a, 0) && safe[b])) return constant(0);
+			break;
+		case '/':
+			if(isConstant(b, 1)) return a;
+			break;
+		default:
+			if(safe[a] && safe[b]) return constant(Integer.MAX_VALUE);
+		}
+		return node(operator, a, b, literal);
+	}
+
+
+	private boolean isConstant(int node, int v)
+	{
+		return constant[node] && value[node] == v;
+	}
+
+
+	/**
+	 * @return the node of a constant other than Integer.MIN_VALUE, "0 k -" for a negative one.
+	 **/
+	private int constant(int v)
+	{
+		if(v >= 0) return leaf(NUMBER, v, null);
+
+		int negated = node('-', leaf(NUMBER, 0, null), leaf(NUMBER, -v, null), null);
+		constant[negated] = true;
+		value[negated] = v;
+		return negated;
+	}
+
+
+	//~ Hash-consing ................................................................
+
+	private int leaf(char kind, int v, String literal)
+	{
+		long key = ((long) kind << 56) | (v & 0xFFFFFFFFL);
+		Integer shared = interned.get(key);
+		if(shared != null) return shared;
+
+		int id = add(kind, -1, -1, literal != null ? literal : TokenPool.number(v));
+		value[id] = v;
+		constant[id] = kind == NUMBER;
+		safe[id] = true;
+		interned.put(key, id);
+		return id;
+	}
+
+
+	private int node(char operator, int a, int b, String literal)
+	{
+		if(nodes >= 1 << 28) throw new IllegalArgumentException("Too many nodes to optimize");
+		long key = ((long) operator << 56) | ((long) a << 28) | b;
+		Integer shared = interned.get(key);
+		if(shared != null) return shared;
+
+		int id = add(operator, a, b, literal != null ? literal : TokenPool.operator(operator));
+		safe[id] = safe[a] && safe[b] && (operator != '/' || (constant[b] && value[b] != 0));
+		interned.put(key, id);
+		return id;
+	}
+
+
+	private int add(char operator, int a, int b, String literal)
+	{
+		if(nodes == op.length) {
+			int capacity = nodes + (nodes >> 1);
+			op = Arrays.copyOf(op, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			value = Arrays.copyOf(value, capacity);
+			text = Arrays.copyOf(text, capacity);
+			constant = Arrays.copyOf(constant, capacity);
+			safe = Arrays.copyOf(safe, capacity);
+		}
+		op[nodes] = operator;
+		left[nodes] = a;
+		right[nodes] = b;
+		text[nodes] = literal;
+		return nodes++;
+	}
+
+
+	//~ Output ......................................................................
+
+	/**
+	 * Drops the nodes the root does not reach, which simplification left behind, and renumbers the rest.
+	 * Operands always have smaller ids than their operators, so one backward pass marks and one forward pass renumbers.
+	 **/
+	private OptimizedExpression compact(int root, boolean prefix)
+	{
+		boolean[] reachable = new boolean[nodes];
+		reachable[root] = true;
+		for(int id = root ; id >= 0 ; id--) {
+			if(reachable[id] && left[id] >= 0) {
+				reachable[left[id]] = true;
+				reachable[right[id]] = true;
+			}
+		}
+
+		int[] renumbered = new int[nodes];
+		int size = 0;
+		for(int id = 0 ; id <= root ; id++) {
+			if(reachable[id]) renumbered[id] = size++;
+		}
+
+		char[] ops = new char[size];
+		int[] lefts = new int[size];
+		int[] rights = new int[size];
+		int[] values = new int[size];
+		String[] texts = new String[size];
+		for(int id = 0 ; id <= root ; id++) {
+			if(!reachable[id]) continue;
+			int to = renumbered[id];
+			ops[to] = op[id];
+			lefts[to] = left[id] < 0 ? -1 : renumbered[left[id]];
+			rights[to] = right[id] < 0 ? -1 : renumbered[right[id]];
+			values[to] = value[id];
+			texts[to] = text[id];
+		}
+
+		String[] variables = new String[slots.size()];
+		for(Map.Entry<String, Integer> entry : slots.entrySet()) variables[entry.getValue()] = entry.getKey();
+		if(prefix) renumberVariables(ops, values, variables);
+
+		return new OptimizedExpression(ops, lefts, rights, values, texts, variables, literals.length);
+	}
+
+
+	/**
+	 * Prefix input finds its variables right-to-left, number them by first appearance from left to right instead,
+	 * the way CompiledExpression does.
+	 **/
+	private void renumberVariables(char ops[], int values[], String variables[])
+	{
+		int[] renumbered = new int[variables.length];
+		int next = 0;
+		for(String literal : literals) {
+			Integer slot = slots.get(literal);
+			if(slot != null && variables[slot] != null) {
+				renumbered[slot] = next++;
+				variables[slot] = null;
+			}
+		}
+
+		for(Map.Entry<String, Integer> entry : slots.entrySet()) variables[renumbered[entry.getValue()]] = entry.getKey();
+		for(int id = 0 ; id < ops.length ; id++) {
+			if(ops[id] == VARIABLE) values[id] = renumbered[values[id]];
+		}
+	}
+}
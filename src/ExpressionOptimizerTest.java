@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionOptimizer.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionOptimizerTest {
+
+	    @Test
+	    public void foldConstantsTest() {
+	        OptimizedExpression folded = Arith.optimizePostfix(new String[] {"2", "3", "*", "4", "+"});
+	        assertArrayEquals(new String[] {"10"}, folded.toPostfix());
+	        assertEquals(10, folded.evaluate());
+	        assertEquals(4, folded.removedNodes());
+
+	        //negative constants are written as "0 k -"
+	        OptimizedExpression negative = Arith.optimizePrefix(new String[] {"-", "1", "*", "2", "3"});
+	        assertArrayEquals(new String[] {"-", "0", "5"}, negative.toPrefix());
+	        assertEquals(-5, negative.evaluate());
+	    }
+
+	    @Test
+	    public void identitiesTest() {
+	        assertArrayEquals(new String[] {"x"}, Arith.optimizePostfix(new String[] {"x", "0", "+", "1", "*", "1", "/", "0", "-"}).toPostfix());
+	        assertArrayEquals(new String[] {"x"}, Arith.optimizePrefix(new String[] {"*", "1", "+", "0", "x"}).toPrefix());
+	        assertArrayEquals(new String[] {"0"}, Arith.optimizePostfix(new String[] {"x", "y", "+", "0", "*"}).toPostfix());
+	        assertArrayEquals(new String[] {"0"}, Arith.optimizePostfix(new String[] {"x", "7", "/", "x", "7", "/", "-"}).toPostfix());
+	        assertArrayEquals(new String[] {"2147483647"}, Arith.optimizePostfix(new String[] {"x", "y", ","}).toPostfix());
+	    }
+
+	    @Test
+	    public void keepDivisionByZeroTest() {
+	        String[][] throwing = {
+	            {"1", "0", "/"},
+	            {"1", "0", "/", "0", "*"},
+	            {"5", "x", "/", "5", "x", "/", "-", "1", "+"},
+	            {"1", "2", "2", "-", "/", "3", "."},
+	        };
+	        for(String[] postfix : throwing) {
+	            OptimizedExpression optimized = Arith.optimizePostfix(postfix);
+	            try {
+	                optimized.evaluate(new int[] {0});
+	                fail(Arrays.toString(postfix));
+	            }
+	            catch(ArithmeticException expected) {
+	            }
+	        }
+	        assertArrayEquals(new String[] {"5", "x", "/", "5", "x", "/", "-", "1", "+"}, Arith.optimizePostfix(throwing[2]).toPostfix());
+	    }
+
+	    @Test
+	    public void shareSubtreesTest() {
+	        //(a*b + c) appears three times
+	        String[] postfix = {"a", "b", "*", "c", "+", "a", "b", "*", "c", "+", "*", "a", "b", "*", "c", "+", "-"};
+	        OptimizedExpression optimized = Arith.optimizePostfix(postfix);
+
+	        assertArrayEquals(new String[] {"a", "b", "c"}, optimized.variables());
+	        assertEquals(7, optimized.size());
+	        assertEquals(postfix.length - 7, optimized.removedNodes());
+	        assertArrayEquals(postfix, optimized.toPostfix());
+	        assertEquals((2*3+4)*(2*3+4) - (2*3+4), optimized.evaluate(new int[] {2, 3, 4}));
+	    }
+
+	    @Test
+	    public void prefixVariableOrderTest() {
+	        OptimizedExpression optimized = Arith.optimizePrefix(new String[] {"-", "x", "*", "y", "x"});
+
+	        assertArrayEquals(new String[] {"x", "y"}, optimized.variables());
+	        assertEquals(10 - 3*10, optimized.evaluate(new int[] {10, 3}));
+	    }
+
+	    @Test
+	    public void matchesEvaluationTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(15);
+	        Random random = new Random(15);
+	        String[] small = {"0", "1", "1", "2"};
+
+	        for(int e = 0 ; e < 2000 ; e++) {
+	            String[] postfix = generator.postfix(1 + 2*random.nextInt(40), ExpressionGenerator.Shape.values()[e % 4]);
+	            //plenty of zeros and ones, and a few divisions by a computed zero
+	            for(int i = 0 ; i < postfix.length ; i++) {
+	                if(Character.isDigit(postfix[i].charAt(0)) && random.nextBoolean()) postfix[i] = small[random.nextInt(small.length)];
+	                else if(postfix[i].equals("+") && random.nextInt(8) == 0) postfix[i] = "/";
+	            }
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	            OptimizedExpression fromPostfix = Arith.optimizePostfix(postfix);
+	            OptimizedExpression fromPrefix = Arith.optimizePrefix(prefix);
+
+	            assertArrayEquals(fromPostfix.toPostfix(), fromPrefix.toPostfix());
+	            assertTrue(fromPostfix.toPostfix().length <= postfix.length);
+	            assertTrue(fromPostfix.removedNodes() >= 0);
+
+	            Integer expected;
+	            try {
+	                expected = Arith.evaluatePostfixOrder(postfix);
+	            }
+	            catch(ArithmeticException divideByZero) {
+	                expected = null;
+	            }
+	            for(OptimizedExpression optimized : new OptimizedExpression[] {fromPostfix, fromPrefix}) {
+	                try {
+	                    assertEquals(expected, Integer.valueOf(optimized.evaluate()));
+	                    assertEquals(expected, Integer.valueOf(Arith.evaluatePostfixOrder(optimized.toPostfix())));
+	                    assertEquals(expected, Integer.valueOf(Arith.evaluatePrefixOrder(optimized.toPrefix())));
+	                }
+	                catch(ArithmeticException divideByZero) {
+	                    assertEquals(null, expected);
+	                }
+	            }
+	        }
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void malformedTest() {
+	        Arith.optimizePostfix(new String[] {"1", "2"});
+	    }
+}
@@ -0,0 +1,252 @@
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Function;
+
+// -------------------------------------------------------------------------
+/**
+ *  A Flow.Processor that cuts a stream of tokens into expressions and
+ *  publishes the result of each one as soon as it is complete.
+ *
+ *  Each item received is a chunk of one or more whole tokens separated by
+ *  whitespace, so an expression can span any number of items and an item
+ *  can hold any number of expressions. Expressions end:
+ *  - in prefix order, when the arity count of validatePrefixOrder comes
+ *    back to zero: every operator needs one operand more, every operand
+ *    fills one. A token that is not an operator counts as an operand, so
+ *    an invalid token still ends where it should and fails on its own,
+ *  - in postfix order, at a ";" token. The operand count cannot end a
+ *    postfix expression, since any complete prefix of one, "1" in
+ *    "1 2 +", is a complete expression too until an operator follows,
+ *  - in both orders, at the end of the stream, and at a ";" token, which
+ *    also ends an incomplete prefix expression. Empty expressions between
+ *    ";" tokens are skipped.
+ *
+ *  Backpressure: the processor requests one item at a time from upstream,
+ *  and only requests the next once every result of the current one is
+ *  buffered for the subscribers. When a subscriber falls a whole buffer
+ *  behind, publishing blocks, so upstream is not asked for more. Memory
+ *  is bounded by that buffer plus the tokens of the expression in progress,
+ *  at most maxTokens; a longer expression fails the stream.
+ *
+ *  Evaluations publish an EvaluationResult for every expression. A
+ *  conversion that throws on a malformed expression fails the stream
+ *  with that exception, and cancels upstream.
+ *
+ *  Subscribers should subscribe before upstream starts sending, since
+ *  results published with no subscriber are dropped.
+ */
+public final class ExpressionProcessor<R> extends SubmissionPublisher<R> implements Flow.Processor<CharSequence, R>
+{
+	/** Default limit on the tokens of a single expression. */
+	public static final int DEFAULT_MAX_TOKENS = 1 << 20;
+
+	/** The token that ends an expression. */
+	public static final String END = ";";
+
+	private final boolean prefix;
+	private final Function<String[], ? extends R> body;
+	private final int maxTokens;
+	private Flow.Subscription upstream;
+	private boolean done;
+
+	//the expression in progress, and for prefix order the operands it still needs
+	private String[] tokens = new String[16];
+	private int count;
+	private int needed;
+
+	/**
+	 * @param prefix : true if the tokens are in prefix order, false for postfix order.
+	 * @param body : what to publish for each expression, given its literals.
+	 * @param executor : runs the delivery to subscribers.
+	 * @param bufferCapacity : the results buffered per subscriber before publishing blocks.
+	 * @param maxTokens : the largest number of tokens of an expression.
+	 **/
+	public ExpressionProcessor(boolean prefix, Function<String[], ? extends R> body, Executor executor, int bufferCapacity, int maxTokens)
+	{
+		super(executor, bufferCapacity);
+		if(maxTokens < 1) throw new IllegalArgumentException("Max tokens must be positive: " + maxTokens);
+		this.prefix = prefix;
+		this.body = body;
+		this.maxTokens = maxTokens;
+	}
+
+
+	//~ Factories ...................................................................
+
+	/**
+	 * @return a processor publishing the tryEvaluatePrefix result of each prefix expression.
+	 **/
+	public static ExpressionProcessor<EvaluationResult> evaluatePrefix()
+	{
+		return create(true, Arith::tryEvaluatePrefix);
+	}
+
+
+	/**
+	 * @return a processor publishing the tryEvaluatePostfix result of each postfix expression.
+	 **/
+	public static ExpressionProcessor<EvaluationResult> evaluatePostfix()
+	{
+		return create(false, Arith::tryEvaluatePostfix);
+	}
+
+
+	/**
+	 * @return a processor publishing each prefix expression converted to postfix order.
+	 **/
+	public static ExpressionProcessor<String[]> convertPrefixToPostfix()
+	{
+		return create(true, Arith::convertPrefixToPostfix);
+	}
+
+
+	/**
+	 * @return a processor publishing each postfix expression converted to prefix order.
+	 **/
+	public static ExpressionProcessor<String[]> convertPostfixToPrefix()
+	{
+		return create(false, Arith::convertPostfixToPrefix);
+	}
+
+
+	/**
+	 * @return a processor publishing each prefix expression converted to infix order.
+	 **/
+	public static ExpressionProcessor<String[]> convertPrefixToInfix()
+	{
+		return create(true, Arith::convertPrefixToInfix);
+	}
+
+
+	/**
+	 * @return a processor publishing each postfix expression converted to infix order.
+	 **/
+	public static ExpressionProcessor<String[]> convertPostfixToInfix()
+	{
+		return create(false, Arith::convertPostfixToInfix);
+	}
+
+
+	private static <R> ExpressionProcessor<R> create(boolean prefix, Function<String[], R> body)
+	{
+		return new ExpressionProcessor<>(prefix, body, ForkJoinPool.commonPool(), Flow.defaultBufferSize(), DEFAULT_MAX_TOKENS);
+	}
+
+
+	//~ Subscriber methods ..........................................................
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription)
+	{
+		if(upstream != null) {
+			subscription.cancel();
+			return;
+		}
+		upstream = subscription;
+		subscription.request(1);
+	}
+
+
+	/**
+	 * Adds the tokens of a chunk, publishing every expression they complete.
+	 **/
+	@Override
+	public void onNext(CharSequence chunk)
+	{
+		if(done) return;
+		int length = chunk.length();
+		int i = 0;
+		while(i < length) {
+			while(i < length && Character.isWhitespace(chunk.charAt(i))) i++;
+			int start = i;
+			while(i < length && !Character.isWhitespace(chunk.charAt(i))) i++;
+			if(start < i && !add(chunk.subSequence(start, i).toString())) return;
+		}
+		upstream.request(1);
+	}
+
+
+	/**
+	 * Fails the stream with the upstream error, dropping the expression in progress.
+	 **/
+	@Override
+	public void onError(Throwable throwable)
+	{
+		if(done) return;
+		done = true;
+		closeExceptionally(throwable);
+	}
+
+
+	/**
+	 * Publishes the expression in progress, if any, then completes the stream.
+	 **/
+	@Override
+	public void onComplete()
+	{
+		if(done) return;
+		if(count > 0 && !publish()) return;
+		done = true;
+		close();
+	}
+
+
+	//~ Expressions .................................................................
+
+	/**
+	 * @return false if the stream failed.
+	 **/
+	private boolean add(String literal)
+	{
+		if(literal.equals(END)) return count == 0 || publish();
+
+		if(count == maxTokens) return fail(new IllegalStateException("Expression longer than " + maxTokens + " tokens"));
+		if(count == tokens.length) tokens = Arrays.copyOf(tokens, Math.min(2*count, maxTokens));
+		tokens[count++] = TokenPool.canonical(literal);
+
+		if(prefix) {
+			if(count == 1) needed = 1;
+			//an operator fills one slot and opens two
+			needed += Tokens.isOperator(Tokens.scan(literal)) ? 1 : -1;
+			if(needed == 0) return publish();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Publishes the result of the expression in progress, blocking while a subscriber's buffer is full.
+	 *
+	 * @return false if the stream failed.
+	 **/
+	private boolean publish()
+	{
+		String[] literals = Arrays.copyOf(tokens, count);
+		count = 0;
+		//let a single long expression's array go, rather than keep it for the stream's lifetime
+		if(tokens.length > 1024) tokens = new String[16];
+		else Arrays.fill(tokens, 0, literals.length, null);
+
+		R result;
+		try {
+			result = body.apply(literals);
+		}
+		catch(RuntimeException e) {
+			return fail(e);
+		}
+		submit(result);
+		return true;
+	}
+
+
+	private boolean fail(Throwable throwable)
+	{
+		done = true;
+		upstream.cancel();
+		closeExceptionally(throwable);
+		return false;
+	}
+}
@@ -0,0 +1,234 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionProcessor.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionProcessorTest {
+
+	    /** Collects everything published, requesting one item at a time. */
+	    private static final class Collector<T> implements Flow.Subscriber<T> {
+	        final List<T> items = new ArrayList<>();
+	        final CountDownLatch done = new CountDownLatch(1);
+	        volatile Throwable error;
+	        private Flow.Subscription subscription;
+
+	        @Override
+	        public void onSubscribe(Flow.Subscription subscription) {
+	            this.subscription = subscription;
+	            subscription.request(1);
+	        }
+
+	        @Override
+	        public void onNext(T item) {
+	            synchronized(items) {
+	                items.add(item);
+	            }
+	            subscription.request(1);
+	        }
+
+	        @Override
+	        public void onError(Throwable throwable) {
+	            error = throwable;
+	            done.countDown();
+	        }
+
+	        @Override
+	        public void onComplete() {
+	            done.countDown();
+	        }
+
+	        void await() throws InterruptedException {
+	            assertTrue(done.await(10, TimeUnit.SECONDS));
+	        }
+	    }
+
+	    /** An upstream that sends its chunks only as they are requested. */
+	    private static final class Source implements Flow.Subscription {
+	        final AtomicLong requested = new AtomicLong();
+	        volatile boolean cancelled;
+	        private final Flow.Subscriber<? super CharSequence> subscriber;
+
+	        Source(Flow.Subscriber<? super CharSequence> subscriber) {
+	            this.subscriber = subscriber;
+	            subscriber.onSubscribe(this);
+	        }
+
+	        @Override
+	        public void request(long n) {
+	            requested.addAndGet(n);
+	        }
+
+	        @Override
+	        public void cancel() {
+	            cancelled = true;
+	        }
+
+	        void send(String... chunks) {
+	            for(String chunk : chunks) {
+	                assertTrue("sent without demand", requested.getAndDecrement() > 0);
+	                subscriber.onNext(chunk);
+	            }
+	        }
+	    }
+
+	    private static int value(EvaluationResult result) {
+	        return result.value();
+	    }
+
+	    @Test
+	    public void prefixBoundariesTest() throws InterruptedException {
+	        ExpressionProcessor<EvaluationResult> processor = ExpressionProcessor.evaluatePrefix();
+	        Collector<EvaluationResult> results = new Collector<>();
+	        processor.subscribe(results);
+	        Source source = new Source(processor);
+
+	        //expressions split across chunks and chunks holding several expressions
+	        source.send("+ 1", "2 * 3", " 4\t- 9 5 7", "/ 1 0 ; + 2 ;", "; / 8", "2");
+	        processor.onComplete();
+	        results.await();
+
+	        assertNull(results.error);
+	        assertEquals(7, results.items.size());
+	        assertEquals(3, value(results.items.get(0)));
+	        assertEquals(12, value(results.items.get(1)));
+	        assertEquals(4, value(results.items.get(2)));
+	        assertEquals(7, value(results.items.get(3)));
+	        assertEquals(EvaluationResult.Failure.DIVISION_BY_ZERO, results.items.get(4).failure());
+	        assertEquals(EvaluationResult.Failure.MISSING_OPERAND, results.items.get(5).failure());
+	        assertEquals(4, value(results.items.get(6)));
+	        //one request at a time, plus the one outstanding
+	        assertEquals(1, source.requested.get());
+	    }
+
+	    @Test
+	    public void postfixDelimiterTest() throws InterruptedException {
+	        ExpressionProcessor<EvaluationResult> processor = ExpressionProcessor.evaluatePostfix();
+	        Collector<EvaluationResult> results = new Collector<>();
+	        processor.subscribe(results);
+	        Source source = new Source(processor);
+
+	        source.send("1 2", "+ ; 3 ;", ";", "4 x + ;", "6 2 /");
+	        processor.onComplete();
+	        results.await();
+
+	        assertEquals(4, results.items.size());
+	        assertEquals(3, value(results.items.get(0)));
+	        assertEquals(3, value(results.items.get(1)));
+	        assertEquals(EvaluationResult.Failure.UNBOUND_VARIABLE, results.items.get(2).failure());
+	        assertEquals(3, value(results.items.get(3)));
+	    }
+
+	    @Test
+	    public void conversionTest() throws InterruptedException {
+	        ExpressionGenerator generator = new ExpressionGenerator(5);
+	        List<String[]> expected = new ArrayList<>();
+	        StringBuilder stream = new StringBuilder();
+	        for(int i = 0 ; i < 200 ; i++) {
+	            String[] prefix = generator.prefix(1 + 2*(i % 20), ExpressionGenerator.Shape.RANDOM);
+	            expected.add(Arith.convertPrefixToPostfix(prefix));
+	            stream.append(String.join(" ", prefix)).append(' ');
+	        }
+
+	        ExpressionProcessor<String[]> processor = ExpressionProcessor.convertPrefixToPostfix();
+	        Collector<String[]> results = new Collector<>();
+	        processor.subscribe(results);
+	        Source source = new Source(processor);
+	        //cut the stream into chunks of 7 tokens, whatever the expression boundaries
+	        String[] tokens = stream.toString().trim().split(" ");
+	        for(int i = 0 ; i < tokens.length ; i += 7) {
+	            source.send(String.join(" ", Arrays.copyOfRange(tokens, i, Math.min(i + 7, tokens.length))));
+	        }
+	        processor.onComplete();
+	        results.await();
+
+	        assertEquals(expected.size(), results.items.size());
+	        for(int i = 0 ; i < expected.size() ; i++) assertArrayEquals(expected.get(i), results.items.get(i));
+	    }
+
+	    @Test
+	    public void backpressureTest() throws InterruptedException {
+	        //a buffer of 4 results and a subscriber that has not requested any
+	        ExpressionProcessor<EvaluationResult> processor = new ExpressionProcessor<>(false, Arith::tryEvaluatePostfix, ForkJoinPool.commonPool(), 4, 100);
+	        CountDownLatch subscribed = new CountDownLatch(1);
+	        Flow.Subscription[] downstream = new Flow.Subscription[1];
+	        List<EvaluationResult> received = new ArrayList<>();
+	        CountDownLatch all = new CountDownLatch(20);
+	        processor.subscribe(new Flow.Subscriber<EvaluationResult>() {
+	            @Override
+	            public void onSubscribe(Flow.Subscription subscription) {
+	                downstream[0] = subscription;
+	                subscribed.countDown();
+	            }
+	            @Override
+	            public void onNext(EvaluationResult item) {
+	                received.add(item);
+	                all.countDown();
+	            }
+	            @Override
+	            public void onError(Throwable throwable) {
+	            }
+	            @Override
+	            public void onComplete() {
+	            }
+	        });
+	        assertTrue(subscribed.await(10, TimeUnit.SECONDS));
+	        Source source = new Source(processor);
+
+	        Thread producer = new Thread(() -> {
+	            for(int i = 0 ; i < 20 ; i++) source.send(i + " 1 + ;");
+	        });
+	        producer.start();
+	        producer.join(500);
+	        //the producer is blocked on the full buffer, upstream was not asked for everything
+	        assertTrue(producer.isAlive());
+	        assertTrue(source.requested.get() <= 1);
+
+	        downstream[0].request(Long.MAX_VALUE);
+	        producer.join(10_000);
+	        assertFalse(producer.isAlive());
+	        assertTrue(all.await(10, TimeUnit.SECONDS));
+	        for(int i = 0 ; i < 20 ; i++) assertEquals(i + 1, value(received.get(i)));
+	    }
+
+	    @Test
+	    public void failureTest() throws InterruptedException {
+	        ExpressionProcessor<EvaluationResult> processor = new ExpressionProcessor<>(true, Arith::tryEvaluatePrefix, ForkJoinPool.commonPool(), 16, 5);
+	        Collector<EvaluationResult> results = new Collector<>();
+	        processor.subscribe(results);
+	        Source source = new Source(processor);
+
+	        source.send("+ 1 2", "+ + + 1 2 3");
+	        results.await();
+	        assertTrue(results.error instanceof IllegalStateException);
+	        assertTrue(source.cancelled);
+
+	        //a conversion that throws fails the stream with its exception
+	        ExpressionProcessor<String[]> converter = ExpressionProcessor.convertPostfixToPrefix();
+	        Collector<String[]> converted = new Collector<>();
+	        converter.subscribe(converted);
+	        source = new Source(converter);
+	        source.send("1 + ;");
+	        converted.await();
+	        assertTrue(converted.error instanceof RuntimeException);
+	        assertTrue(source.cancelled);
+	    }
+}
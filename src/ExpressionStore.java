@@ -0,0 +1,407 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// -------------------------------------------------------------------------
+/**
+ *  An append-only catalog of expressions kept off the Java heap.
+ *
+ *  Each appended expression is validated and written in the ExpressionCodec
+ *  encoding, usually one byte per token, into direct ByteBuffer pages. It
+ *  is addressed by a long id, the page index in the high 32 bits and the
+ *  byte offset in the page in the low 32 bits, and evaluated in place from
+ *  there. The heap only holds the page array, so a catalog of millions of
+ *  expressions adds nothing for the garbage collector to trace or copy,
+ *  where the same expressions as String[] arrays would add tens of bytes
+ *  per token.
+ *
+ *  Every page has an off-heap bitmap of the offsets where an expression
+ *  starts, one bit per byte of the page, so that an id pointing anywhere
+ *  else is rejected rather than decoded from the middle of an expression.
+ *
+ *  Appending is not thread-safe. Lookups and evaluations only make
+ *  absolute reads, so any number of threads can run them on expressions
+ *  appended before the store was handed to them. The pages are released
+ *  when the store becomes unreachable, like any direct buffer.
+ */
+public final class ExpressionStore
+{
+	/** Size of a page, an expression larger than this gets a page of its own. */
+	public static final int DEFAULT_PAGE_BYTES = 16 << 20;
+
+	private final int pageBytes;
+	private ByteBuffer[] pages = new ByteBuffer[16];
+	//bit (offset % 8) of byte (offset / 8) is set where an expression of the page starts
+	private ByteBuffer[] starts = new ByteBuffer[16];
+	//the index of the first expression of each page
+	private long[] firstIndex = new long[16];
+	private int pageCount;
+	private long size;
+	private long bytes;
+
+	/**
+	 * Creates a store with pages of DEFAULT_PAGE_BYTES.
+	 **/
+	public ExpressionStore()
+	{
+		this(DEFAULT_PAGE_BYTES);
+	}
+
+
+	/**
+	 * @param pageBytes : the size of the direct buffers the expressions are packed into.
+	 **/
+	public ExpressionStore(int pageBytes)
+	{
+		if(pageBytes < 16) throw new IllegalArgumentException("Pages must hold at least 16 bytes: " + pageBytes);
+		this.pageBytes = pageBytes;
+	}
+
+
+	//~ Appending ...................................................................
+
+	/**
+	 * Validates and stores an expression in postfix notation.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 *
+	 * @return the id of the stored expression.
+	 * @throws IllegalArgumentException if the literals are not an expression in postfix order, nothing is stored then.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: The literals are encoded once and copied once.
+	 * 	Space Complexity: 0(n) worst-case: The encoding, usually one byte per token, off the heap.
+	 **/
+	public long appendPostfix(String postfixLiterals[])
+	{
+		return append(ExpressionCodec.encodePostfix(postfixLiterals));
+	}
+
+
+	/**
+	 * Validates and stores an expression in prefix notation.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 *
+	 * @return the id of the stored expression.
+	 * @throws IllegalArgumentException if the literals are not an expression in prefix order, nothing is stored then.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: The literals are reordered, encoded and copied once.
+	 * 	Space Complexity: 0(n) worst-case: The encoding, usually one byte per token, off the heap.
+	 **/
+	public long appendPrefix(String prefixLiterals[])
+	{
+		return append(ExpressionCodec.encodePrefix(prefixLiterals));
+	}
+
+
+	private long append(byte encoded[])
+	{
+		ByteBuffer page = pageCount == 0 ? null : pages[pageCount-1];
+		if(page == null || page.remaining() < encoded.length) {
+			if(pageCount == pages.length) {
+				pages = Arrays.copyOf(pages, 2*pageCount);
+				starts = Arrays.copyOf(starts, 2*pageCount);
+				firstIndex = Arrays.copyOf(firstIndex, 2*pageCount);
+			}
+			page = ByteBuffer.allocateDirect(Math.max(pageBytes, encoded.length));
+			pages[pageCount] = page;
+			starts[pageCount] = ByteBuffer.allocateDirect((page.capacity() + 7) >>> 3);
+			firstIndex[pageCount] = size;
+			pageCount++;
+		}
+
+		int offset = page.position();
+		ByteBuffer start = starts[pageCount-1];
+		start.put(offset >>> 3, (byte) (start.get(offset >>> 3) | (1 << (offset & 7))));
+		long id = ((long) (pageCount-1) << 32) | offset;
+		page.put(encoded);
+		size++;
+		bytes += encoded.length;
+		return id;
+	}
+
+
+	//~ Lookup ......................................................................
+
+	/**
+	 * @return the number of expressions stored.
+	 **/
+	public long size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * @return the number of off-heap bytes the expressions take, not counting the free end of each page.
+	 **/
+	public long bytes()
+	{
+		return bytes;
+	}
+
+
+	/**
+	 * @return the number of off-heap bytes allocated for pages and their start bitmaps.
+	 **/
+	public long capacity()
+	{
+		long capacity = 0;
+		for(int p = 0 ; p < pageCount ; p++) capacity += pages[p].capacity() + starts[p].capacity();
+		return capacity;
+	}
+
+
+	/**
+	 * @param id : the id appendPostfix or appendPrefix returned.
+	 *
+	 * @return the stored expression in postfix order, numbers written without leading zeros.
+	 * @throws IllegalArgumentException if the id was not returned by this store.
+	 **/
+	public String[] postfix(long id)
+	{
+		return ExpressionCodec.decodePostfix(page(id), offset(id));
+	}
+
+
+	/**
+	 * @param id : the id appendPostfix or appendPrefix returned.
+	 *
+	 * @return the stored expression in prefix order, numbers written without leading zeros.
+	 * @throws IllegalArgumentException if the id was not returned by this store.
+	 **/
+	public String[] prefix(long id)
+	{
+		return ExpressionCodec.decodePrefix(page(id), offset(id));
+	}
+
+
+	//~ Evaluation ..................................................................
+
+	/**
+	 * Evaluates a stored expression in place.
+	 *
+	 * @param id : the id appendPostfix or appendPrefix returned.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder gives.
+	 * @throws IllegalArgumentException if the id was not returned by this store, or the expression has variables.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each token is read once.
+	 * 	Space Complexity: 0(n) worst-case: One int per operand for the operand stack.
+	 **/
+	public int evaluate(long id)
+	{
+		return ExpressionCodec.evaluate(page(id), offset(id));
+	}
+
+
+	/**
+	 * Evaluates a stored expression in place using a caller-supplied operand stack.
+	 *
+	 * @param id : the id appendPostfix or appendPrefix returned.
+	 * @param stack : scratch space for intermediate values, with room for at least one entry per operand.
+	 *
+	 * @return the integer result of evaluating the expression, the same as evaluatePostfixOrder gives.
+	 * @throws IllegalArgumentException if the id was not returned by this store, or the expression has variables.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each token is read once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants on top of the supplied stack.
+	 **/
+	public int evaluate(long id, int stack[])
+	{
+		return ExpressionCodec.evaluate(page(id), offset(id), stack);
+	}
+
+
+	/**
+	 * Evaluates the stored expressions with the given ids.
+	 *
+	 * @param ids : ids appendPostfix or appendPrefix returned.
+	 *
+	 * @return the result of each expression, plus a bitmap of the ones that failed to evaluate.
+	 * @throws IllegalArgumentException if an id was not returned by this store.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(N) worst-case: N is the total number of tokens.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack.
+	 **/
+	public BatchResult evaluate(long ids[])
+	{
+		int[] results = new int[ids.length];
+		long[] failures = new long[(ids.length + 63) >>> 6];
+		int[] stack = new int[16];
+
+		for(int i = 0 ; i < ids.length ; i++) {
+			ByteBuffer page = page(ids[i]);
+			int offset = offset(ids[i]);
+			stack = stack(page, offset, stack);
+			try {
+				results[i] = ExpressionCodec.evaluate(page, offset, stack);
+			}
+			catch(ArithmeticException | IllegalArgumentException e) {
+				failures[i >>> 6] |= 1L << i;
+			}
+		}
+		return new BatchResult(results, failures);
+	}
+
+
+	/**
+	 * Evaluates every stored expression on the common fork-join pool.
+	 *
+	 * @return the result of each expression in the order they were appended, plus a bitmap of the ones that failed.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(N/p) worst-case: N is the total number of tokens, with pages spread across p worker threads.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack per page.
+	 **/
+	public BatchResult evaluateAll()
+	{
+		return evaluateAll(ForkJoinPool.getCommonPoolParallelism());
+	}
+
+
+	/**
+	 * Evaluates every stored expression.
+	 *
+	 * @param parallelism : the number of worker threads, 1 evaluates on the calling thread.
+	 *
+	 * @return the result of each expression in the order they were appended, plus a bitmap of the ones that failed.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(N/p) worst-case: N is the total number of tokens, with pages spread across p worker threads.
+	 * 	Space Complexity: 0(m) worst-case: One result per expression and one scratch stack per page.
+	 **/
+	public BatchResult evaluateAll(int parallelism)
+	{
+		if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		if(size > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many expressions for one result array: " + size);
+
+		int[] results = new int[(int) size];
+		long[] failures = new long[(results.length + 63) >>> 6];
+		Pages task = new Pages(results, failures, 0, pageCount);
+
+		if(parallelism == 1 || pageCount == 1) {
+			task.compute();
+		}
+		else if(parallelism == ForkJoinPool.commonPool().getParallelism()) {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+		else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(task);
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		return new BatchResult(results, failures);
+	}
+
+
+	/** Evaluates the pages in [from, to), splitting in halves until one page is left. */
+	private final class Pages extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] results;
+		private final long[] failures;
+		private final int from;
+		private final int to;
+
+		Pages(int[] results, long[] failures, int from, int to)
+		{
+			this.results = results;
+			this.failures = failures;
+			this.from = from;
+			this.to = to;
+		}
+
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Pages(results, failures, from, middle), new Pages(results, failures, middle, to));
+				return;
+			}
+			if(to == from) return;
+
+			ByteBuffer page = pages[from];
+			int end = page.position();
+			int index = (int) firstIndex[from];
+			int[] stack = new int[16];
+			//pages rarely start on a bitmap word, so failures are collected here and merged under a lock
+			long[] failed = null;
+
+			for(int offset = 0 ; offset < end ; index++) {
+				stack = stack(page, offset, stack);
+				try {
+					results[index] = ExpressionCodec.evaluate(page, offset, stack);
+				}
+				catch(ArithmeticException | IllegalArgumentException e) {
+					if(failed == null) failed = new long[16];
+					int local = index - (int) firstIndex[from];
+					if((local >>> 6) >= failed.length) failed = Arrays.copyOf(failed, Math.max(2*failed.length, (local >>> 6) + 1));
+					failed[local >>> 6] |= 1L << local;
+				}
+				offset += ExpressionCodec.length(page, offset);
+			}
+
+			if(failed != null) {
+				int first = (int) firstIndex[from];
+				synchronized(failures) {
+					for(int w = 0 ; w < failed.length ; w++) {
+						for(long word = failed[w] ; word != 0 ; word &= word - 1) {
+							int i = first + (w << 6) + Long.numberOfTrailingZeros(word);
+							failures[i >>> 6] |= 1L << i;
+						}
+					}
+				}
+			}
+		}
+	}
+
+
+	//~ Ids .........................................................................
+
+	private ByteBuffer page(long id)
+	{
+		int page = (int) (id >>> 32);
+		int offset = (int) id;
+		if(page < 0 || page >= pageCount || offset < 0 || offset >= pages[page].position()
+				|| (starts[page].get(offset >>> 3) & (1 << (offset & 7))) == 0) {
+			throw new IllegalArgumentException("Unknown expression id " + Long.toHexString(id));
+		}
+		return pages[page];
+	}
+
+
+	private static int offset(long id)
+	{
+		return (int) id;
+	}
+
+
+	/**
+	 * @return stack, or a larger one if the expression at offset has more operands than it can hold.
+	 **/
+	private static int[] stack(ByteBuffer page, int offset, int stack[])
+	{
+		//the token count is the first varint, a single byte below 128
+		int b = page.get(offset);
+		int n = b >= 0 ? b : ExpressionCodec.tokenCount(page, offset);
+		return n/2 + 1 <= stack.length ? stack : new int[Math.max(n/2 + 1, 2*stack.length)];
+	}
+}
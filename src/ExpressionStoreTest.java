@@ -0,0 +1,152 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionStore.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionStoreTest {
+
+	    @Test
+	    public void appendAndLookupTest() {
+	        ExpressionStore store = new ExpressionStore();
+	        long postfix = store.appendPostfix(new String[] {"2", "300", "*", "4", "-"});
+	        long prefix = store.appendPrefix(new String[] {"+", "x", "007"});
+
+	        assertEquals(2, store.size());
+	        assertEquals(0, postfix >>> 32);
+	        assertArrayEquals(new String[] {"2", "300", "*", "4", "-"}, store.postfix(postfix));
+	        assertArrayEquals(new String[] {"-", "*", "2", "300", "4"}, store.prefix(postfix));
+	        assertArrayEquals(new String[] {"+", "x", "7"}, store.prefix(prefix));
+	        assertEquals(596, store.evaluate(postfix));
+	        assertEquals(596, store.evaluate(postfix, new int[3]));
+	        assertEquals(store.bytes(), (int) prefix + ExpressionCodec.encodePrefix(new String[] {"+", "x", "007"}).length);
+	        try {
+	            store.evaluate(prefix);
+	            fail();
+	        }
+	        catch(IllegalArgumentException e) {
+	            //unbound variable
+	        }
+	    }
+
+	    @Test
+	    public void invalidAppendTest() {
+	        ExpressionStore store = new ExpressionStore();
+	        String[][] invalid = {{"1", "+"}, {"1", "2"}, {"+", "1"}, {"1", "a!", "+"}, {}};
+	        for(String[] literals : invalid) {
+	            try {
+	                store.appendPostfix(literals);
+	                fail();
+	            }
+	            catch(IllegalArgumentException e) {
+	                //nothing is stored
+	            }
+	        }
+	        assertEquals(0, store.size());
+	        assertEquals(0, store.bytes());
+	        try {
+	            store.evaluate(0L);
+	            fail();
+	        }
+	        catch(IllegalArgumentException e) {
+	            //unknown id
+	        }
+	    }
+
+	    @Test
+	    public void variablesTest() {
+	        ExpressionStore store = new ExpressionStore(32);
+	        String[][] expressions = {{"x", "y", "+", "z", "*", "w", "+"}, {"a", "b", "c", "d", "e", "+", "+", "+", "+"}, {"1", "x", "+"}};
+	        long[] ids = new long[expressions.length];
+	        for(int i = 0 ; i < expressions.length ; i++) {
+	            ids[i] = i % 2 == 0 ? store.appendPostfix(expressions[i]) : store.appendPrefix(Arith.convertPostfixToPrefix(expressions[i]));
+	        }
+	        for(int i = 0 ; i < expressions.length ; i++) {
+	            assertArrayEquals(expressions[i], store.postfix(ids[i]));
+	            assertArrayEquals(Arith.convertPostfixToPrefix(expressions[i]), store.prefix(ids[i]));
+	        }
+
+	        //every expression fails on its unbound variables
+	        BatchResult result = store.evaluateAll(1);
+	        assertEquals(expressions.length, result.failureCount());
+	    }
+
+	    @Test
+	    public void unknownIdTest() {
+	        ExpressionStore store = new ExpressionStore();
+	        long first = store.appendPostfix(new String[] {"1", "200", "+"});
+	        long second = store.appendPostfix(new String[] {"x", "2", "*"});
+
+	        //offsets inside an expression, past the end, and on a missing page
+	        long[] unknown = {first + 1, first + 2, second + 1, second + 7, 1L << 32, -1L};
+	        for(long id : unknown) {
+	            try {
+	                store.postfix(id);
+	                fail(Long.toHexString(id));
+	            }
+	            catch(IllegalArgumentException e) {
+	                assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown expression id"));
+	            }
+	        }
+	        assertEquals(201, store.evaluate(first));
+	    }
+
+	    @Test
+	    public void pagesTest() {
+	        ExpressionStore store = new ExpressionStore(64);
+	        ExpressionGenerator generator = new ExpressionGenerator(23);
+	        String[][] expressions = new String[2000][];
+	        long[] ids = new long[expressions.length];
+	        for(int i = 0 ; i < expressions.length ; i++) {
+	            //mostly small expressions, with one larger than a page now and then
+	            expressions[i] = generator.postfix(i % 100 == 0 ? 301 : 1 + 2*(i % 15), ExpressionGenerator.Shape.RANDOM);
+	            ids[i] = i % 2 == 0 ? store.appendPostfix(expressions[i]) : store.appendPrefix(Arith.convertPostfixToPrefix(expressions[i]));
+	        }
+	        assertTrue((ids[ids.length-1] >>> 32) > 10);
+	        assertTrue(store.capacity() >= store.bytes());
+
+	        BatchResult all = store.evaluateAll(1);
+	        BatchResult parallel = store.evaluateAll(4);
+	        BatchResult byId = store.evaluate(ids);
+	        for(int i = 0 ; i < expressions.length ; i++) {
+	            assertArrayEquals(expressions[i], store.postfix(ids[i]));
+	            boolean failed;
+	            int expected = 0;
+	            try {
+	                expected = Arith.evaluatePostfixOrder(expressions[i]);
+	                failed = false;
+	            }
+	            catch(ArithmeticException e) {
+	                failed = true;
+	            }
+	            for(BatchResult result : new BatchResult[] {all, parallel, byId}) {
+	                assertEquals(failed, result.failed(i));
+	                if(!failed) assertEquals(expected, result.results()[i]);
+	            }
+	        }
+	        assertEquals(all.failureCount(), parallel.failureCount());
+	    }
+
+	    @Test
+	    public void failuresTest() {
+	        ExpressionStore store = new ExpressionStore(32);
+	        for(int i = 0 ; i < 500 ; i++) {
+	            store.appendPostfix(i % 7 == 3 ? new String[] {"1", "0", "/"} : new String[] {Integer.toString(i), "1", "+"});
+	        }
+	        BatchResult result = store.evaluateAll(3);
+	        assertEquals(500, result.size());
+	        for(int i = 0 ; i < 500 ; i++) {
+	            assertEquals(i % 7 == 3, result.failed(i));
+	            if(i % 7 != 3) assertEquals(i + 1, result.results()[i]);
+	        }
+	        assertEquals(0, new ExpressionStore().evaluateAll().size());
+	    }
+}
@@ -0,0 +1,492 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+// -------------------------------------------------------------------------
+/**
+ *  Conversion of a single expression read from a channel, writing each
+ *  converted token as soon as it is known, for the transcoding Arith methods.
+ *
+ *  Tokens are whitespace-separated ISO-8859-1 text and are written
+ *  separated by single spaces, the same tokens as the array conversions
+ *  give. Every conversion runs the same pass over prefix order, keeping
+ *  one byte per pending operator, its character and whether its left
+ *  operand is done, on a SpillStack:
+ *  - an operator is pushed, and for infix output "(" is written,
+ *  - an operand is written, then completes the operator on top: a first
+ *    operand writes the operator for infix output, a second one pops it
+ *    and writes the operator for postfix output or ")" for infix output,
+ *    and completes the operator below in turn.
+ *  The stack is as deep as the expression tree, and spills to disk past
+ *  stackBytes levels, so memory stays bounded for any depth.
+ *
+ *  Postfix input cannot be converted front to back in bounded memory: a
+ *  prefix or infix output starts with the operators and parentheses of
+ *  the whole left spine, which postfix only gives at the end. Read back
+ *  to front, postfix is the prefix order of the mirrored tree, and
+ *  mirroring twice gives the original, so postfix input is read from its
+ *  end, run through the same pass, and the output, parentheses swapped,
+ *  is reversed byte for byte on the way out. The reversed output is
+ *  buffered in memory up to OUTPUT_BYTES and on disk beyond.
+ */
+final class ExpressionTranscoder
+{
+	/** Default number of stack levels kept in memory before spilling. */
+	static final int STACK_BYTES = 1 << 20;
+
+	/** Reversed output kept in memory before spilling. */
+	static final int OUTPUT_BYTES = 1 << 20;
+
+	private static final int BLOCK = 1 << 16;
+	private static final byte SPACE = ' ';
+	private static final byte OPEN = '(';
+	private static final byte CLOSE = ')';
+	//set on a stack entry once the operator's left operand is written
+	private static final byte LEFT_DONE = (byte) 0x80;
+
+	private final Source source;
+	private final Sink sink;
+	private final boolean infix;
+	private final boolean postfixInput;
+
+	private ExpressionTranscoder(Source source, Sink sink, boolean infix, boolean postfixInput)
+	{
+		this.source = source;
+		this.sink = sink;
+		this.infix = infix;
+		this.postfixInput = postfixInput;
+	}
+
+
+	/**
+	 * Converts a prefix expression front to back.
+	 *
+	 * @param in : the prefix input, read to its end and not closed.
+	 * @param infix : true for infix output, false for postfix output.
+	 * @param channel : the output channel, or null to write to writer.
+	 * @param writer : the output writer, flushed but not closed, or null to write to channel.
+	 * @param stackBytes : the stack levels kept in memory.
+	 **/
+	static void fromPrefix(ReadableByteChannel in, boolean infix, WritableByteChannel channel, Writer writer, int stackBytes) throws IOException
+	{
+		try(Sink sink = new Sink(channel, writer, false)) {
+			new ExpressionTranscoder(new ForwardSource(in), sink, infix, false).run(stackBytes);
+			sink.finish();
+		}
+	}
+
+
+	/**
+	 * Converts a postfix expression back to front.
+	 *
+	 * @param in : the postfix input, read from its current size down to position 0 and not closed.
+	 * @param infix : true for infix output, false for prefix output.
+	 * @param channel : the output channel, or null to write to writer.
+	 * @param writer : the output writer, flushed but not closed, or null to write to channel.
+	 * @param stackBytes : the stack levels kept in memory.
+	 **/
+	static void fromPostfix(SeekableByteChannel in, boolean infix, WritableByteChannel channel, Writer writer, int stackBytes) throws IOException
+	{
+		try(Sink sink = new Sink(channel, writer, true)) {
+			new ExpressionTranscoder(new BackwardSource(in), sink, infix, true).run(stackBytes);
+			sink.finish();
+		}
+	}
+
+
+	//~ Conversion ..................................................................
+
+	private void run(int stackBytes) throws IOException
+	{
+		//postfix input runs on the mirrored tree, whose infix output has its parentheses swapped
+		byte open = postfixInput ? CLOSE : OPEN;
+		byte close = postfixInput ? OPEN : CLOSE;
+		boolean complete = false;
+
+		try(SpillStack stack = new SpillStack(stackBytes)) {
+			for(int token = source.next() ; token != Source.END ; token = source.next()) {
+				if(complete) {
+					throw new IllegalArgumentException("Not a single " + order() + " expression, token " + position() + " \"" + source.text() + "\" is left over");
+				}
+
+				if(token >= 0) {
+					stack.push((byte) token);
+					if(infix) sink.write(open);
+					continue;
+				}
+
+				sink.write(source.bytes(), source.length());
+				//fold every operator this operand completes
+				while(true) {
+					if(stack.isEmpty()) {
+						complete = true;
+						break;
+					}
+					byte frame = stack.pop();
+					byte operator = (byte) (frame & ~LEFT_DONE);
+					if((frame & LEFT_DONE) == 0) {
+						stack.push((byte) (frame | LEFT_DONE));
+						if(infix) sink.write(operator);
+						break;
+					}
+					sink.write(infix ? close : operator);
+				}
+			}
+		}
+
+		if(!complete) throw new EmptyStackException();
+	}
+
+
+	private String order()
+	{
+		return postfixInput ? "postfix" : "prefix";
+	}
+
+
+	private String position()
+	{
+		return postfixInput ? source.index() + " from the end" : Long.toString(source.index());
+	}
+
+
+	//~ Sources .....................................................................
+
+	/**
+	 * Tokens of the input, classified as they are read.
+	 */
+	private abstract static class Source
+	{
+		/** Result of next() once the input is exhausted. */
+		static final int END = -2;
+
+		/** Result of next() for an operand. */
+		static final int OPERAND = -1;
+
+		protected final ByteBuffer block = ByteBuffer.allocate(BLOCK);
+		private byte[] token = new byte[64];
+		private int length;
+		private long index = -1;
+
+		/**
+		 * @return the next input byte, or -1 at the end.
+		 **/
+		protected abstract int read() throws IOException;
+
+
+		/**
+		 * @return true if the bytes of a token come last character first.
+		 **/
+		protected abstract boolean reversed();
+
+
+		/**
+		 * Reads the next token.
+		 *
+		 * @return the operator character, OPERAND for a number or variable, or END.
+		 * @throws IllegalArgumentException if the token is neither.
+		 **/
+		final int next() throws IOException
+		{
+			int c = read();
+			while(c >= 0 && isWhitespace(c)) c = read();
+			if(c < 0) return END;
+			index++;
+
+			length = 0;
+			while(c >= 0 && !isWhitespace(c)) {
+				if(length == token.length) token = Arrays.copyOf(token, 2*length);
+				token[length++] = (byte) c;
+				c = read();
+			}
+
+			if(length == 1 && (token[0] == '*' || (token[0] >= '+' && token[0] <= '/'))) return token[0];
+			if(!isOperand()) throw new IllegalArgumentException("Invalid token \"" + text() + "\" at index " + (reversed() ? index + " from the end" : Long.toString(index)));
+			return OPERAND;
+		}
+
+
+		/**
+		 * @return true if the token is a number or a variable, by the rules of Tokens.scan.
+		 **/
+		private boolean isOperand()
+		{
+			char first = (char) (token[reversed() ? length-1 : 0] & 0xFF);
+			boolean identifier = Tokens.isIdentifierStart(first);
+			if(!identifier && (first < '0' || first > '9')) return false;
+			for(int i = 0 ; i < length ; i++) {
+				char c = (char) (token[i] & 0xFF);
+				if(c >= '0' && c <= '9') continue;
+				if(!identifier || !Tokens.isIdentifierStart(c)) return false;
+			}
+			return true;
+		}
+
+
+		final byte[] bytes()
+		{
+			return token;
+		}
+
+
+		final int length()
+		{
+			return length;
+		}
+
+
+		final long index()
+		{
+			return index;
+		}
+
+
+		/**
+		 * @return the current token as it appears in the input.
+		 **/
+		final String text()
+		{
+			byte[] text = Arrays.copyOf(token, length);
+			if(reversed()) reverse(text, 0, length);
+			return new String(text, StandardCharsets.ISO_8859_1);
+		}
+
+
+		private static boolean isWhitespace(int c)
+		{
+			return c == ' ' || (c >= '\t' && c <= '\r');
+		}
+	}
+
+
+	/** Reads a channel front to back. */
+	private static final class ForwardSource extends Source
+	{
+		private final ReadableByteChannel in;
+
+		ForwardSource(ReadableByteChannel in)
+		{
+			this.in = in;
+			block.flip();
+		}
+
+
+		@Override
+		protected int read() throws IOException
+		{
+			if(!block.hasRemaining()) {
+				block.clear();
+				int read = 0;
+				while(read == 0) read = in.read(block);
+				block.flip();
+				if(read < 0) return -1;
+			}
+			return block.get() & 0xFF;
+		}
+
+
+		@Override
+		protected boolean reversed()
+		{
+			return false;
+		}
+	}
+
+
+	/** Reads a seekable channel back to front, one block at a time. */
+	private static final class BackwardSource extends Source
+	{
+		private final SeekableByteChannel in;
+		//the input position of the first byte in the block
+		private long start;
+		private int next;
+
+		BackwardSource(SeekableByteChannel in) throws IOException
+		{
+			this.in = in;
+			this.start = in.size();
+		}
+
+
+		@Override
+		protected int read() throws IOException
+		{
+			if(next == 0) {
+				if(start == 0) return -1;
+				int n = (int) Math.min(BLOCK, start);
+				start -= n;
+				in.position(start);
+				block.clear().limit(n);
+				while(block.hasRemaining()) {
+					if(in.read(block) < 0) throw new IOException("Input shrank while it was read");
+				}
+				next = n;
+			}
+			return block.get(--next) & 0xFF;
+		}
+
+
+		@Override
+		protected boolean reversed()
+		{
+			return true;
+		}
+	}
+
+
+	//~ Sink ........................................................................
+
+	/**
+	 * Space-separated output tokens, written through a block buffer, or for reversed
+	 * output collected in memory and on disk until finish().
+	 */
+	private static final class Sink implements AutoCloseable
+	{
+		private final WritableByteChannel channel;
+		private final Writer writer;
+		private final ByteBuffer block = ByteBuffer.allocate(BLOCK);
+		private final char[] chars;
+		private boolean first = true;
+
+		private final boolean reversed;
+		private ByteBuffer held;
+		private FileChannel spill;
+
+		Sink(WritableByteChannel channel, Writer writer, boolean reversed)
+		{
+			this.channel = channel;
+			this.writer = writer;
+			this.chars = writer == null ? null : new char[BLOCK];
+			this.reversed = reversed;
+			this.held = reversed ? ByteBuffer.allocate(BLOCK) : null;
+		}
+
+
+		void write(byte token) throws IOException
+		{
+			separate();
+			put(token);
+		}
+
+
+		void write(byte token[], int length) throws IOException
+		{
+			separate();
+			for(int i = 0 ; i < length ; i++) put(token[i]);
+		}
+
+
+		private void separate() throws IOException
+		{
+			if(first) first = false;
+			else put(SPACE);
+		}
+
+
+		private void put(byte b) throws IOException
+		{
+			if(!reversed) {
+				if(!block.hasRemaining()) drain();
+				block.put(b);
+				return;
+			}
+			if(!held.hasRemaining()) hold();
+			held.put(b);
+		}
+
+
+		/**
+		 * Makes room in the reversed output buffer, growing it up to OUTPUT_BYTES, then spilling it.
+		 **/
+		private void hold() throws IOException
+		{
+			if(held.capacity() < OUTPUT_BYTES) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.min(2*held.capacity(), OUTPUT_BYTES));
+				held.flip();
+				held = larger.put(held);
+				return;
+			}
+			if(spill == null) {
+				Path file = Files.createTempFile("arith-output", ".bin");
+				spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+			}
+			held.flip();
+			while(held.hasRemaining()) spill.write(held);
+			held.clear();
+		}
+
+
+		/**
+		 * Writes out everything, reversing it first if the output is reversed.
+		 **/
+		void finish() throws IOException
+		{
+			if(reversed) {
+				//the output is the spill file followed by the held bytes, so its reverse starts with the held bytes
+				byte[] bytes = held.array();
+				for(int i = held.position()-1 ; i >= 0 ; i--) {
+					if(!block.hasRemaining()) drain();
+					block.put(bytes[i]);
+				}
+				if(spill != null) {
+					ByteBuffer in = ByteBuffer.allocate(BLOCK);
+					for(long end = spill.size() ; end > 0 ; ) {
+						int n = (int) Math.min(BLOCK, end);
+						end -= n;
+						in.clear().limit(n);
+						long position = end;
+						while(in.hasRemaining()) position += spill.read(in, position);
+						for(int i = n-1 ; i >= 0 ; i--) {
+							if(!block.hasRemaining()) drain();
+							block.put(in.get(i));
+						}
+					}
+				}
+			}
+			drain();
+			if(writer != null) writer.flush();
+		}
+
+
+		private void drain() throws IOException
+		{
+			block.flip();
+			if(writer != null) {
+				int n = block.remaining();
+				for(int i = 0 ; i < n ; i++) chars[i] = (char) (block.get(i) & 0xFF);
+				writer.write(chars, 0, n);
+			}
+			else {
+				while(block.hasRemaining()) channel.write(block);
+			}
+			block.clear();
+		}
+
+
+		@Override
+		public void close() throws IOException
+		{
+			if(spill != null) spill.close();
+		}
+	}
+
+
+	private static void reverse(byte bytes[], int from, int to)
+	{
+		for(int i = from, j = to-1 ; i < j ; i++, j--) {
+			byte b = bytes[i];
+			bytes[i] = bytes[j];
+			bytes[j] = b;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EmptyStackException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ExpressionTranscoder.java
+ */
+@RunWith(JUnit4.class)
+public class ExpressionTranscoderTest {
+
+	    private static ReadableByteChannel channel(String text) {
+	        return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+	    }
+
+	    private static String fromPrefix(String prefix, boolean infix, int stackBytes) throws IOException {
+	        ByteArrayOutputStream out = new ByteArrayOutputStream();
+	        try(WritableByteChannel channel = Channels.newChannel(out)) {
+	            ExpressionTranscoder.fromPrefix(channel(prefix), infix, channel, null, stackBytes);
+	        }
+	        return out.toString(StandardCharsets.ISO_8859_1);
+	    }
+
+	    private static String fromPostfix(String postfix, boolean infix, int stackBytes) throws IOException {
+	        Path input = Files.createTempFile("arith", ".txt");
+	        try {
+	            Files.write(input, postfix.getBytes(StandardCharsets.ISO_8859_1));
+	            StringWriter out = new StringWriter();
+	            try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+	                ExpressionTranscoder.fromPostfix(channel, infix, null, out, stackBytes);
+	            }
+	            return out.toString();
+	        }
+	        finally {
+	            Files.delete(input);
+	        }
+	    }
+
+	    @Test
+	    public void smallTest() throws IOException {
+	        String prefix = "- * 2 300\n\tx";
+	        assertEquals("2 300 * x -", fromPrefix(prefix, false, 16));
+	        assertEquals("( ( 2 * 300 ) - x )", fromPrefix(prefix, true, 16));
+	        assertEquals("- * 2 300 x", fromPostfix("  2 300 *\nx -\n", false, 16));
+	        assertEquals("( ( 2 * 300 ) - x )", fromPostfix("2 300 * x -", true, 16));
+	        assertEquals("007", fromPrefix("007", true, 16));
+	        assertEquals("abc1", fromPostfix("abc1", false, 16));
+	    }
+
+	    @Test
+	    public void generatedTest() throws IOException {
+	        ExpressionGenerator generator = new ExpressionGenerator(31);
+	        for(ExpressionGenerator.Shape shape : ExpressionGenerator.Shape.values()) {
+	            for(int size = 1 ; size < 2000 ; size = 3*size + 2) {
+	                String[] postfix = generator.postfix(size, shape);
+	                String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	                String postfixText = String.join(" ", postfix);
+	                String prefixText = String.join(" ", prefix);
+
+	                //a 4 byte stack spills on any deep tree
+	                for(int stackBytes : new int[] {4, ExpressionTranscoder.STACK_BYTES}) {
+	                    assertEquals(postfixText, fromPrefix(prefixText, false, stackBytes));
+	                    assertEquals(String.join(" ", Arith.convertPrefixToInfix(prefix)), fromPrefix(prefixText, true, stackBytes));
+	                    assertEquals(prefixText, fromPostfix(postfixText, false, stackBytes));
+	                    assertEquals(String.join(" ", Arith.convertPostfixToInfix(postfix)), fromPostfix(postfixText, true, stackBytes));
+	                }
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void deepTest() throws IOException {
+	        //a right-deep prefix expression keeps every operator pending, and its reversed output spills too
+	        String[] postfix = new ExpressionGenerator(2).postfix(3_000_001, ExpressionGenerator.Shape.RIGHT_DEEP);
+	        String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	        assertEquals(String.join(" ", postfix), fromPrefix(String.join(" ", prefix), false, 1024));
+	        assertEquals(String.join(" ", Arith.convertPostfixToInfix(postfix)), fromPostfix(String.join(" ", postfix), true, 1024));
+	    }
+
+	    @Test
+	    public void arithTest() throws IOException {
+	        StringWriter out = new StringWriter();
+	        Arith.transcodePrefixToInfix(channel("+ 1 2"), out);
+	        assertEquals("( 1 + 2 )", out.toString());
+
+	        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	        Arith.transcodePrefixToPostfix(channel("+ 1 2"), Channels.newChannel(bytes));
+	        assertEquals("1 2 +", bytes.toString(StandardCharsets.ISO_8859_1));
+	    }
+
+	    @Test
+	    public void invalidTest() throws IOException {
+	        String[] invalid = {"+ 1", "", "+ 1 2 3", "+ 1 2!", "1x"};
+	        for(String text : invalid) {
+	            try {
+	                fromPrefix(text, false, 16);
+	                fail(text);
+	            }
+	            catch(EmptyStackException | IllegalArgumentException e) {
+	                //expected
+	            }
+	            try {
+	                fromPostfix(text, true, 16);
+	                fail(text);
+	            }
+	            catch(EmptyStackException | IllegalArgumentException e) {
+	                //expected
+	            }
+	        }
+	        try {
+	            fromPostfix("1 2 + 3", false, 16);
+	            fail();
+	        }
+	        catch(IllegalArgumentException e) {
+	            assertTrue(e.getMessage(), e.getMessage().contains("\"+\""));
+	        }
+	        try {
+	            fromPostfix("1 2 ab! +", false, 16);
+	            fail();
+	        }
+	        catch(IllegalArgumentException e) {
+	            assertTrue(e.getMessage(), e.getMessage().contains("\"ab!\""));
+	        }
+	    }
+}
@@ -0,0 +1,289 @@
+import java.util.EmptyStackException;
+
+// -------------------------------------------------------------------------
+/**
+ *  Index-based expression tree used by the Arith conversion methods.
+ *
+ *  Nodes are the positions of the literals in the input array, so building
+ *  the tree allocates a couple of int arrays and no objects per token.
+ *  Output tokens are written straight into an exactly sized String[],
+ *  as the TokenPool instance of small tokens and the caller's literal of
+ *  any other, or as input positions into an int[], with an explicit stack
+ *  instead of recursion so that very deep expressions do not overflow the
+ *  call stack.
+ */
+final class ExpressionTree
+{
+	/** Marks a leaf in the left/right arrays. */
+	private static final int NONE = -1;
+
+	/** Stack entry standing for a closing parenthesis while writing infix. */
+	private static final int CLOSE = Integer.MIN_VALUE;
+
+	private final String[] literals;
+	private final int[] left;
+	private final int[] right;
+	private final int root;
+	private final int nodes;
+	private final int operators;
+
+	private ExpressionTree(String[] literals, int[] left, int[] right, int root, int nodes, int operators)
+	{
+		this.literals = literals;
+		this.left = left;
+		this.right = right;
+		this.root = root;
+		this.nodes = nodes;
+		this.operators = operators;
+	}
+
+
+	/**
+	 * Builds the tree of a prefix expression in a single right-to-left pass.
+	 * Literals that are neither operands nor operators are skipped, like the conversion methods always did.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order.
+	 *
+	 * @return the expression tree.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if more than one operand is left once every operator has been applied.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned once.
+	 * 	Space Complexity: 0(n) worst-case: Three ints per literal.
+	 **/
+	static ExpressionTree fromPrefix(String prefixLiterals[])
+	{
+		int n = prefixLiterals.length;
+		int[] left = new int[n];
+		int[] right = new int[n];
+		int[] stack = new int[n];
+		int top = 0;
+		int nodes = 0;
+		int operators = 0;
+
+		for(int i = n-1 ; i >= 0 ; i--) {
+			long token = Tokens.scan(prefixLiterals[i]);
+
+			if(Tokens.isOperator(token)) {
+				if(top < 2) throw new EmptyStackException();
+				left[i] = stack[--top];
+				right[i] = stack[--top];
+				operators++;
+			}
+			else if(Tokens.isOperand(token)) {
+				left[i] = NONE;
+				right[i] = NONE;
+			}
+			else continue;
+
+			stack[top++] = i;
+			nodes++;
+		}
+
+		if(top == 0) throw new EmptyStackException();
+		if(top > 1) throw new EvaluationResult.FailureException(EvaluationResult.Failure.EXTRA_OPERAND, "Not a single prefix expression, " + top + " operands are left");
+		return new ExpressionTree(prefixLiterals, left, right, stack[top-1], nodes, operators);
+	}
+
+
+	/**
+	 * Builds the tree of a postfix expression in a single left-to-right pass.
+	 * Every literal that is not an operand is taken to be an operator, like the conversion methods always did.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order.
+	 *
+	 * @return the expression tree.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if more than one operand is left once every operator has been applied.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned once.
+	 * 	Space Complexity: 0(n) worst-case: Three ints per literal.
+	 **/
+	static ExpressionTree fromPostfix(String postfixLiterals[])
+	{
+		int n = postfixLiterals.length;
+		int[] left = new int[n];
+		int[] right = new int[n];
+		int[] stack = new int[n];
+		int top = 0;
+		int operators = 0;
+
+		for(int i = 0 ; i < n ; i++) {
+			if(Tokens.isOperand(Tokens.scan(postfixLiterals[i]))) {
+				left[i] = NONE;
+				right[i] = NONE;
+			}
+			else {
+				if(top < 2) throw new EmptyStackException();
+				right[i] = stack[--top];
+				left[i] = stack[--top];
+				operators++;
+			}
+			stack[top++] = i;
+		}
+
+		if(top == 0) throw new EmptyStackException();
+		if(top > 1) throw new EvaluationResult.FailureException(EvaluationResult.Failure.EXTRA_OPERAND, "Not a single postfix expression, " + top + " operands are left");
+		return new ExpressionTree(postfixLiterals, left, right, stack[top-1], n, operators);
+	}
+
+
+	/**
+	 * @return the tokens of the expression in prefix order.
+	 **/
+	String[] toPrefix()
+	{
+		String[] out = new String[nodes];
+		writePrefix(out, null);
+		return out;
+	}
+
+
+	/**
+	 * @return the input positions of the tokens of the expression in prefix order.
+	 **/
+	int[] toPrefixIndices()
+	{
+		int[] out = new int[nodes];
+		writePrefix(null, out);
+		return out;
+	}
+
+
+	/**
+	 * @return the tokens of the expression in postfix order.
+	 **/
+	String[] toPostfix()
+	{
+		String[] out = new String[nodes];
+		writePostfix(out, null);
+		return out;
+	}
+
+
+	/**
+	 * @return the input positions of the tokens of the expression in postfix order.
+	 **/
+	int[] toPostfixIndices()
+	{
+		int[] out = new int[nodes];
+		writePostfix(null, out);
+		return out;
+	}
+
+
+	/**
+	 * @return the tokens of the expression in fully parenthesised infix order.
+	 **/
+	String[] toInfix()
+	{
+		String[] out = new String[nodes + 2*operators];
+		writeInfix(out, null);
+		return out;
+	}
+
+
+	/**
+	 * @return the input positions of the tokens of the expression in fully parenthesised infix order,
+	 * with Arith.OPEN_PARENTHESIS and Arith.CLOSE_PARENTHESIS for the parentheses.
+	 **/
+	int[] toInfixIndices()
+	{
+		int[] out = new int[nodes + 2*operators];
+		writeInfix(null, out);
+		return out;
+	}
+
+
+	//~ Writers .....................................................................
+	//each writes either pooled tokens into strings or input positions into indices, the other one is null
+
+	private void writePrefix(String strings[], int indices[])
+	{
+		int[] stack = new int[2*nodes+1];
+		int top = 0;
+		int k = 0;
+
+		stack[top++] = root;
+		while(top > 0) {
+			int node = stack[--top];
+			k = write(strings, indices, k, node);
+			if(left[node] != NONE) {
+				stack[top++] = right[node];
+				stack[top++] = left[node];
+			}
+		}
+	}
+
+
+	private void writePostfix(String strings[], int indices[])
+	{
+		int[] stack = new int[2*nodes+1];
+		int top = 0;
+		int k = 0;
+
+		stack[top++] = root;
+		while(top > 0) {
+			int node = stack[--top];
+			//a complemented entry is an operator whose operands have been written
+			if(node < 0) {
+				k = write(strings, indices, k, ~node);
+			}
+			else if(left[node] == NONE) {
+				k = write(strings, indices, k, node);
+			}
+			else {
+				stack[top++] = ~node;
+				stack[top++] = right[node];
+				stack[top++] = left[node];
+			}
+		}
+	}
+
+
+	private void writeInfix(String strings[], int indices[])
+	{
+		int[] stack = new int[3*nodes+1];
+		int top = 0;
+		int k = 0;
+
+		stack[top++] = root;
+		while(top > 0) {
+			int node = stack[--top];
+			if(node == CLOSE) {
+				if(strings != null) strings[k++] = TokenPool.CLOSE;
+				else indices[k++] = Arith.CLOSE_PARENTHESIS;
+			}
+			//a complemented entry is an operator whose left operand has been written
+			else if(node < 0) {
+				k = write(strings, indices, k, ~node);
+			}
+			else if(left[node] == NONE) {
+				k = write(strings, indices, k, node);
+			}
+			else {
+				if(strings != null) strings[k++] = TokenPool.OPEN;
+				else indices[k++] = Arith.OPEN_PARENTHESIS;
+				stack[top++] = CLOSE;
+				stack[top++] = right[node];
+				stack[top++] = ~node;
+				stack[top++] = left[node];
+			}
+		}
+	}
+
+
+	/**
+	 * Writes one node at position k.
+	 *
+	 * @return the next position.
+	 **/
+	private int write(String strings[], int indices[], int k, int node)
+	{
+		if(strings != null) strings[k] = TokenPool.canonical(literals[node]);
+		else indices[k] = node;
+		return k+1;
+	}
+}
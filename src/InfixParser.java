@@ -0,0 +1,181 @@
+// -------------------------------------------------------------------------
+/**
+ *  Shunting-yard parser for infix expressions, used by the Arith infix methods.
+ *
+ *  Infix input is a sequence of operands, the binary operators and the
+ *  parenthesis tokens "(" and ")". "*" and "/" bind tighter than "+" and
+ *  "-", the "," and "." operators accepted by the tokenizer have the same
+ *  precedence as "+", and all operators are left-associative, so
+ *  "8 - 2 - 1" is (8 - 2) - 1 and "1 + 2 * 3" is 1 + (2 * 3).
+ *
+ *  The parser reads the tokens once, left to right, keeping the pending
+ *  operators and open parentheses on an int stack of literal indices. It
+ *  checks the input as it goes: every operand or "(" must be followed by
+ *  an operator or ")", and the other way round.
+ */
+final class InfixParser
+{
+	private static final String OPEN = TokenPool.OPEN;
+	private static final String CLOSE = TokenPool.CLOSE;
+
+	private InfixParser()
+	{
+	}
+
+
+	/**
+	 * Converts infix to postfix, writing the TokenPool instance of small tokens and the caller's literal of any other.
+	 *
+	 * @return the expression in postfix order, without parentheses.
+	 * @throws IllegalArgumentException if the literals are not an infix expression.
+	 **/
+	static String[] toPostfix(String infixLiterals[])
+	{
+		int n = infixLiterals.length;
+		int[] operators = new int[n];
+		int pending = 0;
+		//every literal but the parentheses ends up in the output
+		String[] postfix = new String[n];
+		int out = 0;
+		boolean operandNext = true;
+
+		for(int i = 0 ; i < n ; i++) {
+			String literal = infixLiterals[i];
+			long token = Tokens.scan(literal);
+
+			if(operandNext && Tokens.isOperand(token)) {
+				postfix[out++] = TokenPool.canonical(literal);
+				operandNext = false;
+			}
+			else if(operandNext && OPEN.equals(literal)) {
+				operators[pending++] = i;
+			}
+			else if(!operandNext && Tokens.isOperator(token)) {
+				int precedence = precedence(Tokens.operator(token));
+				while(pending > 0 && !isOpen(infixLiterals, operators[pending-1])
+						&& precedence(infixLiterals[operators[pending-1]].charAt(0)) >= precedence) {
+					postfix[out++] = TokenPool.canonical(infixLiterals[operators[--pending]]);
+				}
+				operators[pending++] = i;
+				operandNext = true;
+			}
+			else if(!operandNext && CLOSE.equals(literal)) {
+				while(pending > 0 && !isOpen(infixLiterals, operators[pending-1])) {
+					postfix[out++] = TokenPool.canonical(infixLiterals[operators[--pending]]);
+				}
+				if(pending == 0) throw unexpected(literal, i);
+				pending--;
+			}
+			else throw unexpected(literal, i);
+		}
+
+		if(operandNext) throw new EvaluationResult.FailureException(EvaluationResult.Failure.MISSING_OPERAND, "Infix expression ends without an operand");
+		while(pending > 0) {
+			int i = operators[--pending];
+			if(isOpen(infixLiterals, i)) throw new EvaluationResult.FailureException(EvaluationResult.Failure.INVALID_TOKEN, "Unclosed \"(\" at index " + i);
+			postfix[out++] = TokenPool.canonical(infixLiterals[i]);
+		}
+
+		if(out == n) return postfix;
+		String[] trimmed = new String[out];
+		System.arraycopy(postfix, 0, trimmed, 0, out);
+		return trimmed;
+	}
+
+
+	/**
+	 * Evaluates infix directly, with the same int semantics as Arith.evaluatePostfixOrder.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws IllegalArgumentException if the literals are not an infix expression.
+	 * @throws ArithmeticException on division by zero.
+	 **/
+	static int evaluate(String infixLiterals[])
+	{
+		int n = infixLiterals.length;
+		int[] operands = new int[n/2 + 1];
+		int top = 0;
+		//pending operators, as their character, or '(' for an open parenthesis
+		char[] operators = new char[n];
+		int pending = 0;
+		boolean operandNext = true;
+
+		for(int i = 0 ; i < n ; i++) {
+			String literal = infixLiterals[i];
+			long token = Tokens.scan(literal);
+
+			if(operandNext && Tokens.isOperand(token)) {
+				operands[top++] = Tokens.intValue(token, literal);
+				operandNext = false;
+			}
+			else if(operandNext && OPEN.equals(literal)) {
+				operators[pending++] = '(';
+			}
+			else if(!operandNext && Tokens.isOperator(token)) {
+				char operator = Tokens.operator(token);
+				int precedence = precedence(operator);
+				while(pending > 0 && operators[pending-1] != '(' && precedence(operators[pending-1]) >= precedence) {
+					top = apply(operators[--pending], operands, top);
+				}
+				operators[pending++] = operator;
+				operandNext = true;
+			}
+			else if(!operandNext && CLOSE.equals(literal)) {
+				while(pending > 0 && operators[pending-1] != '(') {
+					top = apply(operators[--pending], operands, top);
+				}
+				if(pending == 0) throw unexpected(literal, i);
+				pending--;
+			}
+			else throw unexpected(literal, i);
+		}
+
+		if(operandNext) throw new EvaluationResult.FailureException(EvaluationResult.Failure.MISSING_OPERAND, "Infix expression ends without an operand");
+		while(pending > 0) {
+			char operator = operators[--pending];
+			if(operator == '(') throw new EvaluationResult.FailureException(EvaluationResult.Failure.INVALID_TOKEN, "Unclosed \"(\" in infix expression");
+			top = apply(operator, operands, top);
+		}
+		return operands[0];
+	}
+
+
+	/**
+	 * Replaces the two topmost operands by the result of the operator,
+	 * the checks while parsing guarantee that there are two.
+	 *
+	 * @return the new top of the operand stack.
+	 **/
+	private static int apply(char operator, int operands[], int top)
+	{
+		int n2 = operands[--top];
+		int n1 = operands[top-1];
+		operands[top-1] = Arith.calculate(operator, n1, n2);
+		return top;
+	}
+
+
+	private static int precedence(char operator)
+	{
+		return operator == '*' || operator == '/' ? 2 : 1;
+	}
+
+
+	private static boolean isOpen(String infixLiterals[], int i)
+	{
+		return OPEN.equals(infixLiterals[i]);
+	}
+
+
+	/**
+	 * @return the exception for a literal out of place: an operand where an operator was expected is one
+	 * operand too many, an operator where an operand was expected is missing one.
+	 **/
+	private static IllegalArgumentException unexpected(String literal, int i)
+	{
+		long token = Tokens.scan(literal);
+		EvaluationResult.Failure failure = Tokens.isOperand(token) ? EvaluationResult.Failure.EXTRA_OPERAND
+				: Tokens.isOperator(token) ? EvaluationResult.Failure.MISSING_OPERAND : EvaluationResult.Failure.INVALID_TOKEN;
+		return new EvaluationResult.FailureException(failure, "Unexpected \"" + literal + "\" at index " + i + " of infix expression");
+	}
+}
@@ -0,0 +1,95 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for InfixParser.java
+ */
+@RunWith(JUnit4.class)
+public class InfixParserTest {
+
+	    @Test
+	    public void precedenceTest() {
+	        assertArrayEquals(new String[] {"1", "2", "3", "*", "+"}, Arith.convertInfixToPostfix(new String[] {"1", "+", "2", "*", "3"}));
+	        assertArrayEquals(new String[] {"1", "2", "*", "3", "+"}, Arith.convertInfixToPostfix(new String[] {"1", "*", "2", "+", "3"}));
+	        assertArrayEquals(new String[] {"+", "1", "*", "2", "3"}, Arith.convertInfixToPrefix(new String[] {"1", "+", "2", "*", "3"}));
+	        assertEquals(7, Arith.evaluateInfix(new String[] {"1", "+", "2", "*", "3"}));
+	        assertEquals(5, Arith.evaluateInfix(new String[] {"1", "*", "2", "+", "3"}));
+	    }
+
+	    @Test
+	    public void leftAssociativityTest() {
+	        assertArrayEquals(new String[] {"8", "2", "-", "1", "-"}, Arith.convertInfixToPostfix(new String[] {"8", "-", "2", "-", "1"}));
+	        assertEquals(5, Arith.evaluateInfix(new String[] {"8", "-", "2", "-", "1"}));
+	        assertEquals(2, Arith.evaluateInfix(new String[] {"16", "/", "4", "/", "2"}));
+	        assertEquals(6, Arith.evaluateInfix(new String[] {"6", "/", "2", "*", "2"}));
+	    }
+
+	    @Test
+	    public void parenthesesTest() {
+	        String[] infix = {"(", "(", "1", "+", "2", ")", ")", "*", "(", "3", "-", "x", ")"};
+
+	        assertArrayEquals(new String[] {"1", "2", "+", "3", "x", "-", "*"}, Arith.convertInfixToPostfix(infix));
+	        assertArrayEquals(new String[] {"*", "+", "1", "2", "-", "3", "x"}, Arith.convertInfixToPrefix(infix));
+	        assertEquals(3, Arith.evaluateInfix(new String[] {"8", "-", "(", "2", "+", "3", ")"}));
+	        assertEquals(42, Arith.evaluateInfix(new String[] {"(", "42", ")"}));
+	    }
+
+	    @Test
+	    public void roundTripTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(13);
+	        for(ExpressionGenerator.Shape shape : ExpressionGenerator.Shape.values()) {
+	            for(int size = 1 ; size < 200 ; size += 2) {
+	                String[] postfix = generator.postfix(size, shape);
+	                String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	                String[] infix = Arith.convertPostfixToInfix(postfix);
+
+	                assertArrayEquals(postfix, Arith.convertInfixToPostfix(infix));
+	                assertArrayEquals(prefix, Arith.convertInfixToPrefix(infix));
+	                assertArrayEquals(infix, Arith.convertPrefixToInfix(Arith.convertInfixToPrefix(infix)));
+	                assertEquals(Arith.evaluatePostfixOrder(postfix), Arith.evaluateInfix(infix));
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void malformedTest() {
+	        String[][] malformed = {
+	            {},
+	            {"+"},
+	            {"1", "+"},
+	            {"+", "1"},
+	            {"1", "2"},
+	            {"1", "+", "+", "2"},
+	            {"(", "1", "+", "2"},
+	            {"1", "+", "2", ")"},
+	            {"(", ")"},
+	            {"1", "(", "2", ")"},
+	            {"1", "%", "2"},
+	        };
+	        for(String[] infix : malformed) {
+	            try {
+	                Arith.convertInfixToPostfix(infix);
+	                fail(String.join(" ", infix));
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	            try {
+	                Arith.evaluateInfix(infix);
+	                fail(String.join(" ", infix));
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	        }
+	    }
+
+	    @Test(expected = ArithmeticException.class)
+	    public void divisionByZeroTest() {
+	        Arith.evaluateInfix(new String[] {"1", "/", "(", "2", "-", "2", ")"});
+	    }
+}
@@ -0,0 +1,269 @@
+// -------------------------------------------------------------------------
+/**
+ *  A mutable expression that keeps the value of every subtree, so that
+ *  changing one literal only recomputes the operators above it.
+ *
+ *  Nodes are the positions of the literals in the input array, as in
+ *  ExpressionTree, with a parent link added so an update can walk from the
+ *  changed literal up to the root. Each node caches its value and whether
+ *  a division by zero happened anywhere below it, so evaluate() is a field
+ *  read and set() costs one calculation per ancestor: O(log n) for a
+ *  balanced expression and O(n) only for a degenerate chain. The walk
+ *  stops early at the first ancestor whose value does not change.
+ *
+ *  Results are the same as evaluatePrefixOrder or evaluatePostfixOrder
+ *  give for literals(), including int overflow and the division by zero
+ *  that any such evaluation hits.
+ *
+ *  Instances are not thread-safe. Use Arith.livePrefix or Arith.livePostfix
+ *  to create one.
+ */
+public final class LiveExpression
+{
+	/** Marks a leaf in the left/right arrays and the root in the parent array. */
+	private static final int NONE = -1;
+
+	private final String[] literals;
+	/** The operator of each node, 0 for operands. */
+	private final char[] op;
+	private final int[] left;
+	private final int[] right;
+	private final int[] parent;
+	private final int[] value;
+	/** True where the subtree of the node divides by zero. */
+	private final boolean[] failed;
+	private final int root;
+
+	private LiveExpression(String[] literals, char[] op, int[] left, int[] right, int[] parent, int root)
+	{
+		this.literals = literals;
+		this.op = op;
+		this.left = left;
+		this.right = right;
+		this.parent = parent;
+		this.value = new int[literals.length];
+		this.failed = new boolean[literals.length];
+		this.root = root;
+	}
+
+
+	/**
+	 * Builds and evaluates a prefix expression.
+	 *
+	 * @param prefixLiterals : an array containing the string literals in prefix order, copied.
+	 *
+	 * @return the live expression.
+	 * @throws IllegalArgumentException if a literal is not a number or an operator, or the expression is not in prefix order.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 **/
+	static LiveExpression prefix(String prefixLiterals[])
+	{
+		return build(prefixLiterals.clone(), true);
+	}
+
+
+	/**
+	 * Builds and evaluates a postfix expression.
+	 *
+	 * @param postfixLiterals : an array containing the string literals in postfix order, copied.
+	 *
+	 * @return the live expression.
+	 * @throws IllegalArgumentException if a literal is not a number or an operator, or the expression is not in postfix order.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 **/
+	static LiveExpression postfix(String postfixLiterals[])
+	{
+		return build(postfixLiterals.clone(), false);
+	}
+
+
+	/**
+	 * Links the nodes with an operand stack, prefix input is read right-to-left,
+	 * and computes every node once its operands are known.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: Each literal is scanned and computed once.
+	 * 	Space Complexity: 0(n) worst-case: Five ints per literal.
+	 **/
+	private static LiveExpression build(String literals[], boolean prefix)
+	{
+		int n = literals.length;
+		char[] op = new char[n];
+		int[] left = new int[n];
+		int[] right = new int[n];
+		int[] parent = new int[n];
+		int[] stack = new int[n];
+		int top = 0;
+
+		for(int k = 0 ; k < n ; k++) {
+			int i = prefix ? n-1-k : k;
+			long token = Tokens.scan(literals[i]);
+
+			if(Tokens.isOperator(token)) {
+				if(top < 2) throw new IllegalArgumentException("Missing operand for \"" + literals[i] + "\" at index " + i);
+				op[i] = Tokens.operator(token);
+				//the left operand is the one closest to a prefix operator and furthest from a postfix one
+				int first = stack[--top];
+				int second = stack[--top];
+				left[i] = prefix ? first : second;
+				right[i] = prefix ? second : first;
+				parent[first] = i;
+				parent[second] = i;
+			}
+			else if(Tokens.isOperand(token)) {
+				left[i] = NONE;
+				right[i] = NONE;
+			}
+			else throw new IllegalArgumentException("Invalid token \"" + literals[i] + "\" at index " + i);
+			stack[top++] = i;
+		}
+
+		if(top != 1) throw new IllegalArgumentException("Not a single " + (prefix ? "prefix" : "postfix") + " expression");
+		int root = stack[0];
+		parent[root] = NONE;
+
+		LiveExpression expression = new LiveExpression(literals, op, left, right, parent, root);
+		for(int k = 0 ; k < n ; k++) {
+			int i = prefix ? n-1-k : k;
+			if(op[i] == 0) expression.value[i] = Tokens.intValue(Tokens.scan(literals[i]), literals[i]);
+			else expression.compute(i);
+		}
+		return expression;
+	}
+
+
+	//~ Evaluation ..................................................................
+
+	/**
+	 * @return the integer result of evaluating the expression, kept up to date by set().
+	 * @throws ArithmeticException if evaluating the expression divides by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(1) worst-case: The value of the root is cached.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
+	 **/
+	public int evaluate()
+	{
+		if(failed[root]) throw new ArithmeticException("/ by zero");
+		return value[root];
+	}
+
+
+	/**
+	 * Replaces the literal at one position and updates the values above it.
+	 * An operand can only be replaced by a number and an operator by an operator,
+	 * so the shape of the expression never changes.
+	 *
+	 * @param index : the position of the literal in the input array.
+	 * @param literal : the new literal.
+	 *
+	 * @throws IllegalArgumentException if the literal is not of the same kind as the one it replaces.
+	 * @throws NumberFormatException if a number does not fit in an int.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(d) worst-case: One calculation per ancestor, d being the depth of the literal.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
+	 **/
+	public void set(int index, String literal)
+	{
+		long token = Tokens.scan(literal);
+		if(op[index] == 0) {
+			if(!Tokens.isOperand(token)) throw new IllegalArgumentException("Operand at index " + index + " cannot become \"" + literal + "\"");
+			int operand = Tokens.intValue(token, literal);
+			literals[index] = literal;
+			value[index] = operand;
+		}
+		else {
+			if(!Tokens.isOperator(token)) throw new IllegalArgumentException("Operator at index " + index + " cannot become \"" + literal + "\"");
+			literals[index] = literal;
+			op[index] = Tokens.operator(token);
+			compute(index);
+		}
+		propagate(index);
+	}
+
+
+	/**
+	 * Replaces the operand at one position with a number and updates the values above it.
+	 *
+	 * @param index : the position of an operand in the input array.
+	 * @param operand : the new value of the operand.
+	 *
+	 * @throws IllegalArgumentException if the literal at index is an operator or the operand is negative,
+	 * which no literal can stand for.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(d) worst-case: One calculation per ancestor, d being the depth of the operand.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
+	 **/
+	public void set(int index, int operand)
+	{
+		if(op[index] != 0) throw new IllegalArgumentException("Literal at index " + index + " is the operator \"" + literals[index] + "\"");
+		if(operand < 0) throw new IllegalArgumentException("Operands are not negative: " + operand);
+		literals[index] = Integer.toString(operand);
+		value[index] = operand;
+		propagate(index);
+	}
+
+
+	/**
+	 * @return the value of the subtree whose topmost literal is at index, or the operand there.
+	 * @throws ArithmeticException if evaluating that subtree divides by zero.
+	 **/
+	public int valueAt(int index)
+	{
+		if(failed[index]) throw new ArithmeticException("/ by zero");
+		return value[index];
+	}
+
+
+	/**
+	 * @return a copy of the current literals, in the order of the input.
+	 **/
+	public String[] literals()
+	{
+		return literals.clone();
+	}
+
+
+	/**
+	 * @return the number of literals.
+	 **/
+	public int size()
+	{
+		return literals.length;
+	}
+
+
+	/**
+	 * Recomputes the ancestors of a node, stopping at the first one that does not change.
+	 **/
+	private void propagate(int node)
+	{
+		for(int p = parent[node] ; p != NONE ; p = parent[p]) {
+			int before = value[p];
+			boolean failedBefore = failed[p];
+			compute(p);
+			if(value[p] == before && failed[p] == failedBefore) return;
+		}
+	}
+
+
+	/**
+	 * Computes an operator node from the cached values of its operands.
+	 * Below a division by zero the value is meaningless, only the flag counts.
+	 **/
+	private void compute(int node)
+	{
+		int l = left[node];
+		int r = right[node];
+		if(op[node] == '/' && value[r] == 0) {
+			value[node] = 0;
+			failed[node] = true;
+		}
+		else {
+			value[node] = Arith.calculate(op[node], value[l], value[r]);
+			failed[node] = failed[l] || failed[r];
+		}
+	}
+}
@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for LiveExpression.java
+ */
+@RunWith(JUnit4.class)
+public class LiveExpressionTest {
+
+	    @Test
+	    public void updateOperandTest() {
+	        LiveExpression postfix = Arith.livePostfix(new String[] {"1", "2", "+", "3", "*"});
+	        assertEquals(9, postfix.evaluate());
+	        postfix.set(3, 10);
+	        assertEquals(30, postfix.evaluate());
+	        postfix.set(0, "5");
+	        assertEquals(70, postfix.evaluate());
+	        assertEquals(7, postfix.valueAt(2));
+	        assertArrayEquals(new String[] {"5", "2", "+", "10", "*"}, postfix.literals());
+
+	        LiveExpression prefix = Arith.livePrefix(new String[] {"-", "8", "/", "6", "2"});
+	        assertEquals(5, prefix.evaluate());
+	        prefix.set(4, 3);
+	        assertEquals(6, prefix.evaluate());
+	        prefix.set(0, "*");
+	        assertEquals(16, prefix.evaluate());
+	    }
+
+	    @Test
+	    public void inputIsCopiedTest() {
+	        String[] postfix = {"1", "2", "+"};
+	        LiveExpression live = Arith.livePostfix(postfix);
+	        live.set(0, 4);
+	        assertEquals("1", postfix[0]);
+	        assertEquals(3, live.size());
+	    }
+
+	    @Test
+	    public void divisionByZeroTest() {
+	        LiveExpression live = Arith.livePostfix(new String[] {"6", "2", "/", "1", "+"});
+	        assertEquals(4, live.evaluate());
+
+	        live.set(1, 0);
+	        try {
+	            live.evaluate();
+	            fail();
+	        }
+	        catch(ArithmeticException expected) {
+	        }
+
+	        //fixing the divisor recovers the expression
+	        live.set(1, 3);
+	        assertEquals(3, live.evaluate());
+	    }
+
+	    @Test
+	    public void rejectTest() {
+	        String[][] malformed = {{"1", "+"}, {"1", "2"}, {"1", "x", "+"}, {"1", "1x", "+"}};
+	        for(String[] postfix : malformed) {
+	            try {
+	                Arith.livePostfix(postfix);
+	                fail();
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	        }
+
+	        LiveExpression live = Arith.livePostfix(new String[] {"1", "2", "+"});
+	        String[] wrongKind = {"*", "-1", "1x"};
+	        for(String literal : wrongKind) {
+	            try {
+	                live.set(literal.equals("*") ? 0 : 2, literal);
+	                fail(literal);
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	        }
+	        try {
+	            live.set(0, -1);
+	            fail();
+	        }
+	        catch(IllegalArgumentException expected) {
+	        }
+	        assertEquals(3, live.evaluate());
+	    }
+
+	    @Test
+	    public void matchesFullEvaluationTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(18);
+	        Random random = new Random(18);
+	        String[] operators = {"+", "-", "*", "/"};
+
+	        for(int e = 0 ; e < 200 ; e++) {
+	            String[] postfix = generator.postfix(1 + 2*random.nextInt(200), ExpressionGenerator.Shape.values()[e % 4]);
+	            boolean prefixInput = random.nextBoolean();
+	            LiveExpression live = prefixInput ? Arith.livePrefix(Arith.convertPostfixToPrefix(postfix)) : Arith.livePostfix(postfix);
+
+	            for(int u = 0 ; u < 50 ; u++) {
+	                int index = random.nextInt(live.size());
+	                String[] literals = live.literals();
+	                if(Character.isDigit(literals[index].charAt(0))) live.set(index, random.nextInt(4));
+	                else live.set(index, operators[random.nextInt(operators.length)]);
+
+	                Integer expected;
+	                try {
+	                    expected = prefixInput ? Arith.evaluatePrefixOrder(live.literals()) : Arith.evaluatePostfixOrder(live.literals());
+	                }
+	                catch(ArithmeticException divideByZero) {
+	                    expected = null;
+	                }
+	                try {
+	                    assertEquals(expected, Integer.valueOf(live.evaluate()));
+	                }
+	                catch(ArithmeticException divideByZero) {
+	                    assertEquals(null, expected);
+	                }
+	            }
+	        }
+	    }
+}
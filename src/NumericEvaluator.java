@@ -0,0 +1,212 @@
+import java.math.BigInteger;
+import java.util.EmptyStackException;
+
+// -------------------------------------------------------------------------
+/**
+ *  Evaluators for the numeric modes other than plain int arithmetic:
+ *  checked int, long, checked long and BigInteger.
+ *
+ *  Each mode has its own loop over a primitive (or BigInteger) stack, so
+ *  nothing is boxed and the plain int evaluators in Arith stay untouched.
+ *  A loop handles both notations: prefix input is read right-to-left and
+ *  its operands come off the stack the other way round. Tokens are treated
+ *  the way the int evaluators treat them: prefix skips literals that are
+ *  neither operands nor operators, postfix takes every non-operand for an
+ *  operator.
+ */
+final class NumericEvaluator
+{
+	private NumericEvaluator()
+	{
+	}
+
+
+	/**
+	 * Evaluates with int arithmetic that fails instead of overflowing.
+	 *
+	 * @throws ArithmeticException on overflow or division by zero.
+	 **/
+	static int evaluateIntExact(String literals[], boolean prefix)
+	{
+		return evaluateIntExact(literals, prefix, new int[Math.max(literals.length, 1)]);
+	}
+
+
+	/**
+	 * Evaluates with int arithmetic that fails instead of overflowing, using a caller-supplied operand stack.
+	 *
+	 * @param stack : scratch space with room for at least one entry per operand, reusable across calls.
+	 *
+	 * @throws ArithmeticException on overflow or division by zero.
+	 **/
+	static int evaluateIntExact(String literals[], boolean prefix, int stack[])
+	{
+		int n = literals.length;
+		int top = 0;
+
+		for(int k = 0 ; k < n ; k++) {
+			String literal = literals[prefix ? n-1-k : k];
+			long token = Tokens.scan(literal);
+
+			if(Tokens.isOperand(token)) {
+				stack[top++] = Tokens.intValue(token, literal);
+			}
+			else if(!prefix || Tokens.isOperator(token)) {
+				if(top < 2) throw new EmptyStackException();
+				int first = stack[--top];
+				int second = stack[--top];
+				char operator = literal.charAt(0);
+				stack[top++] = prefix ? calculateExact(operator, first, second) : calculateExact(operator, second, first);
+			}
+		}
+
+		if(top == 0) throw new EmptyStackException();
+		return stack[top-1];
+	}
+
+
+	/**
+	 * Evaluates with long arithmetic.
+	 *
+	 * @param exact : true to fail instead of overflowing.
+	 *
+	 * @throws ArithmeticException on division by zero, or on overflow when exact.
+	 **/
+	static long evaluateLong(String literals[], boolean prefix, boolean exact)
+	{
+		return evaluateLong(literals, prefix, exact, new long[Math.max(literals.length, 1)]);
+	}
+
+
+	/**
+	 * Evaluates with long arithmetic, using a caller-supplied operand stack.
+	 *
+	 * @param exact : true to fail instead of overflowing.
+	 * @param stack : scratch space with room for at least one entry per operand, reusable across calls.
+	 *
+	 * @throws ArithmeticException on division by zero, or on overflow when exact.
+	 **/
+	static long evaluateLong(String literals[], boolean prefix, boolean exact, long stack[])
+	{
+		int n = literals.length;
+		int top = 0;
+
+		for(int k = 0 ; k < n ; k++) {
+			String literal = literals[prefix ? n-1-k : k];
+			long token = Tokens.scan(literal);
+
+			if(token >= 0) {
+				stack[top++] = token;
+			}
+			else if(token == Tokens.TOO_LARGE) {
+				throw new NumberFormatException("For input string: \"" + literal + "\"");
+			}
+			else if(token == Tokens.IDENTIFIER) {
+				throw Tokens.unbound(literal);
+			}
+			else if(!prefix || Tokens.isOperator(token)) {
+				if(top < 2) throw new EmptyStackException();
+				long first = stack[--top];
+				long second = stack[--top];
+				long n1 = prefix ? first : second;
+				long n2 = prefix ? second : first;
+				char operator = literal.charAt(0);
+				stack[top++] = exact ? calculateExact(operator, n1, n2) : calculate(operator, n1, n2);
+			}
+		}
+
+		if(top == 0) throw new EmptyStackException();
+		return stack[top-1];
+	}
+
+
+	/**
+	 * Evaluates with arbitrary precision, operands may have any number of digits.
+	 *
+	 * @throws ArithmeticException on division by zero.
+	 * @throws IllegalArgumentException for the "," and "." operators, which have no BigInteger meaning.
+	 **/
+	static BigInteger evaluateBig(String literals[], boolean prefix)
+	{
+		int n = literals.length;
+		BigInteger[] stack = new BigInteger[Math.max(n, 1)];
+		int top = 0;
+
+		for(int k = 0 ; k < n ; k++) {
+			String literal = literals[prefix ? n-1-k : k];
+			long token = Tokens.scan(literal);
+
+			if(token >= 0) {
+				stack[top++] = BigInteger.valueOf(token);
+			}
+			else if(token == Tokens.TOO_LARGE) {
+				stack[top++] = new BigInteger(literal);
+			}
+			else if(token == Tokens.IDENTIFIER) {
+				throw Tokens.unbound(literal);
+			}
+			else if(!prefix || Tokens.isOperator(token)) {
+				if(top < 2) throw new EmptyStackException();
+				BigInteger first = stack[--top];
+				BigInteger second = stack[--top];
+				char operator = literal.charAt(0);
+				stack[top++] = prefix ? calculate(operator, first, second) : calculate(operator, second, first);
+			}
+		}
+
+		if(top == 0) throw new EmptyStackException();
+		return stack[top-1];
+	}
+
+
+	//~ Operators ...................................................................
+
+	private static int calculateExact(char operator, int n1, int n2)
+	{
+		switch(operator) {
+		case '*':	return Math.multiplyExact(n1, n2);
+		case '/':	if(n1 == Integer.MIN_VALUE && n2 == -1) throw new ArithmeticException("integer overflow");
+					return n1/n2;
+		case '+':	return Math.addExact(n1, n2);
+		case '-':	return Math.subtractExact(n1, n2);
+		default:	return Integer.MAX_VALUE;
+		}
+	}
+
+
+	private static long calculate(char operator, long n1, long n2)
+	{
+		switch(operator) {
+		case '*':	return n1*n2;
+		case '/':	return n1/n2;
+		case '+':	return n1+n2;
+		case '-':	return n1-n2;
+		default:	return Long.MAX_VALUE;
+		}
+	}
+
+
+	private static long calculateExact(char operator, long n1, long n2)
+	{
+		switch(operator) {
+		case '*':	return Math.multiplyExact(n1, n2);
+		case '/':	if(n1 == Long.MIN_VALUE && n2 == -1) throw new ArithmeticException("long overflow");
+					return n1/n2;
+		case '+':	return Math.addExact(n1, n2);
+		case '-':	return Math.subtractExact(n1, n2);
+		default:	return Long.MAX_VALUE;
+		}
+	}
+
+
+	private static BigInteger calculate(char operator, BigInteger n1, BigInteger n2)
+	{
+		switch(operator) {
+		case '*':	return n1.multiply(n2);
+		case '/':	return n1.divide(n2);
+		case '+':	return n1.add(n2);
+		case '-':	return n1.subtract(n2);
+		default:	throw new IllegalArgumentException("Operator " + operator + " has no BigInteger meaning");
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for NumericEvaluator.java
+ */
+@RunWith(JUnit4.class)
+public class NumericEvaluatorTest {
+
+	    @Test
+	    public void smallNumbersMatchIntEvaluationTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(21);
+	        for(int i = 0 ; i < 500 ; i++) {
+	            //short enough that nothing overflows
+	            String[] postfix = generator.postfix(1 + 2*(i % 8), ExpressionGenerator.Shape.RANDOM);
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	            int expected = Arith.evaluatePostfixOrder(postfix);
+
+	            assertEquals(expected, Arith.evaluatePostfixOrderExact(postfix));
+	            assertEquals(expected, Arith.evaluatePostfixOrderAsLong(postfix));
+	            assertEquals(expected, Arith.evaluatePostfixOrderAsLongExact(postfix));
+	            assertEquals(BigInteger.valueOf(expected), Arith.evaluatePostfixOrderAsBigInteger(postfix));
+	            assertEquals(expected, Arith.evaluatePrefixOrderExact(prefix));
+	            assertEquals(expected, Arith.evaluatePrefixOrderAsLong(prefix));
+	            assertEquals(expected, Arith.evaluatePrefixOrderAsLongExact(prefix));
+	            assertEquals(BigInteger.valueOf(expected), Arith.evaluatePrefixOrderAsBigInteger(prefix));
+	        }
+	    }
+
+	    @Test
+	    public void longModeTest() {
+	        String[] postfix = {"3000000000", "3", "*", "1", "-"};
+	        String[] prefix = {"-", "*", "3000000000", "3", "1"};
+
+	        assertEquals(8999999999L, Arith.evaluatePostfixOrderAsLong(postfix));
+	        assertEquals(8999999999L, Arith.evaluatePrefixOrderAsLong(prefix));
+	        assertEquals(8999999999L, Arith.evaluatePostfixOrderAsLongExact(postfix));
+	        //wraps around like int arithmetic does
+	        assertEquals(Long.MIN_VALUE, Arith.evaluatePostfixOrderAsLong(new String[] {"9223372036854775807", "1", "+"}));
+	    }
+
+	    @Test
+	    public void evaluateWithReusedStackTest() {
+	        int[] ints = new int[8];
+	        long[] longs = new long[8];
+	        String[] postfix = {"3000000000", "3", "*", "1", "-"};
+	        String[] prefix = {"-", "*", "3000000000", "3", "1"};
+
+	        //the same scratch stacks can be used again and again
+	        for(int i = 0 ; i < 3 ; i++) {
+	            assertEquals(8999999999L, Arith.evaluatePostfixOrderAsLong(postfix, longs));
+	            assertEquals(8999999999L, Arith.evaluatePrefixOrderAsLong(prefix, longs));
+	            assertEquals(8999999999L, Arith.evaluatePostfixOrderAsLongExact(postfix, longs));
+	            assertEquals(8999999999L, Arith.evaluatePrefixOrderAsLongExact(prefix, longs));
+	            assertEquals(-4, Arith.evaluatePostfixOrderExact(new String[] {"1", "2", "/", "3", "*", "4", "-"}, ints));
+	            assertEquals(-1, Arith.evaluatePrefixOrderExact(new String[] {"-", "*", "/", "2", "2", "3", "4"}, ints));
+	        }
+	        assertOverflow(() -> Arith.evaluatePostfixOrderExact(new String[] {"2147483647", "1", "+"}, ints));
+	    }
+
+	    @Test
+	    public void exactModesFailOnOverflowTest() {
+	        assertOverflow(() -> Arith.evaluatePostfixOrderExact(new String[] {"2147483647", "1", "+"}));
+	        assertOverflow(() -> Arith.evaluatePrefixOrderExact(new String[] {"*", "65536", "65536"}));
+	        assertOverflow(() -> Arith.evaluatePostfixOrderExact(new String[] {"0", "2147483647", "-", "1", "-", "0", "1", "-", "/"}));
+	        assertOverflow(() -> Arith.evaluatePostfixOrderAsLongExact(new String[] {"9223372036854775807", "1", "+"}));
+	        assertOverflow(() -> Arith.evaluatePrefixOrderAsLongExact(new String[] {"*", "4294967296", "4294967296"}));
+
+	        assertEquals(Integer.MIN_VALUE, Arith.evaluatePostfixOrderExact(new String[] {"0", "2147483647", "-", "1", "-"}));
+	    }
+
+	    @Test
+	    public void bigIntegerModeTest() {
+	        String[] postfix = {"99999999999999999999", "99999999999999999999", "*", "7", "/"};
+	        String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	        BigInteger expected = new BigInteger("99999999999999999999").pow(2).divide(BigInteger.valueOf(7));
+
+	        assertEquals(expected, Arith.evaluatePostfixOrderAsBigInteger(postfix));
+	        assertEquals(expected, Arith.evaluatePrefixOrderAsBigInteger(prefix));
+	    }
+
+	    @Test(expected = NumberFormatException.class)
+	    public void longModeRejectsHugeOperandTest() {
+	        Arith.evaluatePostfixOrderAsLong(new String[] {"99999999999999999999"});
+	    }
+
+	    private static void assertOverflow(Runnable evaluation) {
+	        try {
+	            evaluation.run();
+	            fail("expected an overflow");
+	        }
+	        catch(ArithmeticException e) {
+	            //expected
+	        }
+	    }
+}
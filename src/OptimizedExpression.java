@@ -0,0 +1,181 @@
+import java.util.Arrays;
+
+// -------------------------------------------------------------------------
+/**
+ *  An expression after constant folding, algebraic simplification and
+ *  sharing of identical subtrees, as a DAG of nodes in topological order.
+ *
+ *  Evaluating computes every node once, operands before their operators,
+ *  so a subtree that appears several times in the input is only computed
+ *  once. The conversion methods write the simplified expression back out
+ *  as a tree, repeating shared subtrees, so their output is never longer
+ *  than the input.
+ *
+ *  Instances are immutable and can be shared freely across threads.
+ *  Use Arith.optimizePrefix or Arith.optimizePostfix to create one.
+ */
+public final class OptimizedExpression
+{
+	private final char[] op;
+	private final int[] left;
+	private final int[] right;
+	private final int[] value;
+	private final String[] text;
+	private final String[] variables;
+	private final int inputSize;
+
+	OptimizedExpression(char[] op, int[] left, int[] right, int[] value, String[] text, String[] variables, int inputSize)
+	{
+		this.op = op;
+		this.left = left;
+		this.right = right;
+		this.value = value;
+		this.text = text;
+		this.variables = variables;
+		this.inputSize = inputSize;
+	}
+
+
+	//~ Evaluation ..................................................................
+
+	/**
+	 * Evaluates an expression without variables.
+	 *
+	 * @return the integer result, the same as evaluatePrefixOrder or evaluatePostfixOrder give for the input.
+	 * @throws ArithmeticException on division by zero.
+	 * @throws IllegalStateException if the expression has variables.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(m) worst-case: One step per node of the DAG.
+	 * 	Space Complexity: 0(m) worst-case: One int per node.
+	 **/
+	public int evaluate()
+	{
+		if(variables.length > 0) throw new IllegalStateException("Expression has variables " + Arrays.toString(variables) + ", bind them");
+		return evaluate(null);
+	}
+
+
+	/**
+	 * Evaluates the expression with a value for each variable.
+	 *
+	 * @param bindings : the value of each variable, indexed like variables(). May be null without variables.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(m) worst-case: One step per node of the DAG.
+	 * 	Space Complexity: 0(m) worst-case: One int per node.
+	 **/
+	public int evaluate(int bindings[])
+	{
+		if(variables.length > 0 && bindings.length < variables.length) throw new IllegalArgumentException("Expected " + variables.length + " bindings");
+
+		int m = op.length;
+		int[] results = new int[m];
+		for(int id = 0 ; id < m ; id++) {
+			char operator = op[id];
+			if(operator == ExpressionOptimizer.NUMBER) results[id] = value[id];
+			else if(operator == ExpressionOptimizer.VARIABLE) results[id] = bindings[value[id]];
+			else results[id] = Arith.calculate(operator, results[left[id]], results[right[id]]);
+		}
+		return results[m-1];
+	}
+
+
+	//~ Conversion ..................................................................
+
+	/**
+	 * @return the simplified expression in postfix order, reusing the input literals where it can.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per token of the output.
+	 * 	Space Complexity: 0(n) worst-case: A stack as deep as the expression plus the output array.
+	 **/
+	public String[] toPostfix()
+	{
+		int root = op.length-1;
+		long[] size = new long[op.length];
+		for(int id = 0 ; id <= root ; id++) size[id] = left[id] < 0 ? 1 : size[left[id]] + size[right[id]] + 1;
+		if(size[root] > Integer.MAX_VALUE - 8) throw new IllegalStateException("Expression has " + size[root] + " tokens as a tree");
+
+		String[] postfix = new String[(int) size[root]];
+		int out = 0;
+		//pending nodes, ~id once the operands of id have been written
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = root;
+
+		while(top > 0) {
+			int entry = stack[--top];
+			if(entry < 0) {
+				postfix[out++] = text[~entry];
+			}
+			else if(left[entry] < 0) {
+				postfix[out++] = text[entry];
+			}
+			else {
+				if(top + 3 > stack.length) stack = Arrays.copyOf(stack, stack.length*2);
+				stack[top++] = ~entry;
+				stack[top++] = right[entry];
+				stack[top++] = left[entry];
+			}
+		}
+		return postfix;
+	}
+
+
+	/**
+	 * @return the simplified expression in prefix order, reusing the input literals where it can.
+	 **/
+	public String[] toPrefix()
+	{
+		return ExpressionTree.fromPostfix(toPostfix()).toPrefix();
+	}
+
+
+	/**
+	 * @return the simplified expression in infix order, reusing the input literals where it can.
+	 **/
+	public String[] toInfix()
+	{
+		return ExpressionTree.fromPostfix(toPostfix()).toInfix();
+	}
+
+
+	//~ Statistics ..................................................................
+
+	/**
+	 * @return the variable names, indexed by slot in order of first appearance in the input.
+	 **/
+	public String[] variables()
+	{
+		return variables.clone();
+	}
+
+
+	/**
+	 * @return the number of nodes of the DAG, which is the number of steps evaluate() takes.
+	 **/
+	public int size()
+	{
+		return op.length;
+	}
+
+
+	/**
+	 * @return the number of input tokens the optimization removed, by folding, simplifying or sharing.
+	 **/
+	public int removedNodes()
+	{
+		return inputSize - op.length;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "OptimizedExpression[nodes=" + op.length + ", removed=" + removedNodes() + "]";
+	}
+}
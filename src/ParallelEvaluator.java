@@ -0,0 +1,280 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// -------------------------------------------------------------------------
+/**
+ *  Fork-join evaluation of a single very large expression.
+ *
+ *  The literals are first lowered in parallel into the instruction arrays
+ *  used by CompiledExpression, prefix input right-to-left, together with a
+ *  stack depth delta per instruction: +1 for an operand, -1 for an operator.
+ *  A parallel prefix sum over the deltas gives the stack depth after each
+ *  instruction, and from the depths the subtree boundaries follow directly:
+ *  the right operand of the operator ending the span [s, e] is the longest
+ *  run before e whose depth never comes back down to depth(s-1)+1, so the
+ *  left operand ends at the last position before e-1 with at most that depth.
+ *  Per-block minimum depths make that search skip whole blocks at a time.
+ *
+ *  Both operands of an operator are evaluated in parallel when they are
+ *  large enough. When one is small, it is evaluated in place and the
+ *  search for a split goes on in the large one, so a lopsided node near
+ *  the root does not serialise the whole expression; only after
+ *  MAX_LOPSIDED such nodes in a row, a degenerate chain, or below
+ *  THRESHOLD, is the rest evaluated sequentially with CompiledExpression.run.
+ */
+final class ParallelEvaluator
+{
+	/** Spans shorter than this are evaluated sequentially. */
+	static final int THRESHOLD = 1 << 16;
+
+	/** Lopsided operators walked down in a row before the rest of a span is evaluated sequentially. */
+	static final int MAX_LOPSIDED = 64;
+
+	/** Block size of the minimum depth index, a power of two. */
+	private static final int BLOCK_SHIFT = 10;
+	private static final int BLOCK = 1 << BLOCK_SHIFT;
+
+	private final byte[] code;
+	private final int[] values;
+	private final int[] depth;
+	private final int[] blockMin;
+	private final AtomicInteger forks = new AtomicInteger();
+
+	private ParallelEvaluator(byte[] code, int[] values, int[] depth, int[] blockMin)
+	{
+		this.code = code;
+		this.values = values;
+		this.depth = depth;
+		this.blockMin = blockMin;
+	}
+
+
+	/**
+	 * Evaluates an expression, splitting it across the common fork-join pool.
+	 *
+	 * @param literals : the string literals of the expression.
+	 * @param prefix : true for prefix order, false for postfix order.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws IllegalArgumentException if a literal is not a token or the expression is malformed.
+	 * @throws ArithmeticException on division by zero.
+	 **/
+	static int evaluate(String literals[], boolean prefix)
+	{
+		if(literals.length < THRESHOLD) {
+			return (prefix ? CompiledExpression.prefix(literals) : CompiledExpression.postfix(literals)).evaluate();
+		}
+		return lower(literals, prefix).evaluate();
+	}
+
+
+	/**
+	 * Lowers an expression and indexes its depths, in parallel.
+	 *
+	 * @return an evaluator ready to run the expression.
+	 * @throws IllegalArgumentException if a literal is not a token or the expression is malformed.
+	 **/
+	static ParallelEvaluator lower(String literals[], boolean prefix)
+	{
+		int n = literals.length;
+		if(n == 0) throw new IllegalArgumentException("Empty " + (prefix ? "prefix" : "postfix") + " expression");
+		byte[] code = new byte[n];
+		int[] values = new int[n];
+		int[] depth = new int[n];
+		ForkJoinPool.commonPool().invoke(new Lower(literals, prefix, code, values, depth, 0, n));
+
+		Arrays.parallelPrefix(depth, Integer::sum);
+
+		int[] blockMin = new int[(n + BLOCK - 1) >>> BLOCK_SHIFT];
+		Arrays.parallelSetAll(blockMin, block -> {
+			int min = Integer.MAX_VALUE;
+			for(int i = block << BLOCK_SHIFT, end = Math.min(n, i + BLOCK) ; i < end ; i++) min = Math.min(min, depth[i]);
+			return min;
+		});
+
+		//every operator needs two operands below it, and exactly one value is left at the end
+		for(int min : blockMin) {
+			if(min < 1) throw new IllegalArgumentException("Missing operand in " + (prefix ? "prefix" : "postfix") + " expression");
+		}
+		if(depth[n-1] != 1) throw new IllegalArgumentException("Not a single " + (prefix ? "prefix" : "postfix") + " expression");
+
+		return new ParallelEvaluator(code, values, depth, blockMin);
+	}
+
+
+	/**
+	 * @return the integer result of evaluating the lowered expression on the common fork-join pool.
+	 * @throws ArithmeticException on division by zero.
+	 **/
+	int evaluate()
+	{
+		return ForkJoinPool.commonPool().invoke(new Span(0, code.length-1));
+	}
+
+
+	/**
+	 * @return the number of operators whose operands were evaluated in parallel so far.
+	 **/
+	int forks()
+	{
+		return forks.get();
+	}
+
+
+	/**
+	 * Finds the last position in [from, to] whose depth is at most the target.
+	 *
+	 * @return the position, or from-1 if there is none.
+	 **/
+	private int lastAtMost(int from, int to, int target)
+	{
+		int i = to;
+		while(i >= from) {
+			//skip a whole block when it ends here, lies inside the range and stays above the target
+			if((i & (BLOCK-1)) == BLOCK-1 && i - BLOCK + 1 >= from && blockMin[i >>> BLOCK_SHIFT] > target) {
+				i -= BLOCK;
+			}
+			else if(depth[i] <= target) {
+				return i;
+			}
+			else i--;
+		}
+		return from-1;
+	}
+
+
+	/** Lowers the literals in [from, to) and records their depth deltas. */
+	private static final class Lower extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String[] literals;
+		private final boolean prefix;
+		private final byte[] code;
+		private final int[] values;
+		private final int[] depth;
+		private final int from;
+		private final int to;
+
+		Lower(String[] literals, boolean prefix, byte[] code, int[] values, int[] depth, int from, int to)
+		{
+			this.literals = literals;
+			this.prefix = prefix;
+			this.code = code;
+			this.values = values;
+			this.depth = depth;
+			this.from = from;
+			this.to = to;
+		}
+
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Lower(literals, prefix, code, values, depth, from, middle),
+						new Lower(literals, prefix, code, values, depth, middle, to));
+				return;
+			}
+
+			int n = literals.length;
+			for(int i = from ; i < to ; i++) {
+				//prefix input is lowered right-to-left
+				String literal = literals[prefix ? n-1-i : i];
+				long token = Tokens.scan(literal);
+
+				if(Tokens.isOperand(token)) {
+					code[i] = CompiledExpression.PUSH;
+					values[i] = Tokens.intValue(token, literal);
+					depth[i] = 1;
+				}
+				else if(Tokens.isOperator(token)) {
+					code[i] = CompiledExpression.opcode(Tokens.operator(token), prefix);
+					depth[i] = -1;
+				}
+				else throw new IllegalArgumentException("Invalid token \"" + literal + "\" at index " + (prefix ? n-1-i : i));
+			}
+		}
+	}
+
+
+	/** Evaluates the complete subexpression whose instructions are [start, end]. */
+	private final class Span extends RecursiveTask<Integer>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int end;
+
+		Span(int start, int end)
+		{
+			this.start = start;
+			this.end = end;
+		}
+
+
+		@Override
+		protected Integer compute()
+		{
+			//operators with one small operand, walked down towards the large one, to be applied on the way back
+			int[] small = new int[16];
+			int[] operatorAt = new int[16];
+			boolean[] smallLeft = new boolean[16];
+			int pending = 0;
+
+			int s = start;
+			int e = end;
+			int value;
+			while(true) {
+				int length = e - s + 1;
+				if(length < THRESHOLD || pending == MAX_LOPSIDED) {
+					value = CompiledExpression.run(code, values, null, s, e+1, new int[(length+1)/2]);
+					break;
+				}
+
+				int base = s == 0 ? 0 : depth[s-1];
+				int leftEnd = lastAtMost(s, e-2, base+1);
+				int leftLength = leftEnd - s + 1;
+				int rightLength = e - leftEnd - 1;
+
+				if(leftLength >= THRESHOLD/2 && rightLength >= THRESHOLD/2) {
+					forks.incrementAndGet();
+					Span left = new Span(s, leftEnd);
+					left.fork();
+					int b = new Span(leftEnd+1, e-1).compute();
+					int a = left.join();
+					value = CompiledExpression.apply(code[e], a, b);
+					break;
+				}
+
+				//evaluate the small operand here, and keep looking for a split in the large one
+				if(pending == small.length) {
+					small = Arrays.copyOf(small, 2*pending);
+					operatorAt = Arrays.copyOf(operatorAt, 2*pending);
+					smallLeft = Arrays.copyOf(smallLeft, 2*pending);
+				}
+				operatorAt[pending] = e;
+				smallLeft[pending] = leftLength < rightLength;
+				if(smallLeft[pending]) {
+					small[pending] = CompiledExpression.run(code, values, null, s, leftEnd+1, new int[(leftLength+1)/2]);
+					s = leftEnd+1;
+					e = e-1;
+				}
+				else {
+					small[pending] = CompiledExpression.run(code, values, null, leftEnd+1, e, new int[(rightLength+1)/2]);
+					e = leftEnd;
+				}
+				pending++;
+			}
+
+			for(int p = pending-1 ; p >= 0 ; p--) {
+				value = smallLeft[p] ? CompiledExpression.apply(code[operatorAt[p]], small[p], value) : CompiledExpression.apply(code[operatorAt[p]], value, small[p]);
+			}
+			return value;
+		}
+	}
+}
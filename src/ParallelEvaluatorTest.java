@@ -0,0 +1,88 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for ParallelEvaluator.java
+ */
+@RunWith(JUnit4.class)
+public class ParallelEvaluatorTest {
+
+	    @Test
+	    public void matchesSequentialEvaluationTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(11);
+	        for(ExpressionGenerator.Shape shape : ExpressionGenerator.Shape.values()) {
+	            for(int tokens : new int[] {1, 101, 200001, 1000001}) {
+	                String[] postfix = generator.postfix(tokens, shape);
+	                String[] prefix = Arith.convertPostfixToPrefix(postfix);
+
+	                assertEquals(Arith.evaluatePostfixOrder(postfix), Arith.evaluatePostfixParallel(postfix));
+	                assertEquals(Arith.evaluatePrefixOrder(prefix), Arith.evaluatePrefixParallel(prefix));
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void lopsidedRootSplitsTest() {
+	        String[] subtree = new ExpressionGenerator(7).postfix(400001, ExpressionGenerator.Shape.BALANCED);
+
+	        //1 + subtree, and subtree - 1
+	        String[] left = new String[subtree.length + 2];
+	        left[0] = "1";
+	        System.arraycopy(subtree, 0, left, 1, subtree.length);
+	        left[left.length-1] = "+";
+	        String[] right = new String[subtree.length + 2];
+	        System.arraycopy(subtree, 0, right, 0, subtree.length);
+	        right[right.length-2] = "1";
+	        right[right.length-1] = "-";
+
+	        for(String[] postfix : new String[][] {left, right}) {
+	            ParallelEvaluator evaluator = ParallelEvaluator.lower(postfix, false);
+	            assertEquals(Arith.evaluatePostfixOrder(postfix), evaluator.evaluate());
+	            assertTrue(evaluator.forks() > 0);
+
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	            evaluator = ParallelEvaluator.lower(prefix, true);
+	            assertEquals(Arith.evaluatePrefixOrder(prefix), evaluator.evaluate());
+	            assertTrue(evaluator.forks() > 0);
+	        }
+	    }
+
+	    @Test(expected = ArithmeticException.class)
+	    public void divisionByComputedZeroTest() {
+	        ExpressionGenerator generator = new ExpressionGenerator(5);
+	        String[] dividend = generator.postfix(300001, ExpressionGenerator.Shape.BALANCED);
+	        String[] operand = generator.postfix(300001, ExpressionGenerator.Shape.BALANCED);
+
+	        //dividend / (operand - operand)
+	        String[] postfix = new String[dividend.length + 2*operand.length + 2];
+	        System.arraycopy(dividend, 0, postfix, 0, dividend.length);
+	        System.arraycopy(operand, 0, postfix, dividend.length, operand.length);
+	        System.arraycopy(operand, 0, postfix, dividend.length + operand.length, operand.length);
+	        postfix[postfix.length-2] = "-";
+	        postfix[postfix.length-1] = "/";
+
+	        Arith.evaluatePostfixParallel(postfix);
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void rejectsMissingOperandTest() {
+	        String[] expression = new ExpressionGenerator(5).postfix(200001, ExpressionGenerator.Shape.RANDOM);
+	        //one operator too many at the end
+	        String[] postfix = new String[expression.length+1];
+	        System.arraycopy(expression, 0, postfix, 0, expression.length);
+	        postfix[expression.length] = "+";
+	        Arith.evaluatePostfixParallel(postfix);
+	    }
+
+	    @Test(expected = IllegalArgumentException.class)
+	    public void rejectsInvalidTokenTest() {
+	        String[] prefix = new ExpressionGenerator(5).prefix(200001, ExpressionGenerator.Shape.BALANCED);
+	        prefix[1000] = "x";
+	        Arith.evaluatePrefixParallel(prefix);
+	    }
+}
@@ -0,0 +1,123 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EmptyStackException;
+
+// -------------------------------------------------------------------------
+/**
+ *  A stack of bytes that keeps its top in memory and spills the rest to a
+ *  temporary file, for the streaming transcoder.
+ *
+ *  The memory buffer holds up to memoryBytes entries. When it is full, its
+ *  bottom half is appended to the file; when it is empty, the last half
+ *  buffer of the file is read back. A push or pop therefore reaches the
+ *  disk at most once per half buffer of entries, however the depth moves,
+ *  and the file is only created once the stack first outgrows memory.
+ */
+final class SpillStack implements Closeable
+{
+	private final byte[] buffer;
+	private final int half;
+	private int top;
+
+	private FileChannel spill;
+	private long spilled;
+
+	/**
+	 * @param memoryBytes : the number of entries kept in memory, at least 2.
+	 **/
+	SpillStack(int memoryBytes)
+	{
+		if(memoryBytes < 2) throw new IllegalArgumentException("A spill stack needs at least 2 bytes of memory: " + memoryBytes);
+		this.buffer = new byte[memoryBytes];
+		this.half = memoryBytes / 2;
+	}
+
+
+	void push(byte value) throws IOException
+	{
+		if(top == buffer.length) spillHalf();
+		buffer[top++] = value;
+	}
+
+
+	/**
+	 * @return the entry on top, removing it.
+	 * @throws EmptyStackException if the stack is empty.
+	 **/
+	byte pop() throws IOException
+	{
+		if(top == 0) refill();
+		return buffer[--top];
+	}
+
+
+	boolean isEmpty()
+	{
+		return top == 0 && spilled == 0;
+	}
+
+
+	/**
+	 * @return the number of entries, in memory and on disk.
+	 **/
+	long size()
+	{
+		return spilled + top;
+	}
+
+
+	/**
+	 * @return the number of entries on disk.
+	 **/
+	long spilled()
+	{
+		return spilled;
+	}
+
+
+	private void spillHalf() throws IOException
+	{
+		if(spill == null) {
+			Path file = Files.createTempFile("arith-stack", ".bin");
+			spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+		}
+		ByteBuffer bottom = ByteBuffer.wrap(buffer, 0, half);
+		long position = spilled;
+		while(bottom.hasRemaining()) position += spill.write(bottom, position);
+		spilled += half;
+
+		System.arraycopy(buffer, half, buffer, 0, top - half);
+		top -= half;
+	}
+
+
+	private void refill() throws IOException
+	{
+		if(spilled == 0) throw new EmptyStackException();
+		int n = (int) Math.min(half, spilled);
+		ByteBuffer block = ByteBuffer.wrap(buffer, 0, n);
+		long position = spilled - n;
+		while(block.hasRemaining()) {
+			int read = spill.read(block, position);
+			if(read < 0) throw new IOException("Spill file truncated at " + position);
+			position += read;
+		}
+		spilled -= n;
+		top = n;
+	}
+
+
+	/**
+	 * Deletes the spill file, if one was created.
+	 **/
+	@Override
+	public void close() throws IOException
+	{
+		if(spill != null) spill.close();
+	}
+}
@@ -0,0 +1,59 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.EmptyStackException;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for SpillStack.java
+ */
+@RunWith(JUnit4.class)
+public class SpillStackTest {
+
+	    @Test
+	    public void spillTest() throws IOException {
+	        try(SpillStack stack = new SpillStack(8)) {
+	            for(int i = 0 ; i < 1000 ; i++) stack.push((byte) i);
+	            assertEquals(1000, stack.size());
+	            assertTrue(stack.spilled() > 0);
+	            for(int i = 999 ; i >= 0 ; i--) assertEquals((byte) i, stack.pop());
+	            assertTrue(stack.isEmpty());
+	        }
+	    }
+
+	    @Test
+	    public void randomTest() throws IOException {
+	        Random random = new Random(3);
+	        byte[] reference = new byte[100_000];
+	        int top = 0;
+	        try(SpillStack stack = new SpillStack(16)) {
+	            for(int step = 0 ; step < 200_000 ; step++) {
+	                if(top > 0 && random.nextInt(5) < 2) assertEquals(reference[--top], stack.pop());
+	                else if(top < reference.length) {
+	                    reference[top] = (byte) random.nextInt();
+	                    stack.push(reference[top++]);
+	                }
+	                assertEquals(top, stack.size());
+	            }
+	        }
+	    }
+
+	    @Test
+	    public void emptyTest() throws IOException {
+	        try(SpillStack stack = new SpillStack(2)) {
+	            assertTrue(stack.isEmpty());
+	            stack.pop();
+	            fail();
+	        }
+	        catch(EmptyStackException e) {
+	            //nothing to pop
+	        }
+	    }
+}
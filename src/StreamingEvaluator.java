@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+// -------------------------------------------------------------------------
+/**
+ *  Validation and evaluation of expressions read token by token from a
+ *  TokenStream, for the streaming Arith methods.
+ *
+ *  Nothing is kept per token, only per level of nesting, so memory is
+ *  O(depth) however long the input is:
+ *  - postfix evaluation keeps the usual operand stack,
+ *  - prefix evaluation reads left to right, the opposite of the array
+ *    methods, keeping a frame per pending operator: its character and,
+ *    once known, its left operand. Each complete operand folds every frame
+ *    that now has both operands, so the frames are the path from the root
+ *    to the current token,
+ *  - validation ports the counters of the array validators, which need no
+ *    stack at all. The two rules that depend on the length of the input
+ *    are checked once the stream has ended.
+ *
+ *  The evaluators are stricter than the array methods, which skip or
+ *  misread some malformed input: a literal that is not a token, a missing
+ *  operand or a leftover operand is always an error.
+ */
+final class StreamingEvaluator
+{
+	private StreamingEvaluator()
+	{
+	}
+
+
+	//~ Evaluation ..................................................................
+
+	/**
+	 * @return the integer result of the postfix expression.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a literal is not a number or an operator, or operands are left over.
+	 **/
+	static int evaluatePostfix(TokenStream tokens) throws IOException
+	{
+		int[] stack = new int[64];
+		int top = 0;
+
+		for(long token = tokens.next() ; token != TokenStream.END ; token = tokens.next()) {
+			if(Tokens.isOperand(token)) {
+				if(top == stack.length) stack = Arrays.copyOf(stack, top*2);
+				stack[top++] = tokens.intValue(token);
+			}
+			else if(Tokens.isOperator(token)) {
+				if(top < 2) throw new EmptyStackException();
+				int n2 = stack[--top];
+				int n1 = stack[--top];
+				stack[top++] = Arith.calculate(Tokens.operator(token), n1, n2);
+			}
+			else throw invalid(tokens);
+		}
+
+		if(top == 0) throw new EmptyStackException();
+		if(top > 1) throw new IllegalArgumentException("Not a single postfix expression, " + top + " operands are left");
+		return stack[0];
+	}
+
+
+	/**
+	 * @return the integer result of the prefix expression.
+	 * @throws EmptyStackException if an operator is missing an operand.
+	 * @throws IllegalArgumentException if a literal is not a number or an operator, or tokens follow the expression.
+	 **/
+	static int evaluatePrefix(TokenStream tokens) throws IOException
+	{
+		//pending operators, and the left operand of those that have one
+		char[] operators = new char[64];
+		int[] lefts = new int[64];
+		boolean[] hasLeft = new boolean[64];
+		int pending = 0;
+		boolean complete = false;
+		int result = 0;
+
+		for(long token = tokens.next() ; token != TokenStream.END ; token = tokens.next()) {
+			if(complete) throw new IllegalArgumentException("Not a single prefix expression, token " + tokens.index() + " \"" + tokens.text() + "\" follows it");
+
+			if(Tokens.isOperator(token)) {
+				if(pending == operators.length) {
+					operators = Arrays.copyOf(operators, pending*2);
+					lefts = Arrays.copyOf(lefts, pending*2);
+					hasLeft = Arrays.copyOf(hasLeft, pending*2);
+				}
+				operators[pending] = Tokens.operator(token);
+				hasLeft[pending] = false;
+				pending++;
+			}
+			else if(Tokens.isOperand(token)) {
+				int value = tokens.intValue(token);
+				//fold every operator this operand completes
+				while(pending > 0 && hasLeft[pending-1]) {
+					pending--;
+					value = Arith.calculate(operators[pending], lefts[pending], value);
+				}
+				if(pending == 0) {
+					result = value;
+					complete = true;
+				}
+				else {
+					lefts[pending-1] = value;
+					hasLeft[pending-1] = true;
+				}
+			}
+			else throw invalid(tokens);
+		}
+
+		if(!complete) throw new EmptyStackException();
+		return result;
+	}
+
+
+	//~ Validation ..................................................................
+
+	/**
+	 * @return the same as Arith.validatePostfixOrder gives for the tokens.
+	 **/
+	static boolean validatePostfix(TokenStream tokens) throws IOException
+	{
+		int operators = 0;
+		int operands = 0;
+		int zero = 0;
+
+		long token = tokens.next();
+		if(token == TokenStream.END) return true;
+		//a single operand is valid, whatever its value
+		String firstText = Tokens.isOperand(token) ? tokens.text() : null;
+		long second = tokens.next();
+		if(second == TokenStream.END && firstText != null) return true;
+
+		for(long i = 0 ; token != TokenStream.END ; i++) {
+			//test if it is operator
+			if(Tokens.isOperator(token)) {
+				if(operands<2) return false;
+				operators++;
+
+				if(Tokens.operator(token) == '/' && zero == 1) return false;
+				else if(zero!=0) zero++;
+
+				//two operands consume one operators, and produce one operand
+				operands -= 1;
+				operators -= 1;
+			}
+
+			//check if only matches digit
+			else if(Tokens.isOperand(token)) {
+				operands++;
+				int value = Tokens.isIdentifier(token) ? 1 : i == 0 ? Tokens.intValue(token, firstText) : tokens.intValue(token);
+				if(value == 0) zero = 2;
+				else zero--;
+			}
+
+			else return false;
+
+			token = i == 0 ? second : tokens.next();
+		}
+
+		return (operators == 0 && operands == 1);
+	}
+
+
+	/**
+	 * @return the same as Arith.validatePrefixOrder gives for the tokens.
+	 **/
+	static boolean validatePrefix(TokenStream tokens) throws IOException
+	{
+		int operators = 0;
+		int operands = 0;
+		int divide = 0;
+		//whether the last two tokens read were operators
+		boolean previousOperator = false;
+		boolean lastOperator = false;
+
+		long token = tokens.next();
+		if(token == TokenStream.END) return true;
+		if(Tokens.isOperand(token)) return tokens.next() == TokenStream.END;
+
+		for( ; token != TokenStream.END ; token = tokens.next()) {
+			previousOperator = lastOperator;
+			lastOperator = Tokens.isOperator(token);
+
+			//check if only matches digit
+			if(Tokens.isOperand(token)) {
+				if(operators<1) return false;
+				//division by 0, right after an operator divide is never 1
+				if(divide == 1 && !Tokens.isIdentifier(token) && tokens.intValue(token)==0) return false;
+				else if(divide != 0) divide--;
+
+				operands++;
+				//two operands consume one operators
+				if (operands >= 2) {
+					//produce one operand
+					operands -= (2-1);
+					operators -= 1;
+				}
+			}
+
+			//test if it is operator
+			else if(Tokens.isOperator(token)) {
+				operators++;
+
+				//set flag for division
+				if(Tokens.operator(token) == '/') divide = 2;
+
+				//add one step for each other operators
+				else if(divide != 0) divide ++;
+			}
+			//invalid input
+			else return false;
+		}
+
+		//operators can never be the second to last element
+		if(previousOperator) return false;
+		return (operators == 0 && operands == 1);
+	}
+
+
+	private static IllegalArgumentException invalid(TokenStream tokens)
+	{
+		return new IllegalArgumentException("Invalid token \"" + tokens.text() + "\" at index " + tokens.index());
+	}
+}
@@ -0,0 +1,203 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.EmptyStackException;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for StreamingEvaluator.java
+ */
+@RunWith(JUnit4.class)
+public class StreamingEvaluatorTest {
+
+	    @Test
+	    public void evaluateTest() throws IOException {
+	        assertEquals(9, Arith.evaluatePostfix("1 2 + 3 *"));
+	        assertEquals(9, Arith.evaluatePostfix(new StringReader("  1\t2 +\n3   *\n")));
+	        assertEquals(-1, Arith.evaluatePrefix("- 1 2"));
+	        assertEquals(5, Arith.evaluatePrefix(new StringReader("- 8 / 6 2")));
+	        assertEquals(42, Arith.evaluatePrefix("42"));
+	        assertEquals(Integer.MAX_VALUE, Arith.evaluatePostfix("1 2 ,"));
+	    }
+
+	    @Test
+	    public void rejectTest() {
+	        String[] missingPostfix = {"", "  ", "1 +", "+"};
+	        for(String text : missingPostfix) {
+	            try {
+	                Arith.evaluatePostfix(text);
+	                fail(text);
+	            }
+	            catch(EmptyStackException expected) {
+	            }
+	        }
+	        String[] missingPrefix = {"", "  ", "+ 1", "+", "* + 1 2"};
+	        for(String text : missingPrefix) {
+	            try {
+	                Arith.evaluatePrefix(text);
+	                fail(text);
+	            }
+	            catch(EmptyStackException expected) {
+	            }
+	        }
+
+	        String[] malformedPostfix = {"1 2", "1 2 + 3", "1 x +", "1 2 ++", "1 2 #"};
+	        for(String text : malformedPostfix) {
+	            try {
+	                Arith.evaluatePostfix(text);
+	                fail(text);
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	        }
+	        String[] malformedPrefix = {"+ 1 2 3", "1 2", "+ 1 x", "+ 1 1x"};
+	        for(String text : malformedPrefix) {
+	            try {
+	                Arith.evaluatePrefix(text);
+	                fail(text);
+	            }
+	            catch(IllegalArgumentException expected) {
+	            }
+	        }
+	        try {
+	            Arith.evaluatePostfix("1 0 /");
+	            fail();
+	        }
+	        catch(ArithmeticException expected) {
+	        }
+	        try {
+	            Arith.evaluatePostfix("99999999999");
+	            fail();
+	        }
+	        catch(NumberFormatException expected) {
+	        }
+	    }
+
+	    @Test
+	    public void matchesArrayMethodsTest() throws IOException {
+	        ExpressionGenerator generator = new ExpressionGenerator(20);
+	        Random random = new Random(20);
+
+	        for(int e = 0 ; e < 500 ; e++) {
+	            String[] postfix = generator.postfix(1 + 2*random.nextInt(100), ExpressionGenerator.Shape.values()[e % 4]);
+	            String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	            String postfixText = String.join(" ", postfix);
+	            String prefixText = String.join(" ", prefix);
+
+	            assertEquals(Arith.evaluatePostfixOrder(postfix), Arith.evaluatePostfix(postfixText));
+	            assertEquals(Arith.evaluatePrefixOrder(prefix), Arith.evaluatePrefix(prefixText));
+	            //tiny reads split tokens across buffer refills
+	            assertEquals(Arith.evaluatePostfixOrder(postfix), Arith.evaluatePostfix(new TrickleReader(postfixText)));
+	            assertEquals(Arith.evaluatePrefixOrder(prefix), Arith.evaluatePrefix(new TrickleReader(prefixText)));
+	        }
+	    }
+
+	    @Test
+	    public void validateMatchesArrayMethodsTest() throws IOException {
+	        Random random = new Random(21);
+	        String[] alphabet = {"0", "1", "2", "x", "+", "-", "*", "/", "1x", "99999999999"};
+
+	        for(int e = 0 ; e < 20000 ; e++) {
+	            String[] tokens = new String[random.nextInt(7)];
+	            for(int i = 0 ; i < tokens.length ; i++) tokens[i] = alphabet[random.nextInt(alphabet.length - (e % 10 == 0 ? 0 : 1))];
+	            String text = String.join(" ", tokens);
+
+	            assertEquals(text, outcome(() -> Arith.validatePrefixOrder(tokens)), outcome(() -> Arith.validatePrefix(text)));
+	            assertEquals(text, outcome(() -> Arith.validatePostfixOrder(tokens)), outcome(() -> Arith.validatePostfix(text)));
+	            assertEquals(text, outcome(() -> Arith.validatePostfixOrder(tokens)), outcome(() -> Arith.validatePostfix(new StringReader(text))));
+	        }
+	        assertTrue(Arith.validatePostfix("1 2 +"));
+	        assertFalse(Arith.validatePrefix(new StringReader("/ 1 0")));
+	    }
+
+	    @Test
+	    public void longStreamTest() throws IOException {
+	        //two million tokens that are never held in memory at once
+	        int operands = 1000000;
+	        assertEquals(operands, Arith.evaluatePostfix(new RepeatReader("1 ", "1 + ", operands-1)));
+	        assertEquals(operands, Arith.evaluatePrefix(new RepeatReader("", "+ 1 ", operands-1, "1")));
+	    }
+
+	    private interface Check {
+	        boolean run() throws IOException;
+	    }
+
+	    private static String outcome(Check check) throws IOException {
+	        try {
+	            return String.valueOf(check.run());
+	        }
+	        catch(RuntimeException e) {
+	            return e.getClass().getSimpleName();
+	        }
+	    }
+
+	    /** Hands out at most three characters per read. */
+	    private static final class TrickleReader extends Reader {
+	        private final String text;
+	        private int position;
+
+	        TrickleReader(String text) {
+	            this.text = text;
+	        }
+
+	        @Override
+	        public int read(char[] buffer, int offset, int length) {
+	            if(position == text.length()) return -1;
+	            int n = Math.min(Math.min(length, 3), text.length() - position);
+	            text.getChars(position, position + n, buffer, offset);
+	            position += n;
+	            return n;
+	        }
+
+	        @Override
+	        public void close() {
+	        }
+	    }
+
+	    /** Hands out head, then body a number of times, then tail, one part per read. */
+	    private static final class RepeatReader extends Reader {
+	        private final String head;
+	        private final String body;
+	        private final String tail;
+	        private final int times;
+	        private int part = -1;
+
+	        RepeatReader(String head, String body, int times) {
+	            this(head, body, times, "");
+	        }
+
+	        RepeatReader(String head, String body, int times, String tail) {
+	            this.head = head;
+	            this.body = body;
+	            this.times = times;
+	            this.tail = tail;
+	        }
+
+	        @Override
+	        public int read(char[] buffer, int offset, int length) {
+	            //part 0 is the head, parts 1 to times the body and part times+1 the tail
+	            for(part++ ; part <= times + 1 ; part++) {
+	                String text = part == 0 ? head : part <= times ? body : tail;
+	                if(text.length() > 0) {
+	                    text.getChars(0, text.length(), buffer, offset);
+	                    return text.length();
+	                }
+	            }
+	            return -1;
+	        }
+
+	        @Override
+	        public void close() {
+	        }
+	    }
+}
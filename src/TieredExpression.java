@@ -0,0 +1,104 @@
+import java.util.function.ToIntFunction;
+
+// -------------------------------------------------------------------------
+/**
+ *  A compiled expression that starts out interpreted and is promoted to
+ *  generated bytecode once it has proven hot.
+ *
+ *  The first evaluations run the CompiledExpression interpreter, which
+ *  costs nothing up front. Once an expression has been evaluated
+ *  promoteAfter times it is compiled by ExpressionCompiler, on the thread
+ *  that crossed the threshold, and every later evaluation calls the
+ *  generated class instead. The generated function is published through a
+ *  volatile field, so other threads pick it up on their next evaluation.
+ *  Expressions too large for a single method stay interpreted.
+ *
+ *  The evaluation counter is deliberately not atomic: a few lost updates
+ *  only delay the promotion a little.
+ *
+ *  Instances are thread-safe. Use CompiledExpression.tiered to create one.
+ */
+public final class TieredExpression
+{
+	/** Evaluations before promotion used by CompiledExpression.tiered(). */
+	public static final int DEFAULT_THRESHOLD = 10000;
+
+	private static final int[] NO_BINDINGS = {};
+
+	private final CompiledExpression expression;
+	private final int promoteAfter;
+	private final boolean compilable;
+	private volatile ToIntFunction<int[]> compiled;
+	private int evaluations;
+
+	TieredExpression(CompiledExpression expression, int promoteAfter)
+	{
+		if(promoteAfter < 0) throw new IllegalArgumentException("promoteAfter must not be negative: " + promoteAfter);
+		this.expression = expression;
+		this.promoteAfter = promoteAfter;
+		this.compilable = expression.compilable();
+		if(promoteAfter == 0 && compilable) compiled = expression.toFunction();
+	}
+
+
+	/**
+	 * Evaluates an expression without variables.
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 * @throws IllegalStateException if the expression has variables.
+	 **/
+	public int evaluate()
+	{
+		if(expression.variableCount() > 0) throw new IllegalStateException("Expression has variables, bind them");
+		return evaluate(NO_BINDINGS);
+	}
+
+
+	/**
+	 * Evaluates the expression with a value for each variable.
+	 *
+	 * @param bindings : the value of each variable, indexed by slot(name).
+	 *
+	 * @return the integer result of evaluating the expression.
+	 * @throws ArithmeticException on division by zero.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(n) worst-case: One step per instruction, interpreted or compiled.
+	 * 	Space Complexity: 0(d) worst-case: A stack as deep as the expression while interpreted, nothing once compiled.
+	 **/
+	public int evaluate(int bindings[])
+	{
+		if(bindings.length < expression.variableCount()) throw new IllegalArgumentException("Expected " + expression.variableCount() + " bindings");
+
+		ToIntFunction<int[]> function = compiled;
+		if(function != null) return function.applyAsInt(bindings);
+
+		if(compilable && ++evaluations >= promoteAfter) promote();
+		return expression.evaluate(bindings, new int[expression.stackSize()]);
+	}
+
+
+	/**
+	 * @return true once the expression runs as generated bytecode.
+	 **/
+	public boolean isPromoted()
+	{
+		return compiled != null;
+	}
+
+
+	/**
+	 * @return the underlying interpreted expression.
+	 **/
+	public CompiledExpression expression()
+	{
+		return expression;
+	}
+
+
+	private synchronized void promote()
+	{
+		if(compiled == null) compiled = expression.toFunction();
+	}
+}
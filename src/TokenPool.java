@@ -0,0 +1,119 @@
+// -------------------------------------------------------------------------
+/**
+ *  Shared instances of the tokens that make up most of any expression:
+ *  the operators, the parentheses and the numbers below SMALL_NUMBERS.
+ *
+ *  The conversion methods write these instances instead of the caller's
+ *  literals, so the output holds one String per distinct small token no
+ *  matter how many times it appears, and the duplicates a tokenizer such
+ *  as String.split created can be collected with the input. Other
+ *  literals, large numbers and variables, are written as they were given.
+ *
+ *  Every pooled String is interned, so it is also the same instance as
+ *  the equal literal in Java source code.
+ */
+public final class TokenPool
+{
+	/** Numbers from 0 up to, but not including, this one are pooled. */
+	public static final int SMALL_NUMBERS = 1000;
+
+	/** The opening parenthesis of infix output. */
+	public static final String OPEN = "(";
+
+	/** The closing parenthesis of infix output. */
+	public static final String CLOSE = ")";
+
+	/** The pooled one-character tokens, indexed by their character. */
+	private static final String[] SINGLE = new String['9' + 1];
+
+	private static final String[] NUMBERS = new String[SMALL_NUMBERS];
+
+	static {
+		for(int i = 0 ; i < SMALL_NUMBERS ; i++) NUMBERS[i] = Integer.toString(i).intern();
+		for(char c = '0' ; c <= '9' ; c++) SINGLE[c] = NUMBERS[c - '0'];
+		for(char c = '*' ; c <= '/' ; c++) SINGLE[c] = String.valueOf(c).intern();
+		SINGLE['('] = OPEN;
+		SINGLE[')'] = CLOSE;
+	}
+
+	private TokenPool()
+	{
+	}
+
+
+	/**
+	 * Returns the shared instance of a token.
+	 *
+	 * @param literal : any literal.
+	 *
+	 * @return the pooled String equal to literal if there is one, or literal itself.
+	 * A number written with leading zeros is not equal to any pooled String and is returned as it is.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(1) worst-case: Looks at no more than three characters.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
+	 **/
+	public static String canonical(String literal)
+	{
+		int length = literal.length();
+		char c = length > 0 ? literal.charAt(0) : 0;
+		if(length == 1) {
+			String single = c < SINGLE.length ? SINGLE[c] : null;
+			return single != null ? single : literal;
+		}
+		if(length > 3 || c < '1' || c > '9') return literal;
+
+		int value = c - '0';
+		for(int i = 1 ; i < length ; i++) {
+			c = literal.charAt(i);
+			if(c < '0' || c > '9') return literal;
+			value = value*10 + (c - '0');
+		}
+		return NUMBERS[value];
+	}
+
+
+	/**
+	 * Looks up the shared instance of a token held as ISO-8859-1 bytes, without decoding it.
+	 *
+	 * @return the pooled String equal to the bytes [from, to), or null if there is none.
+	 **/
+	static String pooled(byte bytes[], int from, int to)
+	{
+		int length = to - from;
+		if(length < 1 || length > 3) return null;
+		char c = (char) (bytes[from] & 0xFF);
+		if(length == 1) return c < SINGLE.length ? SINGLE[c] : null;
+		if(c < '1' || c > '9') return null;
+
+		int value = c - '0';
+		for(int i = from+1 ; i < to ; i++) {
+			c = (char) (bytes[i] & 0xFF);
+			if(c < '0' || c > '9') return null;
+			value = value*10 + (c - '0');
+		}
+		return NUMBERS[value];
+	}
+
+
+	/**
+	 * @param value : a non-negative number.
+	 *
+	 * @return the shared String of value if it is small, or a new one.
+	 **/
+	public static String number(int value)
+	{
+		return value >= 0 && value < SMALL_NUMBERS ? NUMBERS[value] : Integer.toString(value);
+	}
+
+
+	/**
+	 * @param operator : one of the operator characters '*' to '/'.
+	 *
+	 * @return the shared String of the operator.
+	 **/
+	public static String operator(char operator)
+	{
+		return SINGLE[operator];
+	}
+}
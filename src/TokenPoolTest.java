@@ -0,0 +1,79 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for TokenPool.java
+ */
+@RunWith(JUnit4.class)
+public class TokenPoolTest {
+
+	    @Test
+	    public void canonicalTest() {
+	        assertSame("+", TokenPool.canonical(new String("+")));
+	        assertSame(",", TokenPool.canonical(new String(",")));
+	        assertSame("(", TokenPool.canonical(new String("(")));
+	        assertSame("7", TokenPool.canonical(new String("7")));
+	        assertSame("999", TokenPool.canonical(new String("999")));
+	        assertSame(TokenPool.number(42), TokenPool.canonical(new String("42")));
+	        assertSame(TokenPool.operator('/'), TokenPool.canonical("/"));
+
+	        //not pooled, returned as given
+	        String[] kept = {"1000", "007", "x", "1x", "", "12a", "\u00e9"};
+	        for(String literal : kept) {
+	            String copy = new String(literal);
+	            assertSame(copy, TokenPool.canonical(copy));
+	        }
+	        assertEquals("1000", TokenPool.number(1000));
+	        assertNotSame(TokenPool.number(1000), TokenPool.number(1000));
+	    }
+
+	    @Test
+	    public void conversionsShareTokensTest() {
+	        //tokens as a tokenizer would create them, a new String each
+	        String[] postfix = "10 20 + 10 * 20 - 5000 /".split(" ");
+	        String[] prefix = Arith.convertPostfixToPrefix(postfix);
+	        String[] infix = Arith.convertPostfixToInfix(postfix);
+
+	        assertArrayEquals(new String[] {"/", "-", "*", "+", "10", "20", "10", "20", "5000"}, prefix);
+	        assertSame(prefix[4], prefix[6]);
+	        assertSame("+", prefix[3]);
+	        //large numbers keep the caller's instance
+	        assertSame(postfix[7], prefix[8]);
+
+	        assertSame("(", infix[0]);
+	        assertSame(")", infix[infix.length-1]);
+	        for(String token : Arith.convertInfixToPostfix(infix)) {
+	            if(!token.equals("5000")) assertSame(TokenPool.canonical(token), token);
+	        }
+	    }
+
+	    @Test
+	    public void indicesTest() {
+	        String[] prefix = {"-", "*", "2", "3", "4"};
+	        String[] postfix = {"2", "3", "*", "4", "-"};
+
+	        assertArrayEquals(new int[] {2, 3, 1, 4, 0}, Arith.convertPrefixToPostfixIndices(prefix));
+	        assertArrayEquals(new int[] {4, 2, 0, 1, 3}, Arith.convertPostfixToPrefixIndices(postfix));
+
+	        int o = Arith.OPEN_PARENTHESIS;
+	        int c = Arith.CLOSE_PARENTHESIS;
+	        assertArrayEquals(new int[] {o, o, 2, 1, 3, c, 0, 4, c}, Arith.convertPrefixToInfixIndices(prefix));
+	        assertArrayEquals(new int[] {o, o, 0, 2, 1, c, 4, 3, c}, Arith.convertPostfixToInfixIndices(postfix));
+	        assertArrayEquals(new int[] {0}, Arith.convertPostfixToInfixIndices(new String[] {"7"}));
+
+	        //the indices pick out the same tokens as the String conversions
+	        String[] infix = Arith.convertPostfixToInfix(postfix);
+	        int[] indices = Arith.convertPostfixToInfixIndices(postfix);
+	        for(int i = 0 ; i < infix.length ; i++) {
+	            String expected = indices[i] == o ? "(" : indices[i] == c ? ")" : postfix[indices[i]];
+	            assertEquals(expected, infix[i]);
+	        }
+	    }
+}
@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.io.Reader;
+
+// -------------------------------------------------------------------------
+/**
+ *  Whitespace-separated tokens read one at a time from a Reader or a
+ *  CharSequence, for the streaming Arith methods.
+ *
+ *  Tokens are classified while their characters are read, with the same
+ *  rules and the same packed results as Tokens.scan, so no String is
+ *  created per token and a token of any length takes constant memory.
+ *  Only the first TEXT_LIMIT characters of the current token are kept,
+ *  for error messages.
+ */
+final class TokenStream
+{
+	/** Result of next() once the input is exhausted. */
+	static final long END = Long.MIN_VALUE + 3;
+
+	/** Characters of a token kept for text(). */
+	static final int TEXT_LIMIT = 64;
+
+	private final Reader reader;
+	private final CharSequence chars;
+	private final char[] buffer;
+	private int position;
+	private int limit;
+
+	private final char[] text = new char[TEXT_LIMIT];
+	private int length;
+	private long index = -1;
+
+	/**
+	 * @param reader : the input, read in blocks and never closed.
+	 **/
+	TokenStream(Reader reader)
+	{
+		this.reader = reader;
+		this.chars = null;
+		this.buffer = new char[8192];
+	}
+
+
+	/**
+	 * @param chars : the input.
+	 **/
+	TokenStream(CharSequence chars)
+	{
+		this.reader = null;
+		this.chars = chars;
+		this.buffer = null;
+		this.limit = chars.length();
+	}
+
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @return the packed scan result of the token as Tokens.scan describes it, or END.
+	 * @throws IOException if the reader fails.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(k) worst-case: Looks at each of the k characters once, plus the whitespace before them.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
+	 **/
+	long next() throws IOException
+	{
+		int c = read();
+		while(c >= 0 && Character.isWhitespace(c)) c = read();
+		if(c < 0) return END;
+		index++;
+
+		char first = (char) c;
+		boolean identifier = Tokens.isIdentifierStart(first);
+		boolean digits = first >= '0' && first <= '9';
+		long value = 0;
+		boolean overflow = false;
+		length = 0;
+		int count = 0;
+
+		for( ; c >= 0 && !Character.isWhitespace(c) ; c = read()) {
+			char ch = (char) c;
+			if(length < TEXT_LIMIT) text[length++] = ch;
+			count++;
+
+			if(identifier && !Tokens.isIdentifierStart(ch) && (ch < '0' || ch > '9')) identifier = false;
+			if(digits) {
+				if(ch < '0' || ch > '9') digits = false;
+				//keep scanning after an overflow, a later non-digit still makes it invalid
+				else if(!overflow) {
+					int digit = ch - '0';
+					if(value > (Long.MAX_VALUE - digit) / 10) overflow = true;
+					else value = value*10 + digit;
+				}
+			}
+		}
+
+		if(count == 1 && (first == '*' || (first >= '+' && first <= '/'))) return -first;
+		if(identifier) return Tokens.IDENTIFIER;
+		if(digits) return overflow ? Tokens.TOO_LARGE : value;
+		return Tokens.INVALID;
+	}
+
+
+	/**
+	 * @return the position of the current token among the tokens read, 0 for the first.
+	 **/
+	long index()
+	{
+		return index;
+	}
+
+
+	/**
+	 * @return the current token, cut after TEXT_LIMIT characters.
+	 **/
+	String text()
+	{
+		return new String(text, 0, length);
+	}
+
+
+	/**
+	 * Narrows an operand of the current token to an int, like Tokens.intValue.
+	 *
+	 * @throws NumberFormatException if the value does not fit in an int.
+	 * @throws IllegalArgumentException if the operand is a variable.
+	 **/
+	int intValue(long token)
+	{
+		if(token >= 0 && token <= Integer.MAX_VALUE) return (int) token;
+		return Tokens.intValue(token, text());
+	}
+
+
+	private int read() throws IOException
+	{
+		if(position == limit) {
+			if(reader == null) return -1;
+			limit = reader.read(buffer, 0, buffer.length);
+			position = 0;
+			if(limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return reader == null ? chars.charAt(position++) : buffer[position++];
+	}
+}
@@ -0,0 +1,156 @@
+// -------------------------------------------------------------------------
+/**
+ *  Hand-written token scanner shared by the Arith methods.
+ *
+ *  A single call to scan() both classifies a literal and, for operands,
+ *  parses its value, so callers never need String.matches or a second
+ *  Integer.parseInt pass. The accepted token set is exactly the one of the
+ *  regular expressions used before, plus variables:
+ *  - number operands match "[0-9]+"
+ *  - variable operands match "[A-Za-z_][A-Za-z0-9_]*"
+ *  - operators match "[*+-/]", which is a character range and therefore
+ *    also accepts "," and ".".
+ *
+ *  The result of scan() is packed into a long so that nothing is allocated:
+ *  - a value >= 0 is the value of an operand,
+ *  - a value between -'/' and -'*' is the negated operator character,
+ *  - TOO_LARGE is an operand whose digits do not fit in a long,
+ *  - IDENTIFIER is a variable operand,
+ *  - INVALID is anything else.
+ */
+final class Tokens
+{
+	/** Scan result for literals that are neither operands nor operators. */
+	static final long INVALID = Long.MIN_VALUE;
+
+	/** Scan result for operands whose digits do not fit in a long. */
+	static final long TOO_LARGE = Long.MIN_VALUE + 1;
+
+	/** Scan result for variable operands. */
+	static final long IDENTIFIER = Long.MIN_VALUE + 2;
+
+	private Tokens()
+	{
+	}
+
+
+	/**
+	 * Classifies and parses a single literal.
+	 *
+	 * @param literal : the token to scan.
+	 *
+	 * @return the packed scan result described in the class comment.
+	 *
+	 * Argument:
+	 * 	Runtime: 0(k) worst-case: Looks at each of the k characters once.
+	 * 	Space Complexity: 0(1) worst-case: Only uses constants.
+	 **/
+	static long scan(String literal)
+	{
+		int length = literal.length();
+		if(length == 0) return INVALID;
+
+		char c = literal.charAt(0);
+		if(length == 1) {
+			if(c >= '0' && c <= '9') return c - '0';
+			if(c == '*' || (c >= '+' && c <= '/')) return -c;
+			return isIdentifierStart(c) ? IDENTIFIER : INVALID;
+		}
+		if(isIdentifierStart(c)) {
+			for(int i = 1 ; i < length ; i++) {
+				c = literal.charAt(i);
+				if(!isIdentifierStart(c) && (c < '0' || c > '9')) return INVALID;
+			}
+			return IDENTIFIER;
+		}
+
+		long value = 0;
+		boolean overflow = false;
+		for(int i = 0 ; i < length ; i++) {
+			c = literal.charAt(i);
+			if(c < '0' || c > '9') return INVALID;
+			//keep scanning after an overflow, a later non-digit still makes it invalid
+			if(!overflow) {
+				int digit = c - '0';
+				if(value > (Long.MAX_VALUE - digit) / 10) overflow = true;
+				else value = value*10 + digit;
+			}
+		}
+		return overflow ? TOO_LARGE : value;
+	}
+
+
+	/**
+	 * @return true if the scan result is an operand, including TOO_LARGE ones and variables.
+	 **/
+	static boolean isOperand(long token)
+	{
+		return token >= 0 || token == TOO_LARGE || token == IDENTIFIER;
+	}
+
+
+	/**
+	 * @return true if the scan result is a variable.
+	 **/
+	static boolean isIdentifier(long token)
+	{
+		return token == IDENTIFIER;
+	}
+
+
+	/**
+	 * @return true if the scan result is an operator.
+	 **/
+	static boolean isOperator(long token)
+	{
+		return token <= -'*' && token >= -'/';
+	}
+
+
+	/**
+	 * @return the operator character of an operator scan result.
+	 **/
+	static char operator(long token)
+	{
+		return (char) -token;
+	}
+
+
+	/**
+	 * Narrows an operand scan result to an int, failing the way Integer.parseInt does.
+	 *
+	 * @param token : the scan result of literal, which must be an operand.
+	 * @param literal : the scanned literal, only used for the error message.
+	 *
+	 * @return the value of the operand.
+	 * @throws NumberFormatException if the value does not fit in an int.
+	 * @throws IllegalArgumentException if the operand is a variable, which has no value of its own.
+	 **/
+	static int intValue(long token, String literal)
+	{
+		if(token == IDENTIFIER) throw unbound(literal);
+		if(token < 0 || token > Integer.MAX_VALUE) {
+			throw new NumberFormatException("For input string: \"" + literal + "\"");
+		}
+		return (int) token;
+	}
+
+
+	/**
+	 * @return the exception for evaluating a variable without a binding.
+	 **/
+	static IllegalArgumentException unbound(String literal)
+	{
+		return new EvaluationResult.FailureException(EvaluationResult.Failure.UNBOUND_VARIABLE,
+				"Variable \"" + literal + "\" has no value, compile the expression and bind it");
+	}
+
+
+	/**
+	 * @return true for the characters a variable name can start with.
+	 **/
+	static boolean isIdentifierStart(char c)
+	{
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+}
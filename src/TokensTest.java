@@ -0,0 +1,55 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+//-------------------------------------------------------------------------
+/**
+ *  Test class for Tokens.java
+ */
+@RunWith(JUnit4.class)
+public class TokensTest {
+
+	    @Test
+	    public void scanAcceptsSameTokensAsRegexTest() {
+	        String[] literals = {"", "0", "7", "42", "007", "-1", "+1", "1a", "a", " ", "1 ",
+	                             "*", "+", ",", "-", ".", "/", "**", "(", ")", "%", "x",
+	                             "_", "x1", "_tmp", "rate_2", "1x", "x-1", "x.y", "\u00e9",
+	                             "2147483647", "2147483648", "9223372036854775807", "99999999999999999999"};
+
+	        for(String literal : literals) {
+	            long token = Tokens.scan(literal);
+	            assertEquals(literal, literal.matches("[0-9]+|[A-Za-z_][A-Za-z0-9_]*"), Tokens.isOperand(token));
+	            assertEquals(literal, literal.matches("[A-Za-z_][A-Za-z0-9_]*"), Tokens.isIdentifier(token));
+	            assertEquals(literal, literal.matches("[*+-/]"), Tokens.isOperator(token));
+	        }
+	    }
+
+	    @Test
+	    public void scanParsesValueTest() {
+	        assertEquals(0, Tokens.scan("0"));
+	        assertEquals(7, Tokens.scan("007"));
+	        assertEquals(2147483648L, Tokens.scan("2147483648"));
+	        assertEquals(Long.MAX_VALUE, Tokens.scan("9223372036854775807"));
+	        assertEquals(Tokens.TOO_LARGE, Tokens.scan("9223372036854775808"));
+	        assertEquals(Tokens.INVALID, Tokens.scan("99999999999999999999x"));
+	        assertEquals('/', Tokens.operator(Tokens.scan("/")));
+	        assertEquals(2147483647, Tokens.intValue(Tokens.scan("2147483647"), "2147483647"));
+	    }
+
+	    @Test(expected = NumberFormatException.class)
+	    public void intValueRejectsLargeOperandTest() {
+	        Tokens.intValue(Tokens.scan("2147483648"), "2147483648");
+	    }
+
+	    @Test
+	    public void invalidTokenIsNeitherTest() {
+	        assertFalse(Tokens.isOperand(Tokens.INVALID));
+	        assertFalse(Tokens.isOperator(Tokens.INVALID));
+	        assertTrue(Tokens.isOperand(Tokens.TOO_LARGE));
+	        assertFalse(Tokens.isOperator(Tokens.TOO_LARGE));
+	    }
+}
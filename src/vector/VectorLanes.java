@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// -------------------------------------------------------------------------
+/**
+ *  The lane-wise operators of ColumnEvaluator, written with the incubating
+ *  Vector API so every operator, division included, runs as SIMD
+ *  instructions of the widest shape the CPU supports.
+ *
+ *  This class is kept apart from the other sources because it needs the
+ *  jdk.incubator.vector module to compile and to run:
+ *  	javac --add-modules jdk.incubator.vector -d out src/*.java src/vector/*.java
+ *  	java --add-modules jdk.incubator.vector -cp out ...
+ *  ColumnEvaluator only loads it when that module is in the boot layer, and
+ *  uses its scalar loops otherwise, so a build without this class, or a run
+ *  without the flag, works the same, only without the SIMD division.
+ */
+final class VectorLanes implements ColumnEvaluator.Lanes
+{
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+	@Override
+	public void apply(byte op, int a[], int b[], int lanes)
+	{
+		switch(op) {
+		case CompiledExpression.ADD:				apply(VectorOperators.ADD, false, op, a, b, lanes); break;
+		case CompiledExpression.SUBTRACT:			apply(VectorOperators.SUB, false, op, a, b, lanes); break;
+		case CompiledExpression.MULTIPLY:			apply(VectorOperators.MUL, false, op, a, b, lanes); break;
+		case CompiledExpression.DIVIDE:				apply(VectorOperators.DIV, false, op, a, b, lanes); break;
+		case CompiledExpression.REVERSE_SUBTRACT:	apply(VectorOperators.SUB, true, op, a, b, lanes); break;
+		case CompiledExpression.REVERSE_DIVIDE:		apply(VectorOperators.DIV, true, op, a, b, lanes); break;
+		default:									Arrays.fill(a, 0, lanes, Integer.MAX_VALUE);
+		}
+	}
+
+
+	@Override
+	public void apply(byte op, long a[], long b[], int lanes)
+	{
+		switch(op) {
+		case CompiledExpression.ADD:				apply(VectorOperators.ADD, false, op, a, b, lanes); break;
+		case CompiledExpression.SUBTRACT:			apply(VectorOperators.SUB, false, op, a, b, lanes); break;
+		case CompiledExpression.MULTIPLY:			apply(VectorOperators.MUL, false, op, a, b, lanes); break;
+		case CompiledExpression.DIVIDE:				apply(VectorOperators.DIV, false, op, a, b, lanes); break;
+		case CompiledExpression.REVERSE_SUBTRACT:	apply(VectorOperators.SUB, true, op, a, b, lanes); break;
+		case CompiledExpression.REVERSE_DIVIDE:		apply(VectorOperators.DIV, true, op, a, b, lanes); break;
+		default:									Arrays.fill(a, 0, lanes, Long.MAX_VALUE);
+		}
+	}
+
+
+	/** Whole vectors first, then the remaining lanes one at a time. */
+	private static void apply(VectorOperators.Binary operator, boolean reversed, byte op, int a[], int b[], int lanes)
+	{
+		int i = 0;
+		for(int bound = INTS.loopBound(lanes) ; i < bound ; i += INTS.length()) {
+			IntVector x = IntVector.fromArray(INTS, a, i);
+			IntVector y = IntVector.fromArray(INTS, b, i);
+			(reversed ? y.lanewise(operator, x) : x.lanewise(operator, y)).intoArray(a, i);
+		}
+		for( ; i < lanes ; i++) a[i] = CompiledExpression.apply(op, a[i], b[i]);
+	}
+
+
+	private static void apply(VectorOperators.Binary operator, boolean reversed, byte op, long a[], long b[], int lanes)
+	{
+		int i = 0;
+		for(int bound = LONGS.loopBound(lanes) ; i < bound ; i += LONGS.length()) {
+			LongVector x = LongVector.fromArray(LONGS, a, i);
+			LongVector y = LongVector.fromArray(LONGS, b, i);
+			(reversed ? y.lanewise(operator, x) : x.lanewise(operator, y)).intoArray(a, i);
+		}
+		for( ; i < lanes ; i++) a[i] = CompiledExpression.apply(op, a[i], b[i]);
+	}
+}